@@ -0,0 +1,29 @@
+package geometries;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of building a bounding volume hierarchy over geometries, or restoring a saved one
+ *
+ * @author Naama and Yeela
+ */
+@Name("raytracer.AccelerationBuild")
+@Label("Acceleration Build")
+@Category("Ray Tracer")
+@Description("Building or restoring a bounding volume hierarchy")
+class AccelerationBuildEvent extends Event {
+    /**
+     * amount of geometries the hierarchy is built over
+     */
+    @Label("Geometries")
+    int geometries;
+    /**
+     * whether the hierarchy was restored from a file instead of built
+     */
+    @Label("Restored")
+    boolean restored;
+}
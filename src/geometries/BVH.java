@@ -0,0 +1,604 @@
+package geometries;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class BVH is a bounding volume hierarchy over a collection of geometries, kept flattened in
+ * primitive arrays. The hierarchy can be refit in place after geometries move (bounds updated bottom-up),
+ * and is rebuilt automatically when its quality degrades past a threshold, so animated scenes
+ * do not pay the full build cost every frame.
+ *
+ * @author Naama and Yeela
+ */
+public final class BVH extends Intersectable {
+    /**
+     * maximal amount of geometries in a leaf node
+     */
+    private static final int MAX_LEAF_SIZE = 4;
+    /**
+     * estimated cost of traversing a node, relative to intersecting a geometry
+     */
+    private static final double TRAVERSAL_COST = 0.5;
+    /**
+     * initial depth of the traversal stack, grown when a degenerate hierarchy is deeper
+     */
+    private static final int STACK_SIZE = 64;
+    /**
+     * identifier at the head of a saved hierarchy file
+     */
+    private static final int FILE_MAGIC = 0x42564831;
+    /**
+     * version of the saved hierarchy file layout
+     */
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * geometries without bounds (e.g. planes), tested against every ray
+     */
+    private final List<Intersectable> unbounded = new LinkedList<>();
+    /**
+     * bounded geometries, ordered so each leaf references a consecutive range
+     */
+    private Intersectable[] primitives;
+    /**
+     * boxes of the nodes, 6 numbers per node (min x,y,z then max x,y,z)
+     */
+    private double[] bounds;
+    /**
+     * for a leaf - index of its first geometry, for an inner node - index of its second child
+     * (the first child always follows its parent)
+     */
+    private int[] offsets;
+    /**
+     * amount of geometries in a leaf node, 0 for an inner node
+     */
+    private int[] counts;
+    /**
+     * amount of nodes in use
+     */
+    private int nodeCount;
+    /**
+     * surface area heuristic cost of the hierarchy when it was last built
+     */
+    private double buildCost;
+    /**
+     * ratio between current and build cost above which a refit triggers a rebuild
+     */
+    private double rebuildThreshold = 1.5;
+    /**
+     * amount of rebuilds done since construction (the first build included)
+     */
+    private int rebuilds = 0;
+
+    /**
+     * constructor
+     *
+     * @param geometries geometries to build the hierarchy over
+     */
+    public BVH(List<Intersectable> geometries) {
+        List<Intersectable> bounded = new LinkedList<>();
+        for (Intersectable geometry : geometries) {
+            if (geometry.getBoundingBox() == null)
+                unbounded.add(geometry);
+            else
+                bounded.add(geometry);
+        }
+        primitives = bounded.toArray(new Intersectable[0]);
+        build();
+    }
+
+    /**
+     * constructor
+     *
+     * @param geometries geometries to build the hierarchy over
+     */
+    public BVH(Intersectable... geometries) {
+        this(Arrays.asList(geometries));
+    }
+
+    /**
+     * constructor of a hierarchy restored from a file, without building it
+     *
+     * @param unbounded  geometries without bounds
+     * @param primitives bounded geometries, ordered as in the restored leaves
+     * @param bounds     boxes of the nodes
+     * @param offsets    first geometry of each leaf or second child of each inner node
+     * @param counts     amount of geometries in each leaf
+     * @param buildCost  cost of the hierarchy when it was built
+     */
+    private BVH(List<Intersectable> unbounded, Intersectable[] primitives, double[] bounds, int[] offsets,
+                int[] counts, double buildCost) {
+        this.unbounded.addAll(unbounded);
+        this.primitives = primitives;
+        this.bounds = bounds;
+        this.offsets = offsets;
+        this.counts = counts;
+        this.nodeCount = counts.length;
+        this.buildCost = buildCost;
+    }
+
+    /**
+     * Saves the flattened hierarchy into a binary file. Geometries are saved as their indexes in the
+     * list the hierarchy was built from, so the file is valid only for the same list of geometries
+     *
+     * @param file       path of the file to write
+     * @param geometries the geometries the hierarchy was built from, in their original order
+     * @throws IOException if the file can not be written
+     */
+    public void save(Path file, List<Intersectable> geometries) throws IOException {
+        Map<Intersectable, Integer> indexes = new IdentityHashMap<>();
+        int index = 0;
+        for (Intersectable geometry : geometries)
+            indexes.put(geometry, index++);
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 * (6 + unbounded.size() + primitives.length + 2 * nodeCount)
+                + 8 * (1 + 6 * nodeCount));
+        buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(geometries.size());
+        buffer.putInt(unbounded.size());
+        for (Intersectable geometry : unbounded)
+            buffer.putInt(indexOf(indexes, geometry));
+        buffer.putInt(primitives.length);
+        for (Intersectable geometry : primitives)
+            buffer.putInt(indexOf(indexes, geometry));
+        buffer.putInt(nodeCount).putDouble(buildCost);
+        for (int node = 0; node < nodeCount; ++node)
+            buffer.putInt(offsets[node]).putInt(counts[node]);
+        for (int i = 0; i < 6 * nodeCount; ++i)
+            buffer.putDouble(bounds[i]);
+        buffer.flip();
+
+        // write aside and move, so a reader never maps a partially written file
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * getter for the index of a geometry in the list the hierarchy was built from
+     *
+     * @param indexes  indexes of the geometries in the list
+     * @param geometry the geometry
+     * @return index of the geometry
+     */
+    private static int indexOf(Map<Intersectable, Integer> indexes, Intersectable geometry) {
+        Integer index = indexes.get(geometry);
+        if (index == null)
+            throw new IllegalArgumentException("Geometry of the hierarchy is missing from the list of geometries");
+        return index;
+    }
+
+    /**
+     * Restores a hierarchy saved by {@link #save(Path, List)}, memory-mapping the file
+     *
+     * @param file       path of the file to read
+     * @param geometries the same geometries the hierarchy was built from, in the same order
+     * @return the restored hierarchy
+     * @throws IOException              if the file can not be read
+     * @throws IllegalArgumentException if the file does not hold a hierarchy over these geometries
+     */
+    public static BVH load(Path file, List<Intersectable> geometries) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.getInt() != FILE_MAGIC || buffer.getInt() != FILE_VERSION)
+                throw new IllegalArgumentException("File does not hold a hierarchy of this version");
+            if (buffer.getInt() != geometries.size())
+                throw new IllegalArgumentException("Hierarchy was saved for a different amount of geometries");
+            Intersectable[] all = geometries.toArray(new Intersectable[0]);
+
+            // each geometry is either unbounded or a primitive, exactly once
+            BitSet seen = new BitSet(all.length);
+            List<Intersectable> unbounded = new LinkedList<>();
+            for (int i = readCount(buffer, 4); i > 0; --i)
+                unbounded.add(geometry(all, seen, buffer.getInt()));
+            Intersectable[] primitives = new Intersectable[readCount(buffer, 4)];
+            for (int i = 0; i < primitives.length; ++i)
+                primitives[i] = geometry(all, seen, buffer.getInt());
+            if (unbounded.size() + primitives.length != all.length)
+                throw new IllegalArgumentException("Hierarchy file " + file + " is missing geometries");
+
+            int nodeCount = buffer.getInt();
+            double buildCost = buffer.getDouble();
+            if (nodeCount < 0 || nodeCount > Math.max(1, 2 * primitives.length - 1)
+                    || (nodeCount == 0) != (primitives.length == 0) || (long) 56 * nodeCount > buffer.remaining())
+                throw new IllegalArgumentException("Wrong amount of nodes in hierarchy file " + file);
+            int[] offsets = new int[nodeCount];
+            int[] counts = new int[nodeCount];
+            for (int node = 0; node < nodeCount; ++node) {
+                offsets[node] = buffer.getInt();
+                counts[node] = buffer.getInt();
+                checkNode(node, offsets[node], counts[node], nodeCount, primitives.length);
+            }
+            double[] bounds = new double[6 * nodeCount];
+            buffer.asDoubleBuffer().get(bounds);
+            return new BVH(unbounded, primitives, bounds, offsets, counts, buildCost);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            // truncated file or indexes out of the list
+            throw new IllegalArgumentException("Corrupted hierarchy file " + file, e);
+        }
+    }
+
+    /**
+     * finds a geometry of a hierarchy file by its index, checking it was not found before
+     *
+     * @param all   the geometries
+     * @param seen  indexes of the geometries found before, receives the index
+     * @param index index of the geometry
+     * @return the geometry
+     * @throws IllegalArgumentException if the geometry was found before
+     */
+    private static Intersectable geometry(Intersectable[] all, BitSet seen, int index) {
+        Intersectable geometry = all[index];
+        if (seen.get(index))
+            throw new IllegalArgumentException("Geometry appears twice in hierarchy file");
+        seen.set(index);
+        return geometry;
+    }
+
+    /**
+     * reads an amount of items from a hierarchy file, checking the file holds that many
+     *
+     * @param buffer the file's content, positioned at the amount
+     * @param bytes  size of each item in the file
+     * @return the amount
+     * @throws IllegalArgumentException if the amount is negative or the file is too short for it
+     */
+    private static int readCount(ByteBuffer buffer, int bytes) {
+        int count = buffer.getInt();
+        if (count < 0 || (long) count * bytes > buffer.remaining())
+            throw new IllegalArgumentException("Wrong amount of items in hierarchy file");
+        return count;
+    }
+
+    /**
+     * checks a node restored from a file references only valid geometries and nodes. The children of an
+     * inner node must follow it, so traversal of the restored hierarchy always ends
+     *
+     * @param node       index of the node
+     * @param offset     first geometry of the leaf or second child of the inner node
+     * @param count      amount of geometries in the leaf, 0 for an inner node
+     * @param nodeCount  amount of nodes
+     * @param primitives amount of bounded geometries
+     * @throws IllegalArgumentException if the node is invalid
+     */
+    private static void checkNode(int node, int offset, int count, int nodeCount, int primitives) {
+        boolean valid = count > 0 ? offset >= 0 && offset <= primitives - count
+                : count == 0 && node + 1 < offset && offset < nodeCount;
+        if (!valid)
+            throw new IllegalArgumentException("Invalid node " + node + " in hierarchy file");
+    }
+
+    /**
+     * setter for the rebuild threshold (builder pattern style)
+     *
+     * @param rebuildThreshold ratio between the cost after a refit and the cost after the last build,
+     *                         above which the hierarchy is rebuilt
+     * @return this instance of object
+     */
+    public BVH setRebuildThreshold(double rebuildThreshold) {
+        if (rebuildThreshold < 1)
+            throw new IllegalArgumentException("Rebuild threshold can not be lower than 1");
+        this.rebuildThreshold = rebuildThreshold;
+        return this;
+    }
+
+    /**
+     * getter for the amount of builds done, including the initial one unless the hierarchy was loaded
+     *
+     * @return amount of builds
+     */
+    public int getRebuilds() {
+        return rebuilds;
+    }
+
+    /**
+     * getter for the amount of nodes in the hierarchy
+     *
+     * @return amount of nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Calculates the surface area heuristic cost of the hierarchy in its current state, relative to
+     * the total area of the geometries' boxes, so it does not change when geometries move together
+     *
+     * @return estimated cost of tracing a ray through the hierarchy
+     */
+    public double getCost() {
+        double primitivesArea = 0;
+        for (Intersectable primitive : primitives)
+            primitivesArea += primitive.getBoundingBox().surfaceArea();
+        if (primitivesArea == 0)
+            return primitives.length;
+        double cost = 0;
+        for (int node = 0; node < nodeCount; ++node)
+            cost += counts[node] == 0 ? TRAVERSAL_COST * area(node) : counts[node] * area(node);
+        return cost / primitivesArea;
+    }
+
+    /**
+     * Updates the bounds of all nodes bottom-up to the current positions of the geometries.
+     * If the quality of the hierarchy degraded past the rebuild threshold, it is rebuilt
+     *
+     * @return this instance of object
+     */
+    public BVH refit() {
+        // children are always stored after their parent, so a reverse sweep visits them first
+        for (int node = nodeCount - 1; node >= 0; --node) {
+            if (counts[node] > 0)
+                setBounds(node, boxOf(offsets[node], offsets[node] + counts[node]));
+            else
+                unite(node, node + 1, offsets[node]);
+        }
+        if (getCost() > buildCost * rebuildThreshold)
+            build();
+        return this;
+    }
+
+    /**
+     * Rebuilds the whole hierarchy from the current positions of the geometries
+     *
+     * @return this instance of object
+     */
+    public BVH build() {
+        int capacity = Math.max(1, 2 * primitives.length - 1);
+        bounds = new double[6 * capacity];
+        offsets = new int[capacity];
+        counts = new int[capacity];
+        nodeCount = 0;
+
+        if (primitives.length > 0) {
+            BoundingBox[] boxes = new BoundingBox[primitives.length];
+            for (int i = 0; i < primitives.length; ++i)
+                boxes[i] = primitives[i].getBoundingBox();
+            Integer[] order = new Integer[primitives.length];
+            for (int i = 0; i < order.length; ++i)
+                order[i] = i;
+            buildNode(order, boxes, 0, order.length);
+
+            Intersectable[] sorted = new Intersectable[primitives.length];
+            for (int i = 0; i < order.length; ++i)
+                sorted[i] = primitives[order[i]];
+            primitives = sorted;
+        }
+        buildCost = getCost();
+        ++rebuilds;
+        return this;
+    }
+
+    /**
+     * Builds a node over a range of geometries, splitting it by the surface area heuristic
+     * along the axis where the centers of the geometries spread the most
+     *
+     * @param order indexes of the geometries, reordered in place
+     * @param boxes bounding boxes of the geometries
+     * @param start first index of the range (included)
+     * @param end   last index of the range (excluded)
+     * @return index of the built node
+     */
+    private int buildNode(Integer[] order, BoundingBox[] boxes, int start, int end) {
+        int node = nodeCount++;
+        BoundingBox box = boxes[order[start]];
+        for (int i = start + 1; i < end; ++i)
+            box = box.union(boxes[order[i]]);
+        setBounds(node, box);
+
+        int count = end - start;
+        if (count <= MAX_LEAF_SIZE) {
+            makeLeaf(node, start, count);
+            return node;
+        }
+
+        int axis = widestCenterAxis(order, boxes, start, end);
+        Arrays.sort(order, start, end, Comparator.comparingDouble(i -> boxes[i].getCenter(axis)));
+
+        // sweep from the right to get the areas of all the suffixes
+        double[] rightAreas = new double[count];
+        BoundingBox right = boxes[order[end - 1]];
+        for (int i = count - 1; i > 0; --i) {
+            right = right.union(boxes[order[start + i]]);
+            rightAreas[i] = right.surfaceArea();
+        }
+        // sweep from the left and pick the cheapest split
+        double boxArea = box.surfaceArea();
+        int split = start + count / 2;
+        double bestCost = Double.POSITIVE_INFINITY;
+        BoundingBox left = boxes[order[start]];
+        for (int i = 1; i < count; ++i) {
+            double cost = left.surfaceArea() * i + rightAreas[i] * (count - i);
+            if (cost < bestCost) {
+                bestCost = cost;
+                split = start + i;
+            }
+            left = left.union(boxes[order[start + i]]);
+        }
+        // a leaf is cheaper than any split, and small enough to keep
+        if (boxArea > 0 && TRAVERSAL_COST + bestCost / boxArea >= count && count <= 2 * MAX_LEAF_SIZE) {
+            makeLeaf(node, start, count);
+            return node;
+        }
+
+        buildNode(order, boxes, start, split);
+        offsets[node] = buildNode(order, boxes, split, end);
+        counts[node] = 0;
+        return node;
+    }
+
+    /**
+     * Turns a node into a leaf over a range of geometries
+     *
+     * @param node  index of the node
+     * @param start first index of the range
+     * @param count amount of geometries in the range
+     */
+    private void makeLeaf(int node, int start, int count) {
+        offsets[node] = start;
+        counts[node] = count;
+    }
+
+    /**
+     * Finds the axis along which the centers of the geometries in a range spread the most
+     *
+     * @param order indexes of the geometries
+     * @param boxes bounding boxes of the geometries
+     * @param start first index of the range (included)
+     * @param end   last index of the range (excluded)
+     * @return 0 for x, 1 for y, 2 for z
+     */
+    private static int widestCenterAxis(Integer[] order, BoundingBox[] boxes, int start, int end) {
+        int axis = 0;
+        double widest = -1;
+        for (int a = 0; a < 3; ++a) {
+            double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+            for (int i = start; i < end; ++i) {
+                double center = boxes[order[i]].getCenter(a);
+                min = Math.min(min, center);
+                max = Math.max(max, center);
+            }
+            if (max - min > widest) {
+                widest = max - min;
+                axis = a;
+            }
+        }
+        return axis;
+    }
+
+    /**
+     * Calculates the box bounding a range of the ordered geometries at their current positions
+     *
+     * @param start first index of the range (included)
+     * @param end   last index of the range (excluded)
+     * @return bounding box of the range
+     */
+    private BoundingBox boxOf(int start, int end) {
+        BoundingBox box = primitives[start].getBoundingBox();
+        for (int i = start + 1; i < end; ++i)
+            box = box.union(primitives[i].getBoundingBox());
+        return box;
+    }
+
+    /**
+     * Stores a box as the bounds of a node
+     *
+     * @param node index of the node
+     * @param box  the box
+     */
+    private void setBounds(int node, BoundingBox box) {
+        int i = 6 * node;
+        bounds[i] = box.minX;
+        bounds[i + 1] = box.minY;
+        bounds[i + 2] = box.minZ;
+        bounds[i + 3] = box.maxX;
+        bounds[i + 4] = box.maxY;
+        bounds[i + 5] = box.maxZ;
+    }
+
+    /**
+     * Sets the bounds of a node to the union of the bounds of its two children
+     *
+     * @param node   index of the node
+     * @param first  index of the first child
+     * @param second index of the second child
+     */
+    private void unite(int node, int first, int second) {
+        int i = 6 * node, a = 6 * first, b = 6 * second;
+        for (int j = 0; j < 3; ++j) {
+            bounds[i + j] = Math.min(bounds[a + j], bounds[b + j]);
+            bounds[i + 3 + j] = Math.max(bounds[a + 3 + j], bounds[b + 3 + j]);
+        }
+    }
+
+    /**
+     * Calculates the surface area of a node's box
+     *
+     * @param node index of the node
+     * @return surface area
+     */
+    private double area(int node) {
+        int i = 6 * node;
+        return BoundingBox.surfaceArea(bounds[i + 3] - bounds[i], bounds[i + 4] - bounds[i + 1],
+                bounds[i + 5] - bounds[i + 2]);
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        if (nodeCount == 0 || !unbounded.isEmpty())
+            return null;
+        return new BoundingBox(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        List<GeoPoint> result = null;
+
+        for (Intersectable geometry : unbounded) {
+            List<GeoPoint> geoPoints = geometry.findGeoIntersections(ray, maxDistance);
+            if (geoPoints != null) {
+                if (result == null)
+                    result = new LinkedList<>();
+                result.addAll(geoPoints);
+            }
+        }
+        if (nodeCount == 0)
+            return result;
+
+        Point p0 = ray.getHead();
+        Vector v = ray.getDirection();
+        double x = p0.getX(), y = p0.getY(), z = p0.getZ();
+        double dx = v.getX(), dy = v.getY(), dz = v.getZ();
+
+        int[] stack = new int[STACK_SIZE];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int i = 6 * node;
+            if (!BoundingBox.intersects(bounds[i], bounds[i + 1], bounds[i + 2], bounds[i + 3], bounds[i + 4],
+                    bounds[i + 5], x, y, z, dx, dy, dz, maxDistance))
+                continue;
+
+            if (counts[node] > 0) {
+                for (int p = offsets[node]; p < offsets[node] + counts[node]; ++p) {
+                    List<GeoPoint> geoPoints = primitives[p].findGeoIntersections(ray, maxDistance);
+                    if (geoPoints != null) {
+                        if (result == null)
+                            result = new LinkedList<>();
+                        result.addAll(geoPoints);
+                    }
+                }
+            } else {
+                if (top + 2 > stack.length)
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                stack[top++] = offsets[node];
+                stack[top++] = node + 1;
+            }
+        }
+        return result;
+    }
+}
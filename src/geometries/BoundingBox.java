@@ -0,0 +1,207 @@
+package geometries;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Class BoundingBox represents an axis aligned box in Cartesian 3-Dimensional coordinate system,
+ * used to bound geometries for fast rejection of rays
+ *
+ * @author Naama and Yeela
+ */
+public class BoundingBox {
+    /**
+     * lowest x coordinate of the box
+     */
+    public final double minX;
+    /**
+     * lowest y coordinate of the box
+     */
+    public final double minY;
+    /**
+     * lowest z coordinate of the box
+     */
+    public final double minZ;
+    /**
+     * highest x coordinate of the box
+     */
+    public final double maxX;
+    /**
+     * highest y coordinate of the box
+     */
+    public final double maxY;
+    /**
+     * highest z coordinate of the box
+     */
+    public final double maxZ;
+
+    /**
+     * Constructor to initialize BoundingBox based on its lowest and highest coordinates
+     *
+     * @param minX lowest x coordinate
+     * @param minY lowest y coordinate
+     * @param minZ lowest z coordinate
+     * @param maxX highest x coordinate
+     * @param maxY highest y coordinate
+     * @param maxZ highest z coordinate
+     */
+    public BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        if (minX > maxX || minY > maxY || minZ > maxZ)
+            throw new IllegalArgumentException("Lowest coordinates of a box can not be above its highest coordinates");
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Creates the smallest box containing all the given points
+     *
+     * @param points the points to bound
+     * @return bounding box of the points
+     */
+    public static BoundingBox of(Iterable<Point> points) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (Point p : points) {
+            minX = Math.min(minX, p.getX());
+            minY = Math.min(minY, p.getY());
+            minZ = Math.min(minZ, p.getZ());
+            maxX = Math.max(maxX, p.getX());
+            maxY = Math.max(maxY, p.getY());
+            maxZ = Math.max(maxZ, p.getZ());
+        }
+        return new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Creates the smallest box containing both this box and another one
+     *
+     * @param other the other box
+     * @return united bounding box
+     */
+    public BoundingBox union(BoundingBox other) {
+        return new BoundingBox(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+    }
+
+    /**
+     * Calculates the surface area of the box, used for estimating the cost of traversing it
+     *
+     * @return surface area
+     */
+    public double surfaceArea() {
+        return surfaceArea(maxX - minX, maxY - minY, maxZ - minZ);
+    }
+
+    /**
+     * Calculates the surface area of a box with the given edge lengths
+     *
+     * @param dx length of the box along x axis
+     * @param dy length of the box along y axis
+     * @param dz length of the box along z axis
+     * @return surface area
+     */
+    static double surfaceArea(double dx, double dy, double dz) {
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * getter for the center of the box along an axis
+     *
+     * @param axis 0 for x, 1 for y, 2 for z
+     * @return center coordinate
+     */
+    public double getCenter(int axis) {
+        return switch (axis) {
+            case 0 -> (minX + maxX) / 2;
+            case 1 -> (minY + maxY) / 2;
+            default -> (minZ + maxZ) / 2;
+        };
+    }
+
+    /**
+     * creates the box grown by a margin on all sides
+     *
+     * @param margin distance to move each face of the box outward
+     * @return the grown box, this box if the margin is 0
+     */
+    public BoundingBox grow(double margin) {
+        return margin == 0 ? this : new BoundingBox(minX - margin, minY - margin, minZ - margin,
+                maxX + margin, maxY + margin, maxZ + margin);
+    }
+
+    /**
+     * Checks whether a ray passes through the box closer than the upper distance boundary
+     *
+     * @param ray         ray towards the box
+     * @param maxDistance maximum distance from the ray head
+     * @return true if the ray passes through the box
+     */
+    public boolean intersects(Ray ray, double maxDistance) {
+        Point p0 = ray.getHead();
+        Vector v = ray.getDirection();
+        return intersects(minX, minY, minZ, maxX, maxY, maxZ,
+                p0.getX(), p0.getY(), p0.getZ(), v.getX(), v.getY(), v.getZ(), maxDistance);
+    }
+
+    /**
+     * Slab test of a ray against box coordinates, shared with flattened structures which keep
+     * their boxes in primitive arrays
+     *
+     * @param minX        lowest x coordinate of the box
+     * @param minY        lowest y coordinate of the box
+     * @param minZ        lowest z coordinate of the box
+     * @param maxX        highest x coordinate of the box
+     * @param maxY        highest y coordinate of the box
+     * @param maxZ        highest z coordinate of the box
+     * @param x           x coordinate of ray head
+     * @param y           y coordinate of ray head
+     * @param z           z coordinate of ray head
+     * @param dx          x coordinate of ray direction
+     * @param dy          y coordinate of ray direction
+     * @param dz          z coordinate of ray direction
+     * @param maxDistance maximum distance from the ray head
+     * @return true if the ray passes through the box
+     */
+    static boolean intersects(double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                              double x, double y, double z, double dx, double dy, double dz, double maxDistance) {
+        double tNear = 0;
+        double tFar = maxDistance;
+
+        // x slab
+        if (dx == 0) {
+            if (x < minX || x > maxX) return false;
+        } else {
+            double t1 = (minX - x) / dx, t2 = (maxX - x) / dx;
+            tNear = Math.max(tNear, Math.min(t1, t2));
+            tFar = Math.min(tFar, Math.max(t1, t2));
+            if (tNear > tFar) return false;
+        }
+        // y slab
+        if (dy == 0) {
+            if (y < minY || y > maxY) return false;
+        } else {
+            double t1 = (minY - y) / dy, t2 = (maxY - y) / dy;
+            tNear = Math.max(tNear, Math.min(t1, t2));
+            tFar = Math.min(tFar, Math.max(t1, t2));
+            if (tNear > tFar) return false;
+        }
+        // z slab
+        if (dz == 0) {
+            return z >= minZ && z <= maxZ;
+        }
+        double t1 = (minZ - z) / dz, t2 = (maxZ - z) / dz;
+        tNear = Math.max(tNear, Math.min(t1, t2));
+        tFar = Math.min(tFar, Math.max(t1, t2));
+        return tNear <= tFar;
+    }
+
+    @Override
+    public String toString() {
+        return "BoundingBox: (" + minX + "," + minY + "," + minZ + ") - (" + maxX + "," + maxY + "," + maxZ + ")";
+    }
+}
@@ -29,6 +29,15 @@ public class Cylinder extends Tube {
         this.height = height;
     }
 
+    /**
+     * getter for height field
+     *
+     * @return height of the cylinder
+     */
+    public double getHeight() {
+        return height;
+    }
+
     @Override
     public Vector getNormal(Point p) {
         Vector direction = this.axis.getDirection();
@@ -1,11 +1,15 @@
 package geometries;
 
+import primitives.Metrics;
 import primitives.Point;
 import primitives.Ray;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Class Geometries is the  class representing a complex geometric shape of Euclidean geometry in Cartesian
@@ -14,9 +18,22 @@ import java.util.List;
  * @author Naama and Yeela
  */
 public class Geometries extends Intersectable {
+    /**
+     * time of building bounding volume hierarchies, in the metrics registry
+     */
+    private static final LongAdder BUILD_TIME = Metrics.counter("time.bvh");
 
     final private List<Intersectable> geometries = new LinkedList<Intersectable>();
 
+    /**
+     * bounding volume hierarchy over the geometries, null until built
+     */
+    private BVH bvh = null;
+    /**
+     * amount of changes made to the list of geometries
+     */
+    private int version = 0;
+
     /**
      * default constructor
      */
@@ -40,11 +57,146 @@ public class Geometries extends Intersectable {
     public void add(Intersectable... geometries) {
 
         this.geometries.addAll(Arrays.asList(geometries));
+        // the hierarchy does not cover the new geometries anymore
+        bvh = null;
+        ++version;
+    }
+
+    /**
+     * removes geometries from list of geometries
+     *
+     * @param geometries list of geometries
+     */
+    public void remove(Intersectable... geometries) {
+        this.geometries.removeAll(Arrays.asList(geometries));
+        // the hierarchy still covers the removed geometries
+        bvh = null;
+        ++version;
+    }
+
+    /**
+     * getter for the version of the list of geometries
+     *
+     * @return amount of additions and removals of geometries made to this list (not to nested lists)
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * builds a bounding volume hierarchy over the geometries, used by all following intersection queries
+     * (adding geometries afterward discards it)
+     *
+     * @return this instance of object
+     */
+    public Geometries buildBVH() {
+        AccelerationBuildEvent event = new AccelerationBuildEvent();
+        event.begin();
+        long start = System.nanoTime();
+        bvh = new BVH(geometries);
+        BUILD_TIME.add(System.nanoTime() - start);
+        commit(event, false);
+        return this;
+    }
+
+    /**
+     * updates the bounding volume hierarchy after geometries moved, rebuilding it only
+     * when its quality degraded too much
+     *
+     * @return this instance of object
+     */
+    public Geometries refit() {
+        if (bvh != null)
+            bvh.refit();
+        return this;
+    }
+
+    /**
+     * saves the bounding volume hierarchy into a binary file, building it first if needed
+     *
+     * @param file path of the file to write
+     * @throws IOException if the file can not be written
+     */
+    public void saveBVH(Path file) throws IOException {
+        if (bvh == null)
+            buildBVH();
+        bvh.save(file, geometries);
+    }
+
+    /**
+     * restores a bounding volume hierarchy saved for the same geometries, instead of building it
+     *
+     * @param file path of the file to read
+     * @return this instance of object
+     * @throws IOException              if the file can not be read
+     * @throws IllegalArgumentException if the file does not hold a hierarchy over these geometries
+     */
+    public Geometries loadBVH(Path file) throws IOException {
+        AccelerationBuildEvent event = new AccelerationBuildEvent();
+        event.begin();
+        bvh = BVH.load(file, geometries);
+        commit(event, true);
+        return this;
+    }
+
+    /**
+     * ends the flight recorder event of building the hierarchy, and commits it if it is recorded
+     *
+     * @param event    the event
+     * @param restored whether the hierarchy was restored from a file
+     */
+    private void commit(AccelerationBuildEvent event, boolean restored) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.geometries = geometries.size();
+            event.restored = restored;
+            event.commit();
+        }
+    }
+
+    /**
+     * getter for the bounding volume hierarchy
+     *
+     * @return the hierarchy, or null if it was not built
+     */
+    public BVH getBVH() {
+        return bvh;
+    }
+
+    /**
+     * collects the geometries of the composite, including the geometries of nested composites
+     *
+     * @return list of the geometries
+     */
+    public List<Geometry> flatten() {
+        List<Geometry> result = new LinkedList<>();
+        for (Intersectable geometry : geometries) {
+            if (geometry instanceof Geometries composite)
+                result.addAll(composite.flatten());
+            else if (geometry instanceof Geometry shape)
+                result.add(shape);
+        }
+        return result;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        BoundingBox box = null;
+        for (Intersectable geometry : geometries) {
+            BoundingBox geometryBox = geometry.getBoundingBox();
+            if (geometryBox == null)
+                return null;
+            box = box == null ? geometryBox : box.union(geometryBox);
+        }
+        return box;
     }
 
 
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray,double maxDistance) {
+        if (bvh != null)
+            return bvh.findGeoIntersections(ray, maxDistance);
+
         List<GeoPoint> result = null;
 
         for (Intersectable geometry : geometries) {
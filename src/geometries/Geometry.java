@@ -19,6 +19,11 @@ public abstract class Geometry extends Intersectable {
      */
     private Material material = new Material();
 
+    /**
+     * amount of changes made to the geometry, for finding the geometries changed since a rendering
+     */
+    private int version = 0;
+
     /**
      * getter for emission field
      *
@@ -36,6 +41,7 @@ public abstract class Geometry extends Intersectable {
      */
     public Geometry setEmission(Color emission) {
         this.emission = emission;
+        changed();
         return this;
     }
 
@@ -47,6 +53,15 @@ public abstract class Geometry extends Intersectable {
      */
     public abstract Vector getNormal(Point p);
 
+    /**
+     * Moves the geometry in space, used for animating a scene between frames. Implementations mark the
+     * geometry as {@link #changed() changed}
+     *
+     * @param offset {@link Vector} to move the geometry by
+     * @return this instance of object
+     */
+    public abstract Geometry move(Vector offset);
+
     /**
      * getter for material field
      *
@@ -64,6 +79,23 @@ public abstract class Geometry extends Intersectable {
      */
     public Geometry setMaterial(Material material) {
         this.material = material;
+        changed();
         return this;
     }
+
+    /**
+     * getter for the version of the geometry
+     *
+     * @return amount of changes made to the geometry's material, emission or position
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * marks the geometry as changed, called by every method changing its appearance or position
+     */
+    protected void changed() {
+        ++version;
+    }
 }
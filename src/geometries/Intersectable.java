@@ -3,6 +3,7 @@ package geometries;
 import primitives.*;
 
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * abstract class of Intersect-able
@@ -10,6 +11,16 @@ import java.util.List;
  * @author Naama and Yeela
  */
 public abstract class Intersectable {
+    /**
+     * amount of intersection tests of each type of geometry, in the metrics registry
+     */
+    private static final ClassValue<LongAdder> TESTS = new ClassValue<>() {
+        @Override
+        protected LongAdder computeValue(Class<?> type) {
+            return Metrics.counter("intersections." + type.getSimpleName());
+        }
+    };
+
     /**
      * finds the Intersection points with the geometric form
      *
@@ -84,9 +95,21 @@ public abstract class Intersectable {
      * @return immutable list of intersection {@link  GeoPoint}s
      */
     public final List<GeoPoint> findGeoIntersections(Ray ray, double maxDistance) {
+        // only tests of geometries are counted, not of the collections holding them
+        if (Metrics.isEnabled() && this instanceof Geometry)
+            TESTS.get(getClass()).increment();
         return findGeoIntersectionsHelper(ray, maxDistance);
     }
 
+    /**
+     * getter for the axis aligned box bounding the object, computed from its current position
+     *
+     * @return bounding box of the object, or null if the object is unbounded
+     */
+    public BoundingBox getBoundingBox() {
+        return null;
+    }
+
     /**
      * abstract helper method , gets list of intersection {@link GeoPoint}s between a ray and geometry
      * that are closer to rya origin than the upper distance boundary
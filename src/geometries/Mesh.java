@@ -0,0 +1,330 @@
+package geometries;
+
+import primitives.Color;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * Triangle mesh kept packed in primitive arrays - the coordinates of the vertices, three vertex indexes
+ * per face and the normal of each face - for models of millions of faces. The faces are lightweight
+ * geometries referencing the arrays by index, intersected directly on the packed coordinates, and the
+ * mesh keeps its own bounding volume hierarchy over them, so it is a single geometry of the scene's
+ * hierarchy
+ *
+ * @author Naama and Yeela
+ */
+public class Mesh extends Geometries {
+    /**
+     * coordinates of the vertices, 3 numbers per vertex
+     */
+    private final double[] vertices;
+    /**
+     * vertex indexes of the faces, 3 per face
+     */
+    private final int[] indices;
+    /**
+     * normals of the faces' planes, 3 numbers per face
+     */
+    private final double[] normals;
+    /**
+     * the faces, by their index
+     */
+    private final Face[] faces;
+
+    /**
+     * Creates a mesh - its faces and the hierarchy over them. Degenerate faces (whose vertices lay on
+     * one line) have no plane and are dropped
+     *
+     * @param vertices coordinates of the vertices, 3 numbers per vertex
+     * @param indices  vertex indexes of the triangles, 3 per triangle
+     * @return the mesh
+     * @throws IllegalArgumentException if the arrays are not of triples, an index is not of a vertex, or
+     *                                  no face is left
+     */
+    public static Mesh of(double[] vertices, int[] indices) {
+        Mesh mesh = new Mesh(vertices, indices);
+        mesh.add(mesh.faces);
+        mesh.buildBVH();
+        return mesh;
+    }
+
+    /**
+     * Constructor - creates the faces, which are added to the list by {@link #of(double[], int[])}
+     *
+     * @param vertices coordinates of the vertices, 3 numbers per vertex
+     * @param indices  vertex indexes of the triangles, 3 per triangle
+     * @throws IllegalArgumentException if the arrays are not of triples, an index is not of a vertex, or
+     *                                  no face is left
+     */
+    private Mesh(double[] vertices, int[] indices) {
+        if (vertices.length % 3 != 0 || indices.length % 3 != 0)
+            throw new IllegalArgumentException("Vertices and faces of a mesh must be triples");
+        int vertexCount = vertices.length / 3;
+        int[] kept = new int[indices.length];
+        double[] n = new double[indices.length];
+        int count = 0;
+        for (int i = 0; i < indices.length; i += 3) {
+            int a = indices[i], b = indices[i + 1], c = indices[i + 2];
+            if (a < 0 || b < 0 || c < 0 || a >= vertexCount || b >= vertexCount || c >= vertexCount)
+                throw new IllegalArgumentException("Face of a mesh references a missing vertex");
+            if (!normal(vertices, a, b, c, n, count))
+                continue;
+            kept[3 * count] = a;
+            kept[3 * count + 1] = b;
+            kept[3 * count + 2] = c;
+            ++count;
+        }
+        if (count == 0)
+            throw new IllegalArgumentException("A mesh must have at least one face which is not degenerate");
+        // the mesh moves its vertices, so it keeps a copy of its own
+        this.vertices = vertices.clone();
+        this.indices = count * 3 == indices.length ? kept : Arrays.copyOf(kept, 3 * count);
+        this.normals = count * 3 == indices.length ? n : Arrays.copyOf(n, 3 * count);
+        this.faces = new Face[count];
+        for (int i = 0; i < count; ++i)
+            faces[i] = new Face(i);
+    }
+
+    /**
+     * calculates the normal of the plane through three vertices, as the plane of a triangle
+     *
+     * @param vertices coordinates of the vertices, 3 numbers per vertex
+     * @param a        index of the first vertex
+     * @param b        index of the second vertex
+     * @param c        index of the third vertex
+     * @param normals  normals of the faces, 3 numbers per face
+     * @param face     index of the face to set the normal of
+     * @return false if the vertices lay on one line, leaving the normal unchanged
+     */
+    private static boolean normal(double[] vertices, int a, int b, int c, double[] normals, int face) {
+        double e1x = vertices[3 * b] - vertices[3 * a], e1y = vertices[3 * b + 1] - vertices[3 * a + 1],
+                e1z = vertices[3 * b + 2] - vertices[3 * a + 2];
+        double e2x = vertices[3 * c] - vertices[3 * a], e2y = vertices[3 * c + 1] - vertices[3 * a + 1],
+                e2z = vertices[3 * c + 2] - vertices[3 * a + 2];
+        double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (length == 0)
+            return false;
+        normals[3 * face] = nx / length;
+        normals[3 * face + 1] = ny / length;
+        normals[3 * face + 2] = nz / length;
+        return true;
+    }
+
+    /**
+     * getter for the amount of vertices
+     *
+     * @return amount of vertices
+     */
+    public int getVertexCount() {
+        return vertices.length / 3;
+    }
+
+    /**
+     * getter for the amount of faces
+     *
+     * @return amount of faces, without the dropped degenerate ones
+     */
+    public int getFaceCount() {
+        return faces.length;
+    }
+
+    /**
+     * getter for a face
+     *
+     * @param index index of the face
+     * @return the face
+     */
+    public Face getFace(int index) {
+        return faces[index];
+    }
+
+    /**
+     * sets the material of all the faces (builder pattern style)
+     *
+     * @param material {@link Material} of the mesh
+     * @return this instance of object
+     */
+    public Mesh setMaterial(Material material) {
+        for (Face face : faces)
+            face.setMaterial(material);
+        return this;
+    }
+
+    /**
+     * sets the emission of all the faces (builder pattern style)
+     *
+     * @param emission {@link Color} of the mesh
+     * @return this instance of object
+     */
+    public Mesh setEmission(Color emission) {
+        for (Face face : faces)
+            face.setEmission(emission);
+        return this;
+    }
+
+    /**
+     * Moves the whole mesh in space and refits its hierarchy, used for animating a scene between frames
+     *
+     * @param offset {@link Vector} to move the mesh by
+     * @return this instance of object
+     */
+    public Mesh move(Vector offset) {
+        double dx = offset.getX(), dy = offset.getY(), dz = offset.getZ();
+        for (int i = 0; i < vertices.length; i += 3) {
+            vertices[i] += dx;
+            vertices[i + 1] += dy;
+            vertices[i + 2] += dz;
+        }
+        for (Face face : faces)
+            face.changed();
+        refit();
+        return this;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int vertex : indices) {
+            minX = Math.min(minX, vertices[3 * vertex]);
+            minY = Math.min(minY, vertices[3 * vertex + 1]);
+            minZ = Math.min(minZ, vertices[3 * vertex + 2]);
+            maxX = Math.max(maxX, vertices[3 * vertex]);
+            maxY = Math.max(maxY, vertices[3 * vertex + 1]);
+            maxZ = Math.max(maxZ, vertices[3 * vertex + 2]);
+        }
+        return new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Triangle face of a mesh, defined by its index in the mesh's packed arrays
+     */
+    public class Face extends Geometry {
+        /**
+         * index of the face in the mesh
+         */
+        private final int index;
+
+        /**
+         * constructor
+         *
+         * @param index index of the face in the mesh
+         */
+        private Face(int index) {
+            this.index = index;
+        }
+
+        /**
+         * getter for the vertices of the face
+         *
+         * @return the three vertices, in the order their normal is defined by
+         */
+        public List<Point> getVertices() {
+            return List.of(vertex(0), vertex(1), vertex(2));
+        }
+
+        /**
+         * creates a vertex of the face
+         *
+         * @param k 0, 1 or 2 for the first, second or third vertex
+         * @return the vertex
+         */
+        private Point vertex(int k) {
+            int v = 3 * indices[3 * index + k];
+            return new Point(vertices[v], vertices[v + 1], vertices[v + 2]);
+        }
+
+        @Override
+        public Vector getNormal(Point p) {
+            return new Vector(normals[3 * index], normals[3 * index + 1], normals[3 * index + 2]);
+        }
+
+        /**
+         * Moves the face's vertices, which are shared with its neighbours - the faces sharing them are
+         * reshaped along, marked as changed, and the mesh's hierarchy is refitted. A neighbour reshaped
+         * into a line keeps its last normal and is not met by rays. Finding the neighbours takes time
+         * linear in the size of the mesh
+         *
+         * @param offset {@link Vector} to move the face by
+         * @return this instance of object
+         */
+        @Override
+        public Face move(Vector offset) {
+            int a = indices[3 * index], b = indices[3 * index + 1], c = indices[3 * index + 2];
+            double dx = offset.getX(), dy = offset.getY(), dz = offset.getZ();
+            for (int v : new int[] { a, b, c }) {
+                vertices[3 * v] += dx;
+                vertices[3 * v + 1] += dy;
+                vertices[3 * v + 2] += dz;
+            }
+            for (Face face : faces) {
+                int i = 3 * face.index;
+                int fa = indices[i], fb = indices[i + 1], fc = indices[i + 2];
+                if (fa == a || fa == b || fa == c || fb == a || fb == b || fb == c || fc == a || fc == b || fc == c) {
+                    normal(vertices, fa, fb, fc, normals, face.index);
+                    face.changed();
+                }
+            }
+            refit();
+            return this;
+        }
+
+        @Override
+        public BoundingBox getBoundingBox() {
+            int a = 3 * indices[3 * index], b = 3 * indices[3 * index + 1], c = 3 * indices[3 * index + 2];
+            return new BoundingBox(Math.min(vertices[a], Math.min(vertices[b], vertices[c])),
+                    Math.min(vertices[a + 1], Math.min(vertices[b + 1], vertices[c + 1])),
+                    Math.min(vertices[a + 2], Math.min(vertices[b + 2], vertices[c + 2])),
+                    Math.max(vertices[a], Math.max(vertices[b], vertices[c])),
+                    Math.max(vertices[a + 1], Math.max(vertices[b + 1], vertices[c + 1])),
+                    Math.max(vertices[a + 2], Math.max(vertices[b + 2], vertices[c + 2])));
+        }
+
+        /**
+         * Intersects the ray with the face on the packed coordinates (Möller-Trumbore), without creating
+         * vectors for the missed faces. Like a triangle, the face's edges and vertices are not part of it
+         */
+        @Override
+        protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+            int a = 3 * indices[3 * index], b = 3 * indices[3 * index + 1], c = 3 * indices[3 * index + 2];
+            Vector d = ray.getDirection();
+            Point head = ray.getHead();
+            double dx = d.getX(), dy = d.getY(), dz = d.getZ();
+            double e1x = vertices[b] - vertices[a], e1y = vertices[b + 1] - vertices[a + 1],
+                    e1z = vertices[b + 2] - vertices[a + 2];
+            double e2x = vertices[c] - vertices[a], e2y = vertices[c + 1] - vertices[a + 1],
+                    e2z = vertices[c + 2] - vertices[a + 2];
+
+            // the ray parallel to the face's plane
+            double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+            double det = e1x * px + e1y * py + e1z * pz;
+            if (isZero(det))
+                return null;
+            double inverse = 1 / det;
+
+            // barycentric coordinates of the crossing point, inside the face and not on an edge
+            double tx = head.getX() - vertices[a], ty = head.getY() - vertices[a + 1], tz = head.getZ() - vertices[a + 2];
+            double u = (tx * px + ty * py + tz * pz) * inverse;
+            if (alignZero(u) <= 0 || alignZero(u - 1) >= 0)
+                return null;
+            double qx = ty * e1z - tz * e1y, qy = tz * e1x - tx * e1z, qz = tx * e1y - ty * e1x;
+            double v = (dx * qx + dy * qy + dz * qz) * inverse;
+            if (alignZero(v) <= 0 || alignZero(u + v - 1) >= 0)
+                return null;
+
+            double t = alignZero((e2x * qx + e2y * qy + e2z * qz) * inverse);
+            if (t <= 0 || alignZero(t - maxDistance) > 0)
+                return null;
+            return List.of(new GeoPoint(this, ray.getPoint(t)));
+        }
+    }
+}
@@ -14,7 +14,7 @@ import static primitives.Util.*;
  */
 public class Plane extends Geometry {
 
-    private final Point q;
+    private Point q;
     private final Vector normal;
 
     /**
@@ -64,6 +64,22 @@ public class Plane extends Geometry {
         return normal;
     }
 
+    /**
+     * getter for the point the plane was defined by
+     *
+     * @return a point on the plane
+     */
+    public Point getPoint() {
+        return q;
+    }
+
+
+    @Override
+    public Plane move(Vector offset) {
+        q = q.add(offset);
+        changed();
+        return this;
+    }
 
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray,double maxDistance) {
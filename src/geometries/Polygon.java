@@ -16,7 +16,7 @@ import primitives.Vector;
  */
 public class Polygon extends Geometry {
    /** List of polygon's vertices */
-   protected final List<Point> vertices;
+   protected List<Point> vertices;
    /** Associated plane in which the polygon lays */
    protected final Plane plane;
    /** The size of the polygon - the amount of the vertices in the polygon */
@@ -84,10 +84,28 @@ public class Polygon extends Geometry {
    @Override
    public Vector getNormal(Point point) { return plane.getNormal(); }
 
+   /**
+    * Getter for the vertices of the polygon
+    * @return unmodifiable list of the vertices, in their order around the polygon
+    */
+   public List<Point> getVertices() { return vertices; }
+
+   @Override
+   public Polygon move(Vector offset) {
+      vertices = vertices.stream().map(p -> p.add(offset)).toList();
+      plane.move(offset);
+      changed();
+      return this;
+   }
+
+   @Override
+   public BoundingBox getBoundingBox() { return BoundingBox.of(vertices); }
+
 
    @Override
    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
-      List<GeoPoint> planeIntersections = plane.findGeoIntersections(ray, maxDistance);
+      // the plane is part of the polygon, not a geometry tested on its own
+      List<GeoPoint> planeIntersections = plane.findGeoIntersectionsHelper(ray, maxDistance);
       if (planeIntersections == null) {
          return null;
       }
@@ -19,4 +19,13 @@ public abstract class RadialGeometry extends Geometry {
         radius = r;
     }
 
+    /**
+     * getter for radius field
+     *
+     * @return radius of the geometry
+     */
+    public double getRadius() {
+        return radius;
+    }
+
 }
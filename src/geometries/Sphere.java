@@ -14,7 +14,7 @@ import static primitives.Util.alignZero;
  * @author Naama and Yeela
  */
 public class Sphere extends RadialGeometry {
-    private final Point center;
+    private Point center;
 
     /**
      * Constructor to initialize Sphere with radius and point
@@ -27,12 +27,34 @@ public class Sphere extends RadialGeometry {
         center = p;
     }
 
+    /**
+     * getter for center field
+     *
+     * @return center of the sphere
+     */
+    public Point getCenter() {
+        return center;
+    }
+
     @Override
     public Vector getNormal(Point p) {
         return ((p).subtract(this.center)).normalize();
     }
 
 
+    @Override
+    public Sphere move(Vector offset) {
+        center = center.add(offset);
+        changed();
+        return this;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return new BoundingBox(center.getX() - radius, center.getY() - radius, center.getZ() - radius,
+                center.getX() + radius, center.getY() + radius, center.getZ() + radius);
+    }
+
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray,double maxDistance) {
         Point P0 = ray.getHead();
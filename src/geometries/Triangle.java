@@ -21,7 +21,8 @@ public class Triangle extends Polygon {
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray,double maxDistance) {
 
-        var intersections = plane.findGeoIntersections(ray, maxDistance);
+        // the plane's test is a part of the triangle's, not counted on its own
+        var intersections = plane.findGeoIntersectionsHelper(ray, maxDistance);
         //there is no intersection at all
         if (intersections == null)
             return null;
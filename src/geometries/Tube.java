@@ -16,7 +16,7 @@ import static primitives.Util.isZero;
 
 public class Tube extends RadialGeometry {
 
-    protected final Ray axis;
+    protected Ray axis;
 
     /**
      * Constructor to initialize Tube with radius and ray
@@ -29,6 +29,15 @@ public class Tube extends RadialGeometry {
         this.axis = axis;
     }
 
+    /**
+     * getter for axis field
+     *
+     * @return axis ray of the tube
+     */
+    public Ray getAxis() {
+        return axis;
+    }
+
     @Override
     public Vector getNormal(Point point) {
         double t  =  axis.getDirection().dotProduct(
@@ -40,6 +49,13 @@ public class Tube extends RadialGeometry {
     }
 
 
+    @Override
+    public Tube move(Vector offset) {
+        axis = new Ray(axis.getHead().add(offset), axis.getDirection());
+        changed();
+        return this;
+    }
+
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
         return null;
@@ -0,0 +1,131 @@
+package lighting;
+
+import geometries.BoundingBox;
+import primitives.Color;
+import primitives.Point;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Light source with a surface, lighting as a {@link PointLight} at its center but casting soft shadows:
+ * when the ray tracer uses soft shadows, the shadow rays go to stratified points of the light's surface,
+ * distributed uniformly in the solid angle the light subtends at the shaded point, so every ray has the
+ * same weight and the beam radius of the ray tracer is not used
+ *
+ * @author Naama and Yeela
+ */
+public abstract class AreaLight extends PointLight {
+
+    /**
+     * constructor
+     *
+     * @param intensity {@link Color} of intensity of light
+     * @param center    center {@link Point} of the light's surface
+     */
+    protected AreaLight(Color intensity, Point center) {
+        super(intensity, center);
+    }
+
+    /**
+     * Creates vectors from stratified points of the light's surface to the given point
+     *
+     * @param p      the given point
+     * @param r      not used, the size of the light is given by its surface
+     * @param amount the amount of vectors to create
+     * @return list of vectors, null if the point is at the center of the light
+     */
+    @Override
+    public List<Vector> getLCircle(Point p, double r, int amount) {
+        if (p.equals(getPosition()))
+            return null;
+        if (amount < 2)
+            return List.of(getL(p));
+
+        List<Vector> result = new ArrayList<>(amount);
+        addSamples(p, stratified(amount), result);
+        // the point is on the light's surface or the samples were all rejected
+        if (result.isEmpty())
+            result.add(getL(p));
+        return result;
+    }
+
+    /**
+     * Adds the vectors from the light's surface to the given point, for stratified coordinates of
+     * the solid angle of the light
+     *
+     * @param p       the given point
+     * @param samples pairs of stratified coordinates in the unit square
+     * @param result  the list to add the vectors to
+     */
+    protected abstract void addSamples(Point p, double[] samples, List<Vector> result);
+
+    /**
+     * getter for the distance from the center of the light to the farthest point of its surface
+     *
+     * @return the extent of the light
+     */
+    public abstract double getExtent();
+
+    @Override
+    public BoundingBox getInfluenceBounds(double threshold) {
+        BoundingBox box = super.getInfluenceBounds(threshold);
+        if (box == null)
+            return null;
+        double e = getExtent();
+        return new BoundingBox(box.minX - e, box.minY - e, box.minZ - e, box.maxX + e, box.maxY + e, box.maxZ + e);
+    }
+
+    /**
+     * Creates stratified coordinates in the unit square: each axis is divided into as many strata as
+     * samples, every stratum holds exactly one sample, and the strata of the two axes are paired at random
+     * so the samples come in random order (e.g. for probing the first ones only)
+     *
+     * @param amount amount of samples
+     * @return pairs of coordinates
+     */
+    static double[] stratified(int amount) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int[] us = permutation(amount, random), vs = permutation(amount, random);
+        double[] samples = new double[2 * amount];
+        for (int i = 0; i < amount; ++i) {
+            samples[2 * i] = (us[i] + random.nextDouble()) / amount;
+            samples[2 * i + 1] = (vs[i] + random.nextDouble()) / amount;
+        }
+        return samples;
+    }
+
+    /**
+     * Creates a random permutation of the numbers from 0 to amount - 1
+     *
+     * @param amount amount of numbers
+     * @param random random generator
+     * @return the permutation
+     */
+    private static int[] permutation(int amount, ThreadLocalRandom random) {
+        int[] numbers = new int[amount];
+        for (int i = 0; i < amount; ++i) {
+            int j = random.nextInt(i + 1);
+            numbers[i] = numbers[j];
+            numbers[j] = i;
+        }
+        return numbers;
+    }
+
+    /**
+     * Creates the vector from a point of the light's surface to the given point
+     *
+     * @param p the given point
+     * @param x x coordinate of the light's point
+     * @param y y coordinate of the light's point
+     * @param z z coordinate of the light's point
+     * @return normalized vector, null if the points coincide
+     */
+    static Vector towards(Point p, double x, double y, double z) {
+        double dx = p.getX() - x, dy = p.getY() - y, dz = p.getZ() - z;
+        double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        return length == 0 ? null : new Vector(dx / length, dy / length, dz / length);
+    }
+}
@@ -0,0 +1,86 @@
+package lighting;
+
+import primitives.Color;
+import primitives.Point;
+import primitives.Vector;
+
+import java.util.List;
+
+import static primitives.Util.isZero;
+
+/**
+ * Area light of a disk. It is sampled uniformly in the solid angle of the square around it, keeping the
+ * samples which fall on the disk, so the kept samples are still uniform in the solid angle of the disk
+ *
+ * @author Naama and Yeela
+ */
+public class DiskLight extends AreaLight {
+    /**
+     * radius of the disk
+     */
+    private final double radius;
+    /**
+     * lowest corner of the square around the disk
+     */
+    private final Point corner;
+    /**
+     * first edge of the square around the disk
+     */
+    private final Vector width;
+    /**
+     * second edge of the square around the disk
+     */
+    private final Vector height;
+
+    /**
+     * constructor
+     *
+     * @param intensity {@link Color} of intensity of light
+     * @param center    center {@link Point} of the disk
+     * @param normal    normal {@link Vector} of the disk's plane
+     * @param radius    radius of the disk
+     */
+    public DiskLight(Color intensity, Point center, Vector normal, double radius) {
+        super(intensity, center);
+        if (radius <= 0)
+            throw new IllegalArgumentException("Radius of a disk light must be greater than 0");
+        this.radius = radius;
+        Vector n = normal.normalize();
+        Vector across = isZero(n.getX()) && isZero(n.getY())
+                ? new Vector(1, 0, 0) : new Vector(-n.getY(), n.getX(), 0).normalize();
+        this.width = across.scale(2 * radius);
+        this.height = n.crossProduct(across).scale(2 * radius);
+        this.corner = center.add(width.scale(-0.5)).add(height.scale(-0.5));
+    }
+
+    @Override
+    public double getExtent() {
+        return radius;
+    }
+
+    /**
+     * getter for the normal of the disk's plane
+     *
+     * @return normalized normal of the disk
+     */
+    public Vector getNormal() {
+        return width.crossProduct(height).normalize();
+    }
+
+    @Override
+    protected void addSamples(Point p, double[] samples, List<Vector> result) {
+        double[] points = RectangleLight.sample(p, corner, width, height, samples);
+        if (points == null)
+            return;
+        Point center = getPosition();
+        double radiusSquared = radius * radius;
+        for (int i = 0; i < points.length; i += 3) {
+            double dx = points[i] - center.getX(), dy = points[i + 1] - center.getY(), dz = points[i + 2] - center.getZ();
+            if (dx * dx + dy * dy + dz * dz > radiusSquared)
+                continue;
+            Vector l = towards(p, points[i], points[i + 1], points[i + 2]);
+            if (l != null)
+                result.add(l);
+        }
+    }
+}
@@ -13,6 +13,11 @@ abstract class Light {
      */
     protected Color intensity;
 
+    /**
+     * amount of changes made to the light, for finding the lights changed since a rendering
+     */
+    private int version = 0;
+
     /**
      * constructor
      *
@@ -30,4 +35,20 @@ abstract class Light {
     public Color getIntensity() {
         return intensity;
     }
+
+    /**
+     * getter for the version of the light
+     *
+     * @return amount of changes made to the light's attenuation or beam
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * marks the light as changed, called by every setter changing the light it brings
+     */
+    protected void changed() {
+        ++version;
+    }
 }
@@ -0,0 +1,238 @@
+package lighting;
+
+import primitives.Point;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bounding volume hierarchy over the positioned light sources of a scene, kept flattened in primitive
+ * arrays, for choosing lights stochastically in proportion to their estimated influence at a point.
+ * Every node keeps the box of its lights' positions and their total power, and the importance of a
+ * node at a point is estimated from its power, its distance and whether it is in front of the surface.
+ * The same estimate is used for leaves, which hold a single light, so siblings are always comparable
+ *
+ * @author Naama and Yeela
+ */
+public class LightBVH {
+    /**
+     * lights without a position (e.g. directional lights), which can not be sampled by distance
+     */
+    private final List<LightSource> unsampled;
+    /**
+     * the positioned lights, ordered by the leaves of the hierarchy
+     */
+    private final PointLight[] lights;
+    /**
+     * boxes of the light positions of the nodes, 6 numbers per node (min x,y,z then max x,y,z)
+     */
+    private final double[] bounds;
+    /**
+     * total power (strongest intensity component) of the lights of each node
+     */
+    private final double[] power;
+    /**
+     * for a leaf - index of its light, for an inner node - index of its second child
+     * (the first child always follows its parent)
+     */
+    private final int[] offsets;
+    /**
+     * whether each node is a leaf
+     */
+    private final boolean[] leaves;
+    /**
+     * amount of nodes in use
+     */
+    private int nodeCount = 0;
+
+    /**
+     * A light chosen at a point, with the probability of choosing it
+     */
+    public static class Sample {
+        /**
+         * the chosen light
+         */
+        public final LightSource light;
+        /**
+         * probability of choosing the light
+         */
+        public final double pdf;
+
+        /**
+         * constructor
+         *
+         * @param light the chosen light
+         * @param pdf   probability of choosing it
+         */
+        Sample(LightSource light, double pdf) {
+            this.light = light;
+            this.pdf = pdf;
+        }
+    }
+
+    /**
+     * Constructor building the hierarchy over the positioned lights of a list
+     *
+     * @param lights the light sources
+     */
+    public LightBVH(List<LightSource> lights) {
+        List<PointLight> positioned = new ArrayList<>();
+        List<LightSource> unsampled = new ArrayList<>();
+        for (LightSource light : lights)
+            if (light instanceof PointLight pointLight)
+                positioned.add(pointLight);
+            else
+                unsampled.add(light);
+        this.unsampled = List.copyOf(unsampled);
+        this.lights = positioned.toArray(new PointLight[0]);
+
+        int size = Math.max(1, 2 * this.lights.length - 1);
+        bounds = new double[6 * size];
+        power = new double[size];
+        offsets = new int[size];
+        leaves = new boolean[size];
+        if (this.lights.length > 0)
+            buildNode(0, this.lights.length);
+    }
+
+    /**
+     * getter for the lights which are not in the hierarchy and should be shaded at every point
+     *
+     * @return lights without a position
+     */
+    public List<LightSource> getUnsampledLights() {
+        return unsampled;
+    }
+
+    /**
+     * getter for the amount of lights in the hierarchy
+     *
+     * @return amount of positioned lights
+     */
+    public int size() {
+        return lights.length;
+    }
+
+    /**
+     * Chooses a light for a surface point by descending the hierarchy, picking each child with
+     * probability proportional to its importance at the point
+     *
+     * @param p  the point
+     * @param n  normal of the surface at the point
+     * @param nv dot product of the normal and the direction of the ray from the viewer, for telling
+     *           the side of the surface lights must be on
+     * @return the chosen light with the probability of choosing it, null if no light can reach the point
+     */
+    public Sample sample(Point p, Vector n, double nv) {
+        if (lights.length == 0)
+            return null;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double pdf = 1;
+        int node = 0;
+        while (!leaves[node]) {
+            int first = node + 1, second = offsets[node];
+            double firstImportance = importance(first, p, n, nv), secondImportance = importance(second, p, n, nv);
+            double total = firstImportance + secondImportance;
+            if (total <= 0)
+                return null;
+            if (random.nextDouble() * total < firstImportance) {
+                pdf *= firstImportance / total;
+                node = first;
+            } else {
+                pdf *= secondImportance / total;
+                node = second;
+            }
+        }
+        return new Sample(lights[offsets[node]], pdf);
+    }
+
+    /**
+     * Estimates the influence of the lights of a node at a surface point
+     *
+     * @param node the node
+     * @param p    the point
+     * @param n    normal of the surface at the point
+     * @param nv   dot product of the normal and the direction of the ray from the viewer
+     * @return importance of the node, 0 if none of its lights can light the point
+     */
+    private double importance(int node, Point p, Vector n, double nv) {
+        if (!facing(node, p, n, nv))
+            return 0;
+
+        int b = 6 * node;
+        double dx = (bounds[b] + bounds[b + 3]) / 2 - p.getX();
+        double dy = (bounds[b + 1] + bounds[b + 4]) / 2 - p.getY();
+        double dz = (bounds[b + 2] + bounds[b + 5]) / 2 - p.getZ();
+        double ex = bounds[b + 3] - bounds[b], ey = bounds[b + 4] - bounds[b + 1], ez = bounds[b + 5] - bounds[b + 2];
+        // the distance to the center is not trusted closer than half the diagonal of the node
+        double distanceSquared = Math.max(dx * dx + dy * dy + dz * dz, (ex * ex + ey * ey + ez * ez) / 4);
+        return distanceSquared == 0 ? power[node] : power[node] / distanceSquared;
+    }
+
+    /**
+     * Checks whether any corner of a node's box is on the side of the surface the viewer sees, which
+     * is the side a light must be on to light the point
+     *
+     * @param node the node
+     * @param p    the point
+     * @param n    normal of the surface at the point
+     * @param nv   dot product of the normal and the direction of the ray from the viewer
+     * @return false if all the lights of the node are behind the surface
+     */
+    private boolean facing(int node, Point p, Vector n, double nv) {
+        int b = 6 * node;
+        for (int corner = 0; corner < 8; ++corner) {
+            double x = bounds[b + ((corner & 4) == 0 ? 0 : 3)] - p.getX();
+            double y = bounds[b + 1 + ((corner & 2) == 0 ? 0 : 3)] - p.getY();
+            double z = bounds[b + 2 + ((corner & 1) == 0 ? 0 : 3)] - p.getZ();
+            // the direction from the light to the point must be on the side of the viewer's ray
+            if ((n.getX() * x + n.getY() * y + n.getZ() * z) * nv < 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * builds the node of a range of lights, splitting it at the median position along the widest axis
+     *
+     * @param start first light of the range
+     * @param end   end of the range (exclusive)
+     * @return the index of the node
+     */
+    private int buildNode(int start, int end) {
+        int node = nodeCount++;
+        int b = 6 * node;
+        Arrays.fill(bounds, b, b + 3, Double.POSITIVE_INFINITY);
+        Arrays.fill(bounds, b + 3, b + 6, Double.NEGATIVE_INFINITY);
+        for (int i = start; i < end; ++i) {
+            Point position = lights[i].getPosition();
+            bounds[b] = Math.min(bounds[b], position.getX());
+            bounds[b + 1] = Math.min(bounds[b + 1], position.getY());
+            bounds[b + 2] = Math.min(bounds[b + 2], position.getZ());
+            bounds[b + 3] = Math.max(bounds[b + 3], position.getX());
+            bounds[b + 4] = Math.max(bounds[b + 4], position.getY());
+            bounds[b + 5] = Math.max(bounds[b + 5], position.getZ());
+            power[node] += lights[i].getIntensity().max();
+        }
+
+        if (end - start == 1) {
+            leaves[node] = true;
+            offsets[node] = start;
+            return node;
+        }
+
+        double ex = bounds[b + 3] - bounds[b], ey = bounds[b + 4] - bounds[b + 1], ez = bounds[b + 5] - bounds[b + 2];
+        Comparator<PointLight> order = ex >= ey && ex >= ez ? Comparator.comparingDouble(l -> l.getPosition().getX())
+                : ey >= ez ? Comparator.comparingDouble(l -> l.getPosition().getY())
+                : Comparator.comparingDouble(l -> l.getPosition().getZ());
+        Arrays.sort(lights, start, end, order);
+        int middle = (start + end) / 2;
+        buildNode(start, middle);
+        offsets[node] = buildNode(middle, end);
+        return node;
+    }
+}
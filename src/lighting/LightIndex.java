@@ -0,0 +1,173 @@
+package lighting;
+
+import geometries.BoundingBox;
+import primitives.Point;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spatial index of the light sources of a scene, for skipping lights whose influence at a point is
+ * negligible before casting any shadow ray towards them. The boxes of influence of the bounded lights
+ * are bucketed in a uniform grid, while lights which may reach everywhere are returned for every point
+ *
+ * @author Naama and Yeela
+ */
+public class LightIndex {
+    /**
+     * highest amount of grid cells along each axis
+     */
+    private static final int MAX_CELLS = 16;
+
+    /**
+     * lowest intensity considered not negligible
+     */
+    private final double threshold;
+    /**
+     * lights reaching points outside the grid - those without bounds of influence
+     */
+    private final List<LightSource> unbounded;
+    /**
+     * lights of each grid cell, in the order of the scene's lights
+     */
+    private final List<List<LightSource>> cells;
+    /**
+     * amount of grid cells along each axis
+     */
+    private final int resolution;
+    /**
+     * lowest corner of the grid
+     */
+    private final double minX, minY, minZ;
+    /**
+     * cells per unit of length along each axis
+     */
+    private final double scaleX, scaleY, scaleZ;
+
+    /**
+     * Constructor building the index of the given lights
+     *
+     * @param lights    the light sources
+     * @param threshold lowest intensity considered not negligible, must be positive
+     */
+    public LightIndex(List<LightSource> lights, double threshold) {
+        if (threshold <= 0)
+            throw new IllegalArgumentException("Threshold of influence must be greater than 0");
+        this.threshold = threshold;
+
+        BoundingBox[] boxes = new BoundingBox[lights.size()];
+        List<LightSource> unbounded = new ArrayList<>();
+        BoundingBox grid = null;
+        int bounded = 0;
+        for (int i = 0; i < boxes.length; ++i) {
+            boxes[i] = lights.get(i).getInfluenceBounds(threshold);
+            if (boxes[i] == null)
+                unbounded.add(lights.get(i));
+            else {
+                grid = grid == null ? boxes[i] : grid.union(boxes[i]);
+                ++bounded;
+            }
+        }
+        this.unbounded = List.copyOf(unbounded);
+
+        if (grid == null) {
+            resolution = 0;
+            cells = List.of();
+            minX = minY = minZ = scaleX = scaleY = scaleZ = 0;
+            return;
+        }
+        resolution = Math.max(1, Math.min(MAX_CELLS, (int) Math.ceil(2 * Math.cbrt(bounded))));
+        minX = grid.minX;
+        minY = grid.minY;
+        minZ = grid.minZ;
+        scaleX = scale(grid.minX, grid.maxX);
+        scaleY = scale(grid.minY, grid.maxY);
+        scaleZ = scale(grid.minZ, grid.maxZ);
+
+        // every cell lists the unbounded lights and the bounded lights overlapping it, in the scene's order
+        List<List<LightSource>> cells = new ArrayList<>(resolution * resolution * resolution);
+        for (int c = 0; c < resolution * resolution * resolution; ++c)
+            cells.add(new ArrayList<>());
+        for (int i = 0; i < boxes.length; ++i) {
+            BoundingBox box = boxes[i];
+            if (box == null) {
+                for (List<LightSource> cell : cells)
+                    cell.add(lights.get(i));
+                continue;
+            }
+            int x0 = cell(box.minX, minX, scaleX), x1 = cell(box.maxX, minX, scaleX);
+            int y0 = cell(box.minY, minY, scaleY), y1 = cell(box.maxY, minY, scaleY);
+            int z0 = cell(box.minZ, minZ, scaleZ), z1 = cell(box.maxZ, minZ, scaleZ);
+            for (int x = x0; x <= x1; ++x)
+                for (int y = y0; y <= y1; ++y)
+                    for (int z = z0; z <= z1; ++z)
+                        cells.get(index(x, y, z)).add(lights.get(i));
+        }
+        for (int c = 0; c < cells.size(); ++c)
+            cells.set(c, List.copyOf(cells.get(c)));
+        this.cells = cells;
+    }
+
+    /**
+     * Finds the lights which may influence a point, in the order of the scene's lights. Some of them may
+     * still be negligible at the point, see {@link #isNegligible(LightSource, Point)}
+     *
+     * @param p the point
+     * @return the candidate lights
+     */
+    public List<LightSource> getLights(Point p) {
+        if (resolution == 0)
+            return unbounded;
+        double x = (p.getX() - minX) * scaleX, y = (p.getY() - minY) * scaleY, z = (p.getZ() - minZ) * scaleZ;
+        if (x < 0 || y < 0 || z < 0 || x > resolution || y > resolution || z > resolution)
+            return unbounded;
+        return cells.get(index(Math.min((int) x, resolution - 1), Math.min((int) y, resolution - 1),
+                Math.min((int) z, resolution - 1)));
+    }
+
+    /**
+     * Checks whether the intensity of a light at a point is below the threshold in all its components
+     *
+     * @param light the light source
+     * @param p     the point
+     * @return true if the light can be skipped at the point
+     */
+    public boolean isNegligible(LightSource light, Point p) {
+        return light.getIntensity(p).max() < threshold;
+    }
+
+    /**
+     * calculates the factor converting a coordinate to a cell index
+     *
+     * @param min lowest coordinate of the grid
+     * @param max highest coordinate of the grid
+     * @return cells per unit of length
+     */
+    private double scale(double min, double max) {
+        return max > min ? resolution / (max - min) : 0;
+    }
+
+    /**
+     * calculates the cell index of a coordinate inside the grid
+     *
+     * @param value coordinate
+     * @param min   lowest coordinate of the grid
+     * @param scale cells per unit of length
+     * @return cell index
+     */
+    private int cell(double value, double min, double scale) {
+        return Math.min((int) ((value - min) * scale), resolution - 1);
+    }
+
+    /**
+     * calculates the position of a cell in the list of cells
+     *
+     * @param x cell index along x axis
+     * @param y cell index along y axis
+     * @param z cell index along z axis
+     * @return position of the cell
+     */
+    private int index(int x, int y, int z) {
+        return (x * resolution + y) * resolution + z;
+    }
+}
@@ -1,5 +1,6 @@
 package lighting;
 
+import geometries.BoundingBox;
 import primitives.*;
 
 import java.util.List;
@@ -44,4 +45,22 @@ public interface LightSource {
      */
     public List<Vector> getLCircle(Point p, double r, int amount);
 
+    /**
+     * getter for the version of the light, for finding the lights changed since a rendering
+     *
+     * @return amount of changes made to the light
+     */
+    int getVersion();
+
+    /**
+     * Calculates the box outside which the intensity of the light is below a threshold in all its
+     * components, so the light can be skipped when lighting points there
+     *
+     * @param threshold lowest intensity considered not negligible, must be positive
+     * @return bounding box of the influence of the light, null if the light may reach everywhere
+     */
+    default BoundingBox getInfluenceBounds(double threshold) {
+        return null;
+    }
+
 }
@@ -1,10 +1,11 @@
 package lighting;
 
+import geometries.BoundingBox;
 import primitives.*;
 
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import static java.lang.Math.sqrt;
 import static primitives.Util.isZero;
 
@@ -31,7 +32,10 @@ public class PointLight extends Light implements LightSource {
      */
     private double kQ = 0;
 
-    private static final Random RND = new Random();
+    /**
+     * sample positions of the light on a unit disk around it, pairs of disk coordinates
+     */
+    private volatile double[] samples = new double[0];
 
     /**
      * setter for kC field (Builder pattern style)
@@ -41,6 +45,7 @@ public class PointLight extends Light implements LightSource {
      */
     public PointLight setkC(double kC) {
         this.kC = kC;
+        changed();
         return this;
     }
 
@@ -52,6 +57,7 @@ public class PointLight extends Light implements LightSource {
      */
     public PointLight setkL(double kL) {
         this.kL = kL;
+        changed();
         return this;
     }
 
@@ -63,6 +69,7 @@ public class PointLight extends Light implements LightSource {
      */
     public PointLight setkQ(double kQ) {
         this.kQ = kQ;
+        changed();
         return this;
     }
 
@@ -102,7 +109,76 @@ public class PointLight extends Light implements LightSource {
     }
 
     /**
-     * Creates a list of vectors from the given point to random points around the light within radius r
+     * getter for position
+     *
+     * @return position of the light
+     */
+    public Point getPosition() {
+        return position;
+    }
+
+    /**
+     * getter for kC field
+     *
+     * @return constant attenuation coefficient
+     */
+    public double getkC() {
+        return kC;
+    }
+
+    /**
+     * getter for kL field
+     *
+     * @return attenuation coefficient depending on distance
+     */
+    public double getkL() {
+        return kL;
+    }
+
+    /**
+     * getter for kQ field
+     *
+     * @return attenuation coefficient depending on distance²
+     */
+    public double getkQ() {
+        return kQ;
+    }
+
+    /**
+     * Calculates the distance from the light beyond which its attenuated intensity is below a threshold
+     * in all its components
+     *
+     * @param threshold lowest intensity considered not negligible, must be positive
+     * @return the distance, infinity if the light is not attenuated by distance
+     */
+    public double getInfluenceRadius(double threshold) {
+        if (threshold <= 0)
+            throw new IllegalArgumentException("Threshold of influence must be greater than 0");
+
+        // solve kQ*d² + kL*d + kC = intensity / threshold
+        double c = kC - intensity.max() / threshold;
+        if (c >= 0)
+            return 0;
+        if (kQ > 0)
+            return (-kL + sqrt(kL * kL - 4 * kQ * c)) / (2 * kQ);
+        if (kL > 0)
+            return -c / kL;
+        return Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public BoundingBox getInfluenceBounds(double threshold) {
+        double r = getInfluenceRadius(threshold);
+        if (Double.isInfinite(r))
+            return null;
+        return new BoundingBox(position.getX() - r, position.getY() - r, position.getZ() - r,
+                position.getX() + r, position.getY() + r, position.getZ() + r);
+    }
+
+    /**
+     * Creates a list of vectors from the given point to random points around the light within radius r.
+     * The points are taken from a sample set precomputed once for the light, rotated by a random angle
+     * for every shading point, and their coordinates are calculated directly in primitive numbers
      *
      * @param p      the given point
      * @param r      the radius
@@ -114,49 +190,68 @@ public class PointLight extends Light implements LightSource {
         if (p.equals(position))
             return null;
 
-        List<Vector> result = new LinkedList<>();
-
         Vector l = getL(p);
-        result.add(l);
-
         if (amount < 2) {
-            return result;
+            return List.of(l);
         }
 
-        Vector vAcross;
-        if (isZero(l.getX()) && isZero(l.getY())) {
-            vAcross = new Vector(-1 * l.getZ(), 0, 0).normalize();
+        // frame of the disk around the light, perpendicular to the direction of the light
+        double lx = l.getX(), ly = l.getY(), lz = l.getZ();
+        double ax, ay, az;
+        if (isZero(lx) && isZero(ly)) {
+            ax = lz > 0 ? -1 : 1;
+            ay = 0;
         } else {
-            vAcross = new Vector(-1 * l.getY(), l.getX(), 0).normalize();
+            double length = sqrt(lx * lx + ly * ly);
+            ax = -ly / length;
+            ay = lx / length;
         }
-        Vector vForward = vAcross.crossProduct(l).normalize();
+        az = 0;
+        double fx = ay * lz - az * ly, fy = az * lx - ax * lz, fz = ax * ly - ay * lx;
 
-        double cosAngle, sinAngle, moveX, moveY, d;
+        // rotate the shared sample set by a random angle for this point
+        double angle = 2 * Math.PI * ThreadLocalRandom.current().nextDouble();
+        double cos = Math.cos(angle), sin = Math.sin(angle);
+        double[] samples = diskSamples(amount);
 
+        Vector[] result = new Vector[amount + 1];
+        result[0] = l;
+        double px = p.getX() - position.getX(), py = p.getY() - position.getY(), pz = p.getZ() - position.getZ();
         for (int i = 0; i < amount; i++) {
-            Point movedPoint = this.position;
+            double u = r * (cos * samples[2 * i] - sin * samples[2 * i + 1]);
+            double v = r * (sin * samples[2 * i] + cos * samples[2 * i + 1]);
+            double x = px - u * ax - v * fx, y = py - u * ay - v * fy, z = pz - u * az - v * fz;
+            double length = sqrt(x * x + y * y + z * z);
+            result[i + 1] = new Vector(x / length, y / length, z / length);
+        }
+        return Arrays.asList(result);
+    }
 
-            cosAngle = 2 * RND.nextDouble() - 1;
-            sinAngle = sqrt(1 - cosAngle * cosAngle);
+    /**
+     * getter for the light's sample positions on a unit disk around it, precomputed on first use for
+     * the requested amount and shared by all the shading points
+     *
+     * @param amount amount of positions
+     * @return pairs of disk coordinates of the positions
+     */
+    private double[] diskSamples(int amount) {
+        double[] samples = this.samples;
+        if (samples.length == 2 * amount)
+            return samples;
 
-            d = r * (2 * RND.nextDouble() - 1);
-            if (isZero(d)) {
-                i--;
+        samples = new double[2 * amount];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < amount; ) {
+            double cosAngle = 2 * random.nextDouble() - 1;
+            double sinAngle = sqrt(1 - cosAngle * cosAngle);
+            double d = 2 * random.nextDouble() - 1;
+            if (isZero(d))
                 continue;
-            }
-
-            moveX = d * cosAngle;
-            moveY = d * sinAngle;
-
-            if (!isZero(moveX)) {
-                movedPoint = movedPoint.add(vAcross.scale(moveX));
-            }
-            if (!isZero(moveY)) {
-                movedPoint = movedPoint.add(vForward.scale(moveY));
-            }
-
-            result.add(p.subtract(movedPoint).normalize());
+            samples[2 * i] = d * cosAngle;
+            samples[2 * i + 1] = d * sinAngle;
+            ++i;
         }
-        return result;
+        this.samples = samples;
+        return samples;
     }
 }
@@ -0,0 +1,148 @@
+package lighting;
+
+import primitives.Color;
+import primitives.Point;
+import primitives.Vector;
+
+import java.util.List;
+
+import static primitives.Util.isZero;
+
+/**
+ * Area light of a rectangle, sampled uniformly in the solid angle it subtends at the shaded point
+ * (spherical rectangle sampling)
+ *
+ * @author Naama and Yeela
+ */
+public class RectangleLight extends AreaLight {
+    /**
+     * lowest corner of the rectangle (the center minus half of both edges)
+     */
+    private final Point corner;
+    /**
+     * first edge of the rectangle
+     */
+    private final Vector width;
+    /**
+     * second edge of the rectangle, perpendicular to the first
+     */
+    private final Vector height;
+
+    /**
+     * constructor
+     *
+     * @param intensity {@link Color} of intensity of light
+     * @param center    center {@link Point} of the rectangle
+     * @param width     first edge {@link Vector} of the rectangle
+     * @param height    second edge {@link Vector} of the rectangle, perpendicular to the first
+     */
+    public RectangleLight(Color intensity, Point center, Vector width, Vector height) {
+        super(intensity, center);
+        if (!isZero(width.dotProduct(height)))
+            throw new IllegalArgumentException("Edges of a rectangle light must be perpendicular");
+        this.width = width;
+        this.height = height;
+        this.corner = center.add(width.scale(-0.5)).add(height.scale(-0.5));
+    }
+
+    @Override
+    public double getExtent() {
+        return Math.sqrt(width.lengthSquared() + height.lengthSquared()) / 2;
+    }
+
+    /**
+     * getter for the first edge
+     *
+     * @return first edge of the rectangle
+     */
+    public Vector getWidth() {
+        return width;
+    }
+
+    /**
+     * getter for the second edge
+     *
+     * @return second edge of the rectangle
+     */
+    public Vector getHeight() {
+        return height;
+    }
+
+    @Override
+    protected void addSamples(Point p, double[] samples, List<Vector> result) {
+        double[] points = sample(p, corner, width, height, samples);
+        if (points == null)
+            return;
+        for (int i = 0; i < points.length; i += 3) {
+            Vector l = towards(p, points[i], points[i + 1], points[i + 2]);
+            if (l != null)
+                result.add(l);
+        }
+    }
+
+    /**
+     * Maps stratified coordinates of the unit square to points of a rectangle, uniformly in the solid
+     * angle the rectangle subtends at a point (Ureña, Fajardo and King, "An Area-Preserving
+     * Parametrization for Spherical Rectangles")
+     *
+     * @param p       the point
+     * @param corner  a corner of the rectangle
+     * @param ex      first edge of the rectangle from the corner
+     * @param ey      second edge of the rectangle from the corner, perpendicular to the first
+     * @param samples pairs of coordinates in the unit square
+     * @return the points of the rectangle, 3 coordinates each, null if the point is on the
+     * rectangle's plane
+     */
+    static double[] sample(Point p, Point corner, Vector ex, Vector ey, double[] samples) {
+        double exl = ex.length(), eyl = ey.length();
+        double xx = ex.getX() / exl, xy = ex.getY() / exl, xz = ex.getZ() / exl;
+        double yx = ey.getX() / eyl, yy = ey.getY() / eyl, yz = ey.getZ() / eyl;
+        double zx = xy * yz - xz * yy, zy = xz * yx - xx * yz, zz = xx * yy - xy * yx;
+
+        // the rectangle in a local frame of the point, on the plane z = z0 < 0
+        double dx = corner.getX() - p.getX(), dy = corner.getY() - p.getY(), dz = corner.getZ() - p.getZ();
+        double z0 = dx * zx + dy * zy + dz * zz;
+        if (isZero(z0))
+            return null;
+        if (z0 > 0) {
+            zx = -zx;
+            zy = -zy;
+            zz = -zz;
+            z0 = -z0;
+        }
+        double x0 = dx * xx + dy * xy + dz * xz, y0 = dx * yx + dy * yy + dz * yz;
+        double x1 = x0 + exl, y1 = y0 + eyl;
+
+        // normals of the planes through the point and the rectangle's edges
+        double n0 = 1 / Math.sqrt(z0 * z0 + y0 * y0), n1 = 1 / Math.sqrt(z0 * z0 + x1 * x1);
+        double n2 = 1 / Math.sqrt(z0 * z0 + y1 * y1), n3 = 1 / Math.sqrt(z0 * z0 + x0 * x0);
+        // only the z components are needed, as consecutive normals are perpendicular to different axes
+        double n0z = -y0 * n0, n1z = x1 * n1, n2z = y1 * n2, n3z = -x0 * n3;
+
+        // internal angles of the spherical rectangle
+        double g0 = Math.acos(-n0z * n1z), g1 = Math.acos(-n1z * n2z);
+        double g2 = Math.acos(-n2z * n3z), g3 = Math.acos(-n3z * n0z);
+        double b0 = n0z, b1 = n2z;
+        double k = 2 * Math.PI - g2 - g3;
+        double solidAngle = g0 + g1 - k;
+
+        double[] points = new double[samples.length / 2 * 3];
+        for (int i = 0, j = 0; i < samples.length; i += 2, j += 3) {
+            // x coordinate from the first coordinate, cutting a part of the solid angle
+            double au = samples[i] * solidAngle + k;
+            double fu = (Math.cos(au) * b0 - b1) / Math.sin(au);
+            double cu = Math.max(-1, Math.min(1, Math.copySign(1 / Math.sqrt(fu * fu + b0 * b0), fu)));
+            double xu = Math.max(x0, Math.min(x1, -(cu * z0) / Math.sqrt(1 - cu * cu)));
+            // y coordinate from the second coordinate, along the chosen line
+            double d = Math.sqrt(xu * xu + z0 * z0);
+            double h0 = y0 / Math.sqrt(d * d + y0 * y0), h1 = y1 / Math.sqrt(d * d + y1 * y1);
+            double hv = h0 + samples[i + 1] * (h1 - h0), hv2 = hv * hv;
+            double yv = hv2 < 1 - 1e-9 ? hv * d / Math.sqrt(1 - hv2) : y1;
+
+            points[j] = p.getX() + xu * xx + yv * yx + z0 * zx;
+            points[j + 1] = p.getY() + xu * xy + yv * yy + z0 * zy;
+            points[j + 2] = p.getZ() + xu * xz + yv * yz + z0 * zz;
+        }
+        return points;
+    }
+}
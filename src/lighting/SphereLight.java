@@ -0,0 +1,76 @@
+package lighting;
+
+import primitives.Color;
+import primitives.Point;
+import primitives.Vector;
+
+import java.util.List;
+
+import static primitives.Util.isZero;
+
+/**
+ * Area light of a sphere, sampled uniformly in the cone of directions it subtends at the shaded point
+ *
+ * @author Naama and Yeela
+ */
+public class SphereLight extends AreaLight {
+    /**
+     * radius of the sphere
+     */
+    private final double radius;
+
+    /**
+     * constructor
+     *
+     * @param intensity {@link Color} of intensity of light
+     * @param center    center {@link Point} of the sphere
+     * @param radius    radius of the sphere
+     */
+    public SphereLight(Color intensity, Point center, double radius) {
+        super(intensity, center);
+        if (radius <= 0)
+            throw new IllegalArgumentException("Radius of a sphere light must be greater than 0");
+        this.radius = radius;
+    }
+
+    @Override
+    public double getExtent() {
+        return radius;
+    }
+
+    @Override
+    protected void addSamples(Point p, double[] samples, List<Vector> result) {
+        Point center = getPosition();
+        double dx = center.getX() - p.getX(), dy = center.getY() - p.getY(), dz = center.getZ() - p.getZ();
+        double distanceSquared = dx * dx + dy * dy + dz * dz;
+        // no cone of directions from inside the sphere
+        if (distanceSquared <= radius * radius)
+            return;
+
+        // frame around the direction from the point to the center
+        double distance = Math.sqrt(distanceSquared);
+        double wx = dx / distance, wy = dy / distance, wz = dz / distance;
+        double ax, ay, az;
+        if (isZero(wx) && isZero(wy)) {
+            ax = 1;
+            ay = 0;
+        } else {
+            double length = Math.sqrt(wx * wx + wy * wy);
+            ax = -wy / length;
+            ay = wx / length;
+        }
+        az = 0;
+        double bx = wy * az - wz * ay, by = wz * ax - wx * az, bz = wx * ay - wy * ax;
+
+        double cosMax = Math.sqrt(1 - radius * radius / distanceSquared);
+        for (int i = 0; i < samples.length; i += 2) {
+            double cos = 1 - samples[i] * (1 - cosMax);
+            double sin = Math.sqrt(Math.max(0, 1 - cos * cos));
+            double phi = 2 * Math.PI * samples[i + 1];
+            double u = sin * Math.cos(phi), v = sin * Math.sin(phi);
+            // direction from the light to the point, against the sampled direction towards the light
+            result.add(new Vector(-(cos * wx + u * ax + v * bx), -(cos * wy + u * ay + v * by),
+                    -(cos * wz + u * az + v * bz)));
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package lighting;
 
+import geometries.BoundingBox;
 import primitives.Color;
 import primitives.Point;
 import primitives.Vector;
 
 import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.Math.pow;
+import static java.lang.Math.sqrt;
 
 /**
  * a {@link PointLight} with direction to the light beam
@@ -72,9 +75,28 @@ public class SpotLight extends PointLight {
      */
     public SpotLight setNarrowBeam(double narrowBeam) {
         this.narrowBeam = narrowBeam;
+        changed();
         return this;
     }
 
+    /**
+     * getter for narrowBeam
+     *
+     * @return factor of the narrowness of the light beam
+     */
+    public double getNarrowBeam() {
+        return narrowBeam;
+    }
+
+    /**
+     * getter for direction
+     *
+     * @return direction of the light beam
+     */
+    public Vector getDirection() {
+        return direction;
+    }
+
     @Override
     public Color getIntensity(Point p) {
         Color color = super.getIntensity(p);
@@ -82,4 +104,40 @@ public class SpotLight extends PointLight {
         double factor = pow(max(0, direction.dotProduct(v)), narrowBeam);
         return color.scale(factor);
     }
+
+    @Override
+    public BoundingBox getInfluenceBounds(double threshold) {
+        BoundingBox sphere = super.getInfluenceBounds(threshold);
+        if (sphere == null || narrowBeam <= 0)
+            return sphere;
+
+        // the beam factor is below the threshold outside a cone, even at the unattenuated peak intensity
+        double peak = super.getIntensity(getPosition()).max();
+        double cos = Double.isInfinite(peak) ? 0 : min(1, pow(threshold / peak, 1 / narrowBeam));
+        double sin = sqrt(1 - cos * cos);
+        double r = getInfluenceRadius(threshold);
+        Point p = getPosition();
+        return new BoundingBox(p.getX() - r * coneExtent(-direction.getX(), cos, sin),
+                p.getY() - r * coneExtent(-direction.getY(), cos, sin),
+                p.getZ() - r * coneExtent(-direction.getZ(), cos, sin),
+                p.getX() + r * coneExtent(direction.getX(), cos, sin),
+                p.getY() + r * coneExtent(direction.getY(), cos, sin),
+                p.getZ() + r * coneExtent(direction.getZ(), cos, sin));
+    }
+
+    /**
+     * Calculates how far a cone of unit length (a spherical sector around the beam) reaches along an axis
+     *
+     * @param d   the beam direction component along the axis
+     * @param cos cosine of the cone's half angle
+     * @param sin sine of the cone's half angle
+     * @return reach of the cone along the axis, from the apex
+     */
+    private static double coneExtent(double d, double cos, double sin) {
+        // the axis itself is inside the cone
+        if (d >= cos)
+            return 1;
+        // farthest point of the cone's rim, or the apex
+        return max(0, d * cos + sqrt(1 - d * d) * sin);
+    }
 }
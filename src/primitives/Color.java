@@ -111,6 +111,18 @@ public class Color {
       return new Color(rgb.reduce(k));
    }
 
+   /**
+    * Finds the strongest of the color components
+    * @return the highest component
+    */
+   public double max() { return rgb.max(); }
+
+   /**
+    * Getter for the color components
+    * @return triad of Red/Green/Blue components
+    */
+   public Double3 getRgb() { return rgb; }
+
    @Override
    public String toString() { return "rgb:" + rgb; }
 
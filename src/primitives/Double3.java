@@ -101,6 +101,30 @@ public class Double3 {
     */
    public Double3 product(Double3 rhs) { return new Double3(d1 * rhs.d1, d2 * rhs.d2, d3 * rhs.d3); }
 
+   /**
+    * Finds the highest of the three numbers
+    * @return the highest number
+    */
+   public double max() { return Math.max(d1, Math.max(d2, d3)); }
+
+   /**
+    * Getter for the first number
+    * @return the first number
+    */
+   public double getD1() { return d1; }
+
+   /**
+    * Getter for the second number
+    * @return the second number
+    */
+   public double getD2() { return d2; }
+
+   /**
+    * Getter for the third number
+    * @return the third number
+    */
+   public double getD3() { return d3; }
+
    /**
     * Checks whether all the numbers are lower than a test number
     * @param  k the test number
@@ -1,5 +1,7 @@
 package primitives;
 
+import java.util.Objects;
+
 /**
  * material type of geometric geometry in a 3D space
  *
@@ -29,6 +31,51 @@ public class Material {
      */
     public int nShininess = 0;
 
+    /**
+     * spread of the reflected rays - sine of the half angle of the cone of reflection directions
+     * around the mirror direction, 0 for a perfect mirror
+     */
+    public double glossiness = 0;
+
+    /**
+     * spread of the refracted rays - sine of the half angle of the cone of refraction directions
+     * around the refracted direction, 0 for clear transparency
+     */
+    public double blurriness = 0;
+
+    /**
+     * index of refraction of the material, 1 for refraction straight through without reflection
+     * from the surface
+     */
+    public double ior = 1;
+
+    /**
+     * whether the material is shared among geometries, so its values must not be changed
+     */
+    private boolean frozen = false;
+
+    /**
+     * constructor of a material which reflects, refracts and spreads no light
+     */
+    public Material() {
+    }
+
+    /**
+     * copy constructor - the copy is not frozen, so it may be changed even if the material is shared
+     *
+     * @param other the material to copy the values of
+     */
+    public Material(Material other) {
+        kT = other.kT;
+        kR = other.kR;
+        kD = other.kD;
+        kS = other.kS;
+        nShininess = other.nShininess;
+        glossiness = other.glossiness;
+        blurriness = other.blurriness;
+        ior = other.ior;
+    }
+
     /**
      * setter for kD field (Builder pattern style)
      *
@@ -36,6 +83,7 @@ public class Material {
      * @return this instance of object
      */
     public Material setkD(Double3 kD) {
+        checkFrozen();
         this.kD = kD;
         return this;
     }
@@ -47,6 +95,7 @@ public class Material {
      * @return this instance of object
      */
     public Material setkD(double kD) {
+        checkFrozen();
         this.kD = new Double3(kD);
         return this;
     }
@@ -58,6 +107,7 @@ public class Material {
      * @return this instance of object
      */
     public Material setkS(Double3 kS) {
+        checkFrozen();
         this.kS = kS;
         return this;
     }
@@ -69,6 +119,7 @@ public class Material {
      * @return this instance of object
      */
     public Material setkS(double kS) {
+        checkFrozen();
         this.kS = new Double3(kS);
         return this;
     }
@@ -80,6 +131,7 @@ public class Material {
      * @return this instance of object
      */
     public Material setnShininess(int nShininess) {
+        checkFrozen();
         this.nShininess = nShininess;
         return this;
     }
@@ -91,6 +143,7 @@ public class Material {
      * @return this
      */
     public Material setkT(Double3 kT) {
+        checkFrozen();
         this.kT = kT;
         return this;
     }
@@ -102,6 +155,7 @@ public class Material {
      * @return this
      */
     public Material setkT(double kT) {
+        checkFrozen();
         this.kT = new Double3(kT);
         return this;
     }
@@ -113,6 +167,7 @@ public class Material {
      * @return this
      */
     public Material setkR(Double3 kR) {
+        checkFrozen();
         this.kR = kR;
         return this;
     }
@@ -124,8 +179,95 @@ public class Material {
      * @return this
      */
     public Material setkR(double kR) {
+        checkFrozen();
         this.kR = new Double3(kR);
         return this;
     }
 
+    /**
+     * setter for ior field (Builder pattern style)
+     *
+     * @param ior index of refraction of the material, positive
+     * @return this instance of object
+     */
+    public Material setIor(double ior) {
+        checkFrozen();
+        if (ior <= 0)
+            throw new IllegalArgumentException("Index of refraction must be positive");
+        this.ior = ior;
+        return this;
+    }
+
+    /**
+     * setter for glossiness field (Builder pattern style)
+     *
+     * @param glossiness sine of the half angle of the cone of reflection directions, between 0 and 1
+     * @return this instance of object
+     */
+    public Material setGlossiness(double glossiness) {
+        checkFrozen();
+        if (glossiness < 0 || glossiness > 1)
+            throw new IllegalArgumentException("Glossiness must be between 0 and 1");
+        this.glossiness = glossiness;
+        return this;
+    }
+
+    /**
+     * setter for blurriness field (Builder pattern style)
+     *
+     * @param blurriness sine of the half angle of the cone of refraction directions, between 0 and 1
+     * @return this instance of object
+     */
+    public Material setBlurriness(double blurriness) {
+        checkFrozen();
+        if (blurriness < 0 || blurriness > 1)
+            throw new IllegalArgumentException("Blurriness must be between 0 and 1");
+        this.blurriness = blurriness;
+        return this;
+    }
+
+    /**
+     * Freezes the material, once it is shared among geometries, so that its setters reject changes which
+     * would change all the geometries at once. Its fields must not be written either - a geometry's
+     * material is changed by setting a changed copy of it (see {@link #Material(Material)})
+     *
+     * @return this instance of object
+     */
+    public Material freeze() {
+        frozen = true;
+        return this;
+    }
+
+    /**
+     * checks whether the material is frozen
+     *
+     * @return true if the material is shared and must not be changed
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * rejects a change of a frozen material
+     *
+     * @throws IllegalStateException if the material is frozen
+     */
+    private void checkFrozen() {
+        if (frozen)
+            throw new IllegalStateException("Shared material can not be changed, set a changed copy of it");
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        return obj instanceof Material other
+                && kT.equals(other.kT) && kR.equals(other.kR) && kD.equals(other.kD) && kS.equals(other.kS)
+                && nShininess == other.nShininess && glossiness == other.glossiness
+                && blurriness == other.blurriness && ior == other.ior;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kT, kR, kD, kS, nShininess, glossiness, blurriness, ior);
+    }
 }
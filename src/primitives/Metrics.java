@@ -0,0 +1,240 @@
+package primitives;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the metrics of rendering - named counters and maxima shared by all the classes of the
+ * renderer. The values are striped ({@link LongAdder}, {@link LongAccumulator}), so the rendering threads
+ * update them without contending. Classes look up their metrics once and keep them, and update them only
+ * while metrics are enabled, so disabled metrics cost one check. Metrics are enabled explicitly or while
+ * any task collects them (see {@link #start()}). Tasks find their own metrics as the difference from
+ * their start, so tasks running at once neither reset nor disable the metrics of each other, though each
+ * counts the work of the others done meanwhile. Names are dotted, their first part the kind of the
+ * metric; metrics named "time..." hold nanoseconds
+ *
+ * @author Naama and Yeela
+ */
+public final class Metrics {
+    /**
+     * whether metrics are collected
+     */
+    private static volatile boolean enabled = false;
+    /**
+     * amount of tasks collecting metrics
+     */
+    private static final AtomicInteger collecting = new AtomicInteger();
+    /**
+     * values of the times when they were last taken by {@link #takeTimes()}
+     */
+    private static final Map<String, Long> takenTimes = new HashMap<>();
+    /**
+     * the counters, by name
+     */
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    /**
+     * the maxima, by name
+     */
+    private static final Map<String, LongAccumulator> maxima = new ConcurrentHashMap<>();
+
+    /**
+     * Don't let anyone instantiate this class
+     */
+    private Metrics() {
+    }
+
+    /**
+     * Checks whether metrics are collected, for the classes to check before updating their metrics
+     *
+     * @return true if metrics are collected
+     */
+    public static boolean isEnabled() {
+        return enabled || collecting.get() > 0;
+    }
+
+    /**
+     * Starts or stops collecting metrics
+     *
+     * @param enabled whether metrics are collected
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Starts collecting the metrics of a task, such as a rendering, enabling the metrics until the task
+     * stops. The maxima are reset when no other task collects metrics
+     *
+     * @return values of the metrics at the start, for finding the task's metrics by {@link #since(Map)}
+     */
+    public static Map<String, Long> start() {
+        if (collecting.getAndIncrement() == 0 && !enabled)
+            maxima.values().forEach(LongAccumulator::reset);
+        return snapshot();
+    }
+
+    /**
+     * Stops collecting the metrics of a task started by {@link #start()}
+     */
+    public static void stop() {
+        collecting.decrementAndGet();
+    }
+
+    /**
+     * Finds the metrics of a task - the counters' growth since its start, and the maxima
+     *
+     * @param start values of the metrics at the task's start
+     * @return value of each metric for the task, ordered by name
+     */
+    public static Map<String, Long> since(Map<String, Long> start) {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, growth(counter.sum(), start.get(name))));
+        maxima.forEach((name, maximum) -> values.put(name, maximum.get()));
+        return values;
+    }
+
+    /**
+     * Takes the times of the phases since they were last taken, such as loading the scene and building
+     * its hierarchy before a rendering and writing the image after the one before, for a task to report
+     * them once
+     *
+     * @return growth of each time since it was last taken, ordered by name
+     */
+    public static synchronized Map<String, Long> takeTimes() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> {
+            if (name.startsWith("time.")) {
+                long value = counter.sum();
+                values.put(name, growth(value, takenTimes.put(name, value)));
+            }
+        });
+        return values;
+    }
+
+    /**
+     * calculates the growth of a counter since an earlier value
+     *
+     * @param value   the counter's value
+     * @param earlier its earlier value, null if it had none
+     * @return the growth, the whole value if the counter was reset since
+     */
+    private static long growth(long value, Long earlier) {
+        return earlier == null || earlier > value ? value : value - earlier;
+    }
+
+    /**
+     * Finds a counter, registering it on first use
+     *
+     * @param name name of the counter
+     * @return the counter
+     */
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * Finds a maximum, registering it on first use
+     *
+     * @param name name of the maximum
+     * @return the maximum, updated by {@link LongAccumulator#accumulate(long)}
+     */
+    public static LongAccumulator maximum(String name) {
+        return maxima.computeIfAbsent(name, n -> new LongAccumulator(Math::max, 0));
+    }
+
+    /**
+     * getter for the value of a metric
+     *
+     * @param name name of the metric
+     * @return value of the counter or maximum of the name, 0 if there is none
+     */
+    public static long get(String name) {
+        LongAdder counter = counters.get(name);
+        if (counter != null)
+            return counter.sum();
+        LongAccumulator maximum = maxima.get(name);
+        return maximum == null ? 0 : maximum.get();
+    }
+
+    /**
+     * Divides the values of two metrics, as for the average of a sum over an amount or the part of the lookups of a
+     * cache which hit
+     *
+     * @param numerator   name of the metric divided
+     * @param denominator name of the metric dividing
+     * @return ratio of the values, 0 if the denominator is 0
+     */
+    public static double ratio(String numerator, String denominator) {
+        long divisor = get(denominator);
+        return divisor == 0 ? 0 : (double) get(numerator) / divisor;
+    }
+
+    /**
+     * Divides the values of two metrics of a task, found by {@link #since(Map)}
+     *
+     * @param values      value of each metric
+     * @param numerator   name of the metric divided
+     * @param denominator name of the metric dividing
+     * @return ratio of the values, 0 if the denominator is 0 or missing
+     */
+    public static double ratio(Map<String, Long> values, String numerator, String denominator) {
+        long divisor = values.getOrDefault(denominator, 0L);
+        return divisor == 0 ? 0 : (double) values.getOrDefault(numerator, 0L) / divisor;
+    }
+
+    /**
+     * getter for the values of all the metrics
+     *
+     * @return value of each metric, ordered by name
+     */
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        maxima.forEach((name, maximum) -> values.put(name, maximum.get()));
+        return values;
+    }
+
+    /**
+     * Resets all the metrics to 0
+     */
+    public static synchronized void reset() {
+        counters.values().forEach(LongAdder::reset);
+        maxima.values().forEach(LongAccumulator::reset);
+        takenTimes.clear();
+    }
+
+    /**
+     * Creates a report of the metrics which are not 0, a line per metric, with times in milliseconds
+     *
+     * @return the report
+     */
+    public static String report() {
+        return report(snapshot());
+    }
+
+    /**
+     * Creates a report of metrics which are not 0, such as a task's, a line per metric, with times in
+     * milliseconds
+     *
+     * @param values value of each metric, ordered by name
+     * @return the report
+     */
+    public static String report(Map<String, Long> values) {
+        StringBuilder report = new StringBuilder("Render metrics:");
+        values.forEach((name, value) -> {
+            if (value == 0)
+                return;
+            report.append(System.lineSeparator()).append("  ").append(name).append(": ");
+            if (name.startsWith("time."))
+                report.append(String.format("%.3f ms", value / 1e6));
+            else
+                report.append(value);
+        });
+        return report.toString();
+    }
+}
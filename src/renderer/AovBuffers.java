@@ -0,0 +1,290 @@
+package renderer;
+
+import geometries.Geometry;
+import primitives.Color;
+import primitives.Vector;
+import scene.Scene;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Auxiliary output buffers of a rendering (AOVs), filled while the pixels are traced: the geometry hit
+ * by each pixel's primary rays, the depth and normal of the hit, and the cost of the pixel's color - the
+ * amount of rays of each type and the time its tracing took. The hit is of the first primary ray of the
+ * pixel which hit any geometry. Geometries are identified by their index in the scene's geometries, and
+ * geometries added to the scene later by the next indexes. Pixels traced together in a tile share the
+ * tile's time by their amounts of rays
+ *
+ * @author Naama and Yeela
+ */
+public class AovBuffers {
+    /**
+     * id of the pixels whose primary rays hit no geometry
+     */
+    public static final int BACKGROUND = -1;
+    /**
+     * amount of pixels in a row
+     */
+    private final int nX;
+    /**
+     * amount of pixels in a column
+     */
+    private final int nY;
+    /**
+     * ids of the geometries
+     */
+    private final Map<Geometry, Integer> ids = new ConcurrentHashMap<>();
+    /**
+     * id of the geometry hit by each pixel, row by row
+     */
+    private final int[] geometries;
+    /**
+     * depth of the hit of each pixel
+     */
+    private final double[] depths;
+    /**
+     * normal of the hit of each pixel, 3 numbers per pixel
+     */
+    private final double[] normals;
+    /**
+     * amount of rays of each type traced for each pixel, {@link RayType} values per pixel
+     */
+    private final int[] rays;
+    /**
+     * time of tracing each pixel, in nanoseconds
+     */
+    private final long[] times;
+
+    /**
+     * Constructor - creates empty buffers
+     *
+     * @param scene the rendered scene, for the ids of its geometries
+     * @param nX    amount of pixels in a row
+     * @param nY    amount of pixels in a column
+     */
+    AovBuffers(Scene scene, int nX, int nY) {
+        this.nX = nX;
+        this.nY = nY;
+        for (Geometry geometry : scene.geometries.flatten())
+            ids.putIfAbsent(geometry, ids.size());
+        geometries = new int[nX * nY];
+        Arrays.fill(geometries, BACKGROUND);
+        depths = new double[nX * nY];
+        Arrays.fill(depths, Double.POSITIVE_INFINITY);
+        normals = new double[3 * nX * nY];
+        rays = new int[nX * nY * PixelTrace.RAY_TYPES];
+        times = new long[nX * nY];
+    }
+
+    /**
+     * Fills the buffers of a rectangle of pixels traced together
+     *
+     * @param startX column index of the first pixel
+     * @param startY row index of the first pixel
+     * @param endX   column index after the last pixel
+     * @param endY   row index after the last pixel
+     * @param trace  what was found tracing the pixels, in the order of the rows
+     * @param time   time of tracing the pixels, in nanoseconds
+     */
+    void setPixels(int startX, int startY, int endX, int endY, PixelTrace trace, long time) {
+        int pixels = (endX - startX) * (endY - startY);
+        long total = 0;
+        for (int count : trace.rays)
+            total += count;
+        int types = PixelTrace.RAY_TYPES;
+        int p = 0;
+        for (int y = startY; y < endY; ++y)
+            for (int x = startX; x < endX; ++x, ++p) {
+                int pixel = y * nX + x;
+                long count = 0;
+                for (int type = 0; type < types; ++type) {
+                    rays[pixel * types + type] = trace.rays[p * types + type];
+                    count += trace.rays[p * types + type];
+                }
+                times[pixel] = total == 0 ? time / pixels : time * count / total;
+                Geometry geometry = trace.geometries[p];
+                if (geometry == null) {
+                    geometries[pixel] = BACKGROUND;
+                    depths[pixel] = Double.POSITIVE_INFINITY;
+                    normals[3 * pixel] = normals[3 * pixel + 1] = normals[3 * pixel + 2] = 0;
+                    continue;
+                }
+                geometries[pixel] = id(geometry);
+                depths[pixel] = trace.depths[p];
+                normals[3 * pixel] = trace.normals[p].getX();
+                normals[3 * pixel + 1] = trace.normals[p].getY();
+                normals[3 * pixel + 2] = trace.normals[p].getZ();
+            }
+    }
+
+    /**
+     * finds the id of a geometry, giving the next id to a geometry added to the scene after the buffers
+     * were created
+     *
+     * @param geometry the geometry
+     * @return its id
+     */
+    private int id(Geometry geometry) {
+        Integer id = ids.get(geometry);
+        if (id != null)
+            return id;
+        synchronized (ids) {
+            return ids.computeIfAbsent(geometry, g -> ids.size());
+        }
+    }
+
+    /**
+     * getter for the id of the geometry a pixel's primary rays hit
+     *
+     * @param x column index of the pixel
+     * @param y row index of the pixel
+     * @return id of the geometry, {@link #BACKGROUND} if they hit none
+     */
+    public int getGeometryId(int x, int y) {
+        return geometries[y * nX + x];
+    }
+
+    /**
+     * getter for the depth of a pixel
+     *
+     * @param x column index of the pixel
+     * @param y row index of the pixel
+     * @return distance from the camera to the primary hit, infinity if the primary rays hit nothing
+     */
+    public double getDepth(int x, int y) {
+        return depths[y * nX + x];
+    }
+
+    /**
+     * getter for the normal of a pixel
+     *
+     * @param x column index of the pixel
+     * @param y row index of the pixel
+     * @return normal of the hit geometry at the primary hit, null if the primary rays hit nothing
+     */
+    public Vector getNormal(int x, int y) {
+        int pixel = y * nX + x;
+        return geometries[pixel] == BACKGROUND ? null
+                : new Vector(normals[3 * pixel], normals[3 * pixel + 1], normals[3 * pixel + 2]);
+    }
+
+    /**
+     * getter for the amount of rays of a pixel
+     *
+     * @param x column index of the pixel
+     * @param y row index of the pixel
+     * @return amount of rays traced for the pixel's color
+     */
+    public int getRayCount(int x, int y) {
+        int count = 0;
+        for (RayType type : RayType.values())
+            count += getRayCount(x, y, type);
+        return count;
+    }
+
+    /**
+     * getter for the amount of rays of a type of a pixel
+     *
+     * @param x    column index of the pixel
+     * @param y    row index of the pixel
+     * @param type type of the rays
+     * @return amount of rays of the type traced for the pixel's color
+     */
+    public int getRayCount(int x, int y, RayType type) {
+        return rays[(y * nX + x) * PixelTrace.RAY_TYPES + type.ordinal()];
+    }
+
+    /**
+     * getter for the time of tracing a pixel
+     *
+     * @param x column index of the pixel
+     * @param y row index of the pixel
+     * @return time of tracing the pixel's color, in nanoseconds
+     */
+    public long getTime(int x, int y) {
+        return times[y * nX + x];
+    }
+
+    /**
+     * Writes each buffer into an image file named after the rendered image: the geometry ids in distinct
+     * colors, the depth in gray levels from white for the nearest hit to black for the background, the
+     * normals with their coordinates as red, green and blue, and heatmaps of the amounts of rays and the
+     * times of the pixels
+     *
+     * @param imageName name of the rendered image
+     */
+    public void writeToImages(String imageName) {
+        double nearest = Double.POSITIVE_INFINITY, farthest = 0;
+        for (int pixel = 0; pixel < geometries.length; ++pixel)
+            if (geometries[pixel] != BACKGROUND) {
+                nearest = Math.min(nearest, depths[pixel]);
+                farthest = Math.max(farthest, depths[pixel]);
+            }
+        double range = farthest > nearest ? farthest - nearest : 1;
+        long[] counts = new long[nX * nY];
+        for (int y = 0; y < nY; ++y)
+            for (int x = 0; x < nX; ++x)
+                counts[y * nX + x] = getRayCount(x, y);
+
+        ImageWriter id = new ImageWriter(imageName + "-id", nX, nY);
+        ImageWriter depth = new ImageWriter(imageName + "-depth", nX, nY);
+        ImageWriter normal = new ImageWriter(imageName + "-normal", nX, nY);
+        for (int y = 0; y < nY; ++y)
+            for (int x = 0; x < nX; ++x) {
+                int pixel = y * nX + x;
+                if (geometries[pixel] == BACKGROUND) {
+                    id.writePixel(x, y, Color.BLACK);
+                    depth.writePixel(x, y, Color.BLACK);
+                    normal.writePixel(x, y, Color.BLACK);
+                    continue;
+                }
+                // successive ids get hues far apart
+                float hue = (float) (geometries[pixel] * 0.618033988749895 % 1);
+                id.writePixel(x, y, new Color(java.awt.Color.getHSBColor(hue, 0.7f, 1)));
+                depth.writePixel(x, y, gray(1 - 0.9 * (depths[pixel] - nearest) / range));
+                normal.writePixel(x, y, new Color(127.5 * (normals[3 * pixel] + 1),
+                        127.5 * (normals[3 * pixel + 1] + 1), 127.5 * (normals[3 * pixel + 2] + 1)));
+            }
+        id.writeToImage();
+        depth.writeToImage();
+        normal.writeToImage();
+        heatmap(imageName + "-rays", counts).writeToImage();
+        heatmap(imageName + "-time", times).writeToImage();
+    }
+
+    /**
+     * creates a false color heatmap of a cost of the pixels, from blue for the cheapest pixel through
+     * green and yellow to red for the costliest. Costs vary by orders of magnitude between pixels (a
+     * background pixel and a pixel of glossy glass), so they are scaled logarithmically
+     *
+     * @param name  name of the image
+     * @param costs cost of each pixel, row by row
+     * @return the image writer of the heatmap
+     */
+    private ImageWriter heatmap(String name, long[] costs) {
+        long lowest = Long.MAX_VALUE, highest = 0;
+        for (long cost : costs) {
+            lowest = Math.min(lowest, cost);
+            highest = Math.max(highest, cost);
+        }
+        double low = Math.log1p(lowest), range = Math.log1p(highest) - low;
+        ImageWriter image = new ImageWriter(name, nX, nY);
+        for (int y = 0; y < nY; ++y)
+            for (int x = 0; x < nX; ++x) {
+                double level = range == 0 ? 0 : (Math.log1p(costs[y * nX + x]) - low) / range;
+                image.writePixel(x, y, new Color(java.awt.Color.getHSBColor((float) (2 * (1 - level) / 3), 1, 1)));
+            }
+        return image;
+    }
+    /**
+     * creates a gray level
+     *
+     * @param level the level, from 0 for black to 1 for white
+     * @return the color
+     */
+    private static Color gray(double level) {
+        return new Color(255 * level, 255 * level, 255 * level);
+    }
+}
@@ -1,10 +1,13 @@
 package renderer;
 
+import geometries.Geometry;
 import primitives.*;
 import primitives.Vector;
 
 
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
 import java.util.stream.IntStream;
 
 import static primitives.Util.alignZero;
@@ -17,6 +20,14 @@ import static primitives.Util.isZero;
  * @author Naama and Yeela
  */
 public class Camera implements Cloneable {
+    /**
+     * logger for reporting the metrics of renderings
+     */
+    private static final Logger logger = Logger.getLogger("Camera");
+    /**
+     * time of rendering images, in the metrics registry
+     */
+    private static final LongAdder RENDER_TIME = Metrics.counter("time.render");
 
     /**
      * vector pointing towards view plane (-Z axis)
@@ -66,6 +77,38 @@ public class Camera implements Cloneable {
      * optimize with threads
      */
     private boolean threads = false;
+    /**
+     * size of the square tiles of pixels traced together, 0 for tracing pixel by pixel
+     */
+    private int tileSize = 0;
+    /**
+     * record each pixel's geometries for re-rendering changes
+     */
+    private boolean incremental = false;
+    /**
+     * record of the last rendering, null if it was not recorded
+     */
+    private RenderRecord record = null;
+    /**
+     * fill auxiliary output buffers when rendering
+     */
+    private boolean aovEnabled = false;
+    /**
+     * auxiliary output buffers of the last rendering, null if they were not filled
+     */
+    private AovBuffers aov = null;
+    /**
+     * amount of pixels traced by the last rendering
+     */
+    private int tracedPixels = 0;
+    /**
+     * collect metrics when rendering and report them
+     */
+    private boolean metricsEnabled = false;
+    /**
+     * metrics of the last rendering, null if they were not collected
+     */
+    private Map<String, Long> metrics = null;
 
 
     /**
@@ -84,11 +127,177 @@ public class Camera implements Cloneable {
     }
 
     /**
-     * render image "captured" through view plane
+     * getter for the camera's position
+     *
+     * @return position point of the camera
+     */
+    public Point getLocation() {
+        return p0;
+    }
+
+    /**
+     * getter for the direction towards the view plane
+     *
+     * @return normalized vector towards the view plane
+     */
+    public Vector getVTo() {
+        return vTo;
+    }
+
+    /**
+     * getter for the up direction
+     *
+     * @return normalized vector pointing up
+     */
+    public Vector getVUp() {
+        return vUp;
+    }
+
+    /**
+     * getter for the view plane's width
+     *
+     * @return width of the view plane
+     */
+    public double getVpWidth() {
+        return width;
+    }
+
+    /**
+     * getter for the view plane's height
+     *
+     * @return height of the view plane
+     */
+    public double getVpHeight() {
+        return height;
+    }
+
+    /**
+     * getter for the view plane's distance
+     *
+     * @return distance of the view plane from the camera
+     */
+    public double getVpDistance() {
+        return distance;
+    }
+
+    /**
+     * getter for the image writer
+     *
+     * @return the image writer the camera renders into
+     */
+    public ImageWriter getImageWriter() {
+        return imageWriter;
+    }
+
+    /**
+     * getter for the auxiliary output buffers
+     *
+     * @return the buffers filled by the last rendering, null if they were not
+     */
+    public AovBuffers getAovBuffers() {
+        return aov;
+    }
+
+    /**
+     * getter for the amount of pixels traced by the last rendering
+     *
+     * @return amount of pixels, all of them unless only changes were re-rendered
+     */
+    public int getTracedPixels() {
+        return tracedPixels;
+    }
+
+    /**
+     * getter for the metrics of the last rendering, see {@link Metrics}
+     *
+     * @return value of each metric for the rendering, null if the camera does not collect metrics
+     */
+    public Map<String, Long> getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * render image "captured" through view plane. If the camera collects metrics, the metrics of the
+     * rendering are kept and their report is logged at its end, with the times of the phases since the
+     * last report, such as loading the scene and building its hierarchy before the rendering and writing
+     * the image before it
      */
     public Camera renderImage() {
         int nX = imageWriter.getNx();
         int nY = imageWriter.getNy();
+        record = incremental ? new RenderRecord(rayTracer.scene, view(), nX, nY) : null;
+        aov = aovEnabled ? new AovBuffers(rayTracer.scene, nX, nY) : null;
+        tracedPixels = nX * nY;
+        Map<String, Long> started = metricsEnabled ? Metrics.start() : null;
+        RenderEvent event = new RenderEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            render(nX, nY);
+        } finally {
+            if (Metrics.isEnabled())
+                RENDER_TIME.add(System.nanoTime() - start);
+            if (started != null) {
+                reportMetrics(started);
+                Metrics.stop();
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.image = imageWriter.getImageName();
+                event.width = nX;
+                event.height = nY;
+                event.tileSize = adaptive ? 0 : tileSize;
+                event.commit();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * keeps the metrics of a rendering and logs their report, with the averages of the depth of recursion
+     * and of the paths and the hit rates of the caches. The metrics are not reset, so renderings running at
+     * once do not disturb each other
+     *
+     * @param started values of the metrics at the start of the rendering
+     */
+    private void reportMetrics(Map<String, Long> started) {
+        Map<String, Long> values = Metrics.since(started);
+        values.putAll(Metrics.takeTimes());
+        metrics = values;
+        StringBuilder report = new StringBuilder(Metrics.report(values));
+        reportRatio(report, values, "color.depth.average", "color.depth", "color.calls");
+        reportRatio(report, values, "path.depth.average", "path.bounces", "path.count");
+        reportRatio(report, values, "occluders.hitRate", "occluders.hits", "occluders.lookups");
+        reportRatio(report, values, "irradiance.hitRate", "irradiance.hits", "irradiance.lookups");
+        logger.info(report.toString());
+    }
+
+    /**
+     * adds the ratio of two metrics to a report, unless the dividing metric is 0
+     *
+     * @param report      the report
+     * @param values      value of each metric
+     * @param name        name of the ratio in the report
+     * @param numerator   name of the metric divided
+     * @param denominator name of the metric dividing
+     */
+    private static void reportRatio(StringBuilder report, Map<String, Long> values, String name, String numerator,
+                                    String denominator) {
+        if (values.getOrDefault(denominator, 0L) > 0)
+            report.append(String.format("%n  %s: %.3f", name, Metrics.ratio(values, numerator, denominator)));
+    }
+
+    /**
+     * render the pixels of the image by the camera's options
+     *
+     * @param nX number of pixels in a row of view plane
+     * @param nY number of pixels in a column of view plane
+     */
+    private void render(int nX, int nY) {
+        if (tileSize > 0 && !adaptive) {
+            renderTiles(nX, nY);
+            return;
+        }
         if (threads) {
             if (!adaptive) {
                 IntStream.range(0, nX).parallel().forEach(x -> {
@@ -99,7 +308,7 @@ public class Camera implements Cloneable {
             } else {
                 IntStream.range(0, nX).parallel().forEach(x -> {
                     IntStream.range(0, nY).parallel().forEach(y -> {
-                        imageWriter.writePixel(x, y, AdaptiveSuperSampling(imageWriter.getNx(), imageWriter.getNy(), x, y, antiAliasing));
+                        castAdaptive(nX, nY, x, y);
                     });
                 });
             }
@@ -112,14 +321,133 @@ public class Camera implements Cloneable {
             } else {
                 for (int i = 0; i < nX; i++)
                     for (int j = 0; j < nY; j++) {
-                        imageWriter.writePixel(i, j, AdaptiveSuperSampling(imageWriter.getNx(), imageWriter.getNy(), i, j, antiAliasing));
+                        castAdaptive(nX, nY, i, j);
                     }
             }
 
         }
+    }
+
+    /**
+     * re-render only the pixels which the changes of the scene since the last rendering may affect: the
+     * pixels whose rays met a geometry which changed or was removed, and the pixels whose rays may meet a
+     * geometry which changed or was added (see {@link RayTracerBase#mayReach(List, List)}). Geometries are
+     * found changed by their version, so they must be changed through their setters or moved, and by the
+     * values of their materials. A change of the view, the background, the ambient light, the list of
+     * lights or a light's attenuation or beam re-renders the whole image, as do a camera which did not
+     * record the last rendering, once geometries changed, a ray tracer which can not re-trace pixels
+     * alone, and, once geometries changed or were added, adaptive super sampling. Whenever anything
+     * changed, the state the ray tracer calculated over the scene is discarded first
+     * (see {@link RayTracerBase#reset()})
+     *
+     * @return the current camera
+     */
+    public Camera renderChanges() {
+        int nX = imageWriter.getNx();
+        int nY = imageWriter.getNy();
+        if (record == null || !record.isValid(rayTracer.scene, view())) {
+            rayTracer.reset();
+            return renderImage();
+        }
+
+        List<Geometry> reaching = new ArrayList<>();
+        BitSet changed = record.update(rayTracer.scene.geometries.flatten(), reaching);
+        if (!changed.isEmpty() || !reaching.isEmpty()) {
+            rayTracer.reset();
+            // the rays of adaptive super sampling are known only once they are traced
+            if (!rayTracer.isIncremental() || adaptive && !reaching.isEmpty())
+                return renderImage();
+        }
+        IntStream pixels = IntStream.range(0, nX * nY);
+        if (threads)
+            pixels = pixels.parallel();
+        int[] affected = pixels.filter(p -> record.meets(p % nX, p / nX, changed)
+                || !reaching.isEmpty() && rayTracer.mayReach(constructRays(nX, nY, p % nX, p / nX, antiAliasing),
+                reaching)).toArray();
+        tracedPixels = affected.length;
+
+        pixels = Arrays.stream(affected);
+        if (threads)
+            pixels = pixels.parallel();
+        pixels.forEach(p -> {
+            if (adaptive)
+                castAdaptive(nX, nY, p % nX, p / nX);
+            else
+                castRays(nX, nY, p % nX, p / nX);
+        });
         return this;
     }
 
+    /**
+     * the camera's view and resolution, which a recorded rendering is valid for
+     *
+     * @return the view's values
+     */
+    private List<Object> view() {
+        return List.of(p0, vTo, vUp, width, height, distance, imageWriter.getNx(), imageWriter.getNy(),
+                antiAliasing, adaptive);
+    }
+
+    /**
+     * render the image tile by tile, letting the ray tracer trace the rays of a whole tile together
+     *
+     * @param nX number of pixels in a row of view plane
+     * @param nY number of pixels in a column of view plane
+     */
+    private void renderTiles(int nX, int nY) {
+        int tilesX = (nX + tileSize - 1) / tileSize;
+        int tilesY = (nY + tileSize - 1) / tileSize;
+        IntStream tiles = IntStream.range(0, tilesX * tilesY);
+        if (threads)
+            tiles = tiles.parallel();
+        tiles.forEach(tile -> castTile(nX, nY, tile % tilesX * tileSize, tile / tilesX * tileSize));
+    }
+
+    /**
+     * cast the rays through all the pixels of a tile and write the colors of its pixels
+     *
+     * @param nX     number of pixels in a row of view plane
+     * @param nY     number of pixels in a column of view plane
+     * @param startX column index of the tile's first pixel
+     * @param startY row index of the tile's first pixel
+     */
+    private void castTile(int nX, int nY, int startX, int startY) {
+        int endX = Math.min(startX + tileSize, nX);
+        int endY = Math.min(startY + tileSize, nY);
+        List<List<Ray>> pixelsRays = new ArrayList<>((endX - startX) * (endY - startY));
+        for (int i = startY; i < endY; i++)
+            for (int j = startX; j < endX; j++)
+                pixelsRays.add(constructRays(nX, nY, j, i, antiAliasing));
+
+        TileRenderEvent event = new TileRenderEvent();
+        event.begin();
+        // the tile's rays are counted for the event only while it is recorded
+        long start = startTrace(pixelsRays.size(), event.isEnabled());
+        Color[] colors = rayTracer.traceTile(pixelsRays);
+        PixelTrace trace = endTrace(start, startX, startY, endX, endY);
+        event.end();
+        if (event.shouldCommit()) {
+            event.startX = startX;
+            event.startY = startY;
+            event.endX = endX;
+            event.endY = endY;
+            if (trace != null && trace.rays != null) {
+                long[] rays = new long[PixelTrace.RAY_TYPES];
+                for (int r = 0; r < trace.rays.length; ++r)
+                    rays[r % PixelTrace.RAY_TYPES] += trace.rays[r];
+                event.primaryRays = rays[RayType.PRIMARY.ordinal()];
+                event.shadowRays = rays[RayType.SHADOW.ordinal()];
+                event.reflectionRays = rays[RayType.REFLECTION.ordinal()];
+                event.refractionRays = rays[RayType.REFRACTION.ordinal()];
+            }
+            event.commit();
+        }
+        int pixel = 0;
+        for (int i = startY; i < endY; i++)
+            for (int j = startX; j < endX; j++)
+                imageWriter.writePixel(j, i, colors[pixel++]);
+    }
+
     /**
      * cast a ray from camera through pixel (i,j) in view plane and get color of pixel
      *
@@ -130,10 +458,66 @@ public class Camera implements Cloneable {
      */
     private void castRays(int Nx, int Ny, int j, int i) {
         List<Ray> rays = constructRays(Nx, Ny, j, i, antiAliasing);
+        long start = startTrace(1, false);
         Color color = rayTracer.traceRays(rays);
+        endTrace(start, j, i, j + 1, i + 1);
         imageWriter.writePixel(j, i, color);
     }
 
+    /**
+     * cast rays through pixel (i,j) in view plane by adaptive super sampling and write the color of the pixel
+     *
+     * @param nX number of rows in view plane
+     * @param nY number of columns in view plane
+     * @param j  column index of pixel
+     * @param i  row index of pixel
+     */
+    private void castAdaptive(int nX, int nY, int j, int i) {
+        long start = startTrace(1, false);
+        Color color = AdaptiveSuperSampling(nX, nY, j, i, antiAliasing);
+        endTrace(start, j, i, j + 1, i + 1);
+        imageWriter.writePixel(j, i, color);
+    }
+
+    /**
+     * starts recording what the rays of a unit of pixels find, if the rendering is recorded or fills
+     * auxiliary output buffers, or the unit's rays are counted
+     *
+     * @param pixels   amount of pixels in the unit
+     * @param counting whether the unit's rays are counted
+     * @return the time the unit's tracing started at, in nanoseconds, 0 if it is not recorded
+     */
+    private long startTrace(int pixels, boolean counting) {
+        if (record == null && aov == null && !counting)
+            return 0;
+        rayTracer.startTrace(new PixelTrace(pixels, record != null, aov != null || counting));
+        return System.nanoTime();
+    }
+
+    /**
+     * stops recording what the rays of a unit of pixels find, and keeps it in the rendering's record and
+     * auxiliary output buffers
+     *
+     * @param start  the time the unit's tracing started at, in nanoseconds
+     * @param startX column index of the unit's first pixel
+     * @param startY row index of the unit's first pixel
+     * @param endX   column index after the unit's last pixel
+     * @param endY   row index after the unit's last pixel
+     * @return what the rays of the unit found, null if it was not recorded
+     */
+    private PixelTrace endTrace(long start, int startX, int startY, int endX, int endY) {
+        PixelTrace trace = rayTracer.stopTrace();
+        if (trace == null)
+            return null;
+        long time = System.nanoTime() - start;
+        // the rays of a tile may be traced together, so each pixel is recorded with all the tile's geometries
+        if (record != null)
+            record.setPixels(startX, startY, endX, endY, trace.met);
+        if (aov != null)
+            aov.setPixels(startX, startY, endX, endY, trace, time);
+        return trace;
+    }
+
     /**
      * Checks the color of the pixel with the help of individual rays and averages between them and only
      * if necessary continues to send beams of rays in recursion
@@ -195,12 +579,15 @@ public class Camera implements Cloneable {
     }
 
     /**
-     * create a jpeg file, with scene "captured" by camera
+     * create a jpeg file, with scene "captured" by camera, and the files of the auxiliary output buffers
+     * if they were filled. The time of writing is reported by the next rendering collecting metrics
      */
     public Camera writeToImage() {
         if (imageWriter == null)
             throw new MissingResourceException("image writer is not initialized", ImageWriter.class.getName(), "");
         imageWriter.writeToImage();
+        if (aov != null)
+            aov.writeToImages(imageWriter.getImageName());
         return this;
     }
 
@@ -434,6 +821,52 @@ public class Camera implements Cloneable {
             return this;
         }
 
+        /**
+         * set the camera to record the geometries met by each pixel's rays when rendering, so that
+         * {@link Camera#renderChanges()} re-traces only the pixels affected by changes of the scene
+         *
+         * @return the Camera object
+         */
+        public Builder setIncremental() {
+            this.camera.incremental = true;
+            return this;
+        }
+
+        /**
+         * set the camera to fill auxiliary output buffers of the pixels' primary hits, amounts of rays and
+         * tracing times when rendering, written with the image
+         *
+         * @return the Camera object
+         */
+        public Builder setAovBuffers() {
+            this.camera.aovEnabled = true;
+            return this;
+        }
+
+        /**
+         * set the camera to collect metrics of the intersection tests, rays, recursion and phase times
+         * when rendering, and to log their report at the end of each rendering
+         *
+         * @return the Camera object
+         */
+        public Builder setMetrics() {
+            this.camera.metricsEnabled = true;
+            return this;
+        }
+
+        /**
+         * set the size of the square tiles of pixels traced together (not used with adaptive super sampling)
+         *
+         * @param tileSize amount of pixels in a tile's row and column, 0 for tracing pixel by pixel
+         * @return the Camera object
+         */
+        public Builder setTileSize(int tileSize) {
+            if (tileSize < 0)
+                throw new IllegalArgumentException("Tile size can not be negative");
+            this.camera.tileSize = tileSize;
+            return this;
+        }
+
 
         /**
          * Builds and returns the Camera instance.
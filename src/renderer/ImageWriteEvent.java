@@ -0,0 +1,34 @@
+package renderer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of writing an image file
+ *
+ * @author Naama and Yeela
+ */
+@Name("raytracer.ImageWrite")
+@Label("Image Write")
+@Category("Ray Tracer")
+@Description("Writing an image file")
+class ImageWriteEvent extends Event {
+    /**
+     * name of the image
+     */
+    @Label("Image")
+    String image;
+    /**
+     * amount of pixels in a row
+     */
+    @Label("Width")
+    int width;
+    /**
+     * amount of pixels in a column
+     */
+    @Label("Height")
+    int height;
+}
@@ -3,12 +3,14 @@ package renderer;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.imageio.ImageIO;
 
 import primitives.Color;
+import primitives.Metrics;
 
 /**
  * Image writer class combines accumulation of pixel color matrix and finally
@@ -46,6 +48,10 @@ public class ImageWriter {
      * logger for reporting I/O failures
      */
     private Logger logger = Logger.getLogger("ImageWriter");
+    /**
+     * time of writing image files, in the metrics registry
+     */
+    private static final LongAdder WRITE_TIME = Metrics.counter("time.write");
 
     // ***************** Constructors ********************** //
 
@@ -84,6 +90,15 @@ public class ImageWriter {
         return nX;
     }
 
+    /**
+     * Image file name
+     *
+     * @return the name of the png file, not including the file extension
+     */
+    public String getImageName() {
+        return imageName;
+    }
+
     // ***************** Operations ******************** //
 
     /**
@@ -92,6 +107,9 @@ public class ImageWriter {
      * pixel color matrix in the directory of the project
      */
     public void writeToImage() {
+        ImageWriteEvent event = new ImageWriteEvent();
+        event.begin();
+        long start = System.nanoTime();
         try {
             File file = new File(FOLDER_PATH + '/' + imageName + ".png");
             ImageIO.write(image, "png", file);
@@ -99,6 +117,14 @@ public class ImageWriter {
             logger.log(Level.SEVERE, "I/O error", e);
             throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
         }
+        WRITE_TIME.add(System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.image = imageName;
+            event.width = nX;
+            event.height = nY;
+            event.commit();
+        }
     }
 
     /**
@@ -113,5 +139,16 @@ public class ImageWriter {
         image.setRGB(xIndex, yIndex, color.getColor().getRGB());
     }
 
-}
+    /**
+     * The function getPixel reads the color of a specific pixel from pixel color
+     * matrix
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the pixel's color, as 8 bits of red, green and blue
+     */
+    public int getPixel(int xIndex, int yIndex) {
+        return image.getRGB(xIndex, yIndex) & 0xFFFFFF;
+    }
 
+}
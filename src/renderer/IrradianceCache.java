@@ -0,0 +1,388 @@
+package renderer;
+
+import lighting.LightSource;
+import primitives.Double3;
+import primitives.Metrics;
+import primitives.Point;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cache of the light arriving at surface points, for reusing it at nearby points instead of tracing
+ * shadow rays again. Each record keeps the transparency towards every light of the scene at a point,
+ * and is valid within a radius around the point for surfaces facing about the same way. The records
+ * are indexed by an octree which grows to contain every inserted record, and may be looked up and
+ * inserted by several rendering threads at once
+ *
+ * @author Naama and Yeela
+ */
+class IrradianceCache {
+    /**
+     * largest difference in the transparency towards a light between records which are interpolated together
+     */
+    private static final double TOLERANCE = 0.1;
+    /**
+     * amount of lookups, in the metrics registry
+     */
+    private static final LongAdder LOOKUPS = Metrics.counter("irradiance.lookups");
+    /**
+     * amount of lookups which found valid records, in the metrics registry
+     */
+    private static final LongAdder HITS = Metrics.counter("irradiance.hits");
+    /**
+     * the lights of the scene, by their position in the records
+     */
+    private final Map<LightSource, Integer> lights = new IdentityHashMap<>();
+    /**
+     * radius around a record's point in which it is valid
+     */
+    private final double radius;
+    /**
+     * lock of the octree - shared by lookups, exclusive for insertions
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * root of the octree, null while the cache is empty
+     */
+    private Node root = null;
+    /**
+     * amount of records in the cache
+     */
+    private int size = 0;
+
+    /**
+     * Record of the transparency towards the lights at a point
+     */
+    private static class Record {
+        /**
+         * coordinates of the point
+         */
+        final double x, y, z;
+        /**
+         * normal of the surface at the point, facing the viewer
+         */
+        final double nx, ny, nz;
+        /**
+         * transparency towards each light, null for lights which do not light the point
+         */
+        final Double3[] transparency;
+
+        /**
+         * constructor
+         *
+         * @param p            the point
+         * @param n            normal of the surface at the point, facing the viewer
+         * @param transparency transparency towards each light
+         */
+        Record(Point p, Vector n, Double3[] transparency) {
+            x = p.getX();
+            y = p.getY();
+            z = p.getZ();
+            nx = n.getX();
+            ny = n.getY();
+            nz = n.getZ();
+            this.transparency = transparency;
+        }
+    }
+
+    /**
+     * Node of the octree - a cube holding the records whose point is inside it and whose validity
+     * radius is too large for its children
+     */
+    private static class Node {
+        /**
+         * center of the cube
+         */
+        final double x, y, z;
+        /**
+         * half of the cube's edge
+         */
+        final double half;
+        /**
+         * children of the node, by octant, created on demand
+         */
+        final Node[] children = new Node[8];
+        /**
+         * records kept at this node
+         */
+        final List<Record> records = new ArrayList<>();
+
+        /**
+         * constructor
+         *
+         * @param x    x coordinate of the center
+         * @param y    y coordinate of the center
+         * @param z    z coordinate of the center
+         * @param half half of the edge
+         */
+        Node(double x, double y, double z, double half) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.half = half;
+        }
+
+        /**
+         * finds the octant of a point relative to the center
+         *
+         * @param px x coordinate of the point
+         * @param py y coordinate of the point
+         * @param pz z coordinate of the point
+         * @return octant index
+         */
+        int octant(double px, double py, double pz) {
+            return (px >= x ? 4 : 0) | (py >= y ? 2 : 0) | (pz >= z ? 1 : 0);
+        }
+
+        /**
+         * checks whether a point is inside the cube
+         *
+         * @param px     x coordinate of the point
+         * @param py     y coordinate of the point
+         * @param pz     z coordinate of the point
+         * @param margin distance the cube is extended by on every side
+         * @return true if the point is inside
+         */
+        boolean contains(double px, double py, double pz, double margin) {
+            double h = half + margin;
+            return Math.abs(px - x) <= h && Math.abs(py - y) <= h && Math.abs(pz - z) <= h;
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param lights the lights of the scene
+     * @param radius radius around a record's point in which it is valid
+     */
+    IrradianceCache(List<LightSource> lights, double radius) {
+        if (radius <= 0)
+            throw new IllegalArgumentException("Radius of irradiance records must be greater than 0");
+        for (int i = 0; i < lights.size(); ++i)
+            this.lights.put(lights.get(i), i);
+        this.radius = radius;
+    }
+
+    /**
+     * finds the position of a light in the records
+     *
+     * @param light the light
+     * @return position of the light, -1 if it is not one of the scene's lights
+     */
+    int indexOf(LightSource light) {
+        return lights.getOrDefault(light, -1);
+    }
+
+    /**
+     * creates an empty array of transparencies for a new record
+     *
+     * @return array with a place for every light
+     */
+    Double3[] newTransparency() {
+        return new Double3[lights.size()];
+    }
+
+    /**
+     * Interpolates the transparency towards the lights at a point from the valid records around it.
+     * A record is weighted by how close its point is relative to the validity radius and how close its
+     * normal is to the point's normal, and is not valid when their sum reaches 1. The records up to twice
+     * the radius around the point must agree on the transparency towards every light, so that the edges
+     * of shadows are traced again instead of being smeared over the radius
+     *
+     * @param p the point
+     * @param n normal of the surface at the point, facing the viewer
+     * @return transparency towards each light, null entries for lights no record has,
+     * null if there is no valid record or the records around the point disagree
+     */
+    Double3[] lookup(Point p, Vector n) {
+        if (Metrics.isEnabled())
+            LOOKUPS.increment();
+        Lookup lookup = new Lookup(p, n, lights.size());
+        lock.readLock().lock();
+        try {
+            if (root != null)
+                lookup(root, lookup);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!lookup.found || lookup.disagree)
+            return null;
+        if (Metrics.isEnabled())
+            HITS.increment();
+        Double3[] sums = lookup.sums;
+        for (int i = 0; i < sums.length; ++i)
+            if (sums[i] != null)
+                sums[i] = sums[i].scale(1 / lookup.weights[i]);
+        return sums;
+    }
+
+    /**
+     * State of a lookup - the weighted sums of the valid records and the range of the transparency
+     * of the records around the point
+     */
+    private static class Lookup {
+        /**
+         * coordinates of the point
+         */
+        final double x, y, z;
+        /**
+         * normal of the surface at the point, facing the viewer
+         */
+        final Vector n;
+        /**
+         * sum of the weights for each light
+         */
+        final double[] weights;
+        /**
+         * weighted sum of the transparency towards each light
+         */
+        final Double3[] sums;
+        /**
+         * lowest and highest transparency towards each light of the records around the point
+         */
+        final Double3[] min, max;
+        /**
+         * whether any valid record was found
+         */
+        boolean found = false;
+        /**
+         * whether the records around the point disagree on the transparency towards a light
+         */
+        boolean disagree = false;
+
+        /**
+         * constructor
+         *
+         * @param p      the point
+         * @param n      normal of the surface at the point, facing the viewer
+         * @param lights amount of lights in the records
+         */
+        Lookup(Point p, Vector n, int lights) {
+            x = p.getX();
+            y = p.getY();
+            z = p.getZ();
+            this.n = n;
+            weights = new double[lights];
+            sums = new Double3[lights];
+            min = new Double3[lights];
+            max = new Double3[lights];
+        }
+
+        /**
+         * widens the range of the transparency towards a light by a record around the point,
+         * marking the lookup as disagreeing when the range exceeds the tolerance
+         *
+         * @param i   position of the light in the records
+         * @param ktr transparency of the record towards the light
+         */
+        void range(int i, Double3 ktr) {
+            if (min[i] == null) {
+                min[i] = max[i] = ktr;
+                return;
+            }
+            min[i] = new Double3(Math.min(min[i].getD1(), ktr.getD1()), Math.min(min[i].getD2(), ktr.getD2()),
+                    Math.min(min[i].getD3(), ktr.getD3()));
+            max[i] = new Double3(Math.max(max[i].getD1(), ktr.getD1()), Math.max(max[i].getD2(), ktr.getD2()),
+                    Math.max(max[i].getD3(), ktr.getD3()));
+            if (max[i].subtract(min[i]).max() > TOLERANCE)
+                disagree = true;
+        }
+    }
+
+    /**
+     * adds the records of a node and its descendants around the point to a lookup
+     *
+     * @param node   the node
+     * @param lookup the lookup
+     */
+    private void lookup(Node node, Lookup lookup) {
+        Vector n = lookup.n;
+        for (Record record : node.records) {
+            double dx = lookup.x - record.x, dy = lookup.y - record.y, dz = lookup.z - record.z;
+            double nn = n.getX() * record.nx + n.getY() * record.ny + n.getZ() * record.nz;
+            double distance = Math.sqrt(dx * dx + dy * dy + dz * dz) / radius;
+            double deviation = Math.sqrt(Math.max(0, 1 - nn));
+            if (distance / 2 + deviation >= 1)
+                continue;
+            for (int i = 0; i < lookup.sums.length; ++i)
+                if (record.transparency[i] != null)
+                    lookup.range(i, record.transparency[i]);
+            double error = distance + deviation;
+            if (error >= 1)
+                continue;
+            double weight = 1 - error;
+            for (int i = 0; i < lookup.sums.length; ++i)
+                if (record.transparency[i] != null) {
+                    Double3 weighted = record.transparency[i].scale(weight);
+                    lookup.sums[i] = lookup.sums[i] == null ? weighted : lookup.sums[i].add(weighted);
+                    lookup.weights[i] += weight;
+                }
+            lookup.found = true;
+        }
+        // records of a child are checked up to twice the radius beyond its cube
+        for (Node child : node.children)
+            if (child != null && !lookup.disagree && child.contains(lookup.x, lookup.y, lookup.z, 2 * radius))
+                lookup(child, lookup);
+    }
+
+    /**
+     * Adds a record of the transparency towards the lights at a point
+     *
+     * @param p            the point
+     * @param n            normal of the surface at the point, facing the viewer
+     * @param transparency transparency towards each light, null for lights which do not light the point
+     */
+    void add(Point p, Vector n, Double3[] transparency) {
+        Record record = new Record(p, n, transparency);
+        lock.writeLock().lock();
+        try {
+            if (root == null)
+                root = new Node(record.x, record.y, record.z, 2 * radius);
+            // grow the root until it contains the point
+            while (!root.contains(record.x, record.y, record.z, 0)) {
+                int octant = root.octant(record.x, record.y, record.z);
+                double h = root.half;
+                Node parent = new Node(root.x + ((octant & 4) != 0 ? h : -h), root.y + ((octant & 2) != 0 ? h : -h),
+                        root.z + ((octant & 1) != 0 ? h : -h), 2 * h);
+                parent.children[parent.octant(root.x, root.y, root.z)] = root;
+                root = parent;
+            }
+            // descend while the children are still larger than the validity radius
+            Node node = root;
+            while (node.half / 2 >= radius) {
+                int octant = node.octant(record.x, record.y, record.z);
+                if (node.children[octant] == null) {
+                    double h = node.half / 2;
+                    node.children[octant] = new Node(node.x + ((octant & 4) != 0 ? h : -h),
+                            node.y + ((octant & 2) != 0 ? h : -h), node.z + ((octant & 1) != 0 ? h : -h), h);
+                }
+                node = node.children[octant];
+            }
+            node.records.add(record);
+            ++size;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * getter for the amount of records
+     *
+     * @return amount of records
+     */
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
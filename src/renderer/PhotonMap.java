@@ -0,0 +1,345 @@
+package renderer;
+
+import primitives.Color;
+import primitives.Point;
+import primitives.Vector;
+
+import java.io.Serial;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Map of the photons which reached diffuse surfaces after being reflected or refracted by specular
+ * surfaces on their way from the lights (caustics). The photons are kept in a balanced kd-tree, stored
+ * implicitly in an array - the photon of each subtree is the median of its range along the split axis -
+ * which is built in parallel, and the light arriving at a point is estimated from the density of the
+ * photons nearest to it
+ *
+ * @author Naama and Yeela
+ */
+class PhotonMap {
+    /**
+     * subtrees with fewer photons than this are built by the thread which split their parent
+     */
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    /**
+     * Photon stored on a diffuse surface
+     */
+    static class Photon {
+        /**
+         * coordinates of the point the photon reached
+         */
+        final double x, y, z;
+        /**
+         * direction the photon arrived in
+         */
+        final Vector direction;
+        /**
+         * power (flux) carried by the photon
+         */
+        final Color power;
+
+        /**
+         * constructor
+         *
+         * @param point     the point the photon reached
+         * @param direction direction the photon arrived in
+         * @param power     power carried by the photon
+         */
+        Photon(Point point, Vector direction, Color power) {
+            x = point.getX();
+            y = point.getY();
+            z = point.getZ();
+            this.direction = direction;
+            this.power = power;
+        }
+
+        /**
+         * getter for a coordinate of the photon's point
+         *
+         * @param axis 0 for x, 1 for y, 2 for z
+         * @return the coordinate
+         */
+        double coordinate(int axis) {
+            return axis == 0 ? x : axis == 1 ? y : z;
+        }
+    }
+
+    /**
+     * the photons, in the order of the implicit kd-tree
+     */
+    private final Photon[] photons;
+    /**
+     * split axis of the subtree whose median is at each position
+     */
+    private final byte[] axes;
+
+    /**
+     * Constructor - builds the kd-tree over the photons, in parallel in the fork/join pool of the calling
+     * thread
+     *
+     * @param photons the photons
+     */
+    PhotonMap(List<Photon> photons) {
+        this.photons = photons.toArray(new Photon[0]);
+        this.axes = new byte[this.photons.length];
+        if (this.photons.length > 0)
+            new Build(0, this.photons.length).invoke();
+    }
+
+    /**
+     * getter for the amount of photons
+     *
+     * @return amount of photons in the map
+     */
+    int size() {
+        return photons.length;
+    }
+
+    /**
+     * Task building the subtree of a range of the photons - it splits the range at the median along the
+     * widest axis of the photons' bounds and builds both halves, in parallel while they are large
+     */
+    private class Build extends RecursiveAction {
+        /**
+         * version of the serialized form
+         */
+        @Serial
+        private static final long serialVersionUID = 1L;
+        /**
+         * first photon of the range
+         */
+        private final int start;
+        /**
+         * end of the range (exclusive)
+         */
+        private final int end;
+
+        /**
+         * constructor
+         *
+         * @param start first photon of the range
+         * @param end   end of the range (exclusive)
+         */
+        Build(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= 0)
+                return;
+            int axis = widestAxis(start, end);
+            int median = (start + end) >>> 1;
+            select(start, end - 1, median, axis);
+            axes[median] = (byte) axis;
+            if (end - start > PARALLEL_THRESHOLD)
+                invokeAll(new Build(start, median), new Build(median + 1, end));
+            else {
+                new Build(start, median).compute();
+                new Build(median + 1, end).compute();
+            }
+        }
+    }
+
+    /**
+     * finds the axis along which the photons of a range spread the most
+     *
+     * @param start first photon of the range
+     * @param end   end of the range (exclusive)
+     * @return the axis, 0 for x, 1 for y, 2 for z
+     */
+    private int widestAxis(int start, int end) {
+        double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = start; i < end; ++i)
+            for (int axis = 0; axis < 3; ++axis) {
+                double c = photons[i].coordinate(axis);
+                min[axis] = Math.min(min[axis], c);
+                max[axis] = Math.max(max[axis], c);
+            }
+        int widest = 0;
+        for (int axis = 1; axis < 3; ++axis)
+            if (max[axis] - min[axis] > max[widest] - min[widest])
+                widest = axis;
+        return widest;
+    }
+
+    /**
+     * reorders a range of the photons so the photon at a position is the one which belongs there by a
+     * coordinate, with no larger coordinates before it and no smaller ones after it (quick select)
+     *
+     * @param left  first photon of the range
+     * @param right last photon of the range (inclusive)
+     * @param k     the position
+     * @param axis  axis of the coordinate
+     */
+    private void select(int left, int right, int k, int axis) {
+        while (left < right) {
+            double pivot = photons[(left + right) >>> 1].coordinate(axis);
+            int i = left, j = right;
+            while (i <= j) {
+                while (photons[i].coordinate(axis) < pivot)
+                    ++i;
+                while (photons[j].coordinate(axis) > pivot)
+                    --j;
+                if (i <= j) {
+                    Photon swap = photons[i];
+                    photons[i++] = photons[j];
+                    photons[j--] = swap;
+                }
+            }
+            if (k <= j)
+                right = j;
+            else if (k >= i)
+                left = i;
+            else
+                return;
+        }
+    }
+
+    /**
+     * Estimates the light the photons bring to a point from the density of the photons nearest to it,
+     * counting only photons which arrived on the side of the surface the normal points to
+     *
+     * @param p         the point
+     * @param n         normal of the surface at the point, on the side to gather the light of
+     * @param amount    amount of nearest photons to estimate the density from
+     * @param maxRadius distance beyond which photons are not gathered
+     * @return the irradiance at the point, black if no photon is near it
+     */
+    Color estimate(Point p, Vector n, int amount, double maxRadius) {
+        if (photons.length == 0)
+            return Color.BLACK;
+        Nearest nearest = new Nearest(p, amount, maxRadius);
+        nearest.search(0, photons.length);
+        if (nearest.size == 0)
+            return Color.BLACK;
+
+        Color sum = Color.BLACK;
+        for (int i = 0; i < nearest.size; ++i) {
+            Photon photon = photons[nearest.indexes[i]];
+            if (photon.direction.dotProduct(n) < 0)
+                sum = sum.add(photon.power);
+        }
+        // the found photons spread over the disk reaching the farthest of them
+        double radiusSquared = nearest.size == amount ? nearest.distances[0] : maxRadius * maxRadius;
+        return radiusSquared == 0 ? Color.BLACK : sum.scale(1 / (Math.PI * radiusSquared));
+    }
+
+    /**
+     * Search of the photons nearest to a point, keeping the found ones in a max-heap by distance
+     */
+    private class Nearest {
+        /**
+         * coordinates of the point
+         */
+        private final double x, y, z;
+        /**
+         * positions of the found photons, in a max-heap
+         */
+        private final int[] indexes;
+        /**
+         * squared distances of the found photons, in the same heap
+         */
+        private final double[] distances;
+        /**
+         * squared distance beyond which photons are not gathered
+         */
+        private final double maxDistance;
+        /**
+         * amount of found photons
+         */
+        private int size = 0;
+
+        /**
+         * constructor
+         *
+         * @param p         the point
+         * @param amount    amount of photons to find
+         * @param maxRadius distance beyond which photons are not gathered
+         */
+        Nearest(Point p, int amount, double maxRadius) {
+            x = p.getX();
+            y = p.getY();
+            z = p.getZ();
+            indexes = new int[amount];
+            distances = new double[amount];
+            maxDistance = maxRadius * maxRadius;
+        }
+
+        /**
+         * getter for the squared distance a photon must be within to be found
+         *
+         * @return the squared distance
+         */
+        private double bound() {
+            return size == indexes.length ? distances[0] : maxDistance;
+        }
+
+        /**
+         * searches the subtree of a range of the photons, the near half first
+         *
+         * @param start first photon of the range
+         * @param end   end of the range (exclusive)
+         */
+        void search(int start, int end) {
+            if (end - start <= 0)
+                return;
+            int median = (start + end) >>> 1;
+            Photon photon = photons[median];
+            int axis = axes[median];
+            double diff = (axis == 0 ? x : axis == 1 ? y : z) - photon.coordinate(axis);
+            if (diff < 0) {
+                search(start, median);
+                if (diff * diff < bound())
+                    search(median + 1, end);
+            } else {
+                search(median + 1, end);
+                if (diff * diff < bound())
+                    search(start, median);
+            }
+
+            double dx = x - photon.x, dy = y - photon.y, dz = z - photon.z;
+            double distance = dx * dx + dy * dy + dz * dz;
+            if (distance < bound())
+                add(median, distance);
+        }
+
+        /**
+         * adds a photon to the heap, replacing the farthest one when it is full
+         *
+         * @param index    position of the photon
+         * @param distance squared distance of the photon
+         */
+        private void add(int index, double distance) {
+            int i;
+            if (size < indexes.length) {
+                // sift up from the new leaf
+                i = size++;
+                while (i > 0 && distances[(i - 1) / 2] < distance) {
+                    indexes[i] = indexes[(i - 1) / 2];
+                    distances[i] = distances[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+            } else {
+                // sift down from the root, which is replaced
+                i = 0;
+                while (2 * i + 1 < size) {
+                    int child = 2 * i + 1;
+                    if (child + 1 < size && distances[child + 1] > distances[child])
+                        ++child;
+                    if (distances[child] <= distance)
+                        break;
+                    indexes[i] = indexes[child];
+                    distances[i] = distances[child];
+                    i = child;
+                }
+            }
+            indexes[i] = index;
+            distances[i] = distance;
+        }
+    }
+}
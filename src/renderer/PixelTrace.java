@@ -0,0 +1,98 @@
+package renderer;
+
+import geometries.Geometry;
+import geometries.Intersectable.GeoPoint;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * What the tracer found while one thread traced a unit of pixels (a pixel or a tile), besides their
+ * colors: the geometries their rays met, and each pixel's primary hit and amounts of rays of each type.
+ * Tracers report to it through the methods of {@link RayTracerBase}, marking the pixel of the unit the
+ * following rays belong to
+ *
+ * @author Naama and Yeela
+ */
+class PixelTrace {
+    /**
+     * amount of types of rays
+     */
+    static final int RAY_TYPES = RayType.values().length;
+    /**
+     * geometries met by the rays of the unit, null if not recorded
+     */
+    final Set<Geometry> met;
+    /**
+     * geometry hit by the first primary ray of each pixel which hit any, null for pixels of background
+     */
+    final Geometry[] geometries;
+    /**
+     * distance along the first primary ray of each pixel which hit a geometry to the hit point
+     */
+    final double[] depths;
+    /**
+     * normal of the primary hit of each pixel
+     */
+    final Vector[] normals;
+    /**
+     * amount of rays of each type traced for each pixel, {@link RayType} values per pixel
+     */
+    final int[] rays;
+    /**
+     * index in the unit of the pixel the rays traced now belong to
+     */
+    int pixel = 0;
+
+    /**
+     * Constructor
+     *
+     * @param pixels  amount of pixels in the unit
+     * @param met     whether the geometries met by the rays are recorded
+     * @param outputs whether the primary hits and amounts of rays of the pixels are recorded
+     */
+    PixelTrace(int pixels, boolean met, boolean outputs) {
+        this.met = met ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+        this.geometries = outputs ? new Geometry[pixels] : null;
+        this.depths = outputs ? new double[pixels] : null;
+        this.normals = outputs ? new Vector[pixels] : null;
+        this.rays = outputs ? new int[pixels * RAY_TYPES] : null;
+    }
+
+    /**
+     * records a geometry a ray met
+     *
+     * @param geometry the geometry
+     */
+    void meet(Geometry geometry) {
+        if (met != null)
+            met.add(geometry);
+    }
+
+    /**
+     * records the hit of a primary ray of the current pixel, unless a former primary ray of the pixel hit
+     *
+     * @param ray the primary ray
+     * @param hit the ray's closest hit, null if it hit nothing
+     */
+    void primaryHit(Ray ray, GeoPoint hit) {
+        if (geometries == null || hit == null || geometries[pixel] != null)
+            return;
+        geometries[pixel] = hit.geometry;
+        depths[pixel] = ray.getHead().distance(hit.point);
+        normals[pixel] = hit.geometry.getNormal(hit.point);
+    }
+
+    /**
+     * counts a ray traced for the current pixel
+     *
+     * @param type type of the ray
+     */
+    void countRay(RayType type) {
+        if (rays != null)
+            ++rays[pixel * RAY_TYPES + type.ordinal()];
+    }
+}
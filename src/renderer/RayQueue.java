@@ -0,0 +1,179 @@
+package renderer;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Arrays;
+
+/**
+ * Queue of rays traced together as a batch. Before tracing, the rays are reordered by the octant of
+ * their direction and by the cell of their origin, so consecutive rays traverse the same parts of the
+ * acceleration structure and hit the same geometries
+ *
+ * @author Naama and Yeela
+ */
+class RayQueue {
+    /**
+     * amount of bits of the origin cell per axis
+     */
+    private static final int CELL_BITS = 9;
+    /**
+     * amount of cells along each axis of the queue's origins box
+     */
+    private static final int CELLS = 1 << CELL_BITS;
+    /**
+     * initial capacity of the queue
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * the queued rays
+     */
+    private Ray[] rays = new Ray[INITIAL_CAPACITY];
+    /**
+     * identifiers of the queued rays, chosen by the caller for matching results to rays
+     */
+    private int[] ids = new int[INITIAL_CAPACITY];
+    /**
+     * amount of queued rays
+     */
+    private int size = 0;
+
+    /**
+     * adds a ray to the queue
+     *
+     * @param ray the ray
+     * @param id  identifier of the ray
+     */
+    void add(Ray ray, int id) {
+        if (size == rays.length) {
+            rays = Arrays.copyOf(rays, 2 * size);
+            ids = Arrays.copyOf(ids, 2 * size);
+        }
+        rays[size] = ray;
+        ids[size++] = id;
+    }
+
+    /**
+     * getter for the amount of queued rays
+     *
+     * @return amount of rays
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * getter for a queued ray
+     *
+     * @param i position of the ray in the queue
+     * @return the ray
+     */
+    Ray getRay(int i) {
+        return rays[i];
+    }
+
+    /**
+     * getter for the identifier of a queued ray
+     *
+     * @param i position of the ray in the queue
+     * @return identifier of the ray
+     */
+    int getId(int i) {
+        return ids[i];
+    }
+
+    /**
+     * empties the queue, keeping its capacity
+     */
+    void clear() {
+        Arrays.fill(rays, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * reorders the queued rays by the octant of their direction, and within an octant by the
+     * Morton order of their origin's cell in the box bounding all the queued origins
+     */
+    void sort() {
+        if (size < 2)
+            return;
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; ++i) {
+            Point p = rays[i].getHead();
+            minX = Math.min(minX, p.getX());
+            minY = Math.min(minY, p.getY());
+            minZ = Math.min(minZ, p.getZ());
+            maxX = Math.max(maxX, p.getX());
+            maxY = Math.max(maxY, p.getY());
+            maxZ = Math.max(maxZ, p.getZ());
+        }
+        double scaleX = cellScale(minX, maxX), scaleY = cellScale(minY, maxY), scaleZ = cellScale(minZ, maxZ);
+
+        // key in the high bits, position in the low 32 bits - sorting the keys sorts the positions
+        long[] keys = new long[size];
+        for (int i = 0; i < size; ++i) {
+            Point p = rays[i].getHead();
+            Vector v = rays[i].getDirection();
+            int octant = (v.getX() < 0 ? 4 : 0) | (v.getY() < 0 ? 2 : 0) | (v.getZ() < 0 ? 1 : 0);
+            long cell = morton(cell(p.getX(), minX, scaleX), cell(p.getY(), minY, scaleY),
+                    cell(p.getZ(), minZ, scaleZ));
+            keys[i] = ((long) octant << (3 * CELL_BITS) | cell) << 32 | i;
+        }
+        Arrays.sort(keys);
+
+        Ray[] sortedRays = new Ray[rays.length];
+        int[] sortedIds = new int[ids.length];
+        for (int i = 0; i < size; ++i) {
+            int from = (int) keys[i];
+            sortedRays[i] = rays[from];
+            sortedIds[i] = ids[from];
+        }
+        rays = sortedRays;
+        ids = sortedIds;
+    }
+
+    /**
+     * calculates the factor converting a coordinate to a cell index
+     *
+     * @param min lowest coordinate
+     * @param max highest coordinate
+     * @return cells per unit of length
+     */
+    private static double cellScale(double min, double max) {
+        return max > min ? (CELLS - 1) / (max - min) : 0;
+    }
+
+    /**
+     * calculates the cell index of a coordinate
+     *
+     * @param value coordinate
+     * @param min   lowest coordinate
+     * @param scale cells per unit of length
+     * @return cell index
+     */
+    private static int cell(double value, double min, double scale) {
+        return (int) ((value - min) * scale);
+    }
+
+    /**
+     * interleaves the bits of three cell indexes into a Morton code
+     *
+     * @param x cell index along x axis
+     * @param y cell index along y axis
+     * @param z cell index along z axis
+     * @return Morton code
+     */
+    private static long morton(int x, int y, int z) {
+        long code = 0;
+        for (int bit = 0; bit < CELL_BITS; ++bit) {
+            code |= (long) ((x >> bit) & 1) << (3 * bit + 2)
+                    | (long) ((y >> bit) & 1) << (3 * bit + 1)
+                    | (long) ((z >> bit) & 1) << (3 * bit);
+        }
+        return code;
+    }
+}
@@ -1,4 +1,5 @@
 package renderer;
+import geometries.Geometry;
 import primitives.*;
 import scene.Scene;
 
@@ -14,6 +15,10 @@ public abstract class RayTracerBase {
      * {@link Scene} for {@link Color} calculations to be executed on
      */
     protected Scene scene;
+    /**
+     * what the current thread found while tracing its unit of pixels, null when it is not recorded
+     */
+    private final ThreadLocal<PixelTrace> traces = new ThreadLocal<>();
 
     /**
      * parameter constructor
@@ -38,6 +43,21 @@ public abstract class RayTracerBase {
      */
     public abstract Color traceRays(List<Ray> rays);
 
+    /**
+     * Trace the rays of a tile of pixels together and calculate the color of each pixel.
+     * Tracers may override it for reordering the rays of the tile into coherent batches
+     * @param pixelsRays the rays through each pixel of the tile
+     * @return the color of each pixel, in the order of the pixels
+     */
+    public Color[] traceTile(List<List<Ray>> pixelsRays) {
+        Color[] colors = new Color[pixelsRays.size()];
+        for (int i = 0; i < colors.length; ++i) {
+            setTracePixel(i);
+            colors[i] = traceRays(pixelsRays.get(i));
+        }
+        return colors;
+    }
+
     /**
      * Checks the color of the pixel with the help of individual rays and averages between
      * them and only if necessary continues to send beams of rays in recursion
@@ -53,4 +73,93 @@ public abstract class RayTracerBase {
      * @return Pixel color
      */
     public abstract Color AdaptiveSuperSamplingRec(Point centerP, double Width, double Height, double minWidth, double minHeight, Point cameraLoc, Vector Vright, Vector Vup, List<Point> prePoints);
-}
+
+    /**
+     * Starts recording what the rays the current thread traces find, for finding the pixels which depend
+     * on a geometry when re-rendering changes and for the output buffers of the pixels
+     * @param trace the record of the unit of pixels traced next
+     */
+    void startTrace(PixelTrace trace) {
+        traces.set(trace);
+    }
+
+    /**
+     * Stops recording what the rays the current thread traces find
+     * @return the record of the unit of pixels traced since recording started
+     */
+    PixelTrace stopTrace() {
+        PixelTrace trace = traces.get();
+        traces.remove();
+        return trace;
+    }
+
+    /**
+     * getter for the record of the current thread, which tracers report the geometries their rays meet,
+     * the primary hits and the amounts of rays to
+     * @return the record, null if the current thread is not recording
+     */
+    PixelTrace trace() {
+        return traces.get();
+    }
+
+    /**
+     * Marks the pixel of the traced unit which the rays traced next by the current thread belong to, for
+     * tracers which trace the rays of several pixels together
+     * @param pixel index of the pixel in the unit
+     */
+    void setTracePixel(int pixel) {
+        PixelTrace trace = traces.get();
+        if (trace != null)
+            trace.pixel = pixel;
+    }
+
+    /**
+     * finds the pixel of each ray of a tile, for marking the pixel the rays traced next belong to
+     * @param pixelsRays the rays through each pixel of the tile
+     * @return index of the pixel of each ray, in the order of the rays
+     */
+    static int[] pixelsOf(List<List<Ray>> pixelsRays) {
+        int size = 0;
+        for (List<Ray> pixelRays : pixelsRays)
+            size += pixelRays.size();
+        int[] pixels = new int[size];
+        int r = 0;
+        for (int p = 0; p < pixelsRays.size(); ++p)
+            for (int i = pixelsRays.get(p).size(); i > 0; --i)
+                pixels[r++] = p;
+        return pixels;
+    }
+
+    /**
+     * Checks whether the color of a pixel can be re-traced alone after the scene changed. Tracers which
+     * keep state calculated over the whole scene (caches of light, photon maps) can not
+     * @return true if pixels can be re-traced alone
+     */
+    public boolean isIncremental() {
+        return true;
+    }
+
+    /**
+     * Discards the state the tracer calculated over the whole scene (caches of light, photon maps), which
+     * the next rays calculate again, after the scene changed. The default keeps no such state
+     */
+    public void reset() {
+    }
+
+    /**
+     * Checks whether geometries which were not met by the rays of a pixel when it was traced - because
+     * they were added or moved since - may be met by them now. The check may be conservative: it must not
+     * miss a geometry the pixel's color depends on, but may find geometries it does not.
+     * The default checks the pixel's rays only, tracers of secondary rays override it
+     * @param rays the rays through the pixel
+     * @param geometries the geometries
+     * @return true if the pixel's color may depend on any of the geometries
+     */
+    public boolean mayReach(List<Ray> rays, List<Geometry> geometries) {
+        for (Ray ray : rays)
+            for (Geometry geometry : geometries)
+                if (geometry.findGeoIntersections(ray) != null)
+                    return true;
+        return false;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,25 @@
+package renderer;
+
+/**
+ * The kinds of rays a ray tracer traces, for measuring the cost of rendering
+ *
+ * @author Naama and Yeela
+ */
+public enum RayType {
+    /**
+     * ray from the camera through a pixel
+     */
+    PRIMARY,
+    /**
+     * ray from a point towards a light, for finding whether the point is shaded
+     */
+    SHADOW,
+    /**
+     * ray reflected from a point
+     */
+    REFLECTION,
+    /**
+     * ray refracted through a point
+     */
+    REFRACTION
+}
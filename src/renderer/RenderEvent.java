@@ -0,0 +1,39 @@
+package renderer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of rendering an image by a camera
+ *
+ * @author Naama and Yeela
+ */
+@Name("raytracer.Render")
+@Label("Render")
+@Category("Ray Tracer")
+@Description("Rendering an image")
+class RenderEvent extends Event {
+    /**
+     * name of the image
+     */
+    @Label("Image")
+    String image;
+    /**
+     * amount of pixels in a row
+     */
+    @Label("Width")
+    int width;
+    /**
+     * amount of pixels in a column
+     */
+    @Label("Height")
+    int height;
+    /**
+     * size of the tiles of pixels traced together, 0 for tracing pixel by pixel
+     */
+    @Label("Tile Size")
+    int tileSize;
+}
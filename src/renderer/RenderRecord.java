@@ -0,0 +1,231 @@
+package renderer;
+
+import geometries.Geometry;
+import lighting.AmbientLight;
+import lighting.LightSource;
+import primitives.Color;
+import primitives.Material;
+import scene.Scene;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Record of a rendering, kept for re-rendering only the pixels affected by later changes of the scene:
+ * the view and lighting the image was rendered with, the version of each geometry and, for each pixel,
+ * the geometries its rays met. Geometries are recorded by ids which stay the same across re-renderings,
+ * so the records of the pixels which are not re-traced remain valid
+ *
+ * @author Naama and Yeela
+ */
+class RenderRecord {
+    /**
+     * the camera's view and resolution
+     */
+    private final List<Object> view;
+    /**
+     * the scene's background
+     */
+    private final Color background;
+    /**
+     * the scene's ambient light
+     */
+    private final AmbientLight ambientLight;
+    /**
+     * the scene's lights
+     */
+    private final List<LightSource> lights;
+    /**
+     * version of each of the scene's lights
+     */
+    private final int[] lightVersions;
+    /**
+     * ids of the geometries
+     */
+    private final Map<Geometry, Integer> ids = new IdentityHashMap<>();
+    /**
+     * version of each geometry, by id, when it was last traced
+     */
+    private int[] versions = new int[16];
+    /**
+     * copy of the material of each geometry, by id, when it was last traced - materials may be changed
+     * through their fields, without changing the geometry's version
+     */
+    private Material[] materials = new Material[16];
+    /**
+     * the latest copy of each material, shared by the geometries of the material
+     */
+    private final Map<Material, Material> copies = new IdentityHashMap<>();
+    /**
+     * amount of ids given
+     */
+    private int count = 0;
+    /**
+     * ids of the geometries met by the rays of each pixel, row by row
+     */
+    private final int[][] pixels;
+    /**
+     * amount of pixels in a row
+     */
+    private final int nX;
+
+    /**
+     * Constructor - records the scene a rendering starts with
+     *
+     * @param scene the scene
+     * @param view  the camera's view and resolution
+     * @param nX    amount of pixels in a row
+     * @param nY    amount of pixels in a column
+     */
+    RenderRecord(Scene scene, List<Object> view, int nX, int nY) {
+        this.view = view;
+        this.background = scene.background;
+        this.ambientLight = scene.ambientLight;
+        this.lights = List.copyOf(scene.lights);
+        this.lightVersions = new int[lights.size()];
+        for (int i = 0; i < lightVersions.length; ++i)
+            lightVersions[i] = lights.get(i).getVersion();
+        this.nX = nX;
+        this.pixels = new int[nX * nY][];
+        for (Geometry geometry : scene.geometries.flatten())
+            register(geometry);
+    }
+
+    /**
+     * Checks whether the recorded pixels can be re-traced alone for a scene: the camera's view and the
+     * scene's lighting, including each light's own values, did not change since the rendering
+     *
+     * @param scene the scene
+     * @param view  the camera's view and resolution
+     * @return true if only the pixels of changed geometries need to be re-traced
+     */
+    boolean isValid(Scene scene, List<Object> view) {
+        if (!this.view.equals(view) || background != scene.background || ambientLight != scene.ambientLight
+                || !lights.equals(scene.lights))
+            return false;
+        for (int i = 0; i < lightVersions.length; ++i)
+            if (lightVersions[i] != lights.get(i).getVersion())
+                return false;
+        return true;
+    }
+
+    /**
+     * Records the geometries met by the rays of a rectangle of pixels
+     *
+     * @param startX column index of the first pixel
+     * @param startY row index of the first pixel
+     * @param endX   column index after the last pixel
+     * @param endY   row index after the last pixel
+     * @param met    the geometries
+     */
+    void setPixels(int startX, int startY, int endX, int endY, Set<Geometry> met) {
+        int[] metIds = new int[met.size()];
+        int size = 0;
+        for (Geometry geometry : met) {
+            Integer id = ids.get(geometry);
+            // geometries not in the scene's hierarchy (met by a tracer's own rays) do not change with it
+            if (id != null)
+                metIds[size++] = id;
+        }
+        metIds = Arrays.copyOf(metIds, size);
+        for (int y = startY; y < endY; ++y)
+            for (int x = startX; x < endX; ++x)
+                pixels[y * nX + x] = metIds;
+    }
+
+    /**
+     * Checks whether the rays of a pixel met any of some geometries when it was traced
+     *
+     * @param x   column index of the pixel
+     * @param y   row index of the pixel
+     * @param set ids of the geometries
+     * @return true if the pixel's rays met any of the geometries
+     */
+    boolean meets(int x, int y, BitSet set) {
+        int[] metIds = pixels[y * nX + x];
+        if (metIds == null)
+            return true;
+        for (int id : metIds)
+            if (set.get(id))
+                return true;
+        return false;
+    }
+
+    /**
+     * Finds the changes of the scene's geometries, including changes of their materials' values, since
+     * they were recorded and records their current versions
+     *
+     * @param current  the scene's geometries
+     * @param reaching receives the geometries added or changed, which the pixels may meet now
+     * @return ids of the geometries removed or changed, which the pixels that met them do not meet the same
+     */
+    BitSet update(List<Geometry> current, List<Geometry> reaching) {
+        BitSet changed = new BitSet();
+        BitSet present = new BitSet();
+        // each material is compared with its copy once, the geometries sharing it then compare the copies
+        Map<Material, Material> checked = new IdentityHashMap<>();
+        for (Geometry geometry : current) {
+            Integer id = ids.get(geometry);
+            if (id == null) {
+                present.set(register(geometry));
+                reaching.add(geometry);
+                continue;
+            }
+            present.set(id);
+            Material material = checked.computeIfAbsent(geometry.getMaterial(), this::copy);
+            if (versions[id] != geometry.getVersion() || materials[id] != material) {
+                versions[id] = geometry.getVersion();
+                materials[id] = material;
+                changed.set(id);
+                reaching.add(geometry);
+            }
+        }
+        List<Geometry> removed = new ArrayList<>();
+        for (Map.Entry<Geometry, Integer> entry : ids.entrySet())
+            if (!present.get(entry.getValue())) {
+                changed.set(entry.getValue());
+                removed.add(entry.getKey());
+            }
+        // the ids of removed geometries are not given again, as pixels still hold them
+        for (Geometry geometry : removed)
+            ids.remove(geometry);
+        return changed;
+    }
+
+    /**
+     * gives a geometry the next id
+     *
+     * @param geometry the geometry
+     * @return its id
+     */
+    private int register(Geometry geometry) {
+        if (count == versions.length) {
+            versions = Arrays.copyOf(versions, 2 * count);
+            materials = Arrays.copyOf(materials, 2 * count);
+        }
+        versions[count] = geometry.getVersion();
+        materials[count] = copy(geometry.getMaterial());
+        ids.put(geometry, count);
+        return count++;
+    }
+
+    /**
+     * finds the latest copy of a material, copying it again if its values changed since
+     *
+     * @param material the material
+     * @return the copy of its current values
+     */
+    private Material copy(Material material) {
+        Material copy = copies.get(material);
+        if (copy == null || !copy.equals(material)) {
+            copy = new Material(material);
+            copies.put(material, copy);
+        }
+        return copy;
+    }
+}
@@ -1,14 +1,30 @@
 package renderer;
 
+import geometries.BoundingBox;
+import geometries.Geometry;
 import geometries.Intersectable.GeoPoint;
+import lighting.AreaLight;
+import lighting.DirectionalLight;
+import lighting.LightBVH;
+import lighting.LightIndex;
 import lighting.LightSource;
+import lighting.PointLight;
 import primitives.*;
 import scene.Scene;
 
 import static java.lang.Math.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
 
 import static java.awt.Color.BLACK;
 import static primitives.Util.alignZero;
@@ -21,9 +37,9 @@ import static primitives.Util.isZero;
  */
 public class SimpleRayTracer extends RayTracerBase {
 
-    private static final int MAX_CALC_COLOR_LEVEL = 10;
-    private static final double MIN_CALC_COLOR_K = 0.001;
-    private static final Double3 INITIAL_K = Double3.ONE;
+    static final int MAX_CALC_COLOR_LEVEL = 10;
+    static final double MIN_CALC_COLOR_K = 0.001;
+    static final Double3 INITIAL_K = Double3.ONE;
 
     /**
      * Declares whether the ray tracer should create soft shadow rays
@@ -37,6 +53,148 @@ public class SimpleRayTracer extends RayTracerBase {
      * The radius of the beam for rays of soft shadow
      */
     private double radiusBeamSS = 1;
+    /**
+     * Declares whether soft shadows fire a few probe rays first, and the full beam only in the penumbra
+     */
+    private boolean isAdaptiveSS = false;
+    /**
+     * Declares how many probe rays of soft shadow to fire per point, if applicable
+     */
+    private int numOfSSProbes = 4;
+    /**
+     * Declares whether the rays of a tile are traced in batches sorted by direction and origin
+     */
+    private boolean isRaySorting = false;
+    /**
+     * Declares whether reflection and refraction chains are terminated by Russian roulette
+     */
+    private boolean isRussianRoulette = false;
+    /**
+     * Amount of bounces always traced before Russian roulette starts
+     */
+    private int rouletteDepth = 2;
+    /**
+     * Highest probability of a reflection or refraction ray to survive Russian roulette
+     */
+    private double rouletteSurvival = 0.8;
+    /**
+     * Amount of rays traced of each type, in the metrics registry
+     */
+    private static final LongAdder[] RAY_METRICS = new LongAdder[PixelTrace.RAY_TYPES];
+    /**
+     * Amount of colors calculated at ray hits, in the metrics registry
+     */
+    private static final LongAdder COLOR_CALLS = Metrics.counter("color.calls");
+    /**
+     * Sum of the recursion depths of the colors calculated at ray hits, in the metrics registry
+     */
+    private static final LongAdder COLOR_DEPTH = Metrics.counter("color.depth");
+    /**
+     * Amount of areas subdivided by adaptive super sampling, in the metrics registry
+     */
+    private static final LongAdder SUBDIVISIONS = Metrics.counter("adaptive.subdivisions");
+    /**
+     * Deepest subdivision of a pixel by adaptive super sampling, in the metrics registry
+     */
+    private static final LongAccumulator SUBDIVISION_DEPTH = Metrics.maximum("adaptive.depth.max");
+    /**
+     * Time of emitting the photons of the caustics, in the metrics registry
+     */
+    private static final LongAdder PHOTON_MAP_TIME = Metrics.counter("time.photonMap");
+    /**
+     * Amount of camera rays which hit the scene, for the average path depth, in the metrics registry
+     */
+    private static final LongAdder PATHS = Metrics.counter("path.count");
+    /**
+     * Amount of reflection and refraction rays traced, for the average path depth, in the metrics registry
+     */
+    private static final LongAdder BOUNCES = Metrics.counter("path.bounces");
+    /**
+     * Amount of shadow rays tested against a cached occluder first, in the metrics registry
+     */
+    private static final LongAdder OCCLUDER_LOOKUPS = Metrics.counter("occluders.lookups");
+    /**
+     * Amount of shadow rays blocked by their cached occluder, without tracing them through the scene,
+     * in the metrics registry
+     */
+    private static final LongAdder OCCLUDER_HITS = Metrics.counter("occluders.hits");
+
+    static {
+        for (RayType type : RayType.values())
+            RAY_METRICS[type.ordinal()] = Metrics.counter("rays." + type.name().toLowerCase());
+    }
+    /**
+     * Declares whether lights with negligible intensity at a point are skipped before casting shadow rays
+     */
+    private boolean isLightCulling = false;
+    /**
+     * Lowest light intensity considered not negligible when culling lights
+     */
+    private double cullingThreshold = 0.5;
+    /**
+     * Spatial index of the scene's lights, built on first use when culling lights
+     */
+    private volatile LightIndex lightIndex = null;
+    /**
+     * Declares whether positioned lights are sampled stochastically instead of shading all of them
+     */
+    private boolean isLightSampling = false;
+    /**
+     * Declares how many lights are sampled per point, if applicable
+     */
+    private int numLightSamples = 4;
+    /**
+     * Hierarchy of the scene's positioned lights, built on first use when sampling lights
+     */
+    private volatile LightBVH lightBVH = null;
+    /**
+     * Declares whether the last opaque occluder of each light is tested before tracing a shadow ray
+     */
+    private boolean isOccluderCache = false;
+    /**
+     * Last opaque geometry found blocking each light, per rendering thread
+     */
+    private final ThreadLocal<Map<LightSource, Occluder>> occluders = ThreadLocal.withInitial(IdentityHashMap::new);
+    /**
+     * Amount of resets of the state calculated over the scene, for dropping the occluders cached before
+     */
+    private volatile int epoch = 0;
+    /**
+     * Declares whether the transparency towards the lights is interpolated from an irradiance cache
+     */
+    private boolean isIrradianceCache = false;
+    /**
+     * Radius around a point in which its irradiance record is valid
+     */
+    private double irradianceRadius = 1;
+    /**
+     * The irradiance cache, built on first use when caching irradiance
+     */
+    private volatile IrradianceCache irradianceCache = null;
+    /**
+     * Declares whether caustics are rendered from a photon map
+     */
+    private boolean isCaustics = false;
+    /**
+     * Amount of photons emitted from the lights towards the specular geometries
+     */
+    private int numOfPhotons = 100000;
+    /**
+     * Amount of nearest photons the light at a point is estimated from
+     */
+    private int numOfGatheredPhotons = 50;
+    /**
+     * Distance beyond which photons are not gathered
+     */
+    private double causticRadius = 5;
+    /**
+     * The photon map of the caustics, built on first use when rendering caustics
+     */
+    private volatile PhotonMap photonMap = null;
+    /**
+     * Largest amount of rays in the beam of a glossy reflection or blurry refraction
+     */
+    private int numOfGlossyRays = 16;
 
 
     /**
@@ -89,9 +247,274 @@ public class SimpleRayTracer extends RayTracerBase {
         return this;
     }
 
+    /**
+     * Sets adaptive soft shadows: a few probe rays of the beam are fired first, and the rest of the beam
+     * only when the probes disagree - when the point is in the penumbra of the light. Fully lit and fully
+     * shadowed points cost only the probes
+     *
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer useAdaptiveSoftShadow() {
+        this.isSoftShadow = true;
+        this.isAdaptiveSS = true;
+        return this;
+    }
+
+    /**
+     * Sets the number of probe rays of adaptive soft shadows
+     *
+     * @param num number of rays
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer setNumOfSSProbes(int num) {
+        if (num < 2) {
+            throw new IllegalArgumentException("Number of probe rays must be at least 2");
+        }
+
+        this.numOfSSProbes = num;
+        return this;
+    }
+
+    /**
+     * Sets the tracing of tiles in batches of rays sorted by direction octant and origin cell,
+     * for primary rays and the shadow, reflection and refraction rays of their hit points
+     *
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer useRaySorting() {
+        this.isRaySorting = true;
+        return this;
+    }
+
+    /**
+     * Sets Russian roulette termination of reflection and refraction chains. After the first bounces,
+     * a ray survives with a probability following its accumulated attenuation, and the color it brings
+     * is divided by that probability so the image stays unbiased
+     *
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer useRussianRoulette() {
+        this.isRussianRoulette = true;
+        return this;
+    }
+
+    /**
+     * Sets the amount of bounces always traced before Russian roulette starts
+     *
+     * @param depth amount of bounces
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer setRouletteDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Roulette depth can not be negative");
+        }
+
+        this.rouletteDepth = depth;
+        return this;
+    }
+
+    /**
+     * Sets the highest probability of a ray to survive Russian roulette
+     *
+     * @param survival the probability
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer setRouletteSurvival(double survival) {
+        if (survival <= 0 || survival > 1) {
+            throw new IllegalArgumentException("Survival probability must be in range (0,1]");
+        }
+
+        this.rouletteSurvival = survival;
+        return this;
+    }
+
+    /**
+     * Sets culling of lights by their bounds of influence: lights whose intensity at a point is below
+     * the culling threshold (by distance attenuation or outside a spot light's beam) are skipped
+     * before any shadow ray is cast towards them
+     *
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer useLightCulling() {
+        this.isLightCulling = true;
+        this.lightIndex = null;
+        return this;
+    }
+
+    /**
+     * Sets the lowest light intensity considered not negligible when culling lights
+     *
+     * @param threshold the intensity, in color units
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer setCullingThreshold(double threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Culling threshold must be greater than 0");
+        }
+
+        this.cullingThreshold = threshold;
+        this.lightIndex = null;
+        return this;
+    }
+
+    /**
+     * Sets stochastic many-light sampling: at every point a fixed amount of positioned lights is chosen
+     * through a light hierarchy, in proportion to their estimated importance (intensity, distance and
+     * orientation), and each is weighted by the inverse of its probability. Lights without a position
+     * are still shaded at every point, and light culling applies only to them
+     *
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer useLightSampling() {
+        this.isLightSampling = true;
+        this.lightBVH = null;
+        return this;
+    }
+
+    /**
+     * Sets the number of lights sampled per point
+     *
+     * @param num number of lights
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer setNumLightSamples(int num) {
+        if (num <= 0) {
+            throw new IllegalArgumentException("Number of light samples must be greater than 0");
+        }
+
+        this.numLightSamples = num;
+        return this;
+    }
+
+    /**
+     * Sets the occluder cache: every rendering thread remembers for each light the last opaque geometry
+     * which blocked it, and tests it first on the next shadow ray towards that light. Neighbouring points
+     * are usually shadowed by the same geometry, so the full traversal is skipped in the common case.
+     * An occluder is dropped once it changes or geometries are added to or removed from the scene
+     *
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer useOccluderCache() {
+        this.isOccluderCache = true;
+        return this;
+    }
+
+    /**
+     * Sets the irradiance cache: the transparency towards every light found at a point is recorded,
+     * and points within the record radius facing about the same way interpolate it from the records
+     * around them instead of casting shadow rays. The lighting itself (diffuse and specular) is still
+     * calculated at every point, so only the shadows are smoothed over the radius. Points near records
+     * which disagree on the shadows, as at the edge of a shadow, cast their shadow rays
+     *
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer useIrradianceCache() {
+        this.isIrradianceCache = true;
+        this.irradianceCache = null;
+        return this;
+    }
+
+    /**
+     * Sets the radius around a point in which its irradiance record is valid
+     *
+     * @param r the radius
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer setIrradianceCacheRadius(double r) {
+        if (r <= 0) {
+            throw new IllegalArgumentException("Radius of irradiance records must be greater than 0");
+        }
+
+        this.irradianceRadius = r;
+        this.irradianceCache = null;
+        return this;
+    }
+
+    /**
+     * Sets caustics: before rendering, photons are emitted from the point and directional lights towards
+     * the reflecting and transparent geometries and traced through them, and the photons reaching
+     * diffuse surfaces are stored in a photon map. The light they bring is gathered at every shaded
+     * point. The light through transparent geometries arrives by the photons only, so these geometries
+     * block shadow rays
+     *
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer useCaustics() {
+        this.isCaustics = true;
+        this.photonMap = null;
+        return this;
+    }
+
+    /**
+     * Sets the amount of photons emitted from the lights
+     *
+     * @param num the amount of photons
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer setNumOfPhotons(int num) {
+        if (num <= 0) {
+            throw new IllegalArgumentException("Number of photons must be greater than 0");
+        }
+
+        this.numOfPhotons = num;
+        this.photonMap = null;
+        return this;
+    }
+
+    /**
+     * Sets the amount of nearest photons the light at a point is estimated from
+     *
+     * @param num the amount of photons
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer setNumOfGatheredPhotons(int num) {
+        if (num <= 0) {
+            throw new IllegalArgumentException("Number of gathered photons must be greater than 0");
+        }
+
+        this.numOfGatheredPhotons = num;
+        return this;
+    }
+
+    /**
+     * Sets the distance beyond which photons are not gathered
+     *
+     * @param r the distance
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer setCausticRadius(double r) {
+        if (r <= 0) {
+            throw new IllegalArgumentException("Radius of caustics gathering must be greater than 0");
+        }
+
+        this.causticRadius = r;
+        return this;
+    }
+
+    /**
+     * Sets the largest amount of rays in the beam of a glossy reflection or blurry refraction. A beam gets
+     * this amount at the first bounce of a fully reflected or refracted path, and fewer as the path's
+     * attenuation and depth grow, down to a single ray
+     *
+     * @param num the amount of rays
+     * @return RayTracerBase Object
+     */
+    public SimpleRayTracer setNumOfGlossyRays(int num) {
+        if (num <= 0) {
+            throw new IllegalArgumentException("Number of glossy rays must be greater than 0");
+        }
+
+        this.numOfGlossyRays = num;
+        return this;
+    }
+
     @Override
     public Color traceRay(Ray ray) {
         GeoPoint closestPoint = findClosestIntersection(ray);
+        PixelTrace trace = trace();
+        countRay(trace, RayType.PRIMARY);
+        if (trace != null)
+            trace.primaryHit(ray, closestPoint);
         if (closestPoint == null)
             return scene.background;
 
@@ -107,8 +530,12 @@ public class SimpleRayTracer extends RayTracerBase {
     @Override
     public Color traceRays(List<Ray> rays) {
         Color color = new Color(BLACK);
+        PixelTrace trace = trace();
         for (Ray ray : rays) {
             GeoPoint clossestGeoPoint = findClosestIntersection(ray);
+            countRay(trace, RayType.PRIMARY);
+            if (trace != null)
+                trace.primaryHit(ray, clossestGeoPoint);
             if (clossestGeoPoint == null)
                 color = color.add(scene.background);
             else color = color.add(calcColor(clossestGeoPoint, ray));
@@ -117,15 +544,389 @@ public class SimpleRayTracer extends RayTracerBase {
     }
 
 
+    /**
+     * Trace the rays of a tile. With ray sorting, the primary rays of the tile, then the shadow rays of
+     * all their hit points, then their reflection and refraction rays are each collected into a queue,
+     * sorted by direction octant and origin cell and traced as a batch. Deeper bounces continue recursively
+     *
+     * @param pixelsRays the rays through each pixel of the tile
+     * @return the color of each pixel, in the order of the pixels
+     */
+    @Override
+    public Color[] traceTile(List<List<Ray>> pixelsRays) {
+        if (!isRaySorting)
+            return super.traceTile(pixelsRays);
+
+        List<Ray> rayList = new ArrayList<>();
+        for (List<Ray> pixelRays : pixelsRays)
+            rayList.addAll(pixelRays);
+        Ray[] rays = rayList.toArray(new Ray[0]);
+        int[] pixels = pixelsOf(pixelsRays);
+        PixelTrace trace = trace();
+
+        // primary rays
+        RayQueue queue = new RayQueue();
+        for (int r = 0; r < rays.length; ++r)
+            queue.add(rays[r], r);
+        queue.sort();
+        GeoPoint[] hits = new GeoPoint[rays.length];
+        for (int i = 0; i < queue.size(); ++i) {
+            setTracePixel(pixels[queue.getId(i)]);
+            hits[queue.getId(i)] = findClosestIntersection(queue.getRay(i));
+        }
+        for (int r = 0; r < rays.length; ++r) {
+            if (trace != null)
+                trace.pixel = pixels[r];
+            countRay(trace, RayType.PRIMARY);
+            if (trace != null)
+                trace.primaryHit(rays[r], hits[r]);
+        }
+
+        Double3[] ks = new Double3[rays.length];
+        Arrays.fill(ks, INITIAL_K);
+        Color[] colors = calcLocalEffects(hits, rays, ks, pixels);
+
+        // reflection and refraction rays of all the hit points
+        queue.clear();
+        List<GlobalSample> globals = new ArrayList<>();
+        int hitCount = 0;
+        for (int r = 0; r < hits.length; ++r) {
+            if (hits[r] == null)
+                continue;
+            ++hitCount;
+            Material material = hits[r].geometry.getMaterial();
+            Vector n = hits[r].geometry.getNormal(hits[r].point);
+            Vector v = rays[r].getDirection();
+            double fresnel = reflectance(n, v, material.ior);
+            Double3 kr = fresnel == 0 ? material.kR : material.kR.add(material.kT.scale(fresnel));
+            Double3 kkr = kr.product(INITIAL_K);
+            if (!kkr.lowerThan(MIN_CALC_COLOR_K)) {
+                List<Ray> beam = constructBeam(constructReflectedRay(hits[r].point, n, v), n,
+                        material.glossiness, MAX_CALC_COLOR_LEVEL, kkr);
+                for (Ray reflected : beam) {
+                    queue.add(reflected, globals.size());
+                    globals.add(new GlobalSample(r, RayType.REFLECTION, kr, kkr.reduce(beam.size()), beam.size()));
+                }
+            }
+            Double3 kt = fresnel == 0 ? material.kT : material.kT.scale(1 - fresnel);
+            Double3 kkt = kt.product(INITIAL_K);
+            if (!kkt.lowerThan(MIN_CALC_COLOR_K)) {
+                List<Ray> beam = constructBeam(constructRefractedRay(n, v, hits[r].point, material.ior), n,
+                        material.blurriness, MAX_CALC_COLOR_LEVEL, kkt);
+                for (Ray refracted : beam) {
+                    queue.add(refracted, globals.size());
+                    globals.add(new GlobalSample(r, RayType.REFRACTION, kt, kkt.reduce(beam.size()), beam.size()));
+                }
+            }
+        }
+        countPaths(hitCount);
+        countColors(hitCount, MAX_CALC_COLOR_LEVEL);
+        queue.sort();
+        for (int i = 0; i < queue.size(); ++i) {
+            GlobalSample global = globals.get(queue.getId(i));
+            setTracePixel(pixels[global.ray]);
+            global.color = calcGlobalEffect(queue.getRay(i), global.type, MAX_CALC_COLOR_LEVEL, global.kx,
+                    global.kkx)
+                    .reduce(global.beam);
+        }
+        Color[] globalColors = new Color[hits.length];
+        for (GlobalSample global : globals)
+            globalColors[global.ray] = (globalColors[global.ray] == null ? Color.BLACK : globalColors[global.ray])
+                    .add(global.color);
+
+        // average the rays of each pixel
+        Color[] pixelColors = new Color[pixelsRays.size()];
+        int r = 0;
+        for (int p = 0; p < pixelColors.length; ++p) {
+            Color color = new Color(BLACK);
+            int size = pixelsRays.get(p).size();
+            for (int i = 0; i < size; ++i, ++r) {
+                if (hits[r] == null)
+                    color = color.add(scene.background);
+                else
+                    color = color.add(colors[r].add(globalColors[r] == null ? Color.BLACK : globalColors[r])
+                            .add(scene.ambientLight.getIntensity()));
+            }
+            pixelColors[p] = color.reduce(size);
+        }
+        return pixelColors;
+    }
+
+    /**
+     * Calculate the local effect of light sources on a batch of points. The shadow rays of all the points
+     * are traced together, sorted by direction octant and origin cell
+     *
+     * @param hits   the points, null for rays which hit nothing
+     * @param rays   the rays from the viewer to the points
+     * @param ks     the kR or kT factor at each point
+     * @param pixels the pixel of each point in the traced unit of pixels
+     * @return the color at each point, null for rays which hit nothing
+     */
+    Color[] calcLocalEffects(GeoPoint[] hits, Ray[] rays, Double3[] ks, int[] pixels) {
+        // shadow rays of all the lights at all the points
+        RayQueue queue = new RayQueue();
+        List<LightSample> samples = new ArrayList<>();
+        Vector[] normals = new Vector[hits.length];
+        IrradianceCache cache = irradianceCache();
+        // transparency towards the lights of the points which are not in the cache yet
+        Double3[][] computed = new Double3[hits.length][];
+        for (int r = 0; r < hits.length; ++r) {
+            if (hits[r] == null)
+                continue;
+            Vector n = hits[r].geometry.getNormal(hits[r].point);
+            normals[r] = n;
+            double nv = alignZero(n.dotProduct(rays[r].getDirection()));
+            if (isZero(nv))
+                continue;
+            Double3[] cached = null;
+            if (cache != null) {
+                cached = cache.lookup(hits[r].point, facing(n, nv));
+                if (cached == null)
+                    computed[r] = cache.newTransparency();
+            }
+            for (LightSource lightSource : lightsAt(hits[r].point))
+                if (!isNegligible(lightSource, hits[r].point))
+                    addLightSample(queue, samples, hits, r, lightSource, n, nv, 1, cached);
+            LightBVH bvh = lightBVH();
+            for (int s = 0; bvh != null && s < numLightSamples; ++s) {
+                LightBVH.Sample chosen = bvh.sample(hits[r].point, n, nv);
+                if (chosen == null)
+                    break;
+                addLightSample(queue, samples, hits, r, chosen.light, n, nv, 1 / (numLightSamples * chosen.pdf),
+                        null);
+            }
+        }
+        traceShadowRays(queue, samples, hits, pixels);
+
+        // complete the beams of the points in the penumbra
+        if (isAdaptiveSS) {
+            queue.clear();
+            for (int i = 0; i < samples.size(); ++i) {
+                LightSample sample = samples.get(i);
+                if (sample.penumbra)
+                    for (Vector lv : sample.lVectors.subList(sample.rays, sample.lVectors.size()))
+                        queue.add(new Ray(hits[sample.ray].point, lv.scale(-1), normals[sample.ray]), i);
+            }
+            traceShadowRays(queue, samples, hits, pixels);
+        }
+
+        // add the lights of each point in the order of the scene's lights
+        Color[] colors = new Color[hits.length];
+        for (int r = 0; r < hits.length; ++r)
+            if (hits[r] != null) {
+                double nv = alignZero(normals[r].dotProduct(rays[r].getDirection()));
+                colors[r] = isZero(nv) ? Color.BLACK
+                        : hits[r].geometry.getEmission().add(calcCaustics(hits[r], normals[r], nv));
+            }
+        for (LightSample sample : samples) {
+            int r = sample.ray;
+            Double3 ktr = isSoftShadow ? sample.ktr.reduce(sample.rays) : sample.ktr;
+            colors[r] = addLightEffect(colors[r], hits[r], sample.lightSource, sample.l, normals[r],
+                    rays[r].getDirection(), ktr, ks[r], sample.weight);
+            if (computed[r] != null && sample.index >= 0)
+                computed[r][sample.index] = ktr;
+        }
+        for (int r = 0; r < hits.length; ++r)
+            if (computed[r] != null)
+                cache.add(hits[r].point, facing(normals[r], normals[r].dotProduct(rays[r].getDirection())),
+                        computed[r]);
+        return colors;
+    }
+
+    /**
+     * Traces a queue of shadow rays sorted by direction octant and origin cell, adding the transparency
+     * along each ray to its light sample
+     *
+     * @param queue   the queue of shadow rays
+     * @param samples the lights at the points of the batch
+     * @param hits    the points of the batch
+     * @param pixels  the pixel of each point in the traced unit of pixels
+     */
+    private void traceShadowRays(RayQueue queue, List<LightSample> samples, GeoPoint[] hits, int[] pixels) {
+        queue.sort();
+        for (int i = 0; i < queue.size(); ++i) {
+            LightSample sample = samples.get(queue.getId(i));
+            setTracePixel(pixels[sample.ray]);
+            sample.add(transparency(hits[sample.ray], sample.lightSource, queue.getRay(i)));
+        }
+    }
+
+    /**
+     * Queues the shadow rays from a point of a batch towards a light, if the light is on the side
+     * of the surface seen by the viewer
+     *
+     * @param queue       the queue of shadow rays
+     * @param samples     the lights at the points of the batch
+     * @param hits        the points of the batch
+     * @param r           index of the point in the batch
+     * @param lightSource the light source
+     * @param n           normal from the point
+     * @param nv          dot product of the normal and the direction of the ray from the viewer
+     * @param weight      factor of the light's effect
+     * @param cached      transparency towards the lights interpolated from the irradiance cache,
+     *                    null for a sampled light or a point which is not in the cache
+     */
+    private void addLightSample(RayQueue queue, List<LightSample> samples, GeoPoint[] hits, int r,
+                                LightSource lightSource, Vector n, double nv, double weight, Double3[] cached) {
+        Vector l = lightSource.getL(hits[r].point);
+        double nl = alignZero(n.dotProduct(l));
+        if (nl * nv > 0) {
+            LightSample sample = new LightSample(r, lightSource, l);
+            sample.weight = weight;
+            IrradianceCache cache = irradianceCache();
+            if (cache != null && weight == 1)
+                sample.index = cache.indexOf(lightSource);
+            if (cached != null && sample.index >= 0 && cached[sample.index] != null) {
+                sample.add(cached[sample.index]);
+                samples.add(sample);
+                return;
+            }
+            List<Vector> lVectors = isSoftShadow
+                    ? lightSource.getLCircle(hits[r].point, radiusBeamSS, numOfSSRays)
+                    : List.of(l);
+            // with adaptive soft shadows only the probes are traced first
+            for (Vector lv : isAdaptiveSS ? lVectors.subList(0, min(numOfSSProbes, lVectors.size())) : lVectors)
+                queue.add(new Ray(hits[r].point, lv.scale(-1), n), samples.size());
+            sample.lVectors = lVectors;
+            samples.add(sample);
+        }
+    }
+
+    /**
+     * Light source at a point of a batch, accumulating the transparency of its shadow rays
+     */
+    private static class LightSample {
+        /**
+         * index of the point in the batch
+         */
+        final int ray;
+        /**
+         * the light source
+         */
+        final LightSource lightSource;
+        /**
+         * direction from the light to the point
+         */
+        final Vector l;
+        /**
+         * directions of the shadow rays from the light to the point
+         */
+        List<Vector> lVectors;
+        /**
+         * amount of shadow rays traced towards the light
+         */
+        int rays = 0;
+        /**
+         * sum of the transparency along the shadow rays
+         */
+        Double3 ktr = Double3.ZERO;
+        /**
+         * transparency along the first shadow ray
+         */
+        Double3 first;
+        /**
+         * whether the shadow rays disagree - the point is in the penumbra of the light
+         */
+        boolean penumbra = false;
+        /**
+         * factor of the light's effect, the inverse probability of a sampled light
+         */
+        double weight = 1;
+        /**
+         * position of the light in the irradiance records, -1 if it is not recorded
+         */
+        int index = -1;
+
+        /**
+         * constructor
+         *
+         * @param ray         index of the point in the batch
+         * @param lightSource the light source
+         * @param l           direction from the light to the point
+         */
+        LightSample(int ray, LightSource lightSource, Vector l) {
+            this.ray = ray;
+            this.lightSource = lightSource;
+            this.l = l;
+        }
+
+        /**
+         * adds the transparency along a shadow ray towards the light
+         *
+         * @param transparency the transparency
+         */
+        void add(Double3 transparency) {
+            if (rays == 0)
+                first = transparency;
+            else if (!transparency.equals(first))
+                penumbra = true;
+            ktr = ktr.add(transparency);
+            ++rays;
+        }
+    }
+
+    /**
+     * Reflection or refraction ray of a hit point of a tile, with its attenuation and resulting color
+     */
+    private static class GlobalSample {
+        /**
+         * index of the ray of the hit point in the tile
+         */
+        final int ray;
+        /**
+         * type of the ray, reflection or refraction
+         */
+        final RayType type;
+        /**
+         * attenuation of the reflection or refraction
+         */
+        final Double3 kx;
+        /**
+         * accumulated attenuation along the path
+         */
+        final Double3 kkx;
+        /**
+         * amount of rays in the beam the ray is part of
+         */
+        final int beam;
+        /**
+         * the color brought by the ray
+         */
+        Color color;
+
+        /**
+         * constructor
+         *
+         * @param ray  index of the ray of the hit point in the tile
+         * @param type type of the ray, reflection or refraction
+         * @param kx   attenuation of the reflection or refraction
+         * @param kkx  accumulated attenuation along the path
+         * @param beam amount of rays in the beam the ray is part of
+         */
+        GlobalSample(int ray, RayType type, Double3 kx, Double3 kkx, int beam) {
+            this.ray = ray;
+            this.type = type;
+            this.kx = kx;
+            this.kkx = kkx;
+            this.beam = beam;
+        }
+    }
+
     /**
      * find the closest intersection point between ray and geometries in scene
      *
      * @param ray ray constructed from camera to scene
      * @return closest intersection Point
      */
-    private GeoPoint findClosestIntersection(Ray ray) {
+    GeoPoint findClosestIntersection(Ray ray) {
         List<GeoPoint> intersections = scene.geometries.findGeoIntersections(ray);
-        return intersections == null ? null : ray.findClosestGeoPoint(intersections);
+        if (intersections == null)
+            return null;
+        GeoPoint closest = ray.findClosestGeoPoint(intersections);
+        PixelTrace trace = trace();
+        if (trace != null)
+            trace.meet(closest.geometry);
+        return closest;
     }
 
     /**
@@ -141,6 +942,7 @@ public class SimpleRayTracer extends RayTracerBase {
      * deepening of the recursion
      */
     private Color calcColor(GeoPoint gp, Ray ray, int level, Double3 k) {
+        countColors(1, level);
         Color color = calcLocalEffect(gp, ray.getDirection(), k);
         return 1 == level ? color : color.add(calcGlobalEffects(gp, ray.getDirection(), level, k));
     }
@@ -154,6 +956,7 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return color at the point
      */
     private Color calcColor(GeoPoint p, Ray ray) {
+        countPaths(1);
         return calcColor(p, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K).add(scene.ambientLight.getIntensity());
     }
 
@@ -171,45 +974,455 @@ public class SimpleRayTracer extends RayTracerBase {
         Vector n = intersection.geometry.getNormal(intersection.point);
 
         Material material = intersection.geometry.getMaterial();
-        Double3 kr = material.kR;
+        double fresnel = reflectance(n, inRay, material.ior);
+        Double3 kr = fresnel == 0 ? material.kR : material.kR.add(material.kT.scale(fresnel));
         Double3 kkr = kr.product(k);
 
         if (!kkr.lowerThan(MIN_CALC_COLOR_K)) {
             Ray reflectedRay = constructReflectedRay(intersection.point, n, inRay);
-            color = color.add(calcGlobalEffect(reflectedRay, level, kr, kkr));
+            color = color.add(calcGlobalEffect(constructBeam(reflectedRay, n, material.glossiness, level, kkr),
+                    RayType.REFLECTION, level, kr, kkr));
 
         }
 
-        Double3 kt = material.kT;
+        Double3 kt = fresnel == 0 ? material.kT : material.kT.scale(1 - fresnel);
         Double3 kkt = kt.product(k);
 
         if (!kkt.lowerThan(MIN_CALC_COLOR_K)) {
-            Ray refractedRay = constructRefractedRay(n, inRay, intersection.point);
+            Ray refractedRay = constructRefractedRay(n, inRay, intersection.point, material.ior);
 
-            color = color.add(calcGlobalEffect(refractedRay, level, kt, kkt));
+            color = color.add(calcGlobalEffect(constructBeam(refractedRay, n, material.blurriness, level, kkt),
+                    RayType.REFRACTION, level, kt, kkt));
         }
         return color;
     }
 
+    /**
+     * calculates the average of the global effects of a beam of rays. Each ray carries its share of the
+     * beam's attenuation onwards, so the beams of its own bounces get fewer rays
+     *
+     * @param beam  the rays of the beam
+     * @param type  type of the rays, reflection or refraction
+     * @param level level of recursion
+     * @param kx    k attenuation
+     * @param kkx   k times attenuation
+     * @return the color
+     */
+    private Color calcGlobalEffect(List<Ray> beam, RayType type, int level, Double3 kx, Double3 kkx) {
+        if (beam.size() == 1)
+            return calcGlobalEffect(beam.get(0), type, level, kx, kkx);
+        Double3 share = kkx.reduce(beam.size());
+        Color color = Color.BLACK;
+        for (Ray ray : beam)
+            color = color.add(calcGlobalEffect(ray, type, level, kx, share));
+        return color.reduce(beam.size());
+    }
+
+    /**
+     * Decides the amount of rays in a glossy or blurry beam - the largest amount scaled by the path's
+     * accumulated attenuation (including its share of the beams it passed) and halved with every bounce
+     * of the path
+     *
+     * @param level level of recursion of the point the beam leaves
+     * @param kkx   accumulated attenuation of the beam
+     * @return the amount of rays, at least 1
+     */
+    int glossyRayCount(int level, Double3 kkx) {
+        int depth = min(30, MAX_CALC_COLOR_LEVEL - level);
+        return max(1, (int) round(numOfGlossyRays * kkx.max() / (1 << depth)));
+    }
+
+    /**
+     * Constructs a beam of rays spread uniformly in the cone of directions around a reflected or
+     * refracted ray, stratified by the angle from the cone's axis. Directions crossing to the other side
+     * of the surface are replaced by the ray's direction
+     *
+     * @param ray    the reflected or refracted ray
+     * @param n      normal of the surface the ray leaves
+     * @param spread sine of the half angle of the cone, 0 for the ray alone
+     * @param level  level of recursion of the point the ray leaves
+     * @param kkx    accumulated attenuation of the ray
+     * @return the rays of the beam
+     */
+    List<Ray> constructBeam(Ray ray, Vector n, double spread, int level, Double3 kkx) {
+        int amount = spread == 0 ? 1 : glossyRayCount(level, kkx);
+        if (amount == 1)
+            return List.of(ray);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Vector w = ray.getDirection();
+        Vector a = w.makePerpendicularVector().normalize(), b = w.crossProduct(a);
+        double cosMax = sqrt(1 - spread * spread);
+        double side = alignZero(w.dotProduct(n));
+        List<Ray> beam = new ArrayList<>(amount);
+        for (int i = 0; i < amount; ++i) {
+            double cosTheta = 1 - (i + random.nextDouble()) / amount * (1 - cosMax);
+            double sinTheta = sqrt(max(0, 1 - cosTheta * cosTheta));
+            double phi = 2 * PI * random.nextDouble();
+            Vector direction = w.scale(cosTheta);
+            if (!isZero(sinTheta * cos(phi)))
+                direction = direction.add(a.scale(sinTheta * cos(phi)));
+            if (!isZero(sinTheta * sin(phi)))
+                direction = direction.add(b.scale(sinTheta * sin(phi)));
+            beam.add(alignZero(direction.dotProduct(n)) * side > 0 ? new Ray(ray.getHead(), direction) : ray);
+        }
+        return beam;
+    }
+
     /**
      * calculates global effects recursively
      *
      * @param ray   the ray from the viewer
+     * @param type  type of the ray, reflection or refraction
      * @param level level of recursion
      * @param kx    k attenuation
      * @param kkx   k times attenuation
      * @return the color
      */
-    private Color calcGlobalEffect(Ray ray, int level, Double3 kx, Double3 kkx) {
+    private Color calcGlobalEffect(Ray ray, RayType type, int level, Double3 kx, Double3 kkx) {
+        double survival = russianRoulette(level, kkx);
+        if (survival == 0) {
+            return Color.BLACK;
+        }
+        countBounces(1);
+        countRay(trace(), type);
+
         GeoPoint gp = findClosestIntersection(ray);
+        Color color = gp == null ? scene.background : calcColor(gp, ray, level - 1, kkx).scale(kx);
+        return survival == 1 ? color : color.scale(1 / survival);
+    }
 
-        if (gp == null) {
-            return scene.background;
+    /**
+     * Decides by Russian roulette whether a reflection or refraction ray is traced
+     *
+     * @param level level of recursion of the point the ray leaves
+     * @param kkx   accumulated attenuation of the ray
+     * @return the probability the ray survived with, 1 if roulette does not apply, 0 if the ray is terminated
+     */
+    double russianRoulette(int level, Double3 kkx) {
+        if (!isRussianRoulette || MAX_CALC_COLOR_LEVEL - level < rouletteDepth) {
+            return 1;
+        }
+        double survival = min(rouletteSurvival, kkx.max());
+        return ThreadLocalRandom.current().nextDouble() < survival ? survival : 0;
+    }
+
+    /**
+     * Counts camera rays which hit the scene for the path depth metrics
+     *
+     * @param amount amount of rays
+     */
+    static void countPaths(int amount) {
+        if (Metrics.isEnabled())
+            PATHS.add(amount);
+    }
+
+    /**
+     * Counts reflection and refraction rays for the path depth metrics
+     *
+     * @param amount amount of rays
+     */
+    static void countBounces(int amount) {
+        if (Metrics.isEnabled())
+            BOUNCES.add(amount);
+    }
+
+    /**
+     * Counts a traced ray for its pixel's trace and for the metrics
+     *
+     * @param trace the trace of the current pixels, null if not recorded
+     * @param type  type of the ray
+     */
+    static void countRay(PixelTrace trace, RayType type) {
+        if (trace != null)
+            trace.countRay(type);
+        if (Metrics.isEnabled())
+            RAY_METRICS[type.ordinal()].increment();
+    }
+
+    /**
+     * Counts colors calculated at ray hits for the metrics
+     *
+     * @param amount amount of colors
+     * @param level  level of recursion of the hits, {@link #MAX_CALC_COLOR_LEVEL} at the camera rays' hits
+     */
+    static void countColors(int amount, int level) {
+        if (Metrics.isEnabled()) {
+            COLOR_CALLS.add(amount);
+            COLOR_DEPTH.add((long) amount * (MAX_CALC_COLOR_LEVEL - level));
+        }
+    }
+
+
+    /**
+     * Finds the lights to shade a point with, all of them unless they are culled or sampled
+     *
+     * @param p the point
+     * @return the lights
+     */
+    private List<LightSource> lightsAt(Point p) {
+        LightBVH bvh = lightBVH();
+        if (bvh != null)
+            return bvh.getUnsampledLights();
+        LightIndex index = lightIndex();
+        return index == null ? scene.lights : index.getLights(p);
+    }
+
+    /**
+     * Checks whether a light is culled at a point
+     *
+     * @param lightSource the light source
+     * @param p           the point
+     * @return true if the light's intensity at the point is negligible
+     */
+    private boolean isNegligible(LightSource lightSource, Point p) {
+        LightIndex index = lightIndex();
+        return index != null && index.isNegligible(lightSource, p);
+    }
+
+    /**
+     * getter for the hierarchy of the scene's positioned lights, building it on first use
+     *
+     * @return the hierarchy, null if lights are not sampled
+     */
+    private LightBVH lightBVH() {
+        if (!isLightSampling)
+            return null;
+        LightBVH bvh = lightBVH;
+        if (bvh == null) {
+            synchronized (this) {
+                bvh = lightBVH;
+                if (bvh == null)
+                    lightBVH = bvh = new LightBVH(scene.lights);
+            }
+        }
+        return bvh;
+    }
+
+    /**
+     * Estimates the light the caustics bring to a point from the photon map
+     *
+     * @param intersection the point
+     * @param n            normal from the point
+     * @param nv           dot product of the normal and the direction of the ray from the viewer
+     * @return the diffuse color of the caustics at the point
+     */
+    private Color calcCaustics(GeoPoint intersection, Vector n, double nv) {
+        if (!isCaustics)
+            return Color.BLACK;
+        Double3 kd = intersection.geometry.getMaterial().kD;
+        if (kd.equals(Double3.ZERO))
+            return Color.BLACK;
+        return photonMap().estimate(intersection.point, facing(n, nv), numOfGatheredPhotons, causticRadius)
+                .scale(kd);
+    }
+
+    /**
+     * getter for the photon map of the caustics, emitting the photons on first use
+     *
+     * @return the photon map
+     */
+    private PhotonMap photonMap() {
+        PhotonMap map = photonMap;
+        if (map == null) {
+            synchronized (this) {
+                map = photonMap;
+                if (map == null) {
+                    long start = System.nanoTime();
+                    photonMap = map = emitPhotons();
+                    if (Metrics.isEnabled())
+                        PHOTON_MAP_TIME.add(System.nanoTime() - start);
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Emits photons from the point and directional lights of the scene towards the bounded reflecting or
+     * transparent geometries, in the cone of directions around the bounding sphere of all of them (a
+     * parallel beam over its disk for directional lights), and traces them in parallel. The photons are
+     * split evenly between the lights, each carrying its share of the light's power in that cone or beam,
+     * so overlapping geometries do not count the same light twice and no more than the set number of
+     * photons is emitted
+     *
+     * @return the photon map
+     */
+    private PhotonMap emitPhotons() {
+        BoundingBox union = null;
+        for (Geometry geometry : scene.geometries.flatten()) {
+            Material material = geometry.getMaterial();
+            BoundingBox box = geometry.getBoundingBox();
+            if (box != null && !(material.kR.equals(Double3.ZERO) && material.kT.equals(Double3.ZERO)))
+                union = union == null ? box : union.union(box);
+        }
+        List<LightSource> lights = new ArrayList<>();
+        for (LightSource light : scene.lights)
+            if (light instanceof PointLight || light instanceof DirectionalLight)
+                lights.add(light);
+        if (union == null || lights.isEmpty())
+            return new PhotonMap(List.of());
+
+        BoundingBox target = union;
+        int count = lights.size(), perLight = numOfPhotons / count, rest = numOfPhotons % count;
+        BoundingBox bounds = scene.geometries.getBoundingBox();
+        // directional beams start outside the whole scene
+        double far = bounds == null ? 1e5 : sqrt(sq(bounds.maxX - bounds.minX) + sq(bounds.maxY - bounds.minY)
+                + sq(bounds.maxZ - bounds.minZ));
+        // a pool of its own - the common pool's workers may be rendering threads waiting for this map
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            // photon i comes from light i % count, the first lights taking the rest of the division
+            List<PhotonMap.Photon> photons = pool.submit(() -> IntStream.range(0, numOfPhotons).parallel()
+                    .mapToObj(i -> emitPhoton(lights.get(i % count), target,
+                            perLight + (i % count < rest ? 1 : 0), far))
+                    .flatMap(List::stream)
+                    .toList()).join();
+            return pool.submit(() -> new PhotonMap(photons)).join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * squares a number
+     *
+     * @param x the number
+     * @return x squared
+     */
+    private static double sq(double x) {
+        return x * x;
+    }
+
+    /**
+     * Emits a photon from a light towards the reflecting and transparent geometries and traces it
+     *
+     * @param light  the light, a point or directional light
+     * @param target bounding box of the geometries
+     * @param amount amount of photons emitted from the light
+     * @param far    distance outside the scene to start directional beams from
+     * @return the photons stored on the diffuse surfaces the photon reached
+     */
+    private List<PhotonMap.Photon> emitPhoton(LightSource light, BoundingBox target, int amount, double far) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Point center = new Point(target.getCenter(0), target.getCenter(1), target.getCenter(2));
+        double radius = sqrt(sq(target.maxX - target.minX) + sq(target.maxY - target.minY)
+                + sq(target.maxZ - target.minZ)) / 2;
+        List<PhotonMap.Photon> photons = new LinkedList<>();
+
+        if (light instanceof DirectionalLight) {
+            Vector d = light.getL(center);
+            Vector a = d.makePerpendicularVector().normalize(), b = d.crossProduct(a);
+            // uniform point on the disk across the beam
+            double r = radius * sqrt(random.nextDouble()), phi = 2 * PI * random.nextDouble();
+            Point origin = center.add(d.scale(-(far + radius)));
+            if (!isZero(r * cos(phi)))
+                origin = origin.add(a.scale(r * cos(phi)));
+            if (!isZero(r * sin(phi)))
+                origin = origin.add(b.scale(r * sin(phi)));
+            tracePhoton(new Ray(origin, d), light, PI * radius * radius / amount, photons);
+            return photons;
+        }
+
+        Point position = ((PointLight) light).getPosition();
+        double distance = position.distance(center);
+        // the whole sphere of directions when the light is inside the bounding sphere
+        double cosMax = distance <= radius ? -1 : sqrt(1 - sq(radius / distance));
+        Vector w = distance <= radius ? Vector.Z : center.subtract(position).normalize();
+        Vector a = w.makePerpendicularVector().normalize(), b = w.crossProduct(a);
+        double cosTheta = 1 - random.nextDouble() * (1 - cosMax), sinTheta = sqrt(max(0, 1 - sq(cosTheta)));
+        double phi = 2 * PI * random.nextDouble();
+        Vector direction = w.scale(cosTheta);
+        if (!isZero(sinTheta * cos(phi)))
+            direction = direction.add(a.scale(sinTheta * cos(phi)));
+        if (!isZero(sinTheta * sin(phi)))
+            direction = direction.add(b.scale(sinTheta * sin(phi)));
+        tracePhoton(new Ray(position, direction), light, 2 * PI * (1 - cosMax) / amount, photons);
+        return photons;
+    }
+
+    /**
+     * Traces a photon through the scene, choosing by Russian roulette at every surface whether it is
+     * reflected, refracted or absorbed, and stores it at every diffuse surface it reaches after it was
+     * reflected or refracted at least once
+     *
+     * @param ray     ray of the photon from the light
+     * @param light   the light
+     * @param share   the photon's share of the cone of directions (solid angle) of a point light, or of
+     *                the beam's area of a directional light
+     * @param photons the stored photons
+     */
+    private void tracePhoton(Ray ray, LightSource light, double share, List<PhotonMap.Photon> photons) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Color power = null;
+        for (int level = 0; level < MAX_CALC_COLOR_LEVEL; ++level) {
+            GeoPoint hit = findClosestIntersection(ray);
+            if (hit == null)
+                return;
+            if (power == null) {
+                // intensity of the light in the photon's direction over its share, or flux over its area
+                double d = light.getDistance(hit.point);
+                power = light.getIntensity(hit.point).scale(Double.isInfinite(d) ? share : d * d * share);
+            }
+            Material material = hit.geometry.getMaterial();
+            Vector v = ray.getDirection();
+            if (level > 0 && !material.kD.equals(Double3.ZERO))
+                photons.add(new PhotonMap.Photon(hit.point, v, power));
+
+            Vector n = hit.geometry.getNormal(hit.point);
+            double fresnel = reflectance(n, v, material.ior);
+            Double3 kr = fresnel == 0 ? material.kR : material.kR.add(material.kT.scale(fresnel));
+            Double3 kt = fresnel == 0 ? material.kT : material.kT.scale(1 - fresnel);
+            double pr = kr.max(), pt = kt.max();
+            double total = max(1, pr + pt), xi = random.nextDouble() * total;
+            if (xi < pr) {
+                ray = constructReflectedRay(hit.point, n, v);
+                power = power.scale(kr.scale(total / pr));
+            } else if (xi < pr + pt) {
+                ray = constructRefractedRay(n, v, hit.point, material.ior);
+                power = power.scale(kt.scale(total / pt));
+            } else
+                return;
         }
+    }
 
-        return calcColor(gp, ray, level - 1, kkx).scale(kx);
+    /**
+     * getter for the irradiance cache, building it on first use
+     *
+     * @return the cache, null if irradiance is not cached
+     */
+    private IrradianceCache irradianceCache() {
+        if (!isIrradianceCache)
+            return null;
+        IrradianceCache cache = irradianceCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = irradianceCache;
+                if (cache == null)
+                    irradianceCache = cache = new IrradianceCache(scene.lights, irradianceRadius);
+            }
+        }
+        return cache;
     }
 
+    /**
+     * getter for the spatial index of the scene's lights, building it on first use
+     *
+     * @return the index, null if lights are not culled
+     */
+    private LightIndex lightIndex() {
+        if (!isLightCulling)
+            return null;
+        LightIndex index = lightIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = lightIndex;
+                if (index == null)
+                    lightIndex = index = new LightIndex(scene.lights, cullingThreshold);
+            }
+        }
+        return index;
+    }
 
     /**
      * Calculate the local effect of light sources on a point
@@ -227,32 +1440,121 @@ public class SimpleRayTracer extends RayTracerBase {
             return Color.BLACK;
         }
 
-        int nShininess = intersection.geometry.getMaterial().nShininess;
-        Double3 kd = intersection.geometry.getMaterial().kD;
-        Double3 ks = intersection.geometry.getMaterial().kS;
-
         Color color = intersection.geometry.getEmission();
 
-        for (LightSource lightSource : scene.lights) {
-            Vector l = lightSource.getL(intersection.point);
-            double nl = alignZero(n.dotProduct(l));
-            if (nl * nv > 0) {
-                Double3 ktr;
-                if (!isSoftShadow)
-                    ktr = transparency(intersection, lightSource, l, n);
-                else
-                    ktr = transparencySS(intersection, lightSource, n);
-
-                if (!(ktr.product(k)).lowerThan(MIN_CALC_COLOR_K)) {
-                    Color lightIntensity = lightSource.getIntensity(intersection.point).scale(ktr);
-                    color = color.add(calcDiffusive(kd, l, n, lightIntensity),
-                            calcSpecular(ks, l, n, v, nShininess, lightIntensity));
-                }
-            }
+        IrradianceCache cache = irradianceCache();
+        Double3[] cached = cache == null ? null : cache.lookup(intersection.point, facing(n, nv));
+        Double3[] computed = cache != null && cached == null ? cache.newTransparency() : null;
+        for (LightSource lightSource : lightsAt(intersection.point))
+            if (!isNegligible(lightSource, intersection.point))
+                color = addLight(color, intersection, lightSource, n, v, nv, k, 1, cached, computed);
+        if (computed != null)
+            cache.add(intersection.point, facing(n, nv), computed);
+        color = color.add(calcCaustics(intersection, n, nv));
+
+        LightBVH bvh = lightBVH();
+        for (int s = 0; bvh != null && s < numLightSamples; ++s) {
+            LightBVH.Sample chosen = bvh.sample(intersection.point, n, nv);
+            if (chosen == null)
+                break;
+            color = addLight(color, intersection, chosen.light, n, v, nv, k, 1 / (numLightSamples * chosen.pdf),
+                    null, null);
         }
         return color;
     }
 
+    /**
+     * finds the normal of a surface on the side seen by the viewer
+     *
+     * @param n  normal from the point
+     * @param nv dot product of the normal and the direction of the ray from the viewer
+     * @return the normal facing the viewer
+     */
+    private static Vector facing(Vector n, double nv) {
+        return nv < 0 ? n : n.scale(-1);
+    }
+
+    /**
+     * Adds the effect of a light source to the color of a point, if the light is on the side
+     * of the surface seen by the viewer and not blocked
+     *
+     * @param color        the color of the point so far
+     * @param intersection the point
+     * @param lightSource  the light source
+     * @param n            normal from the point
+     * @param v            the direction of the ray from the viewer
+     * @param nv           dot product of the normal and the direction of the ray from the viewer
+     * @param k            the kR or kT factor at this point
+     * @param weight       factor of the light's effect
+     * @param cached       transparency towards the lights interpolated from the irradiance cache, or null
+     * @param computed     transparency towards the lights for a new irradiance record, or null
+     * @return the color with the effect of the light
+     */
+    private Color addLight(Color color, GeoPoint intersection, LightSource lightSource, Vector n, Vector v,
+                           double nv, Double3 k, double weight, Double3[] cached, Double3[] computed) {
+        Vector l = lightSource.getL(intersection.point);
+        double nl = alignZero(n.dotProduct(l));
+        if (nl * nv <= 0)
+            return color;
+
+        int index = cached == null && computed == null ? -1 : irradianceCache().indexOf(lightSource);
+        Double3 ktr = cached != null && index >= 0 ? cached[index] : null;
+        if (ktr == null) {
+            if (!isSoftShadow)
+                ktr = transparency(intersection, lightSource, l, n);
+            else
+                ktr = transparencySS(intersection, lightSource, n);
+        }
+        if (computed != null && index >= 0)
+            computed[index] = ktr;
+        return addLightEffect(color, intersection, lightSource, l, n, v, ktr, k, weight);
+    }
+
+    /**
+     * Adds the diffuse and specular effect of a single light source to the color of a point,
+     * scaled by a weight
+     *
+     * @param color        the color of the point so far
+     * @param intersection the point
+     * @param lightSource  the light source
+     * @param l            the direction of the light
+     * @param n            normal from the point
+     * @param v            the direction of the ray from the viewer
+     * @param ktr          transparency of the geometries between the point and the light
+     * @param k            the kR or kT factor at this point
+     * @param weight       factor of the light's effect
+     * @return the color with the effect of the light
+     */
+    private Color addLightEffect(Color color, GeoPoint intersection, LightSource lightSource, Vector l, Vector n,
+                                 Vector v, Double3 ktr, Double3 k, double weight) {
+        return weight == 1 ? addLightEffect(color, intersection, lightSource, l, n, v, ktr, k)
+                : color.add(addLightEffect(Color.BLACK, intersection, lightSource, l, n, v, ktr, k).scale(weight));
+    }
+
+    /**
+     * Adds the diffuse and specular effect of a single light source to the color of a point
+     *
+     * @param color        the color of the point so far
+     * @param intersection the point
+     * @param lightSource  the light source
+     * @param l            the direction of the light
+     * @param n            normal from the point
+     * @param v            the direction of the ray from the viewer
+     * @param ktr          transparency of the geometries between the point and the light
+     * @param k            the kR or kT factor at this point
+     * @return the color with the effect of the light
+     */
+    private Color addLightEffect(Color color, GeoPoint intersection, LightSource lightSource, Vector l, Vector n,
+                                 Vector v, Double3 ktr, Double3 k) {
+        if ((ktr.product(k)).lowerThan(MIN_CALC_COLOR_K))
+            return color;
+
+        Material material = intersection.geometry.getMaterial();
+        Color lightIntensity = lightSource.getIntensity(intersection.point).scale(ktr);
+        return color.add(calcDiffusive(material.kD, l, n, lightIntensity),
+                calcSpecular(material.kS, l, n, v, material.nShininess, lightIntensity));
+    }
+
 
     /**
      * Calculate the diffuse light effect on the point
@@ -329,26 +1631,195 @@ public class SimpleRayTracer extends RayTracerBase {
 
         Vector lightDirection = l.scale(-1);
         Ray lightRay = new Ray(geoPoint.point, lightDirection, n);
+        return transparency(geoPoint, lightSource, lightRay);
+    }
+
+    /**
+     * function will return double that represents transparency along a ray towards the light
+     *
+     * @param geoPoint    geometry point to check
+     * @param lightSource light source
+     * @param lightRay    ray from the point towards the light
+     * @return transparency value
+     */
+    private Double3 transparency(GeoPoint geoPoint, LightSource lightSource, Ray lightRay) {
+        double distance = lightSource.getDistance(geoPoint.point);
+        PixelTrace trace = trace();
+        countRay(trace, RayType.SHADOW);
+
+        Map<LightSource, Occluder> cache = isOccluderCache ? occluders.get() : null;
+        if (cache != null) {
+            if (Metrics.isEnabled())
+                OCCLUDER_LOOKUPS.increment();
+            Occluder occluder = cache.get(lightSource);
+            if (occluder != null && !occluder.isCurrent(scene, epoch)) {
+                cache.remove(lightSource);
+                occluder = null;
+            }
+            if (occluder != null && blocks(occluder.geometry, geoPoint, lightRay, distance)) {
+                if (Metrics.isEnabled())
+                    OCCLUDER_HITS.increment();
+                if (trace != null)
+                    trace.meet(occluder.geometry);
+                return Double3.ZERO;
+            }
+        }
+
         List<GeoPoint> intersections = scene.geometries.findGeoIntersections(lightRay);
 
         Double3 ktr = Double3.ONE;
         if (intersections == null) return ktr;
 
-        double distance = lightSource.getDistance(geoPoint.point);
-
         for (GeoPoint intersection : intersections) {
 
             if (distance > intersection.point.distance(geoPoint.point)) {
-                ktr = ktr.product(intersection.geometry.getMaterial().kT);
+                if (trace != null)
+                    trace.meet(intersection.geometry);
+                Double3 kT = shadowTransparency(intersection.geometry);
+                ktr = ktr.product(kT);
+                if (cache != null && kT.equals(Double3.ZERO))
+                    cache.put(lightSource, new Occluder(intersection.geometry, intersection.geometry.getVersion(),
+                            scene.geometries.getVersion(), epoch));
             }
         }
         return ktr;
     }
 
+    /**
+     * finds how much light a geometry lets through towards the points behind it, none when caustics
+     * bring that light instead
+     *
+     * @param geometry the geometry
+     * @return transparency of the geometry for shadow rays
+     */
+    private Double3 shadowTransparency(Geometry geometry) {
+        return isCaustics ? Double3.ZERO : geometry.getMaterial().kT;
+    }
+
+    /**
+     * Discards the light index, the light hierarchy, the irradiance cache and the photon map, which are built
+     * again on first use, and the occluders cached by all the rendering threads
+     */
+    @Override
+    public void reset() {
+        lightIndex = null;
+        lightBVH = null;
+        irradianceCache = null;
+        photonMap = null;
+        ++epoch;
+    }
+
+    /**
+     * Pixels can not be re-traced alone with an irradiance cache or caustics, which are calculated over
+     * the whole scene
+     */
+    @Override
+    public boolean isIncremental() {
+        return !isIrradianceCache && !isCaustics;
+    }
+
+    /**
+     * Besides the pixel's rays, checks the rays leaving their hit points: a reflective or refractive hit
+     * point may see any geometry, and a geometry between a hit point and a light may shadow it - tested
+     * against the geometry's bounding box grown by the spread of the soft shadow beam towards the light
+     */
+    @Override
+    public boolean mayReach(List<Ray> rays, List<Geometry> geometries) {
+        if (super.mayReach(rays, geometries))
+            return true;
+        BoundingBox[] boxes = new BoundingBox[geometries.size()];
+        for (int i = 0; i < boxes.length; ++i)
+            boxes[i] = geometries.get(i).getBoundingBox();
+        for (Ray ray : rays) {
+            GeoPoint hit = findClosestIntersection(ray);
+            if (hit == null)
+                continue;
+            Material material = hit.geometry.getMaterial();
+            if (!material.kR.lowerThan(MIN_CALC_COLOR_K) || !material.kT.lowerThan(MIN_CALC_COLOR_K))
+                return true;
+            for (LightSource light : scene.lights) {
+                Vector l = light.getL(hit.point);
+                if (l == null)
+                    continue;
+                Ray lightRay = new Ray(hit.point, l.scale(-1), hit.geometry.getNormal(hit.point));
+                double distance = light.getDistance(hit.point);
+                double spread = light instanceof AreaLight area ? area.getExtent() : isSoftShadow ? radiusBeamSS : 0;
+                for (int i = 0; i < boxes.length; ++i)
+                    if (boxes[i] == null ? spread > 0 || geometries.get(i).findGeoIntersections(lightRay, distance) != null
+                            : boxes[i].grow(spread).intersects(lightRay, distance))
+                        return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * An opaque geometry which blocked a light, cached with the versions it was found at
+     *
+     * @param geometry     the geometry
+     * @param version      version of the geometry
+     * @param sceneVersion version of the scene's list of geometries
+     * @param epoch        amount of resets of the tracer's state
+     */
+    private record Occluder(Geometry geometry, int version, int sceneVersion, int epoch) {
+        /**
+         * Checks neither the geometry nor the scene's list of geometries changed since it was cached, so
+         * it is still in the scene and blocks the same rays, and the tracer's state was not reset since
+         *
+         * @param scene the scene
+         * @param epoch current amount of resets of the tracer's state
+         * @return true if the cached geometry can be tested
+         */
+        boolean isCurrent(Scene scene, int epoch) {
+            return geometry.getVersion() == version && scene.geometries.getVersion() == sceneVersion
+                    && this.epoch == epoch;
+        }
+    }
+
+    /**
+     * Checks whether an opaque geometry blocks a ray from a point before it reaches the light
+     *
+     * @param occluder geometry which blocked the light before
+     * @param geoPoint the point
+     * @param lightRay ray from the point towards the light
+     * @param distance distance of the light from the point
+     * @return true if the geometry is still opaque and blocks the ray
+     */
+    private boolean blocks(Geometry occluder, GeoPoint geoPoint, Ray lightRay, double distance) {
+        if (!shadowTransparency(occluder).equals(Double3.ZERO))
+            return false;
+        List<GeoPoint> intersections = occluder.findGeoIntersections(lightRay);
+        if (intersections == null)
+            return false;
+        for (GeoPoint intersection : intersections)
+            if (distance > intersection.point.distance(geoPoint.point))
+                return true;
+        return false;
+    }
+
 
 
     @Override
     public Color AdaptiveSuperSamplingRec(Point centerP, double Width, double Height, double minWidth, double minHeight, Point cameraLoc, Vector Vright, Vector Vup, List<Point> prePoints) {
+        return adaptiveSuperSampling(centerP, Width, Height, minWidth, minHeight, cameraLoc, Vright, Vup, prePoints, 0);
+    }
+
+    /**
+     * Samples an area of a pixel adaptively, subdividing it into quarters while the colors at its corners differ
+     *
+     * @param centerP   center of the area
+     * @param Width     width of the area
+     * @param Height    height of the area
+     * @param minWidth  width of the smallest area sampled
+     * @param minHeight height of the smallest area sampled
+     * @param cameraLoc location of the camera
+     * @param Vright    right direction of the view plane
+     * @param Vup       up direction of the view plane
+     * @param prePoints corners of the area sampled already, null at the pixel
+     * @param depth     amount of subdivisions of the pixel down to the area, for the metrics
+     * @return the color of the area
+     */
+    private Color adaptiveSuperSampling(Point centerP, double Width, double Height, double minWidth, double minHeight, Point cameraLoc, Vector Vright, Vector Vup, List<Point> prePoints, int depth) {
         if (Width < minWidth * 2 || Height < minHeight * 2) {
             return this.traceRay(new Ray(cameraLoc, centerP.subtract(cameraLoc)));
         }
@@ -386,9 +1857,13 @@ public class SimpleRayTracer extends RayTracerBase {
             return tempColor;
 
 
+        if (Metrics.isEnabled()) {
+            SUBDIVISIONS.increment();
+            SUBDIVISION_DEPTH.accumulate(depth + 1);
+        }
         tempColor = primitives.Color.BLACK;
         for (Point center : nextCenterPList) {
-            tempColor = tempColor.add(AdaptiveSuperSamplingRec(center, Width / 2, Height / 2, minWidth, minHeight, cameraLoc, Vright, Vup, cornersList));
+            tempColor = tempColor.add(adaptiveSuperSampling(center, Width / 2, Height / 2, minWidth, minHeight, cameraLoc, Vright, Vup, cornersList, depth + 1));
         }
         return tempColor.reduce(nextCenterPList.size());
 
@@ -403,7 +1878,7 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param vector direction of ray to point
      * @return reflection ray
      */
-    private Ray constructReflectedRay(Point point, Vector normal, Vector vector) {
+    Ray constructReflectedRay(Point point, Vector normal, Vector vector) {
         Vector reflectedVector = vector.subtract(normal.scale(2 * vector.dotProduct(normal)));
         return new Ray(point, reflectedVector, normal);
     }
@@ -417,10 +1892,68 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param p point
      * @return new Ray
      */
-    private Ray constructRefractedRay(Vector n, Vector v, Point p) {
+    Ray constructRefractedRay(Vector n, Vector v, Point p) {
         return new Ray(p, v, n);
     }
 
+    /**
+     * Construct a refractive ray from a point on a surface between the air and a material, bent by
+     * Snell's law. The side of the surface the ray comes from decides whether it enters or leaves the
+     * material
+     *
+     * @param n   normal to the point
+     * @param v   direction of ray to the point, normalized
+     * @param p   point
+     * @param ior index of refraction of the material, 1 for a ray going straight through
+     * @return new Ray, null on total internal reflection
+     */
+    Ray constructRefractedRay(Vector n, Vector v, Point p, double ior) {
+        if (ior == 1)
+            return constructRefractedRay(n, v, p);
+
+        double cosI = -alignZero(v.dotProduct(n));
+        if (isZero(cosI))
+            return new Ray(p, v, n);
+        // entering the material through the side of the normal, or leaving it
+        double eta = cosI > 0 ? 1 / ior : ior, sign = cosI > 0 ? 1 : -1;
+        cosI *= sign;
+        double cos2T = 1 - eta * eta * (1 - cosI * cosI);
+        if (cos2T <= 0)
+            return null;
+        double factor = (eta * cosI - sqrt(cos2T)) * sign;
+        Vector t = new Vector(eta * v.getX() + factor * n.getX(), eta * v.getY() + factor * n.getY(),
+                eta * v.getZ() + factor * n.getZ());
+        return new Ray(p, t, n);
+    }
+
+    /**
+     * Calculates the part of the light reflected at a surface between the air and a material, by
+     * Schlick's approximation of the Fresnel equations. It moves this part of the transparency of the
+     * material to its reflection
+     *
+     * @param n   normal to the point
+     * @param v   direction of ray to the point, normalized
+     * @param ior index of refraction of the material
+     * @return the reflectance, 0 for an index of 1, 1 on total internal reflection
+     */
+    static double reflectance(Vector n, Vector v, double ior) {
+        if (ior == 1)
+            return 0;
+
+        double cosI = abs(alignZero(v.dotProduct(n)));
+        boolean entering = v.dotProduct(n) < 0;
+        double eta = entering ? 1 / ior : ior;
+        double cos2T = 1 - eta * eta * (1 - cosI * cosI);
+        if (cos2T <= 0)
+            return 1;
+        // the angle on the side of the lower index
+        double cos = eta <= 1 ? cosI : sqrt(cos2T);
+        double r0 = (1 - ior) / (1 + ior);
+        r0 *= r0;
+        double m = 1 - cos;
+        return r0 + (1 - r0) * m * m * m * m * m;
+    }
+
 
     /**
      * Returns transparency level with soft shadow effect
@@ -435,11 +1968,23 @@ public class SimpleRayTracer extends RayTracerBase {
         Double3 ktr = Double3.ZERO;
         List<Vector> LVectors = ls.getLCircle(gp.point, radiusBeamSS, numOfSSRays);
 
+        // with adaptive soft shadows, the beam stops after the probes unless they disagree
+        Double3 first = null;
+        boolean penumbra = !isAdaptiveSS;
+        int count = 0;
         for (Vector v : LVectors) {
-            ktr = ktr.add(transparency(gp, ls, v, n));
+            if (!penumbra && count == numOfSSProbes)
+                break;
+            Double3 t = transparency(gp, ls, v, n);
+            if (first == null)
+                first = t;
+            else if (!t.equals(first))
+                penumbra = true;
+            ktr = ktr.add(t);
+            ++count;
         }
 
-        ktr = ktr.reduce(LVectors.size());
+        ktr = ktr.reduce(count);
 
         return ktr;
     }
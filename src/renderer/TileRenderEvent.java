@@ -0,0 +1,60 @@
+package renderer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of tracing a tile of pixels, with the amounts of rays of each type traced for it,
+ * for finding the tiles which take longer than the rest
+ *
+ * @author Naama and Yeela
+ */
+@Name("raytracer.TileRender")
+@Label("Tile Render")
+@Category("Ray Tracer")
+@Description("Tracing a tile of pixels")
+class TileRenderEvent extends Event {
+    /**
+     * column index of the tile's first pixel
+     */
+    @Label("Start X")
+    int startX;
+    /**
+     * row index of the tile's first pixel
+     */
+    @Label("Start Y")
+    int startY;
+    /**
+     * column index after the tile's last pixel
+     */
+    @Label("End X")
+    int endX;
+    /**
+     * row index after the tile's last pixel
+     */
+    @Label("End Y")
+    int endY;
+    /**
+     * amount of primary rays traced
+     */
+    @Label("Primary Rays")
+    long primaryRays;
+    /**
+     * amount of shadow rays traced
+     */
+    @Label("Shadow Rays")
+    long shadowRays;
+    /**
+     * amount of reflection rays traced
+     */
+    @Label("Reflection Rays")
+    long reflectionRays;
+    /**
+     * amount of refraction rays traced
+     */
+    @Label("Refraction Rays")
+    long refractionRays;
+}
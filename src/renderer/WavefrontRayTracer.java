@@ -0,0 +1,235 @@
+package renderer;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.*;
+import scene.Scene;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.awt.Color.BLACK;
+
+/**
+ * Ray tracer which processes the rays breadth-first instead of recursively: all the rays of one bounce
+ * depth in a tile are traced together as a sorted batch, and each ray carries its throughput weight
+ * (the k factor of the recursive tracer) for scaling the color it brings. It produces the same images
+ * as {@link SimpleRayTracer}, whose settings (e.g. soft shadows) it shares
+ *
+ * @author Naama and Yeela
+ */
+public class WavefrontRayTracer extends SimpleRayTracer {
+
+    /**
+     * Parameter constructor
+     *
+     * @param scene The scene
+     */
+    public WavefrontRayTracer(Scene scene) {
+        super(scene);
+    }
+
+    @Override
+    public Color traceRay(Ray ray) {
+        return traceTile(List.of(List.of(ray)))[0];
+    }
+
+    @Override
+    public Color traceRays(List<Ray> rays) {
+        return traceTile(List.of(rays))[0];
+    }
+
+    @Override
+    public Color[] traceTile(List<List<Ray>> pixelsRays) {
+        List<Ray> primaryRays = new ArrayList<>();
+        for (List<Ray> pixelRays : pixelsRays)
+            primaryRays.addAll(pixelRays);
+
+        int[] primaryPixels = pixelsOf(pixelsRays);
+        PixelTrace trace = trace();
+
+        // color gathered by each primary ray, null while it has not hit anything
+        Color[] colors = new Color[primaryRays.size()];
+        List<Segment> generation = new ArrayList<>(primaryRays.size());
+        for (int r = 0; r < colors.length; ++r)
+            generation.add(new Segment(r, RayType.PRIMARY, primaryRays.get(r), INITIAL_K, INITIAL_K, null));
+
+        for (int level = MAX_CALC_COLOR_LEVEL; !generation.isEmpty(); --level) {
+            int size = generation.size();
+            Ray[] rays = new Ray[size];
+            Double3[] ks = new Double3[size];
+            int[] pixels = new int[size];
+            for (int i = 0; i < size; ++i) {
+                rays[i] = generation.get(i).ray;
+                ks[i] = generation.get(i).k;
+                pixels[i] = primaryPixels[generation.get(i).primaryRay];
+                if (trace != null)
+                    trace.pixel = pixels[i];
+                countRay(trace, generation.get(i).type);
+            }
+            GeoPoint[] hits = findClosestIntersections(rays, pixels);
+            for (int i = 0; trace != null && level == MAX_CALC_COLOR_LEVEL && i < size; ++i) {
+                trace.pixel = pixels[i];
+                trace.primaryHit(rays[i], hits[i]);
+            }
+            Color[] localColors = calcLocalEffects(hits, rays, ks, pixels);
+
+            List<Segment> next = new ArrayList<>();
+            int hitCount = 0;
+            for (int i = 0; i < size; ++i) {
+                Segment segment = generation.get(i);
+                int r = segment.primaryRay;
+                if (hits[i] == null) {
+                    // a missed primary ray shows the background, a missed bounce brings it weighted by its parent
+                    if (segment.backgroundK != null)
+                        colors[r] = colors[r].add(scene.background.scale(segment.backgroundK));
+                    continue;
+                }
+                ++hitCount;
+                Color local = localColors[i].scale(segment.weight);
+                colors[r] = colors[r] == null ? local.add(scene.ambientLight.getIntensity()) : colors[r].add(local);
+                if (level > 1)
+                    addBounces(next, segment, hits[i], level);
+            }
+            if (level == MAX_CALC_COLOR_LEVEL)
+                countPaths(hitCount);
+            countColors(hitCount, level);
+            countBounces(next.size());
+            generation = next;
+        }
+
+        // average the rays of each pixel
+        Color[] pixelColors = new Color[pixelsRays.size()];
+        int r = 0;
+        for (int p = 0; p < pixelColors.length; ++p) {
+            Color color = new Color(BLACK);
+            int size = pixelsRays.get(p).size();
+            for (int i = 0; i < size; ++i, ++r)
+                color = color.add(colors[r] == null ? scene.background : colors[r]);
+            pixelColors[p] = color.reduce(size);
+        }
+        return pixelColors;
+    }
+
+    /**
+     * find the closest intersection points of a batch of rays, tracing them sorted by direction and origin
+     *
+     * @param rays   the rays
+     * @param pixels the pixel of each ray in the traced unit of pixels
+     * @return closest intersection of each ray, null for rays which hit nothing
+     */
+    private GeoPoint[] findClosestIntersections(Ray[] rays, int[] pixels) {
+        RayQueue queue = new RayQueue();
+        for (int i = 0; i < rays.length; ++i)
+            queue.add(rays[i], i);
+        queue.sort();
+        GeoPoint[] hits = new GeoPoint[rays.length];
+        for (int i = 0; i < queue.size(); ++i) {
+            setTracePixel(pixels[queue.getId(i)]);
+            hits[queue.getId(i)] = findClosestIntersection(queue.getRay(i));
+        }
+        return hits;
+    }
+
+    /**
+     * adds the reflection and refraction rays of a hit point to the next generation, if they
+     * still carry enough light
+     *
+     * @param next    the next generation of rays
+     * @param segment the ray which hit the point
+     * @param hit     the hit point
+     * @param level   level of the hit point, counting down from the deepest level
+     */
+    private void addBounces(List<Segment> next, Segment segment, GeoPoint hit, int level) {
+        Material material = hit.geometry.getMaterial();
+        Vector n = hit.geometry.getNormal(hit.point);
+        Vector v = segment.ray.getDirection();
+
+        double fresnel = reflectance(n, v, material.ior);
+        Double3 kr = fresnel == 0 ? material.kR : material.kR.add(material.kT.scale(fresnel));
+        Double3 kkr = kr.product(segment.k);
+        if (!kkr.lowerThan(MIN_CALC_COLOR_K))
+            addBeam(next, segment, RayType.REFLECTION, constructBeam(constructReflectedRay(hit.point, n, v), n,
+                    material.glossiness, level, kkr), level, kr, kkr);
+
+        Double3 kt = fresnel == 0 ? material.kT : material.kT.scale(1 - fresnel);
+        Double3 kkt = kt.product(segment.k);
+        if (!kkt.lowerThan(MIN_CALC_COLOR_K))
+            addBeam(next, segment, RayType.REFRACTION, constructBeam(constructRefractedRay(n, v, hit.point,
+                    material.ior), n, material.blurriness, level, kkt), level, kt, kkt);
+    }
+
+    /**
+     * adds the rays of a reflection or refraction beam to the next generation, sharing the throughput
+     * weight of the beam. As in the recursive tracer, the rays surviving Russian roulette are compensated
+     * in the weight of their color only, so later cutoffs and roulette see the uncompensated throughput
+     *
+     * @param next    the next generation of rays
+     * @param segment the ray which hit the point
+     * @param type    type of the rays, reflection or refraction
+     * @param beam    the rays of the beam
+     * @param level   level of the hit point, counting down from the deepest level
+     * @param kx      attenuation of the reflection or refraction
+     * @param kkx     throughput weight of the beam
+     */
+    private void addBeam(List<Segment> next, Segment segment, RayType type, List<Ray> beam, int level,
+                         Double3 kx, Double3 kkx) {
+        Double3 share = kkx.reduce(beam.size());
+        Double3 weight = segment.weight.product(kx);
+        for (Ray ray : beam) {
+            double survival = russianRoulette(level, share) * beam.size();
+            if (survival > 0)
+                next.add(new Segment(segment.primaryRay, type, ray, share, weight.reduce(survival),
+                        segment.weight.reduce(survival)));
+        }
+    }
+
+    /**
+     * A ray of one bounce depth, with the throughput weight of its path
+     */
+    private static class Segment {
+        /**
+         * index of the primary ray the segment continues
+         */
+        final int primaryRay;
+        /**
+         * type of the ray
+         */
+        final RayType type;
+        /**
+         * the ray
+         */
+        final Ray ray;
+        /**
+         * throughput weight - product of the kR and kT factors along the path
+         */
+        final Double3 k;
+        /**
+         * weight of the color the ray brings - its throughput weight compensated for Russian roulette
+         */
+        final Double3 weight;
+        /**
+         * weight of the background brought by the ray if it misses - the color weight of its parent, shared
+         * by its beam, null for a primary ray
+         */
+        final Double3 backgroundK;
+
+        /**
+         * constructor
+         *
+         * @param primaryRay  index of the primary ray the segment continues
+         * @param type        type of the ray
+         * @param ray         the ray
+         * @param k           throughput weight of the path
+         * @param weight      weight of the color the ray brings
+         * @param backgroundK weight of the background if the ray misses, null for a primary ray
+         */
+        Segment(int primaryRay, RayType type, Ray ray, Double3 k, Double3 weight, Double3 backgroundK) {
+            this.primaryRay = primaryRay;
+            this.type = type;
+            this.ray = ray;
+            this.k = k;
+            this.weight = weight;
+            this.backgroundK = backgroundK;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package scene;
+
+import primitives.Color;
+import primitives.Double3;
+import primitives.Material;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the materials and emission colors of a scene, used while loading it to share one instance
+ * among all the geometries with identical values instead of holding a copy per geometry, and to look up
+ * materials defined by name. Interned materials are shared, so they are frozen (see
+ * {@link Material#freeze()}) - a geometry's material is changed by setting a changed copy of it. The
+ * registry may be used by several loading threads at once
+ *
+ * @author Naama and Yeela
+ */
+public class MaterialRegistry {
+    /**
+     * distinct materials, by their values
+     */
+    private final Map<List<Double>, Material> materials = new ConcurrentHashMap<>();
+    /**
+     * distinct colors, by their components
+     */
+    private final Map<List<Double>, Color> colors = new ConcurrentHashMap<>();
+    /**
+     * materials defined by name
+     */
+    private final Map<String, Material> named = new ConcurrentHashMap<>();
+
+    /**
+     * Freezes a material and finds the shared material with the same values, registering the material
+     * if it is the first with these values
+     *
+     * @param material the material
+     * @return the shared material, frozen
+     */
+    public Material intern(Material material) {
+        Material existing = materials.putIfAbsent(key(material), material.freeze());
+        return existing == null ? material : existing;
+    }
+
+    /**
+     * Finds the shared color with the same components as a color, registering the color if it is the
+     * first with these components
+     *
+     * @param color the color
+     * @return the shared color
+     */
+    public Color intern(Color color) {
+        Double3 rgb = color.getRgb();
+        Color existing = colors.putIfAbsent(List.of(rgb.getD1(), rgb.getD2(), rgb.getD3()), color);
+        return existing == null ? color : existing;
+    }
+
+    /**
+     * Defines a named material (builder pattern style)
+     *
+     * @param name     name of the material
+     * @param material the material, interned with the others
+     * @return this instance of object
+     * @throws IllegalArgumentException if a material of this name is already defined
+     */
+    public MaterialRegistry define(String name, Material material) {
+        if (named.putIfAbsent(name, intern(material)) != null)
+            throw new IllegalArgumentException("Material " + name + " is already defined");
+        return this;
+    }
+
+    /**
+     * getter for a named material
+     *
+     * @param name name of the material
+     * @return the shared material
+     * @throws IllegalArgumentException if no material of this name is defined
+     */
+    public Material get(String name) {
+        Material material = named.get(name);
+        if (material == null)
+            throw new IllegalArgumentException("Material " + name + " is not defined");
+        return material;
+    }
+
+    /**
+     * getter for the amount of distinct materials
+     *
+     * @return amount of interned materials
+     */
+    public int size() {
+        return materials.size();
+    }
+
+    /**
+     * creates the key of a material's values, equal exactly for materials of equal values
+     *
+     * @param material the material
+     * @return the key
+     */
+    private static List<Double> key(Material material) {
+        return List.of(material.kD.getD1(), material.kD.getD2(), material.kD.getD3(),
+                material.kS.getD1(), material.kS.getD2(), material.kS.getD3(),
+                material.kR.getD1(), material.kR.getD2(), material.kR.getD3(),
+                material.kT.getD1(), material.kT.getD2(), material.kT.getD3(),
+                (double) material.nShininess, material.glossiness, material.blurriness, material.ior);
+    }
+}
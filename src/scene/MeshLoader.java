@@ -0,0 +1,668 @@
+package scene;
+
+import geometries.Mesh;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Reader of triangle meshes from Wavefront OBJ and binary PLY files into packed {@link Mesh}es, to be
+ * added to a scene's geometries. The files are memory-mapped; an OBJ file is split into chunks of whole
+ * lines which are parsed in parallel, and the numbers are parsed from the mapped bytes without creating
+ * strings. Only the positions of the vertices and the faces are read - polygons are split into fans of
+ * triangles, and texture coordinates, normals and materials of the files are ignored
+ *
+ * @author Naama and Yeela
+ */
+public class MeshLoader {
+    /**
+     * smallest size of the chunks an OBJ file is split into for parsing in parallel
+     */
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    /**
+     * powers of ten which are exact doubles, for converting parsed decimal numbers
+     */
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /**
+     * PLY property types
+     */
+    private static final int INT8 = 0, UINT8 = 1, INT16 = 2, UINT16 = 3, INT32 = 4, UINT32 = 5, FLOAT32 = 6,
+            FLOAT64 = 7;
+
+    /**
+     * no instances - the class only has static methods
+     */
+    private MeshLoader() {
+    }
+
+    /**
+     * Loads a mesh from an OBJ or binary PLY file, by the file's extension
+     *
+     * @param file path of the file
+     * @return the mesh
+     * @throws IOException              if the file can not be read
+     * @throws IllegalArgumentException if the file is not an OBJ or binary PLY file of a mesh
+     */
+    public static Mesh load(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".obj"))
+            return loadObj(file);
+        if (name.endsWith(".ply"))
+            return loadPly(file);
+        throw new IllegalArgumentException("Unknown mesh file type of " + file);
+    }
+
+    /**
+     * Loads a mesh from a Wavefront OBJ file, parsing it in parallel
+     *
+     * @param file path of the file
+     * @return the mesh
+     * @throws IOException              if the file can not be read
+     * @throws IllegalArgumentException if the file is malformed
+     */
+    public static Mesh loadObj(Path file) throws IOException {
+        return loadObj(file, 0);
+    }
+
+    /**
+     * Loads a mesh from a Wavefront OBJ file, split into chunks of whole lines which are parsed in
+     * parallel. A face may reference vertices of earlier chunks by relative (negative) indexes, which are
+     * resolved once the amount of vertices in every chunk is known
+     *
+     * @param file   path of the file
+     * @param chunks amount of chunks to split the file into, 0 for choosing by the file's size
+     * @return the mesh
+     * @throws IOException              if the file can not be read
+     * @throws IllegalArgumentException if the file is malformed
+     */
+    static Mesh loadObj(Path file, int chunks) throws IOException {
+        MappedByteBuffer buffer = map(file);
+        int size = buffer.limit();
+        if (chunks <= 0)
+            chunks = Math.max(1, Math.min(4 * Runtime.getRuntime().availableProcessors(), size / MIN_CHUNK_SIZE));
+        int[] starts = new int[chunks + 1];
+        starts[chunks] = size;
+        for (int i = 1; i < chunks; ++i)
+            starts[i] = Math.max(starts[i - 1], lineStart(buffer, (int) ((long) size * i / chunks)));
+
+        List<ObjChunk> parsed = IntStream.range(0, chunks).parallel()
+                .mapToObj(i -> new ObjChunk(buffer, starts[i], starts[i + 1]))
+                .toList();
+
+        int vertexCount = 0, indexCount = 0;
+        for (ObjChunk chunk : parsed) {
+            vertexCount += chunk.vertexCount;
+            indexCount += chunk.indexCount;
+        }
+        double[] vertices = new double[3 * vertexCount];
+        int[] indices = new int[indexCount];
+        int vertexOffset = 0, indexOffset = 0;
+        for (ObjChunk chunk : parsed) {
+            System.arraycopy(chunk.vertices, 0, vertices, 3 * vertexOffset, 3 * chunk.vertexCount);
+            for (int i = 0; i < chunk.indexCount; ++i)
+                indices[indexOffset + i] = chunk.relative.get(i) ? vertexOffset + chunk.indices[i] : chunk.indices[i];
+            vertexOffset += chunk.vertexCount;
+            indexOffset += chunk.indexCount;
+        }
+        return Mesh.of(vertices, indices);
+    }
+
+    /**
+     * finds the start of the first line beginning at or after a position
+     *
+     * @param buffer the mapped file
+     * @param position the position
+     * @return start of the line, or the end of the file
+     */
+    private static int lineStart(MappedByteBuffer buffer, int position) {
+        if (position == 0)
+            return 0;
+        int p = position - 1;
+        while (p < buffer.limit() && buffer.get(p) != '\n')
+            ++p;
+        return Math.min(p + 1, buffer.limit());
+    }
+
+    /**
+     * Vertices and faces parsed from a chunk of whole lines of an OBJ file. Vertex indexes of the faces
+     * are kept from 0 - absolute ones in the file, or relative ones counted from the chunk's first
+     * vertex (and so negative for vertices of earlier chunks)
+     */
+    private static class ObjChunk {
+        /**
+         * the mapped file
+         */
+        private final MappedByteBuffer buffer;
+        /**
+         * end of the chunk (exclusive)
+         */
+        private final int end;
+        /**
+         * position of the parser
+         */
+        private int position;
+        /**
+         * coordinates of the vertices, 3 numbers per vertex
+         */
+        double[] vertices = new double[3 * 1024];
+        /**
+         * amount of vertices
+         */
+        int vertexCount = 0;
+        /**
+         * vertex indexes of the triangles, 3 per triangle
+         */
+        int[] indices = new int[3 * 1024];
+        /**
+         * amount of vertex indexes
+         */
+        int indexCount = 0;
+        /**
+         * vertex indexes which are counted from the chunk's first vertex
+         */
+        final BitSet relative = new BitSet();
+        /**
+         * indexes and relativity of the vertices of the face being parsed
+         */
+        private int[] face = new int[8];
+        /**
+         * relativity of the vertices of the face being parsed
+         */
+        private boolean[] faceRelative = new boolean[8];
+
+        /**
+         * constructor - parses the chunk
+         *
+         * @param buffer the mapped file
+         * @param start  start of the chunk
+         * @param end    end of the chunk (exclusive)
+         */
+        ObjChunk(MappedByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.end = end;
+            this.position = start;
+            while (position < end) {
+                skipBlanks();
+                if (position + 1 < end && isBlank(buffer.get(position + 1))) {
+                    byte keyword = buffer.get(position);
+                    if (keyword == 'v') {
+                        position += 2;
+                        addVertex(parseDouble(), parseDouble(), parseDouble());
+                    } else if (keyword == 'f') {
+                        position += 2;
+                        parseFace();
+                    }
+                }
+                skipLine();
+            }
+        }
+
+        /**
+         * checks whether a byte is a space or a tab
+         *
+         * @param b the byte
+         * @return true for a space or a tab
+         */
+        private static boolean isBlank(byte b) {
+            return b == ' ' || b == '\t';
+        }
+
+        /**
+         * checks whether a byte ends a number
+         *
+         * @param b the byte
+         * @return true for white space or the separator of a face's vertex parts
+         */
+        private static boolean isDelimiter(byte b) {
+            return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '/';
+        }
+
+        /**
+         * advances the parser over spaces and tabs
+         */
+        private void skipBlanks() {
+            while (position < end && isBlank(buffer.get(position)))
+                ++position;
+        }
+
+        /**
+         * advances the parser to the start of the next line
+         */
+        private void skipLine() {
+            while (position < end && buffer.get(position) != '\n')
+                ++position;
+            ++position;
+        }
+
+        /**
+         * creates the error of a malformed line at the parser's position
+         *
+         * @return the error
+         */
+        private IllegalArgumentException malformed() {
+            return new IllegalArgumentException("Malformed OBJ line at byte " + position);
+        }
+
+        /**
+         * parses a decimal number at the parser's position. Numbers of up to 18 significant digits with a
+         * small exponent are converted exactly from the digits; others are left to the Java parser
+         *
+         * @return the number
+         */
+        private double parseDouble() {
+            skipBlanks();
+            int start = position;
+            boolean negative = false;
+            if (position < end && (buffer.get(position) == '-' || buffer.get(position) == '+'))
+                negative = buffer.get(position++) == '-';
+            long mantissa = 0;
+            int digits = 0, exponent = 0;
+            boolean exact = true, any = false, fraction = false;
+            while (position < end) {
+                byte b = buffer.get(position);
+                if (b == '.' && !fraction)
+                    fraction = true;
+                else if (b >= '0' && b <= '9') {
+                    any = true;
+                    if (digits < 18) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        if (mantissa != 0)
+                            ++digits;
+                        if (fraction)
+                            --exponent;
+                    } else {
+                        exact &= b == '0';
+                        if (!fraction)
+                            ++exponent;
+                    }
+                } else
+                    break;
+                ++position;
+            }
+            if (!any)
+                throw malformed();
+            if (position < end && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+                ++position;
+                exponent += parseInt();
+            }
+            if (position < end && !isDelimiter(buffer.get(position)))
+                throw malformed();
+
+            if (exact && mantissa < 1L << 53 && Math.abs(exponent) < POWERS_OF_TEN.length) {
+                double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+                return negative ? -value : value;
+            }
+            byte[] text = new byte[position - start];
+            buffer.get(start, text);
+            return Double.parseDouble(new String(text, StandardCharsets.US_ASCII));
+        }
+
+        /**
+         * parses an integer at the parser's position
+         *
+         * @return the integer
+         */
+        private int parseInt() {
+            boolean negative = false;
+            if (position < end && (buffer.get(position) == '-' || buffer.get(position) == '+'))
+                negative = buffer.get(position++) == '-';
+            int start = position;
+            long value = 0;
+            while (position < end && buffer.get(position) >= '0' && buffer.get(position) <= '9') {
+                value = value * 10 + (buffer.get(position++) - '0');
+                if (value > Integer.MAX_VALUE)
+                    throw malformed();
+            }
+            if (position == start)
+                throw malformed();
+            return (int) (negative ? -value : value);
+        }
+
+        /**
+         * adds a vertex
+         *
+         * @param x x coordinate
+         * @param y y coordinate
+         * @param z z coordinate
+         */
+        private void addVertex(double x, double y, double z) {
+            if (3 * vertexCount + 3 > vertices.length)
+                vertices = Arrays.copyOf(vertices, 2 * vertices.length);
+            vertices[3 * vertexCount] = x;
+            vertices[3 * vertexCount + 1] = y;
+            vertices[3 * vertexCount + 2] = z;
+            ++vertexCount;
+        }
+
+        /**
+         * parses the vertices of a face line, each of them the vertex index optionally followed by
+         * texture and normal indexes, and adds the face as a fan of triangles
+         */
+        private void parseFace() {
+            int size = 0;
+            while (true) {
+                skipBlanks();
+                if (position >= end || buffer.get(position) == '\r' || buffer.get(position) == '\n'
+                        || buffer.get(position) == '#')
+                    break;
+                int index = parseInt();
+                if (index == 0)
+                    throw malformed();
+                if (size == face.length) {
+                    face = Arrays.copyOf(face, 2 * size);
+                    faceRelative = Arrays.copyOf(faceRelative, 2 * size);
+                }
+                faceRelative[size] = index < 0;
+                face[size++] = index < 0 ? vertexCount + index : index - 1;
+                // texture and normal indexes
+                while (position < end && !isBlank(buffer.get(position)) && buffer.get(position) != '\r'
+                        && buffer.get(position) != '\n')
+                    ++position;
+            }
+            if (size < 3)
+                throw malformed();
+            for (int k = 1; k < size - 1; ++k) {
+                addIndex(face[0], faceRelative[0]);
+                addIndex(face[k], faceRelative[k]);
+                addIndex(face[k + 1], faceRelative[k + 1]);
+            }
+        }
+
+        /**
+         * adds a vertex index of a triangle
+         *
+         * @param index    the vertex index
+         * @param relative whether the index is counted from the chunk's first vertex
+         */
+        private void addIndex(int index, boolean relative) {
+            if (indexCount == indices.length)
+                indices = Arrays.copyOf(indices, 2 * indices.length);
+            if (relative)
+                this.relative.set(indexCount);
+            indices[indexCount++] = index;
+        }
+    }
+
+    /**
+     * Loads a mesh from a binary PLY file. The positions are read from the x, y and z properties of the
+     * vertex element and the faces from the vertex_indices (or vertex_index) list of the face element;
+     * other elements and properties are skipped
+     *
+     * @param file path of the file
+     * @return the mesh
+     * @throws IOException              if the file can not be read
+     * @throws IllegalArgumentException if the file is not a binary PLY file of a mesh
+     */
+    public static Mesh loadPly(Path file) throws IOException {
+        MappedByteBuffer buffer = map(file);
+        try {
+            if (!"ply".equals(readLine(buffer)))
+                throw new IllegalArgumentException("File " + file + " is not a PLY file");
+            ByteOrder order = null;
+            List<PlyElement> elements = new ArrayList<>();
+            for (String line = readLine(buffer); !line.equals("end_header"); line = readLine(buffer)) {
+                String[] words = line.split("\\s+");
+                switch (words[0]) {
+                    case "format" -> order = switch (words[1]) {
+                        case "binary_little_endian" -> ByteOrder.LITTLE_ENDIAN;
+                        case "binary_big_endian" -> ByteOrder.BIG_ENDIAN;
+                        default -> throw new IllegalArgumentException("PLY format " + words[1] + " is not supported");
+                    };
+                    case "element" -> elements.add(new PlyElement(words[1], Integer.parseInt(words[2])));
+                    case "property" -> {
+                        if (elements.isEmpty())
+                            throw new IllegalArgumentException("PLY property outside an element");
+                        elements.getLast().properties.add(words[1].equals("list")
+                                ? new PlyProperty(words[4], plyType(words[3]), plyType(words[2]))
+                                : new PlyProperty(words[2], plyType(words[1]), -1));
+                    }
+                    default -> {
+                        // comments and object information
+                    }
+                }
+            }
+            if (order == null)
+                throw new IllegalArgumentException("PLY file " + file + " has no format");
+            buffer.order(order);
+
+            double[] vertices = new double[0];
+            int[] indices = new int[0];
+            int indexCount = 0;
+            for (PlyElement element : elements) {
+                List<PlyProperty> properties = element.properties;
+                int count = checkCount(buffer, element.count, element.bytes());
+                if (element.name.equals("vertex")) {
+                    int[] axes = new int[properties.size()];
+                    for (int p = 0; p < axes.length; ++p)
+                        axes[p] = properties.get(p).countType >= 0 ? -1
+                                : List.of("x", "y", "z").indexOf(properties.get(p).name);
+                    vertices = new double[3 * count];
+                    for (int v = 0; v < count; ++v)
+                        for (int p = 0; p < axes.length; ++p) {
+                            PlyProperty property = properties.get(p);
+                            if (property.countType >= 0)
+                                skipList(buffer, property);
+                            else if (axes[p] >= 0)
+                                vertices[3 * v + axes[p]] = read(buffer, property.type);
+                            else
+                                read(buffer, property.type);
+                        }
+                } else if (element.name.equals("face")) {
+                    indices = new int[3 * count];
+                    int[] face = new int[8];
+                    for (int f = 0; f < count; ++f)
+                        for (PlyProperty property : properties) {
+                            boolean vertexList = property.countType >= 0
+                                    && (property.name.equals("vertex_indices") || property.name.equals("vertex_index"));
+                            if (!vertexList) {
+                                if (property.countType >= 0)
+                                    skipList(buffer, property);
+                                else
+                                    read(buffer, property.type);
+                                continue;
+                            }
+                            int size = checkCount(buffer, (long) read(buffer, property.countType),
+                                    plySize(property.type));
+                            if (size > face.length)
+                                face = new int[size];
+                            for (int k = 0; k < size; ++k)
+                                face[k] = (int) read(buffer, property.type);
+                            if (indexCount + 3 * (size - 2) > indices.length)
+                                indices = Arrays.copyOf(indices, Math.max(2 * indices.length, indexCount + 3 * size));
+                            for (int k = 1; k < size - 1; ++k) {
+                                indices[indexCount++] = face[0];
+                                indices[indexCount++] = face[k];
+                                indices[indexCount++] = face[k + 1];
+                            }
+                        }
+                } else
+                    for (int i = 0; i < count; ++i)
+                        for (PlyProperty property : properties) {
+                            if (property.countType >= 0)
+                                skipList(buffer, property);
+                            else
+                                read(buffer, property.type);
+                        }
+            }
+            return Mesh.of(vertices, indexCount == indices.length ? indices : Arrays.copyOf(indices, indexCount));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            // truncated file
+            throw new IllegalArgumentException("Corrupted PLY file " + file, e);
+        }
+    }
+
+    /**
+     * Element of a PLY file - a named list of records of the same properties
+     */
+    private static class PlyElement {
+        /**
+         * name of the element
+         */
+        final String name;
+        /**
+         * amount of records
+         */
+        final int count;
+        /**
+         * properties of each record, in their order in the file
+         */
+        final List<PlyProperty> properties = new ArrayList<>();
+
+        /**
+         * constructor
+         *
+         * @param name  name of the element
+         * @param count amount of records
+         */
+        PlyElement(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+
+        /**
+         * calculates the least amount of bytes of a record, with empty lists
+         *
+         * @return amount of bytes
+         */
+        int bytes() {
+            int bytes = 0;
+            for (PlyProperty property : properties)
+                bytes += plySize(property.countType >= 0 ? property.countType : property.type);
+            return bytes;
+        }
+    }
+
+    /**
+     * Property of a PLY element
+     *
+     * @param name      name of the property
+     * @param type      type of the value, or of the list's items
+     * @param countType type of the list's length, -1 if the property is not a list
+     */
+    private record PlyProperty(String name, int type, int countType) {
+    }
+
+    /**
+     * finds the type of a PLY property by its name in the header
+     *
+     * @param name name of the type
+     * @return the type
+     */
+    private static int plyType(String name) {
+        return switch (name) {
+            case "char", "int8" -> INT8;
+            case "uchar", "uint8" -> UINT8;
+            case "short", "int16" -> INT16;
+            case "ushort", "uint16" -> UINT16;
+            case "int", "int32" -> INT32;
+            case "uint", "uint32" -> UINT32;
+            case "float", "float32" -> FLOAT32;
+            case "double", "float64" -> FLOAT64;
+            default -> throw new IllegalArgumentException("Unknown PLY type " + name);
+        };
+    }
+
+    /**
+     * finds the size of a binary PLY value
+     *
+     * @param type type of the value
+     * @return amount of bytes
+     */
+    private static int plySize(int type) {
+        return switch (type) {
+            case INT8, UINT8 -> 1;
+            case INT16, UINT16 -> 2;
+            case INT32, UINT32, FLOAT32 -> 4;
+            default -> 8;
+        };
+    }
+
+    /**
+     * checks an amount of items read from a PLY file against the rest of the file, before room is
+     * allocated for three values of each
+     *
+     * @param buffer the mapped file, positioned at the items
+     * @param count  the amount of items
+     * @param bytes  least amount of bytes of an item in the file
+     * @return the amount
+     * @throws IllegalArgumentException if the amount is negative or larger than the rest of the file holds
+     */
+    private static int checkCount(MappedByteBuffer buffer, long count, int bytes) {
+        if (count < 0 || count > buffer.remaining() / Math.max(1, bytes) || count > Integer.MAX_VALUE / 3)
+            throw new IllegalArgumentException("Wrong amount of items in PLY file");
+        return (int) count;
+    }
+
+    /**
+     * reads a binary PLY value
+     *
+     * @param buffer the mapped file, positioned at the value
+     * @param type   type of the value
+     * @return the value
+     */
+    private static double read(MappedByteBuffer buffer, int type) {
+        return switch (type) {
+            case INT8 -> buffer.get();
+            case UINT8 -> buffer.get() & 0xFF;
+            case INT16 -> buffer.getShort();
+            case UINT16 -> buffer.getShort() & 0xFFFF;
+            case INT32 -> buffer.getInt();
+            case UINT32 -> Integer.toUnsignedLong(buffer.getInt());
+            case FLOAT32 -> buffer.getFloat();
+            default -> buffer.getDouble();
+        };
+    }
+
+    /**
+     * skips a binary PLY list
+     *
+     * @param buffer   the mapped file, positioned at the list
+     * @param property the list's property
+     */
+    private static void skipList(MappedByteBuffer buffer, PlyProperty property) {
+        for (int k = (int) read(buffer, property.countType); k > 0; --k)
+            read(buffer, property.type);
+    }
+
+    /**
+     * reads a line of a PLY header
+     *
+     * @param buffer the mapped file, positioned at the line
+     * @return the line, without the line break and surrounding white space
+     */
+    private static String readLine(MappedByteBuffer buffer) {
+        StringBuilder line = new StringBuilder();
+        for (byte b = buffer.get(); b != '\n'; b = buffer.get())
+            line.append((char) b);
+        return line.toString().strip();
+    }
+
+    /**
+     * memory-maps a file for reading
+     *
+     * @param file path of the file
+     * @return the mapped file
+     * @throws IOException              if the file can not be read
+     * @throws IllegalArgumentException if the file is too large to map at once
+     */
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Mesh file " + file + " is larger than 2GB");
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
@@ -16,6 +16,13 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 
+/**
+ * Attributes of the elements of an XML scene file, parsed from the whole file into a document tree
+ *
+ * @deprecated {@link XMLSceneBuilder} streams the scene file into the scene instead, without keeping
+ * its text or attributes in memory
+ */
+@Deprecated
 public class SceneDescriptor {
 
     public Map<String, String> sceneAttributes;
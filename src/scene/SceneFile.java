@@ -0,0 +1,535 @@
+package scene;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import renderer.Camera;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary file of a scene - its attributes, materials, geometries, lights and optionally the
+ * view of a camera - for loading large scenes without parsing text. The file holds the numbers in
+ * their binary form and is memory-mapped when loaded, so every number is read directly from the
+ * mapped pages.
+ * <p>
+ * Layout (big-endian): magic and version, the scene's name, background and ambient intensity, the
+ * camera's view if saved, a table of the distinct materials, the geometries - each tagged by its type
+ * with its material's index in the table and its emission - and the lights, each tagged by its type
+ *
+ * @author Naama and Yeela
+ */
+public class SceneFile {
+    /**
+     * identifier at the head of a scene file
+     */
+    private static final int FILE_MAGIC = 0x53434E31;
+    /**
+     * version of the scene file layout
+     */
+    private static final int FILE_VERSION = 1;
+    /**
+     * size of the buffer the file is written through
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * bytes of a material's record in the materials table
+     */
+    private static final int MATERIAL_BYTES = 8 * 15 + 4;
+    /**
+     * bytes of the header common to the records of all geometries
+     */
+    private static final int GEOMETRY_BYTES = 1 + 4 + 8 * 3;
+    /**
+     * bytes of the smallest light record - a directional light's
+     */
+    private static final int LIGHT_BYTES = 1 + 8 * 6;
+    /**
+     * bytes of a point's coordinates
+     */
+    private static final int POINT_BYTES = 8 * 3;
+
+    /**
+     * geometry type tags
+     */
+    private static final byte SPHERE = 1, TRIANGLE = 2, POLYGON = 3, PLANE = 4, TUBE = 5, CYLINDER = 6;
+    /**
+     * light type tags
+     */
+    private static final byte DIRECTIONAL_LIGHT = 1, POINT_LIGHT = 2, SPOT_LIGHT = 3, RECTANGLE_LIGHT = 4,
+            DISK_LIGHT = 5, SPHERE_LIGHT = 6;
+
+    /**
+     * the loaded scene
+     */
+    private final Scene scene;
+    /**
+     * builder of a camera with the loaded view, null if no view was saved
+     */
+    private final Camera.Builder camera;
+
+    /**
+     * constructor
+     *
+     * @param scene  the loaded scene
+     * @param camera builder of a camera with the loaded view, null if no view was saved
+     */
+    private SceneFile(Scene scene, Camera.Builder camera) {
+        this.scene = scene;
+        this.camera = camera;
+    }
+
+    /**
+     * getter for the loaded scene
+     *
+     * @return the scene
+     */
+    public Scene getScene() {
+        return scene;
+    }
+
+    /**
+     * getter for the loaded camera view
+     *
+     * @return builder of a camera with the saved location, direction and view plane - the image writer
+     * and ray tracer are left to set - or null if the file holds no camera
+     */
+    public Camera.Builder getCamera() {
+        return camera;
+    }
+
+    /**
+     * Saves a scene into a binary file
+     *
+     * @param file  path of the file to write
+     * @param scene the scene
+     * @throws IOException              if the file can not be written
+     * @throws IllegalArgumentException if the scene holds a geometry or light of a type the file can
+     *                                  not describe
+     */
+    public static void save(Path file, Scene scene) throws IOException {
+        save(file, scene, null);
+    }
+
+    /**
+     * Saves a scene and the view of a camera into a binary file. Materials with equal coefficients are
+     * saved once, so geometries sharing them share a single material when loaded
+     *
+     * @param file   path of the file to write
+     * @param scene  the scene
+     * @param camera the camera whose view is saved, null for saving the scene alone
+     * @throws IOException              if the file can not be written
+     * @throws IllegalArgumentException if the scene holds a geometry or light of a type the file can
+     *                                  not describe
+     */
+    public static void save(Path file, Scene scene, Camera camera) throws IOException {
+        List<Geometry> geometries = scene.geometries.flatten();
+        Map<ByteBuffer, Integer> materials = new HashMap<>();
+        int[] materialIndexes = new int[geometries.size()];
+        int index = 0;
+        for (Geometry geometry : geometries)
+            materialIndexes[index++] = materials.computeIfAbsent(materialRecord(geometry.getMaterial()),
+                    m -> materials.size());
+        ByteBuffer[] materialTable = new ByteBuffer[materials.size()];
+        materials.forEach((record, i) -> materialTable[i] = record);
+
+        // write aside and move, so a reader never maps a partially written file
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            byte[] name = scene.name == null ? new byte[0] : scene.name.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(name.length);
+            out.write(name);
+            write(out, scene.background.getRgb());
+            write(out, scene.ambientLight.getIntensity().getRgb());
+
+            out.writeBoolean(camera != null);
+            if (camera != null) {
+                write(out, camera.getLocation());
+                write(out, camera.getVTo());
+                write(out, camera.getVUp());
+                out.writeDouble(camera.getVpWidth());
+                out.writeDouble(camera.getVpHeight());
+                out.writeDouble(camera.getVpDistance());
+            }
+
+            out.writeInt(materialTable.length);
+            for (ByteBuffer record : materialTable)
+                out.write(record.array());
+
+            out.writeInt(geometries.size());
+            index = 0;
+            for (Geometry geometry : geometries)
+                writeGeometry(out, geometry, materialIndexes[index++]);
+
+            out.writeInt(scene.lights.size());
+            for (LightSource light : scene.lights)
+                writeLight(out, light);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * creates the record of a material in the materials table, which also identifies equal materials
+     *
+     * @param material the material
+     * @return buffer holding the record
+     */
+    private static ByteBuffer materialRecord(Material material) {
+        ByteBuffer record = ByteBuffer.allocate(MATERIAL_BYTES);
+        for (Double3 k : new Double3[]{material.kD, material.kS, material.kR, material.kT})
+            record.putDouble(k.getD1()).putDouble(k.getD2()).putDouble(k.getD3());
+        record.putInt(material.nShininess).putDouble(material.glossiness).putDouble(material.blurriness)
+                .putDouble(material.ior);
+        return record.flip();
+    }
+
+    /**
+     * writes the record of a geometry: its type, material index and emission, and then the numbers
+     * defining the geometry of that type
+     *
+     * @param out      the file's stream
+     * @param geometry the geometry
+     * @param material index of the geometry's material in the materials table
+     * @throws IOException if the file can not be written
+     */
+    private static void writeGeometry(DataOutputStream out, Geometry geometry, int material) throws IOException {
+        switch (geometry) {
+            case Sphere sphere -> {
+                writeHeader(out, SPHERE, material, geometry.getEmission());
+                write(out, sphere.getCenter());
+                out.writeDouble(sphere.getRadius());
+            }
+            case Triangle triangle -> {
+                writeHeader(out, TRIANGLE, material, geometry.getEmission());
+                for (Point vertex : triangle.getVertices())
+                    write(out, vertex);
+            }
+            case Mesh.Face face -> {
+                // saved as a triangle of its own, the packing of the mesh is not kept
+                writeHeader(out, TRIANGLE, material, geometry.getEmission());
+                for (Point vertex : face.getVertices())
+                    write(out, vertex);
+            }
+            case Polygon polygon -> {
+                writeHeader(out, POLYGON, material, geometry.getEmission());
+                out.writeInt(polygon.getVertices().size());
+                for (Point vertex : polygon.getVertices())
+                    write(out, vertex);
+            }
+            case Plane plane -> {
+                writeHeader(out, PLANE, material, geometry.getEmission());
+                write(out, plane.getPoint());
+                write(out, plane.getNormal());
+            }
+            case Cylinder cylinder -> {
+                writeHeader(out, CYLINDER, material, geometry.getEmission());
+                write(out, cylinder.getAxis().getHead());
+                write(out, cylinder.getAxis().getDirection());
+                out.writeDouble(cylinder.getRadius());
+                out.writeDouble(cylinder.getHeight());
+            }
+            case Tube tube -> {
+                writeHeader(out, TUBE, material, geometry.getEmission());
+                write(out, tube.getAxis().getHead());
+                write(out, tube.getAxis().getDirection());
+                out.writeDouble(tube.getRadius());
+            }
+            default -> throw new IllegalArgumentException(
+                    "Geometry type " + geometry.getClass().getName() + " can not be saved in a scene file");
+        }
+    }
+
+    /**
+     * writes the fields common to all geometry records
+     *
+     * @param out      the file's stream
+     * @param type     type tag of the geometry
+     * @param material index of the geometry's material in the materials table
+     * @param emission emission of the geometry
+     * @throws IOException if the file can not be written
+     */
+    private static void writeHeader(DataOutputStream out, byte type, int material, Color emission) throws IOException {
+        out.writeByte(type);
+        out.writeInt(material);
+        write(out, emission.getRgb());
+    }
+
+    /**
+     * writes the record of a light: its type and intensity, and then the numbers defining the light of
+     * that type
+     *
+     * @param out   the file's stream
+     * @param light the light
+     * @throws IOException if the file can not be written
+     */
+    private static void writeLight(DataOutputStream out, LightSource light) throws IOException {
+        switch (light) {
+            case DirectionalLight directional -> {
+                out.writeByte(DIRECTIONAL_LIGHT);
+                write(out, directional.getIntensity().getRgb());
+                write(out, directional.getDirection());
+            }
+            case SpotLight spot -> {
+                writePointLight(out, SPOT_LIGHT, spot);
+                write(out, spot.getDirection());
+                out.writeDouble(spot.getNarrowBeam());
+            }
+            case RectangleLight rectangle -> {
+                writePointLight(out, RECTANGLE_LIGHT, rectangle);
+                write(out, rectangle.getWidth());
+                write(out, rectangle.getHeight());
+            }
+            case DiskLight disk -> {
+                writePointLight(out, DISK_LIGHT, disk);
+                write(out, disk.getNormal());
+                out.writeDouble(disk.getExtent());
+            }
+            case SphereLight sphere -> {
+                writePointLight(out, SPHERE_LIGHT, sphere);
+                out.writeDouble(sphere.getExtent());
+            }
+            case PointLight point when point.getClass() == PointLight.class -> writePointLight(out, POINT_LIGHT, point);
+            default -> throw new IllegalArgumentException(
+                    "Light type " + light.getClass().getName() + " can not be saved in a scene file");
+        }
+    }
+
+    /**
+     * writes the fields common to the records of all lights with a position
+     *
+     * @param out   the file's stream
+     * @param type  type tag of the light
+     * @param light the light
+     * @throws IOException if the file can not be written
+     */
+    private static void writePointLight(DataOutputStream out, byte type, PointLight light) throws IOException {
+        out.writeByte(type);
+        write(out, light.getIntensity().getRgb());
+        write(out, light.getPosition());
+        out.writeDouble(light.getkC());
+        out.writeDouble(light.getkL());
+        out.writeDouble(light.getkQ());
+    }
+
+    /**
+     * writes the coordinates of a point or vector
+     *
+     * @param out the file's stream
+     * @param p   the point
+     * @throws IOException if the file can not be written
+     */
+    private static void write(DataOutputStream out, Point p) throws IOException {
+        out.writeDouble(p.getX());
+        out.writeDouble(p.getY());
+        out.writeDouble(p.getZ());
+    }
+
+    /**
+     * writes a triad of numbers
+     *
+     * @param out the file's stream
+     * @param d   the triad
+     * @throws IOException if the file can not be written
+     */
+    private static void write(DataOutputStream out, Double3 d) throws IOException {
+        out.writeDouble(d.getD1());
+        out.writeDouble(d.getD2());
+        out.writeDouble(d.getD3());
+    }
+
+    /**
+     * Loads a scene saved by {@link #save(Path, Scene, Camera)}, memory-mapping the file
+     *
+     * @param file path of the file to read
+     * @return the loaded scene and camera view
+     * @throws IOException              if the file can not be read
+     * @throws IllegalArgumentException if the file does not hold a scene of this version
+     */
+    public static SceneFile load(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.getInt() != FILE_MAGIC || buffer.getInt() != FILE_VERSION)
+                throw new IllegalArgumentException("File does not hold a scene of this version");
+            byte[] name = new byte[readCount(buffer, 1)];
+            buffer.get(name);
+            Scene scene = new Scene(new String(name, StandardCharsets.UTF_8))
+                    .setBackground(color(buffer))
+                    .setAmbientLight(new AmbientLight(color(buffer), 1));
+
+            Camera.Builder camera = null;
+            if (buffer.get() != 0) {
+                Point location = point(buffer);
+                Vector vTo = vector(buffer), vUp = vector(buffer);
+                camera = Camera.getBuilder().setLocation(location)
+                        .setVpSize(buffer.getDouble(), buffer.getDouble()).setVpDistance(buffer.getDouble());
+                // a view aimed at a target point may be orthogonal only up to rounding
+                if (vTo.dotProduct(vUp) == 0)
+                    camera.setDirection(vTo, vUp);
+                else
+                    camera.setDirection(location.add(vTo), vUp);
+            }
+
+            Material[] materials = new Material[readCount(buffer, MATERIAL_BYTES)];
+            for (int i = 0; i < materials.length; ++i)
+                materials[i] = new Material().setkD(double3(buffer)).setkS(double3(buffer)).setkR(double3(buffer))
+                        .setkT(double3(buffer)).setnShininess(buffer.getInt()).setGlossiness(buffer.getDouble())
+                        .setBlurriness(buffer.getDouble()).setIor(buffer.getDouble());
+
+            MaterialRegistry emissions = new MaterialRegistry();
+            Geometry[] geometries = new Geometry[readCount(buffer, GEOMETRY_BYTES)];
+            for (int i = 0; i < geometries.length; ++i)
+                geometries[i] = readGeometry(buffer, materials, emissions);
+            scene.geometries.add(geometries);
+
+            List<LightSource> lights = new ArrayList<>();
+            for (int i = readCount(buffer, LIGHT_BYTES); i > 0; --i)
+                lights.add(readLight(buffer));
+            scene.setLights(lights);
+            return new SceneFile(scene, camera);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            // truncated file or material indexes out of the table
+            throw new IllegalArgumentException("Corrupted scene file " + file, e);
+        }
+    }
+
+    /**
+     * reads an amount of items and checks the rest of the file can hold them, before anything is
+     * allocated for them
+     *
+     * @param buffer the mapped file, positioned at the amount
+     * @param bytes  least amount of bytes of an item
+     * @return the amount of items
+     * @throws IllegalArgumentException if the amount is negative or larger than the rest of the file
+     */
+    private static int readCount(ByteBuffer buffer, int bytes) {
+        int count = buffer.getInt();
+        if (count < 0 || (long) count * bytes > buffer.remaining())
+            throw new IllegalArgumentException("Wrong amount of items in scene file");
+        return count;
+    }
+
+    /**
+     * reads the record of a geometry
+     *
+     * @param buffer    the mapped file, positioned at the record
+     * @param materials the materials table
+     * @param emissions registry sharing the equal emissions of the geometries
+     * @return the geometry
+     */
+    private static Geometry readGeometry(ByteBuffer buffer, Material[] materials, MaterialRegistry emissions) {
+        byte type = buffer.get();
+        Material material = materials[buffer.getInt()];
+        Color emission = emissions.intern(color(buffer));
+        Geometry geometry = switch (type) {
+            case SPHERE -> new Sphere(point(buffer), buffer.getDouble());
+            case TRIANGLE -> new Triangle(point(buffer), point(buffer), point(buffer));
+            case POLYGON -> {
+                Point[] vertices = new Point[readCount(buffer, POINT_BYTES)];
+                for (int i = 0; i < vertices.length; ++i)
+                    vertices[i] = point(buffer);
+                yield new Polygon(vertices);
+            }
+            case PLANE -> new Plane(point(buffer), vector(buffer));
+            case TUBE -> {
+                Ray axis = new Ray(point(buffer), vector(buffer));
+                yield new Tube(buffer.getDouble(), axis);
+            }
+            case CYLINDER -> {
+                Ray axis = new Ray(point(buffer), vector(buffer));
+                double radius = buffer.getDouble();
+                yield new Cylinder(radius, axis, buffer.getDouble());
+            }
+            default -> throw new IllegalArgumentException("Unknown geometry type " + type + " in scene file");
+        };
+        return geometry.setEmission(emission).setMaterial(material);
+    }
+
+    /**
+     * reads the record of a light
+     *
+     * @param buffer the mapped file, positioned at the record
+     * @return the light
+     */
+    private static LightSource readLight(ByteBuffer buffer) {
+        byte type = buffer.get();
+        Color intensity = color(buffer);
+        if (type == DIRECTIONAL_LIGHT)
+            return new DirectionalLight(intensity, vector(buffer));
+
+        Point position = point(buffer);
+        double kC = buffer.getDouble(), kL = buffer.getDouble(), kQ = buffer.getDouble();
+        PointLight light = switch (type) {
+            case POINT_LIGHT -> new PointLight(intensity, position);
+            case SPOT_LIGHT -> new SpotLight(intensity, position, vector(buffer)).setNarrowBeam(buffer.getDouble());
+            case RECTANGLE_LIGHT -> new RectangleLight(intensity, position, vector(buffer), vector(buffer));
+            case DISK_LIGHT -> new DiskLight(intensity, position, vector(buffer), buffer.getDouble());
+            case SPHERE_LIGHT -> new SphereLight(intensity, position, buffer.getDouble());
+            default -> throw new IllegalArgumentException("Unknown light type " + type + " in scene file");
+        };
+        return light.setkC(kC).setkL(kL).setkQ(kQ);
+    }
+
+    /**
+     * reads a triad of numbers
+     *
+     * @param buffer the mapped file
+     * @return the triad
+     */
+    private static Double3 double3(ByteBuffer buffer) {
+        return new Double3(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+    }
+
+    /**
+     * reads a color
+     *
+     * @param buffer the mapped file
+     * @return the color
+     */
+    private static Color color(ByteBuffer buffer) {
+        return new Color(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+    }
+
+    /**
+     * reads a point
+     *
+     * @param buffer the mapped file
+     * @return the point
+     */
+    private static Point point(ByteBuffer buffer) {
+        return new Point(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+    }
+
+    /**
+     * reads a vector
+     *
+     * @param buffer the mapped file
+     * @return the vector
+     */
+    private static Vector vector(ByteBuffer buffer) {
+        return new Vector(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+    }
+}
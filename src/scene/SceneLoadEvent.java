@@ -0,0 +1,35 @@
+package scene;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of loading a scene file, from reading it to its geometries being constructed and
+ * their acceleration structure built or restored
+ *
+ * @author Naama and Yeela
+ */
+@Name("raytracer.SceneLoad")
+@Label("Scene Load")
+@Category("Ray Tracer")
+@Description("Loading a scene file")
+class SceneLoadEvent extends Event {
+    /**
+     * path of the scene file
+     */
+    @Label("File")
+    String file;
+    /**
+     * amount of geometries loaded
+     */
+    @Label("Geometries")
+    int geometries;
+    /**
+     * amount of lights loaded
+     */
+    @Label("Lights")
+    int lights;
+}
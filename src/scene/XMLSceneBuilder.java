@@ -1,206 +1,481 @@
 package scene;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import geometries.*;
 import lighting.*;
 import primitives.*;
 
 public class XMLSceneBuilder {
-    SceneDescriptor sceneDesc;
+    /**
+     * size of the buffer the scene file is read through
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * amount of geometry elements constructed together by a parallel task
+     */
+    private static final int BATCH_SIZE = 1024;
+    /**
+     * names of the elements of geometries
+     */
+    private static final Set<String> GEOMETRY_ELEMENTS = Set.of("sphere", "triangle", "polygon", "plane");
+    /**
+     * time of loading scene files, in the metrics registry
+     */
+    private static final LongAdder LOAD_TIME = Metrics.counter("time.sceneLoad");
+
     Scene scene;
     String filePath;
+    /**
+     * directory of cached acceleration structures, null for building them on every load
+     */
+    File cacheDirectory;
+    /**
+     * registry sharing identical materials and emissions among the geometries, and holding the named
+     * materials the geometry elements may reference
+     */
+    MaterialRegistry materials = new MaterialRegistry();
 
     public XMLSceneBuilder(String sceneName) {
         scene = new Scene(sceneName);
-        sceneDesc = new SceneDescriptor();
     }
 
     /**
-     * Parses a map of strings and adds to the scene's geometries and lights and
-     * attributes
+     * setter for the cache directory (builder pattern style). When set, the scene's bounding volume
+     * hierarchy is saved there keyed by a hash of the XML content, and restored instead of rebuilt
+     * when an unchanged scene is loaded again
+     *
+     * @param cacheDirectory directory of cached acceleration structures
+     * @return this instance of object
+     */
+    public XMLSceneBuilder setCacheDirectory(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+        return this;
+    }
+
+    /**
+     * setter for the material registry (builder pattern style), for sharing materials among several
+     * loaded scenes or referencing materials defined in code from the file
+     *
+     * @param materials the material registry
+     * @return this instance of object
+     */
+    public XMLSceneBuilder setMaterialRegistry(MaterialRegistry materials) {
+        this.materials = materials;
+        return this;
+    }
+
+    /**
+     * Loads the scene's geometries, lights and attributes from an XML file. The file is streamed: each
+     * element is read as soon as it is reached, so only the scene itself is kept in memory and not the
+     * file's text or a document tree of it. Geometry elements are collected in batches which are
+     * constructed in parallel while the file is still read, and added to the scene in the file's order
      *
      * @param xmlFile the xml file to load the scene from
+     * @return the scene
+     * @throws IllegalArgumentException if the file is not valid XML, or an element describes an invalid
+     *                                  geometry or light
+     * @throws UncheckedIOException     if the file can not be read
      */
     public Scene loadSceneFromFile(File xmlFile) {
-        // extract the text from the XML file
+        SceneLoadEvent event = new SceneLoadEvent();
+        event.begin();
+        long start = System.nanoTime();
         filePath = xmlFile.getAbsolutePath();
-        try {
-            String xmlString = Files.readString(Paths.get(filePath));
-            sceneDesc.initializeFromXMLstring(xmlString);
-            // create the scene from the fields of the SceneDescriptor
-            // adding ambient light (map<String, String>)
-            // adding background color (map<String, String>)
-            var ambience = parser(sceneDesc.ambientLightAttributes);
-            if (ambience.containsKey("color")) {
-                var ambientC = ambience.get("color");
-                scene.setAmbientLight(new AmbientLight(new Color(ambientC.get(0), ambientC.get(1), ambientC.get(2)),
-                        ambience.get("k").get(0)));
-            }
-
-            var backColor = parser(sceneDesc.sceneAttributes).get("background-color");
-            if (backColor != null)
-                scene.setBackground(new Color(backColor.get(0), backColor.get(1), backColor.get(2)));
-
-            // adding spheres (list<map<String, String>>)
-            for (Map<String, String> sphereMap : sceneDesc.spheres) {
-                Map<String, List<Double>> sphere = parser(sphereMap);
-                var spherePoints = sphere.get("center");
-                Sphere s = new Sphere(new Point(spherePoints.get(0), spherePoints.get(1), spherePoints.get(2)),sphere.get("radius").get(0));
-                if (sphere.containsKey("emission")) {
-                    var color = sphere.get("emission");
-                    s.setEmission(new Color(color.get(0), color.get(1), color.get(2)));
+        // the parser reads the file to its end, so the digest covers all of it
+        MessageDigest digest = newDigest();
+        // batches still constructed, at most a few per thread so the reading does not run far ahead
+        Deque<CompletableFuture<Geometry[]>> pending = new ArrayDeque<>();
+        int maxPending = 2 * ForkJoinPool.getCommonPoolParallelism();
+        try (InputStream in = new DigestInputStream(
+                new BufferedInputStream(Files.newInputStream(Path.of(filePath)), BUFFER_SIZE), digest)) {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                List<Element> batch = new ArrayList<>(BATCH_SIZE);
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT)
+                        continue;
+                    Element element = new Element(reader);
+                    if (!GEOMETRY_ELEMENTS.contains(element.name)) {
+                        readElement(element);
+                        continue;
+                    }
+                    // a named material is resolved while reading, after the definitions before it in the file
+                    String material = element.get("material");
+                    if (material != null)
+                        element.material = materials.get(material);
+                    batch.add(element);
+                    if (batch.size() == BATCH_SIZE) {
+                        pending.add(constructAsync(batch));
+                        batch = new ArrayList<>(BATCH_SIZE);
+                        while (pending.size() > maxPending)
+                            scene.geometries.add(pending.poll().join());
+                    }
                 }
-                s.setMaterial(parseMaterial(sphereMap));
-                scene.geometries.add(s);
-            }
-            // adding triangles (list<map<String, String>>)
-            for (Map<String, String> triangleMap : sceneDesc.triangles) {
-                List<Point> points = polygonParser(triangleMap);
-                Triangle triangle = new Triangle(points.get(0), points.get(1), points.get(2));
-                var color = parser(triangleMap).get("emission");
-                if (color != null)
-                    triangle.setEmission(new Color(color.get(0), color.get(1), color.get(2)));
-                triangle.setMaterial(parseMaterial(triangleMap));
-                scene.geometries.add(triangle);
+                if (!batch.isEmpty())
+                    pending.add(constructAsync(batch));
+            } finally {
+                reader.close();
             }
 
-            // adding polygons (list<map<String, String>>)
-            for (Map<String, String> polygonMap : sceneDesc.polygons) {
-                Polygon polygon = new Polygon(polygonParser(polygonMap).toArray(new Point[0]));
-                polygon.setMaterial(parseMaterial(polygonMap));
-                scene.geometries.add(polygon);
-            }
+            while (!pending.isEmpty())
+                scene.geometries.add(pending.poll().join());
 
-            // adding directional lights (list<map<String, String>>)
+            if (cacheDirectory != null)
+                loadAccelerationStructure(HexFormat.of().formatHex(digest.digest()));
 
-            for (Map<String, String> directionalLightsMap : sceneDesc.directionalLights) {
-                Map<String, List<Double>> directional = parser(directionalLightsMap);
-                var color = directional.get("color");
-                var dir = directional.get("direction");
-                scene.lights.add(new DirectionalLight(new Color(color.get(0), color.get(1), color.get(2)),
-                        new Vector(dir.get(0), dir.get(1), dir.get(2))));
-            }
+        } catch (IOException e) {
+            // a partial scene and the digest of part of the file are not kept, nor matched with a cache
+            throw new UncheckedIOException("Can not read scene file " + filePath, e);
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Scene file " + filePath + " is not a valid XML file", e);
+        } catch (CompletionException e) {
+            // an invalid geometry is reported as if it was constructed by the reading thread
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        }
+        LOAD_TIME.add(System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = filePath;
+            event.geometries = scene.geometries.flatten().size();
+            event.lights = scene.lights.size();
+            event.commit();
+        }
+        return scene;
+    }
 
-            // adding point lights (list<map<String, String>>)
-            for (Map<String, String> pointLightsMap : sceneDesc.pointLights) {
-                Map<String, List<Double>> point = parser(pointLightsMap);
-                var color = point.get("color");
-                var pos = point.get("position");
-                PointLight pl = new PointLight(new Color(color.get(0), color.get(1), color.get(2)),
-                        new Point(pos.get(0), pos.get(1), pos.get(2)));
-                updateAttenuationFactors(pl, point);
-                scene.lights.add(pl);
+    /**
+     * Element of the scene file - its name and attributes, copied from the reader so it can be turned
+     * into its geometry or light after the reader moved on
+     */
+    private static class Element {
+        /**
+         * name of the element
+         */
+        final String name;
+        /**
+         * names and values of the attributes, alternately
+         */
+        private final String[] attributes;
+        /**
+         * the named material a geometry element references, null for none
+         */
+        Material material = null;
 
+        /**
+         * constructor
+         *
+         * @param reader reader positioned at the start of the element
+         */
+        Element(XMLStreamReader reader) {
+            name = reader.getLocalName();
+            attributes = new String[2 * reader.getAttributeCount()];
+            for (int i = 0; i < reader.getAttributeCount(); ++i) {
+                attributes[2 * i] = reader.getAttributeLocalName(i);
+                attributes[2 * i + 1] = reader.getAttributeValue(i);
             }
+        }
 
-            // adding spot lights (list<map<String, String>>)
-            for (Map<String, String> spotLightsMap : sceneDesc.spotLights) {
-                Map<String, List<Double>> spot = parser(spotLightsMap);
-                var color = spot.get("color");
-                var pos = spot.get("position");
-                var dir = spot.get("direction");
-                SpotLight spotL = new SpotLight(new Color(color.get(0), color.get(1), color.get(2)),
-                        new Point(pos.get(0), pos.get(1), pos.get(2)), new Vector(dir.get(0), dir.get(1), dir.get(2)));
-                updateAttenuationFactors(spotL, spot);
+        /**
+         * getter for the value of an attribute
+         *
+         * @param attribute name of the attribute
+         * @return the value, null if the element has no such attribute
+         */
+        String get(String attribute) {
+            for (int i = 0; i < attributes.length; i += 2)
+                if (attributes[i].equals(attribute))
+                    return attributes[i + 1];
+            return null;
+        }
+    }
+
+    /**
+     * starts constructing the geometries of a batch of elements in parallel to the reading. On a single
+     * processor there is nothing to overlap, and the batch is constructed by the reading thread
+     *
+     * @param batch the geometry elements
+     * @return the geometries, in the order of their elements
+     */
+    private CompletableFuture<Geometry[]> constructAsync(List<Element> batch) {
+        if (Runtime.getRuntime().availableProcessors() < 2)
+            return CompletableFuture.completedFuture(construct(batch));
+        return CompletableFuture.supplyAsync(() -> construct(batch), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * constructs the geometries of a batch of elements
+     *
+     * @param batch the geometry elements
+     * @return the geometries, in the order of their elements
+     */
+    private Geometry[] construct(List<Element> batch) {
+        Geometry[] geometries = new Geometry[batch.size()];
+        for (int i = 0; i < geometries.length; ++i)
+            geometries[i] = geometry(batch.get(i));
+        return geometries;
+    }
+
+    /**
+     * adds the scene attribute, named material or light of an element to the scene. Elements of other
+     * names (e.g. the geometries group) only hold the elements inside them, which are read next
+     *
+     * @param element the element
+     */
+    private void readElement(Element element) {
+        switch (element.name) {
+            case "scene" -> {
+                double[] color = numbers(element, "background-color");
+                if (color != null)
+                    scene.setBackground(new Color(color[0], color[1], color[2]));
+            }
+            case "ambient-light" -> {
+                double[] color = numbers(element, "color");
+                if (color != null)
+                    scene.setAmbientLight(new AmbientLight(new Color(color[0], color[1], color[2]),
+                            numbers(element, "k")[0]));
+            }
+            case "material" -> {
+                String name = element.get("name");
+                if (name == null)
+                    throw new IllegalArgumentException("Material element must have a name");
+                materials.define(name, parseMaterial(element, new Material()));
+            }
+            case "directional-light" -> scene.lights.add(
+                    new DirectionalLight(color(element, "color"), vector(element, "direction")));
+            case "point-light" -> {
+                PointLight pl = new PointLight(color(element, "color"), point(element, "position"));
+                updateAttenuationFactors(pl, element);
+                scene.lights.add(pl);
+            }
+            case "spot-light" -> {
+                SpotLight spotL = new SpotLight(color(element, "color"), point(element, "position"),
+                        vector(element, "direction"));
+                updateAttenuationFactors(spotL, element);
                 scene.lights.add(spotL);
             }
+            default -> {
+            }
+        }
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * constructs the geometry of an element, with the emission and material of its attributes - the
+     * material it references by name, with the material attributes of the element overriding it - shared
+     * with the other geometries of identical ones
+     *
+     * @param element the geometry's element
+     * @return the geometry
+     */
+    private Geometry geometry(Element element) {
+        Geometry geometry = switch (element.name) {
+            case "sphere" -> new Sphere(point(element, "center"), numbers(element, "radius")[0]);
+            case "triangle" -> new Triangle(point(element, "p0"), point(element, "p1"), point(element, "p2"));
+            case "polygon" -> new Polygon(vertices(element));
+            case "plane" -> new Plane(point(element, "p"), vector(element, "normal"));
+            default -> throw new IllegalArgumentException("Unknown geometry element " + element.name);
+        };
+        Color emission = color(element, "emission");
+        if (emission != null)
+            geometry.setEmission(materials.intern(emission));
+        Material base = element.material == null ? new Material() : element.material;
+        return geometry.setMaterial(materials.intern(parseMaterial(element, base)));
+    }
+
+    /**
+     * restores the scene's bounding volume hierarchy from the cache directory, or builds and caches it
+     * if this scene content was not cached yet
+     *
+     * @param contentHash hash of the content of the scene file
+     * @throws IOException if the cache directory can not be used
+     */
+    private void loadAccelerationStructure(String contentHash) throws IOException {
+        Path cacheFile = cacheDirectory.toPath().resolve(contentHash + ".bvh");
+        if (Files.exists(cacheFile)) {
+            try {
+                scene.geometries.loadBVH(cacheFile);
+                return;
+            } catch (IllegalArgumentException e) {
+                // stale or corrupted cache file - rebuild and overwrite it
+            }
         }
-        return scene;
+        Files.createDirectories(cacheDirectory.toPath());
+        scene.geometries.buildBVH().saveBVH(cacheFile);
     }
 
     /**
-     * parses polygon attributes to a list of points
+     * creates the digest hashing the scene content, identifying it in the cache
      *
-     * @param polygonMap map of polygon attributes
-     * @return list of points
-     */
-    private List<Point> polygonParser(Map<String, String> polygonMap) {
-        Map<String, List<Double>> polygon = parser(polygonMap);
-        List<Point> points = new LinkedList<>();
-        // length is the number of points in the polygon (elements that start with "p")
-        // there can be optional material / emission attributes
-        int length;
-        for (length = 0; polygon.containsKey("p" + String.valueOf(length)); ++length)
-            ;
-        for (int i = 0; i < length; ++i) {
-            var point = polygon.get("p" + String.valueOf(i));
-            points.add(new Point(point.get(0), point.get(1), point.get(2)));
+     * @return SHA-256 digest
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
         }
-        return points;
     }
 
     /**
-     * parses map of attributes to a map of attributes to a list of doubles
+     * parses the vertices of a polygon from the attributes p0, p1, ... of its element
+     *
+     * @param element the polygon's element
+     * @return the vertices
+     */
+    private static Point[] vertices(Element element) {
+        List<Point> points = new ArrayList<>();
+        for (Point p = point(element, "p0"); p != null; p = point(element, "p" + points.size()))
+            points.add(p);
+        return points.toArray(new Point[0]);
+    }
+
+    /**
+     * parses an attribute of three numbers to a point
      *
-     * @param map map of attributes
-     * @return map of attributes to a list of doubles
-     */
-    private Map<String, List<Double>> parser(Map<String, String> map) {
-        Map<String, List<Double>> attributes = new HashMap<String, List<Double>>();
-        for (Map.Entry<String, String> entry : map.entrySet()) {
-            List<Double> values = new ArrayList<>();
-            for (String s : entry.getValue().split(" "))
-                values.add(Double.parseDouble(s));
-            attributes.put(entry.getKey(), values);
+     * @param element the element
+     * @param name    name of the attribute
+     * @return the point, null if the element has no such attribute
+     */
+    private static Point point(Element element, String name) {
+        double[] xyz = numbers(element, name);
+        return xyz == null ? null : new Point(xyz[0], xyz[1], xyz[2]);
+    }
+
+    /**
+     * parses an attribute of three numbers to a vector
+     *
+     * @param element the element
+     * @param name    name of the attribute
+     * @return the vector
+     */
+    private static Vector vector(Element element, String name) {
+        double[] xyz = numbers(element, name);
+        return new Vector(xyz[0], xyz[1], xyz[2]);
+    }
+
+    /**
+     * parses an attribute of three numbers to a color
+     *
+     * @param element the element
+     * @param name    name of the attribute
+     * @return the color, null if the element has no such attribute
+     */
+    private static Color color(Element element, String name) {
+        double[] rgb = numbers(element, name);
+        return rgb == null ? null : new Color(rgb[0], rgb[1], rgb[2]);
+    }
+
+    /**
+     * parses an attribute of numbers separated by spaces
+     *
+     * @param element the element
+     * @param name    name of the attribute
+     * @return the numbers, null if the element has no such attribute
+     */
+    private static double[] numbers(Element element, String name) {
+        String value = element.get(name);
+        if (value == null)
+            return null;
+        double[] numbers = new double[3];
+        int count = 0;
+        for (int i = 0, length = value.length(); i < length; ) {
+            while (i < length && Character.isWhitespace(value.charAt(i)))
+                ++i;
+            int start = i;
+            while (i < length && !Character.isWhitespace(value.charAt(i)))
+                ++i;
+            if (start == i)
+                break;
+            if (count == numbers.length)
+                numbers = Arrays.copyOf(numbers, 2 * count);
+            numbers[count++] = Double.parseDouble(value.substring(start, i));
         }
-        return attributes;
+        return count == numbers.length ? numbers : Arrays.copyOf(numbers, count);
     }
 
     /**
-     * parses map of attributes to a material
+     * parses the material attributes of an element
      *
-     * @param map map of attributes
+     * @param element the element
+     * @param base    material whose values are kept for the attributes the element does not have
      * @return material
      */
-    private Material parseMaterial(Map<String, String> map) {
-        Material material = new Material();
-        Map<String, List<Double>> attributes = parser(map);
-        if (attributes == null)
-            return null;
-        var kD = attributes.get("kD");
+    private static Material parseMaterial(Element element, Material base) {
+        Material material = new Material().setkD(base.kD).setkS(base.kS).setkR(base.kR).setkT(base.kT)
+                .setnShininess(base.nShininess).setGlossiness(base.glossiness).setBlurriness(base.blurriness)
+                .setIor(base.ior);
+        double[] kD = numbers(element, "kD");
         if (kD != null)
-            material.setkD(kD.get(0));
-        var kS = attributes.get("kS");
+            material.setkD(kD[0]);
+        double[] kS = numbers(element, "kS");
         if (kS != null)
-            material.setkS(kS.get(0));
-        var kR = attributes.get("kR");
+            material.setkS(kS[0]);
+        double[] kR = numbers(element, "kR");
         if (kR != null)
-            material.setkR(kR.get(0));
-        var kT = attributes.get("kT");
+            material.setkR(kR[0]);
+        double[] kT = numbers(element, "kT");
         if (kT != null)
-            material.setkT(kT.get(0));
-        var nShininess = attributes.get("nShininess");
+            material.setkT(kT[0]);
+        double[] nShininess = numbers(element, "nShininess");
         if (nShininess != null)
-            material.setnShininess((int) Math.round(nShininess.get(0)));
+            material.setnShininess((int) Math.round(nShininess[0]));
+        double[] glossiness = numbers(element, "glossiness");
+        if (glossiness != null)
+            material.setGlossiness(glossiness[0]);
+        double[] blurriness = numbers(element, "blurriness");
+        if (blurriness != null)
+            material.setBlurriness(blurriness[0]);
+        double[] ior = numbers(element, "ior");
+        if (ior != null)
+            material.setIor(ior[0]);
         return material;
     }
 
     /**
      * updates attenuation factors of a light source
      * @param pl light of sort PointLight
-     * @param attributes attenuation factors
+     * @param element the light's element
      */
-    private void updateAttenuationFactors(PointLight pl, Map<String, List<Double>> attributes) {
-        var kC = attributes.get("kC");
+    private static void updateAttenuationFactors(PointLight pl, Element element) {
+        double[] kC = numbers(element, "kC");
         if (kC != null)
-            pl.setkC(kC.get(0));
-        var kL = attributes.get("kL");
+            pl.setkC(kC[0]);
+        double[] kL = numbers(element, "kL");
         if (kL != null)
-            pl.setkL(kL.get(0));
-        var kQ = attributes.get("kQ");
+            pl.setkL(kL[0]);
+        double[] kQ = numbers(element, "kQ");
         if (kQ != null)
-            pl.setkQ(kQ.get(0));
+            pl.setkQ(kQ[0]);
     }
 }
@@ -0,0 +1,163 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.BVH class
+ */
+class BVHTest {
+
+    /**
+     * Creates a row of spheres along the x axis
+     *
+     * @param amount amount of spheres
+     * @return the spheres
+     */
+    private List<Intersectable> row(int amount) {
+        List<Intersectable> spheres = new LinkedList<>();
+        for (int i = 0; i < amount; ++i)
+            spheres.add(new Sphere(new Point(3 * i, 0, 0), 1d));
+        return spheres;
+    }
+
+    /**
+     * Sorts points by their distance from the ray head, for comparing intersections found in any order
+     *
+     * @param points the points
+     * @param ray    the ray
+     * @return sorted points
+     */
+    private List<Point> sorted(List<Point> points, Ray ray) {
+        return points == null ? null
+                : points.stream().sorted(Comparator.comparingDouble(p -> p.distance(ray.getHead()))).toList();
+    }
+
+    /**
+     * Test method for {@link geometries.BVH#findIntersections(primitives.Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        List<Intersectable> spheres = row(20);
+        Plane plane = new Plane(new Point(0, 0, -5), new Vector(0, 0, 1));
+        spheres.add(plane);
+        Geometries geometries = new Geometries(spheres.toArray(new Intersectable[0]));
+        BVH bvh = new BVH(spheres);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: ray along the row hits all the spheres, same as the plain list
+        Ray ray = new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0));
+        assertEquals(40, bvh.findIntersections(ray).size(), "Wrong number of points");
+        assertEquals(sorted(geometries.findIntersections(ray), ray), sorted(bvh.findIntersections(ray), ray),
+                "Wrong intersection points");
+
+        // TC02: ray crossing a single sphere and the plane
+        ray = new Ray(new Point(9, 0, 5), new Vector(0, 0, -1));
+        assertEquals(List.of(new Point(9, 0, 1), new Point(9, 0, -1), new Point(9, 0, -5)),
+                sorted(bvh.findIntersections(ray), ray), "Wrong intersection points");
+
+        // TC03: ray missing all the bounded geometries
+        ray = new Ray(new Point(0, 5, 0), new Vector(1, 0, 0));
+        assertNull(bvh.findIntersections(ray), "Ray should not intersect");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the hierarchy is limited by maximal distance
+        ray = new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0));
+        assertEquals(4, bvh.findGeoIntersections(ray, 9.5).size(), "Wrong number of points");
+
+        // TC12: empty hierarchy
+        assertNull(new BVH().findIntersections(ray), "Empty hierarchy has no intersections");
+    }
+
+    /**
+     * Test method for {@link geometries.BVH#refit()}.
+     */
+    @Test
+    void testRefit() {
+        List<Intersectable> spheres = row(20);
+        BVH bvh = new BVH(spheres).setRebuildThreshold(1000);
+        Ray ray = new Ray(new Point(30, 10, 5), new Vector(0, 0, -1));
+        assertNull(bvh.findIntersections(ray), "Ray should not intersect before moving");
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a moved sphere is found after refit without rebuilding
+        ((Sphere) spheres.get(10)).move(new Vector(0, 10, 0));
+        bvh.refit();
+        assertEquals(1, bvh.getRebuilds(), "Refit should not rebuild");
+        assertEquals(List.of(new Point(30, 10, 1), new Point(30, 10, -1)), sorted(bvh.findIntersections(ray), ray),
+                "Moved sphere not found after refit");
+
+        // TC02: mirroring half of the row mixes far geometries in every leaf and triggers a rebuild
+        bvh.setRebuildThreshold(1.5);
+        for (int i = 0; i < spheres.size(); i += 2)
+            ((Sphere) spheres.get(i)).move(new Vector(57 - 6 * i, 0, 0));
+        bvh.refit();
+        assertEquals(2, bvh.getRebuilds(), "Degraded hierarchy should be rebuilt");
+        assertEquals(4, bvh.findIntersections(new Ray(new Point(57, 0, 5), new Vector(0, 0, -1))).size(),
+                "Moved sphere not found after rebuild");
+    }
+
+    /**
+     * Test method for {@link geometries.BVH#load(java.nio.file.Path, java.util.List)}.
+     */
+    @Test
+    void testSaveLoad() throws IOException {
+        List<Intersectable> spheres = row(20);
+        spheres.add(new Plane(new Point(0, 0, -5), new Vector(0, 0, 1)));
+        BVH bvh = new BVH(spheres);
+        Path file = Files.createTempFile("bvh", ".bvh");
+        try {
+            bvh.save(file, spheres);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: restored hierarchy finds the same intersections without building
+            BVH loaded = BVH.load(file, spheres);
+            assertEquals(0, loaded.getRebuilds(), "Restored hierarchy should not be built");
+            assertEquals(bvh.getNodeCount(), loaded.getNodeCount(), "Wrong number of nodes");
+            Ray ray = new Ray(new Point(-5, 0, 0), new Vector(1, 0, -0.1));
+            assertEquals(sorted(bvh.findIntersections(ray), ray), sorted(loaded.findIntersections(ray), ray),
+                    "Wrong intersection points");
+
+            // =============== Boundary Values Tests ==================
+            // TC11: file saved for other geometries is rejected
+            assertThrows(IllegalArgumentException.class, () -> BVH.load(file, row(5)),
+                    "Hierarchy of other geometries should be rejected");
+            // TC12: corrupted amount of nodes is rejected before allocating
+            byte[] saved = Files.readAllBytes(file);
+            // header, the plane's index and the 20 spheres' indexes come before the amount of nodes
+            int nodes = 4 * (4 + 1 + 1 + 20);
+            Files.write(file, ByteBuffer.wrap(saved.clone()).putInt(nodes, -1).array());
+            assertThrows(IllegalArgumentException.class, () -> BVH.load(file, spheres),
+                    "Negative amount of nodes should be rejected");
+            Files.write(file, ByteBuffer.wrap(saved.clone()).putInt(nodes, Integer.MAX_VALUE).array());
+            assertThrows(IllegalArgumentException.class, () -> BVH.load(file, spheres),
+                    "Amount of nodes beyond the file should be rejected");
+            // TC13: a child index which does not follow its parent is rejected
+            Files.write(file, ByteBuffer.wrap(saved.clone()).putInt(nodes + 12, 0).array());
+            assertThrows(IllegalArgumentException.class, () -> BVH.load(file, spheres),
+                    "Cyclic child index should be rejected");
+            // TC14: a leaf beyond the geometries is rejected
+            Files.write(file, ByteBuffer.wrap(saved.clone()).putInt(nodes + 16, 1000).array());
+            assertThrows(IllegalArgumentException.class, () -> BVH.load(file, spheres),
+                    "Leaf beyond the geometries should be rejected");
+            // TC15: a geometry listed twice, and so another one missing, is rejected
+            int primitives = 4 * (4 + 1 + 1);
+            Files.write(file, ByteBuffer.wrap(saved.clone())
+                    .putInt(primitives + 4, ByteBuffer.wrap(saved).getInt(primitives)).array());
+            assertThrows(IllegalArgumentException.class, () -> BVH.load(file, spheres),
+                    "Geometry listed twice should be rejected");
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -59,4 +59,23 @@ class GeometriesTest {
 
 
     }
+
+    /**
+     * Test method for {@link geometries.Geometries#flatten()}.
+     */
+    @Test
+    void testFlatten() {
+        Plane plane = new Plane(new Point(5, 2, 2), new Vector(1, 0, 0));
+        Sphere sphere = new Sphere(new Point(2, 0, 0), 1d);
+        Triangle triangle = new Triangle(new Point(4, -2, -1), new Point(4, 2, -1), new Point(4, 0, 1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: geometries of nested composites are collected too
+        Geometries geometries = new Geometries(sphere, new Geometries(triangle, new Geometries(plane)));
+        assertEquals(List.of(sphere, triangle, plane), geometries.flatten(), "Wrong geometries");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: empty composite
+        assertEquals(List.of(), new Geometries().flatten(), "Empty composite has no geometries");
+    }
 }
\ No newline at end of file
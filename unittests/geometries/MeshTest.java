@@ -0,0 +1,121 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.Mesh class
+ */
+class MeshTest {
+    /**
+     * a unit square in the plane z = 0, split into two faces, and a degenerate face
+     */
+    private final Mesh mesh = Mesh.of(new double[]{0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0, 2, 0, 0},
+            new int[]{0, 1, 2, 0, 2, 3, 0, 1, 4});
+
+    /**
+     * Test method for {@link geometries.Mesh#of(double[], int[])}.
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: degenerate faces are dropped
+        assertEquals(5, mesh.getVertexCount(), "Wrong number of vertices");
+        assertEquals(2, mesh.getFaceCount(), "Degenerate face should be dropped");
+        assertEquals(List.of(new Point(0, 0, 0), new Point(1, 1, 0), new Point(0, 1, 0)),
+                mesh.getFace(1).getVertices(), "Wrong vertices of a face");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: index of a missing vertex
+        assertThrows(IllegalArgumentException.class, () -> Mesh.of(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0},
+                new int[]{0, 1, 3}), "Face of a missing vertex should be rejected");
+        // TC12: incomplete triple
+        assertThrows(IllegalArgumentException.class, () -> Mesh.of(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0},
+                new int[]{0, 1}), "Incomplete face should be rejected");
+    }
+
+    /**
+     * Test method for {@link geometries.Mesh.Face#getNormal(primitives.Point)}.
+     */
+    @Test
+    void testGetNormal() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: normal of the face's plane, as a triangle of the same vertices
+        assertEquals(new Triangle(new Point(0, 0, 0), new Point(1, 0, 0), new Point(1, 1, 0))
+                        .getNormal(new Point(0.7, 0.2, 0)),
+                mesh.getFace(0).getNormal(new Point(0.7, 0.2, 0)), "Bad normal to face");
+    }
+
+    /**
+     * Test method for {@link geometries.Mesh#findGeoIntersections(primitives.Ray, double)}.
+     */
+    @Test
+    void testFindGeoIntersections() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: ray through the second face
+        List<Intersectable.GeoPoint> result = mesh.findGeoIntersections(
+                new Ray(new Point(0.2, 0.7, 1), new Vector(0, 0, -1)));
+        assertEquals(1, result.size(), "Wrong number of points");
+        assertSame(mesh.getFace(1), result.getFirst().geometry, "Wrong face");
+        assertEquals(new Point(0.2, 0.7, 0), result.getFirst().point, "Wrong point");
+
+        // TC02: ray outside the mesh
+        assertNull(mesh.findGeoIntersections(new Ray(new Point(1.5, 0.5, 1), new Vector(0, 0, -1))),
+                "Ray should miss the mesh");
+
+        // TC03: ray pointing away from the mesh
+        assertNull(mesh.findGeoIntersections(new Ray(new Point(0.2, 0.7, 1), new Vector(0, 0, 1))),
+                "Ray should miss the mesh");
+
+        // TC04: the mesh beyond the maximal distance
+        assertNull(mesh.findGeoIntersections(new Ray(new Point(0.2, 0.7, 1), new Vector(0, 0, -1)), 0.5),
+                "Point beyond the distance should not be found");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: ray through the edge shared by the faces, which is on neither, as for triangles
+        assertNull(mesh.findGeoIntersections(new Ray(new Point(0.5, 0.5, 1), new Vector(0, 0, -1))),
+                "Edge should not be intersected");
+
+        // TC12: ray parallel to the mesh
+        assertNull(mesh.findGeoIntersections(new Ray(new Point(-1, 0.5, 0), new Vector(1, 0, 0))),
+                "Parallel ray should miss the mesh");
+
+        // TC13: intersections follow the mesh when it moves
+        mesh.move(new Vector(0, 0, -2));
+        assertEquals(new Point(0.2, 0.7, -2),
+                mesh.findGeoIntersections(new Ray(new Point(0.2, 0.7, 1), new Vector(0, 0, -1))).getFirst().point,
+                "Wrong point after moving");
+    }
+
+    /**
+     * Test method for {@link geometries.Mesh.Face#move(primitives.Vector)}.
+     */
+    @Test
+    void testMoveFace() {
+        double[] vertices = {0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0};
+        Mesh square = Mesh.of(vertices, new int[]{0, 1, 2, 0, 2, 3});
+        int version = square.getFace(1).getVersion();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the face moves with its vertices, and is intersected at its new place
+        square.getFace(0).move(new Vector(0, 0, 1));
+        assertEquals(List.of(new Point(0, 0, 1), new Point(1, 0, 1), new Point(1, 1, 1)),
+                square.getFace(0).getVertices(), "Wrong vertices of the moved face");
+        assertEquals(new Point(0.7, 0.2, 1),
+                square.findGeoIntersections(new Ray(new Point(0.7, 0.2, 5), new Vector(0, 0, -1))).getFirst().point,
+                "Wrong point of the moved face");
+        // TC02: the neighbour sharing vertices is reshaped, with the normal of its new plane
+        assertEquals(new Triangle(new Point(0, 0, 1), new Point(1, 1, 1), new Point(0, 1, 0))
+                        .getNormal(new Point(0.2, 0.7, 0.5)),
+                square.getFace(1).getNormal(new Point(0.2, 0.7, 0.5)), "Wrong normal of the reshaped neighbour");
+        assertNotEquals(version, square.getFace(1).getVersion(), "Reshaped neighbour should be changed");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the mesh keeps its own vertices, the given array is not moved
+        assertEquals(0, vertices[2], "The given vertices should not move");
+    }
+}
@@ -0,0 +1,129 @@
+package lighting;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the area lights - lighting.RectangleLight, lighting.DiskLight and lighting.SphereLight
+ */
+class AreaLightTest {
+    /**
+     * the shaded point of the tests
+     */
+    private final Point p = new Point(0, 0, 0);
+    /**
+     * intensity of the lights of the tests
+     */
+    private final Color intensity = new Color(100, 100, 100);
+
+    /**
+     * Finds where the reversed vector from the point crosses the plane z = height
+     *
+     * @param l      vector from the light to the point
+     * @param height z coordinate of the plane
+     * @return the crossing point
+     */
+    private Point crossing(Vector l, double height) {
+        return p.add(l.scale(-height / -l.getZ()));
+    }
+
+    /**
+     * Calculates the solid angle of a part of the plane z = 10 at the point by numeric integration
+     *
+     * @param minX lowest x coordinate of the part
+     * @param maxX highest x coordinate of the part
+     * @param minY lowest y coordinate of the part
+     * @param maxY highest y coordinate of the part
+     * @return the solid angle
+     */
+    private double solidAngle(double minX, double maxX, double minY, double maxY) {
+        int steps = 400;
+        double dx = (maxX - minX) / steps, dy = (maxY - minY) / steps, sum = 0;
+        for (int i = 0; i < steps; ++i)
+            for (int j = 0; j < steps; ++j) {
+                double x = minX + (i + 0.5) * dx, y = minY + (j + 0.5) * dy;
+                double d2 = x * x + y * y + 100;
+                sum += 10 / (d2 * Math.sqrt(d2)) * dx * dy;
+            }
+        return sum;
+    }
+
+    /**
+     * Test method for {@link lighting.RectangleLight#getLCircle(primitives.Point, double, int)}.
+     */
+    @Test
+    void testRectangleLight() {
+        RectangleLight light = new RectangleLight(intensity, new Point(5, 0, 10), new Vector(10, 0, 0),
+                new Vector(0, 4, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: all the samples are on the rectangle
+        List<Vector> vectors = light.getLCircle(p, 1, 1000);
+        assertEquals(1000, vectors.size(), "Wrong number of vectors");
+        int near = 0;
+        for (Vector l : vectors) {
+            Point q = crossing(l, 10);
+            assertTrue(q.getX() >= -1e-9 && q.getX() <= 10 + 1e-9 && Math.abs(q.getY()) <= 2 + 1e-9,
+                    "Sample outside the rectangle");
+            if (q.getX() < 5)
+                ++near;
+        }
+
+        // TC02: the samples are uniform in solid angle - the near half of the rectangle gets its share
+        double share = solidAngle(0, 5, -2, 2) / solidAngle(0, 10, -2, 2);
+        assertEquals(share, near / 1000d, 0.01, "Samples are not uniform in solid angle");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a point on the rectangle's plane gets the direction to the center
+        assertEquals(List.of(light.getL(new Point(20, 0, 10))), light.getLCircle(new Point(20, 0, 10), 1, 10),
+                "Point on the plane should get the center");
+
+        // TC12: edges of a rectangle must be perpendicular
+        assertThrows(IllegalArgumentException.class,
+                () -> new RectangleLight(intensity, p, new Vector(1, 0, 0), new Vector(1, 1, 0)),
+                "Edges should be perpendicular");
+    }
+
+    /**
+     * Test method for {@link lighting.DiskLight#getLCircle(primitives.Point, double, int)}.
+     */
+    @Test
+    void testDiskLight() {
+        DiskLight light = new DiskLight(intensity, new Point(3, 0, 10), new Vector(0, 0, 1), 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the kept samples are on the disk, about the disk's part of the square around it
+        List<Vector> vectors = light.getLCircle(p, 1, 1000);
+        assertEquals(Math.PI / 4, vectors.size() / 1000d, 0.05, "Wrong part of the samples kept");
+        for (Vector l : vectors)
+            assertTrue(crossing(l, 10).distance(new Point(3, 0, 10)) <= 2 + 1e-9, "Sample outside the disk");
+    }
+
+    /**
+     * Test method for {@link lighting.SphereLight#getLCircle(primitives.Point, double, int)}.
+     */
+    @Test
+    void testSphereLight() {
+        SphereLight light = new SphereLight(intensity, new Point(0, 0, 10), 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: all the samples are within the cone of the sphere
+        List<Vector> vectors = light.getLCircle(p, 1, 100);
+        assertEquals(100, vectors.size(), "Wrong number of vectors");
+        double maxAngle = Math.asin(0.2);
+        for (Vector l : vectors) {
+            assertEquals(1, l.length(), 1e-10, "Vector should be normalized");
+            assertTrue(Math.acos(-l.getZ()) <= maxAngle + 1e-10, "Sample outside the sphere");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a point inside the sphere gets the direction to the center
+        Point inside = new Point(0, 0, 11);
+        assertEquals(List.of(light.getL(inside)), light.getLCircle(inside, 1, 10),
+                "Point inside should get the center");
+    }
+}
@@ -0,0 +1,60 @@
+package lighting;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for lighting.LightBVH class
+ */
+class LightBVHTest {
+
+    /**
+     * Test method for {@link lighting.LightBVH#sample(primitives.Point, primitives.Vector, double)}.
+     */
+    @Test
+    void testSample() {
+        List<LightSource> lights = new ArrayList<>();
+        for (int i = 0; i < 10; ++i)
+            for (int j = 0; j < 10; ++j)
+                lights.add(new PointLight(new Color(100, 100, 100), new Point(10 * i - 45, 10 * j - 45, 20))
+                        .setkQ(0.001));
+        DirectionalLight sun = new DirectionalLight(new Color(100, 100, 100), new Vector(0, 0, -1));
+        lights.add(sun);
+        LightBVH bvh = new LightBVH(lights);
+        Point p = new Point(0, 0, 0);
+        Vector n = new Vector(0, 0, 1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: lights without a position are not sampled
+        assertEquals(100, bvh.size(), "Wrong number of sampled lights");
+        assertEquals(List.of(sun), bvh.getUnsampledLights(), "Directional light should not be sampled");
+
+        // TC02: the inverse probability of the chosen lights estimates the amount of lights
+        double sum = 0;
+        int amount = 20000;
+        for (int i = 0; i < amount; ++i) {
+            LightBVH.Sample sample = bvh.sample(p, n, -1);
+            assertTrue(sample.pdf > 0 && sample.pdf <= 1, "Wrong probability");
+            sum += 1 / sample.pdf;
+        }
+        assertEquals(100, sum / amount, 5, "Light sampling is biased");
+
+        // TC03: a surface facing away from all the lights gets no light
+        assertNull(bvh.sample(p, n, 1), "Lights behind the surface should not be sampled");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a single light is always chosen
+        PointLight single = new PointLight(new Color(100, 100, 100), new Point(0, 0, 20));
+        LightBVH.Sample sample = new LightBVH(List.of(single)).sample(p, n, -1);
+        assertSame(single, sample.light, "Wrong light chosen");
+        assertEquals(1, sample.pdf, "Single light should be chosen surely");
+
+        // TC12: hierarchy without positioned lights
+        assertNull(new LightBVH(List.of(sun)).sample(p, n, -1), "No light to sample");
+    }
+}
@@ -0,0 +1,75 @@
+package lighting;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for lighting.LightIndex class
+ */
+class LightIndexTest {
+
+    /**
+     * Test method for {@link lighting.PointLight#getInfluenceRadius(double)}.
+     */
+    @Test
+    void testGetInfluenceRadius() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: quadratic attenuation - intensity 101 / (1 + 0.01 * 100²) = 1 at distance 100
+        PointLight light = new PointLight(new Color(101, 50, 0), new Point(0, 0, 0)).setkQ(0.01);
+        assertEquals(100, light.getInfluenceRadius(1), 1e-9, "Wrong radius for quadratic attenuation");
+
+        // TC02: linear attenuation - intensity 100 / (1 + 0.5 * 198) = 1 at distance 198
+        light = new PointLight(new Color(100, 50, 0), new Point(0, 0, 0)).setkL(0.5);
+        assertEquals(198, light.getInfluenceRadius(1), 1e-9, "Wrong radius for linear attenuation");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: light without attenuation reaches everywhere
+        light = new PointLight(new Color(100, 50, 0), new Point(0, 0, 0));
+        assertEquals(Double.POSITIVE_INFINITY, light.getInfluenceRadius(1), "Light should not be bounded");
+        assertNull(light.getInfluenceBounds(1), "Light should not be bounded");
+
+        // TC12: light weaker than the threshold even at its position
+        light = new PointLight(new Color(1, 1, 1), new Point(0, 0, 0)).setkQ(1);
+        assertEquals(0, light.getInfluenceRadius(2), "Light should have no influence");
+    }
+
+    /**
+     * Test method for {@link lighting.LightIndex#getLights(primitives.Point)}.
+     */
+    @Test
+    void testGetLights() {
+        PointLight near = new PointLight(new Color(100, 100, 100), new Point(0, 0, 0)).setkQ(0.01);
+        PointLight far = new PointLight(new Color(100, 100, 100), new Point(1000, 0, 0)).setkQ(0.01);
+        SpotLight spot = new SpotLight(new Color(100, 100, 100), new Point(0, 500, 0), new Vector(0, 0, -1))
+                .setkQ(0.01).setNarrowBeam(10);
+        DirectionalLight sun = new DirectionalLight(new Color(100, 100, 100), new Vector(0, 0, -1));
+        LightIndex index = new LightIndex(List.of(near, far, spot, sun), 1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: point near one point light gets it and the directional light
+        assertEquals(List.of(near, sun), index.getLights(new Point(10, 0, 0)), "Wrong lights near a light");
+
+        // TC02: point in front of the spot light
+        Point front = new Point(0, 500, -50);
+        assertTrue(index.getLights(front).contains(spot), "Spot light should reach its beam");
+        assertFalse(index.isNegligible(spot, front), "Spot light should not be negligible in its beam");
+
+        // TC03: point behind the spot light is outside its bounds
+        assertFalse(index.getLights(new Point(0, 500, 50)).contains(spot), "Spot light should not reach behind it");
+
+        // TC04: point beside the spot beam is negligible even when its cell holds the spot light
+        assertTrue(index.isNegligible(spot, new Point(60, 500, -30)), "Spot light should be negligible aside");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: point outside all the bounds gets only the directional light
+        assertEquals(List.of(sun), index.getLights(new Point(0, -5000, 0)), "Only unbounded lights far away");
+
+        // TC12: index without bounded lights
+        assertEquals(List.of(sun), new LightIndex(List.of(sun), 1).getLights(new Point(0, 0, 0)),
+                "Unbounded lights everywhere");
+    }
+}
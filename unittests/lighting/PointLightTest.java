@@ -0,0 +1,46 @@
+package lighting;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for lighting.PointLight class
+ */
+class PointLightTest {
+
+    /**
+     * Test method for {@link lighting.PointLight#getLCircle(primitives.Point, double, int)}.
+     */
+    @Test
+    void testGetLCircle() {
+        PointLight light = new PointLight(new Color(100, 100, 100), new Point(0, 0, 100));
+        Point p = new Point(0, 0, 0);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the direction to the center of the light and then directions within the beam
+        List<Vector> vectors = light.getLCircle(p, 10, 20);
+        assertEquals(21, vectors.size(), "Wrong number of vectors");
+        assertEquals(light.getL(p), vectors.get(0), "First vector should be towards the center");
+        double maxAngle = Math.atan2(10, 100);
+        for (Vector v : vectors) {
+            assertEquals(1, v.length(), 1e-10, "Vector should be normalized");
+            assertTrue(Math.acos(-v.getZ()) <= maxAngle + 1e-10, "Vector should be within the beam");
+        }
+
+        // TC02: beam along another axis uses the same samples
+        vectors = new PointLight(new Color(100, 100, 100), new Point(100, 0, 0)).getLCircle(p, 10, 20);
+        for (Vector v : vectors)
+            assertTrue(Math.acos(-v.getX()) <= maxAngle + 1e-10, "Vector should be within the beam");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a single vector is the direction to the center
+        assertEquals(List.of(light.getL(p)), light.getLCircle(p, 10, 1), "Single vector should be the center");
+
+        // TC12: point at the light
+        assertNull(light.getLCircle(new Point(0, 0, 100), 10, 20), "No vectors from the light itself");
+    }
+}
@@ -0,0 +1,73 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing Metrics Class
+ *
+ * @author Naama and Yeela
+ */
+class MetricsTest {
+
+    /**
+     * Test method for {@link Metrics#counter(String)} and {@link Metrics#maximum(String)}.
+     */
+    @Test
+    void testMetrics() {
+        Metrics.counter("test.counter").reset();
+        Metrics.maximum("test.maximum").reset();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a counter sums its updates
+        assertSame(Metrics.counter("test.counter"), Metrics.counter("test.counter"), "A name should have one counter");
+        Metrics.counter("test.counter").add(3);
+        Metrics.counter("test.counter").increment();
+        assertEquals(4, Metrics.get("test.counter"), "Wrong counter value");
+        // TC02: a maximum keeps the largest update
+        Metrics.maximum("test.maximum").accumulate(7);
+        Metrics.maximum("test.maximum").accumulate(2);
+        assertEquals(7, Metrics.get("test.maximum"), "Wrong maximum value");
+        // TC03: the snapshot and report hold the metrics
+        assertEquals(4, Metrics.snapshot().get("test.counter"), "Wrong snapshot value");
+        assertTrue(Metrics.report().contains("test.counter: 4"), "Report should hold the counter");
+        // TC04: ratio of two metrics
+        assertEquals(4d / 7, Metrics.ratio("test.counter", "test.maximum"), 1e-12, "Wrong ratio");
+        // TC05: a task's metrics are the growth of the counters since its start and the maxima since then,
+        // and the metrics are enabled while it runs
+        Map<String, Long> start = Metrics.start();
+        assertTrue(Metrics.isEnabled(), "Metrics should be enabled while a task collects them");
+        Metrics.counter("test.counter").add(2);
+        Metrics.maximum("test.maximum").accumulate(4);
+        Map<String, Long> values = Metrics.since(start);
+        Metrics.stop();
+        assertEquals(2, values.get("test.counter"), "Wrong growth of the counter");
+        assertEquals(4, values.get("test.maximum"), "Wrong maximum of the task");
+        assertEquals(6, Metrics.get("test.counter"), "Counter should not be reset");
+        assertEquals(0.5, Metrics.ratio(values, "test.counter", "test.maximum"), 1e-12, "Wrong ratio of a task");
+        // TC06: times are taken once
+        Metrics.takeTimes();
+        Metrics.counter("time.test").add(5);
+        assertEquals(5, Metrics.takeTimes().get("time.test"), "Wrong time since taken");
+        assertEquals(0, Metrics.takeTimes().get("time.test"), "Taken time should not be taken again");
+        Metrics.counter("time.test").reset();
+        Metrics.counter("test.counter").add(-2);
+        // =============== Boundary Values Tests ==================
+        // TC11: an unknown metric
+        assertEquals(0, Metrics.get("test.unknown"), "Unknown metric should be 0");
+        assertEquals(0, Metrics.ratio("test.counter", "test.unknown"), "Ratio over 0 should be 0");
+        // TC12: tasks running at once keep the metrics enabled until the last one stops
+        Metrics.start();
+        Metrics.start();
+        Metrics.stop();
+        assertTrue(Metrics.isEnabled(), "Metrics should stay enabled for the other task");
+        Metrics.stop();
+        assertFalse(Metrics.isEnabled(), "Metrics should be disabled after the tasks");
+        // TC13: reset metrics are not reported
+        Metrics.counter("test.counter").reset();
+        assertFalse(Metrics.report().contains("test.counter"), "Report should skip metrics which are 0");
+    }
+}
@@ -1,11 +1,27 @@
 package renderer;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
+import geometries.Plane;
+import geometries.Polygon;
+import geometries.Sphere;
+import lighting.PointLight;
 import org.junit.jupiter.api.Test;
 
 import primitives.*;
 import scene.Scene;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 //import scene.Scene;
 
 /**
@@ -64,4 +80,330 @@ class CameraTest {
 
    }
 
+
+   /**
+    * renders a scene by a fresh camera
+    * @param scene the scene
+    * @param incremental whether the camera records its rendering
+    * @return the camera, after rendering
+    */
+   private Camera render(Scene scene, boolean incremental) {
+      return render(scene, incremental, SimpleRayTracer::new);
+   }
+
+   /**
+    * renders a scene by a fresh camera and ray tracer
+    * @param scene the scene
+    * @param incremental whether the camera records its rendering
+    * @param tracer creates the ray tracer of the scene
+    * @return the camera, after rendering
+    */
+   private Camera render(Scene scene, boolean incremental, Function<Scene, RayTracerBase> tracer) {
+      Camera.Builder builder = Camera.getBuilder().setLocation(new Point(0, 0, 100))
+         .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0)).setVpSize(50, 50).setVpDistance(100)
+         .setImageWriter(new ImageWriter("changes", 40, 40)).setRayTracer(tracer.apply(scene));
+      if (incremental)
+         builder.setIncremental();
+      return builder.build().renderImage();
+   }
+
+   /**
+    * asserts a camera's image is the image of a full rendering of its scene
+    * @param camera the camera
+    * @param scene the scene
+    * @param message the message of a wrong pixel
+    */
+   private void assertRendered(Camera camera, Scene scene, String message) {
+      assertRendered(camera, scene, SimpleRayTracer::new, message);
+   }
+
+   /**
+    * asserts a camera's image is the image of a full rendering of its scene by a fresh ray tracer
+    * @param camera the camera
+    * @param scene the scene
+    * @param tracer creates the ray tracer of the scene
+    * @param message the message of a wrong pixel
+    */
+   private void assertRendered(Camera camera, Scene scene, Function<Scene, RayTracerBase> tracer, String message) {
+      ImageWriter expected = render(scene, false, tracer).getImageWriter();
+      for (int i = 0; i < 40; ++i)
+         for (int j = 0; j < 40; ++j)
+            assertEquals(expected.getPixel(j, i), camera.getImageWriter().getPixel(j, i), message);
+   }
+
+   /**
+    * Test method for {@link Camera#renderChanges()}.
+    */
+   @Test
+   void testRenderChanges() {
+      Scene scene = new Scene("changes");
+      Sphere sphere = new Sphere(new Point(0, 0, -20), 5);
+      sphere.setEmission(new Color(100, 0, 0)).setMaterial(new Material().setkD(0.5).setkS(0.5));
+      scene.geometries.add(sphere, new Plane(new Point(0, 0, -40), new Vector(0, 0, 1))
+         .setMaterial(new Material().setkD(0.5)));
+      scene.lights.add(new PointLight(new Color(300, 300, 300), new Point(10, 10, 0)));
+      Camera camera = render(scene, true);
+
+      // ============ Equivalence Partitions Tests ==============
+      // TC01: a changed material re-traces only the pixels which met the geometry
+      sphere.setEmission(new Color(0, 100, 0));
+      camera.renderChanges();
+      assertTrue(camera.getTracedPixels() > 0 && camera.getTracedPixels() < 1600, "Only the sphere's pixels should be traced");
+      assertRendered(camera, scene, "Wrong pixel after a material change");
+
+      // TC02: a moved geometry re-traces the pixels of its old and new place and shadows
+      sphere.move(new Vector(8, -8, 0));
+      camera.renderChanges();
+      assertTrue(camera.getTracedPixels() < 1600, "Only the affected pixels should be traced");
+      assertRendered(camera, scene, "Wrong pixel after a move");
+
+      // TC03: an added geometry
+      Sphere added = new Sphere(new Point(-10, 10, -30), 4);
+      scene.geometries.add(added);
+      camera.renderChanges();
+      assertTrue(camera.getTracedPixels() < 1600, "Only the affected pixels should be traced");
+      assertRendered(camera, scene, "Wrong pixel after an addition");
+
+      // TC04: a removed geometry
+      scene.geometries.remove(added);
+      camera.renderChanges();
+      assertTrue(camera.getTracedPixels() < 1600, "Only the affected pixels should be traced");
+      assertRendered(camera, scene, "Wrong pixel after a removal");
+
+      // TC05: an irradiance cache can not re-trace pixels alone - removing the wall which shadows the whole
+      // floor re-renders the image without the shadows cached before
+      Scene walled = new Scene("walled");
+      Polygon wall = new Polygon(new Point(60, -100, -40), new Point(60, 100, -40), new Point(60, 100, 0),
+         new Point(60, -100, 0));
+      walled.geometries.add(wall, new Plane(new Point(0, 0, -40), new Vector(0, 0, 1))
+         .setMaterial(new Material().setkD(0.5)));
+      walled.lights.add(new PointLight(new Color(300, 300, 300), new Point(100, 0, 0)));
+      Function<Scene, RayTracerBase> irradiance = s -> new SimpleRayTracer(s).useIrradianceCache()
+         .setIrradianceCacheRadius(5);
+      Camera cached = render(walled, true, irradiance);
+      walled.geometries.remove(wall);
+      cached.renderChanges();
+      assertEquals(1600, cached.getTracedPixels(), "All the pixels should be traced");
+      assertRendered(cached, walled, irradiance, "Wrong pixel after a removal with an irradiance cache");
+      walled.geometries.add(wall);
+
+      // TC06: an occluder cache drops the removed wall
+      Function<Scene, RayTracerBase> occluders = s -> new SimpleRayTracer(s).useOccluderCache();
+      cached = render(walled, true, occluders);
+      walled.geometries.remove(wall);
+      cached.renderChanges();
+      assertRendered(cached, walled, occluders, "Wrong pixel after a removal with an occluder cache");
+
+      // TC07: with adaptive super sampling an added geometry which may shadow pixels re-renders the image
+      Camera.Builder adaptive = Camera.getBuilder().setLocation(new Point(0, 0, 100))
+         .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0)).setVpSize(50, 50).setVpDistance(100)
+         .setImageWriter(new ImageWriter("changes", 40, 40)).setantiAliasing(9).setadaptive();
+      Camera sampled = adaptive.setRayTracer(new SimpleRayTracer(scene)).setIncremental().build().renderImage();
+      Sphere shadowing = new Sphere(new Point(5, 5, -10), 3);
+      scene.geometries.add(shadowing);
+      sampled.renderChanges();
+      assertEquals(1600, sampled.getTracedPixels(), "All the pixels should be traced");
+      ImageWriter expected = adaptive.setRayTracer(new SimpleRayTracer(scene)).build().renderImage().getImageWriter();
+      for (int i = 0; i < 40; ++i)
+         for (int j = 0; j < 40; ++j)
+            assertEquals(expected.getPixel(j, i), sampled.getImageWriter().getPixel(j, i),
+               "Wrong pixel after an addition with adaptive super sampling");
+      scene.geometries.remove(shadowing);
+
+      // TC08: a material changed in place, without setting it to the geometry again
+      sphere.getMaterial().setkD(0.2);
+      camera.renderChanges();
+      assertTrue(camera.getTracedPixels() > 0 && camera.getTracedPixels() < 1600, "Only the sphere's pixels should be traced");
+      assertRendered(camera, scene, "Wrong pixel after a material was changed in place");
+
+      // =============== Boundary Values Tests ==================
+      // TC11: nothing changed
+      camera.renderChanges();
+      assertEquals(0, camera.getTracedPixels(), "No pixel should be traced");
+
+      // TC12: a change of lighting re-renders the whole image
+      scene.setBackground(new Color(0, 0, 50));
+      camera.renderChanges();
+      assertEquals(1600, camera.getTracedPixels(), "All the pixels should be traced");
+      assertRendered(camera, scene, "Wrong pixel after a lighting change");
+
+      // TC13: a light added to a scene whose lights are indexed for culling
+      Function<Scene, RayTracerBase> culling = s -> new SimpleRayTracer(s).useLightCulling();
+      cached = render(scene, true, culling);
+      scene.lights.add(new PointLight(new Color(300, 0, 0), new Point(-10, -10, 0)));
+      cached.renderChanges();
+      assertEquals(1600, cached.getTracedPixels(), "All the pixels should be traced");
+      assertRendered(cached, scene, culling, "Wrong pixel after a light was added with light culling");
+
+      // TC14: a light changed in place re-renders the whole image
+      camera.renderChanges();
+      ((PointLight) scene.lights.getFirst()).setkL(0.01);
+      camera.renderChanges();
+      assertEquals(1600, camera.getTracedPixels(), "All the pixels should be traced");
+      assertRendered(camera, scene, "Wrong pixel after a light was changed in place");
+   }
+
+   /**
+    * Test method for {@link Camera#getAovBuffers()}.
+    */
+   @Test
+   void testAovBuffers() {
+      Scene scene = new Scene("aov");
+      scene.geometries.add(new Sphere(new Point(0, 0, -20), 5).setMaterial(new Material().setkD(0.5).setkR(0.3)),
+         new Polygon(new Point(-20, -20, -40), new Point(20, -20, -40), new Point(20, 20, -40), new Point(-20, 20, -40)));
+      scene.lights.add(new PointLight(new Color(300, 300, 300), new Point(10, 10, 0)));
+      Camera.Builder builder = Camera.getBuilder().setLocation(new Point(0, 0, 100))
+         .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0)).setVpSize(50, 50).setVpDistance(100)
+         .setImageWriter(new ImageWriter("aov", 21, 21)).setAovBuffers();
+      AovBuffers aov = builder.setRayTracer(new SimpleRayTracer(scene)).build().renderImage().getAovBuffers();
+
+      // ============ Equivalence Partitions Tests ==============
+      // TC01: the primary hit of a pixel
+      assertEquals(0, aov.getGeometryId(10, 10), "Center pixel should hit the sphere");
+      assertEquals(115, aov.getDepth(10, 10), 1e-10, "Wrong depth");
+      assertEquals(new Vector(0, 0, 1), aov.getNormal(10, 10), "Wrong normal");
+      assertEquals(1, aov.getGeometryId(5, 10), "Pixel should hit the polygon");
+      // TC02: primary, shadow and reflection rays are counted
+      assertTrue(aov.getRayCount(10, 10) >= 3, "Wrong amount of rays of a reflective hit");
+      assertEquals(2, aov.getRayCount(5, 10), "Wrong amount of rays of a diffuse hit");
+      assertEquals(1, aov.getRayCount(10, 10, RayType.REFLECTION), "Wrong amount of reflection rays");
+      assertEquals(0, aov.getRayCount(10, 10, RayType.REFRACTION), "Wrong amount of refraction rays");
+      assertEquals(1, aov.getRayCount(5, 10, RayType.SHADOW), "Wrong amount of shadow rays");
+      assertTrue(aov.getTime(10, 10) > 0, "Tracing a pixel should take time");
+      // TC03: tracing the rays of tiles together fills the same buffers
+      for (RayTracerBase tracer : new RayTracerBase[] { new SimpleRayTracer(scene).useRaySorting(), new WavefrontRayTracer(scene) }) {
+         AovBuffers tiled = builder.setRayTracer(tracer).setTileSize(8).build().renderImage().getAovBuffers();
+         for (int y = 0; y < 21; ++y)
+            for (int x = 0; x < 21; ++x) {
+               assertEquals(aov.getGeometryId(x, y), tiled.getGeometryId(x, y), "Wrong geometry of a tile's pixel");
+               assertEquals(aov.getDepth(x, y), tiled.getDepth(x, y), 1e-10, "Wrong depth of a tile's pixel");
+               for (RayType type : RayType.values())
+                  assertEquals(aov.getRayCount(x, y, type), tiled.getRayCount(x, y, type),
+                     "Wrong amount of rays of a tile's pixel");
+            }
+      }
+
+      // =============== Boundary Values Tests ==================
+      // TC11: a pixel of background
+      assertEquals(AovBuffers.BACKGROUND, aov.getGeometryId(0, 0), "Corner pixel should hit nothing");
+      assertNull(aov.getNormal(0, 0), "Background has no normal");
+      assertEquals(1, aov.getRayCount(0, 0), "Background pixel should take one ray");
+   }
+
+   /**
+    * Test method for {@link Camera#getMetrics()}.
+    */
+   @Test
+   void testMetrics() {
+      Scene scene = new Scene("metrics");
+      scene.geometries.add(new Sphere(new Point(0, 0, -20), 5).setMaterial(new Material().setkD(0.5).setkR(0.3)),
+         new Polygon(new Point(-20, -20, -40), new Point(20, -20, -40), new Point(20, 20, -40), new Point(-20, 20, -40)),
+         // behind the camera, reflecting back the sphere's reflection rays
+         new Polygon(new Point(-50, -50, 120), new Point(50, -50, 120), new Point(50, 50, 120), new Point(-50, 50, 120)));
+      scene.lights.add(new PointLight(new Color(300, 300, 300), new Point(10, 10, 0)));
+      Camera.Builder builder = Camera.getBuilder().setLocation(new Point(0, 0, 100))
+         .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0)).setVpSize(50, 50).setVpDistance(100)
+         .setImageWriter(new ImageWriter("metrics", 21, 21)).setRayTracer(new SimpleRayTracer(scene));
+
+      // ============ Equivalence Partitions Tests ==============
+      // TC01: the metrics of a rendering
+      Map<String, Long> metrics = builder.setMetrics().build().renderImage().getMetrics();
+      assertEquals(21 * 21, metrics.get("rays.primary"), "Wrong amount of primary rays");
+      assertTrue(metrics.get("rays.shadow") > 0, "Shadow rays should be counted");
+      assertTrue(metrics.get("rays.reflection") > 0, "Reflection rays should be counted");
+      assertTrue(metrics.get("intersections.Sphere") >= 21 * 21, "Intersection tests should be counted by type");
+      assertTrue(metrics.get("intersections.Polygon") > 0, "Intersection tests should be counted by type");
+      assertEquals(0, metrics.getOrDefault("intersections.Plane", 0L), "Planes of polygons should not be counted");
+      assertTrue(metrics.get("color.depth") > 0, "Recursion depth should be summed");
+      assertTrue(metrics.get("path.count") > 0 && metrics.get("path.bounces") > 0, "Paths should be counted");
+      assertTrue(metrics.get("time.render") > 0, "Rendering should take time");
+      assertFalse(Metrics.isEnabled(), "Metrics should be collected only during the rendering");
+      // TC02: tracing the rays of tiles together counts the same rays and colors
+      for (RayTracerBase tracer : new RayTracerBase[] { new SimpleRayTracer(scene).useRaySorting(), new WavefrontRayTracer(scene) }) {
+         Map<String, Long> tiled = builder.setRayTracer(tracer).setTileSize(8).build().renderImage().getMetrics();
+         for (RayType type : RayType.values()) {
+            String name = "rays." + type.name().toLowerCase();
+            assertEquals(metrics.get(name), tiled.get(name), "Wrong amount of rays of tiles");
+         }
+         assertEquals(metrics.get("color.calls"), tiled.get("color.calls"), "Wrong amount of colors of tiles");
+         assertEquals(metrics.get("color.depth"), tiled.get("color.depth"), "Wrong recursion depth of tiles");
+      }
+      // TC03: adaptive super sampling subdivides the pixels on edges
+      metrics = builder.setRayTracer(new SimpleRayTracer(scene)).setTileSize(0).setantiAliasing(9).setadaptive()
+         .build().renderImage().getMetrics();
+      assertTrue(metrics.get("adaptive.subdivisions") > 0, "Subdivisions should be counted");
+      assertTrue(metrics.get("adaptive.depth.max") > 0, "Subdivision depth should be tracked");
+      // TC04: the report holds the hierarchy built before the rendering, and the next report the writing
+      // after it
+      scene.geometries.buildBVH();
+      Camera camera = builder.build().renderImage();
+      assertTrue(camera.getMetrics().get("time.bvh") > 0, "Building the hierarchy should be reported");
+      metrics = camera.writeToImage().renderImage().getMetrics();
+      assertTrue(metrics.get("time.write") > 0, "Writing should be reported by the next rendering");
+      assertEquals(0, metrics.get("time.bvh"), "A reported time should not be reported again");
+      // TC05: a rendering while another collects metrics keeps them enabled, and counts its own
+      Map<String, Long> other = Metrics.start();
+      metrics = builder.setantiAliasing(1).build().renderImage().getMetrics();
+      assertTrue(Metrics.isEnabled(), "Metrics of the other rendering should stay enabled");
+      assertEquals(21 * 21, metrics.get("rays.primary"), "Only the rendering's own rays should be counted");
+      assertEquals(21 * 21, Metrics.since(other).get("rays.primary"), "The other's metrics should not be reset");
+      Metrics.stop();
+
+      // =============== Boundary Values Tests ==================
+      // TC11: a camera which does not collect metrics
+      assertNull(Camera.getBuilder().setLocation(new Point(0, 0, 100)).setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+         .setVpSize(50, 50).setVpDistance(100).setImageWriter(new ImageWriter("metrics", 4, 4))
+         .setRayTracer(new SimpleRayTracer(scene)).build().renderImage().getMetrics(), "No metrics should be kept");
+   }
+
+   /**
+    * Test method for the flight recorder events of {@link Camera#renderImage()} and {@link Camera#writeToImage()}.
+    * @throws IOException if the recording can not be written or read
+    */
+   @Test
+   void testFlightRecorderEvents() throws IOException {
+      Scene scene = new Scene("events");
+      scene.geometries.add(new Sphere(new Point(0, 0, -20), 5).setMaterial(new Material().setkD(0.5).setkR(0.3)),
+         new Polygon(new Point(-20, -20, -40), new Point(20, -20, -40), new Point(20, 20, -40), new Point(-20, 20, -40)));
+      scene.lights.add(new PointLight(new Color(300, 300, 300), new Point(10, 10, 0)));
+      Camera camera = Camera.getBuilder().setLocation(new Point(0, 0, 100))
+         .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0)).setVpSize(50, 50).setVpDistance(100)
+         .setImageWriter(new ImageWriter("events", 21, 21)).setRayTracer(new SimpleRayTracer(scene))
+         .setTileSize(8).build();
+      Path file = Files.createTempFile("events", ".jfr");
+      try (Recording recording = new Recording()) {
+         for (String name : new String[] { "raytracer.AccelerationBuild", "raytracer.Render", "raytracer.TileRender", "raytracer.ImageWrite" })
+            recording.enable(name).withThreshold(Duration.ZERO);
+         recording.start();
+         scene.geometries.buildBVH();
+         camera.renderImage().writeToImage();
+         recording.stop();
+         recording.dump(file);
+      }
+      List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+      Files.delete(file);
+
+      // ============ Equivalence Partitions Tests ==============
+      // TC01: an event per tile, with its coordinates and rays
+      List<RecordedEvent> tiles = events.stream().filter(e -> e.getEventType().getName().equals("raytracer.TileRender")).toList();
+      assertEquals(9, tiles.size(), "Wrong amount of tile events");
+      long pixels = 0, primary = 0, shadow = 0;
+      for (RecordedEvent tile : tiles) {
+         pixels += (long) (tile.getInt("endX") - tile.getInt("startX")) * (tile.getInt("endY") - tile.getInt("startY"));
+         primary += tile.getLong("primaryRays");
+         shadow += tile.getLong("shadowRays");
+      }
+      assertEquals(21 * 21, pixels, "Tiles should cover the image");
+      assertEquals(21 * 21, primary, "Wrong amount of primary rays of the tiles");
+      assertTrue(shadow > 0, "Shadow rays of the tiles should be counted");
+      // TC02: events of the phases
+      RecordedEvent render = events.stream().filter(e -> e.getEventType().getName().equals("raytracer.Render")).findFirst().orElseThrow();
+      assertEquals("events", render.getString("image"), "Wrong image of the render event");
+      assertEquals(8, render.getInt("tileSize"), "Wrong tile size of the render event");
+      RecordedEvent write = events.stream().filter(e -> e.getEventType().getName().equals("raytracer.ImageWrite")).findFirst().orElseThrow();
+      assertEquals(21, write.getInt("width"), "Wrong width of the image write event");
+      RecordedEvent build = events.stream().filter(e -> e.getEventType().getName().equals("raytracer.AccelerationBuild")).findFirst().orElseThrow();
+      assertEquals(2, build.getInt("geometries"), "Wrong amount of geometries of the build event");
+      assertFalse(build.getBoolean("restored"), "The hierarchy should be built");
+   }
 }
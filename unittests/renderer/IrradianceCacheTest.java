@@ -0,0 +1,76 @@
+package renderer;
+
+import lighting.DirectionalLight;
+import lighting.LightSource;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for renderer.IrradianceCache class
+ */
+class IrradianceCacheTest {
+
+    /**
+     * Test method for {@link renderer.IrradianceCache#lookup(primitives.Point, primitives.Vector)}.
+     */
+    @Test
+    void testLookup() {
+        LightSource lamp = new PointLight(new Color(100, 100, 100), new Point(0, 0, 10));
+        LightSource sun = new DirectionalLight(new Color(100, 100, 100), new Vector(0, 0, -1));
+        IrradianceCache cache = new IrradianceCache(List.of(lamp, sun), 2);
+        Vector up = new Vector(0, 0, 1);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: an empty cache has no records
+        assertNull(cache.lookup(new Point(0, 0, 0), up), "Empty cache should have no records");
+
+        Double3[] dim = cache.newTransparency();
+        dim[cache.indexOf(lamp)] = new Double3(0.5);
+        cache.add(new Point(0, 0, 0), up, dim);
+        Double3[] lighted = cache.newTransparency();
+        lighted[cache.indexOf(lamp)] = new Double3(0.56);
+        lighted[cache.indexOf(sun)] = Double3.ONE;
+        cache.add(new Point(1, 0, 0), up, lighted);
+        for (int i = 0; i < 100; ++i)
+            cache.add(new Point(100 + i, -50, 30), up, cache.newTransparency());
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a point on a record gets its transparency, weighted with the valid record beside it
+        Double3[] found = cache.lookup(new Point(0, 0, 0), up);
+        assertNotNull(found, "Record should be found");
+        assertEquals(new Double3(0.52), found[cache.indexOf(lamp)], "Wrong interpolated transparency");
+        assertEquals(Double3.ONE, found[cache.indexOf(sun)], "Light of a single record should be kept");
+
+        // TC02: a point beyond the radius of all the records has none
+        assertNull(cache.lookup(new Point(-2.5, 0, 0), up), "Record should be out of range");
+
+        // TC03: a surface facing another way does not use the records
+        assertNull(cache.lookup(new Point(0, 0, 0), new Vector(1, 0, 0)), "Normal should not match");
+
+        // TC04: records far from the first are found after the octree grew
+        assertNotNull(cache.lookup(new Point(150, -50, 30), up), "Far record should be found");
+        assertEquals(102, cache.size(), "Wrong number of records");
+
+        // TC05: a light not in the scene has no position in the records
+        assertEquals(-1, cache.indexOf(new PointLight(new Color(1, 1, 1), new Point(0, 0, 0))),
+                "Unknown light should not be recorded");
+
+        // TC06: a record which disagrees on a light within twice the radius stops the interpolation
+        Double3[] shadowed = cache.newTransparency();
+        shadowed[cache.indexOf(lamp)] = Double3.ZERO;
+        cache.add(new Point(0, 3, 0), up, shadowed);
+        assertNull(cache.lookup(new Point(0, 0, 0), up), "Disagreeing records should not be interpolated");
+
+        // TC12: a disagreeing record at exactly twice the radius is not around the point
+        assertNotNull(cache.lookup(new Point(0, -1, 0), up), "Record at twice the radius should be ignored");
+
+        // TC13: the validity radius must be positive
+        assertThrows(IllegalArgumentException.class, () -> new IrradianceCache(List.of(lamp), 0),
+                "Radius should be positive");
+    }
+}
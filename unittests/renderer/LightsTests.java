@@ -328,4 +328,24 @@ public class LightsTests {
                 .writeToImage();
     }
 
+    /**
+     * Produce a picture of a sphere lighted by a ring of many weak point lights, sampling
+     * a few of them at every point through the light hierarchy
+     */
+    @Test
+    public void sphereManyLightsSampled() {
+        scene1.geometries.add(sphere);
+        for (int i = 0; i < 200; ++i) {
+            double angle = 2 * Math.PI * i / 200;
+            scene1.lights.add(new PointLight(sphereLightColor.reduce(20),
+                    new Point(100 * Math.cos(angle), 100 * Math.sin(angle), 25)).setkL(0.001).setkQ(0.0002));
+        }
+
+        camera1.setRayTracer(new SimpleRayTracer(scene1).useLightSampling().setNumLightSamples(8))
+                .setImageWriter(new ImageWriter("lightSphereManyLightsSampled", 500, 500))
+                .build()
+                .renderImage()
+                .writeToImage();
+    }
+
 }
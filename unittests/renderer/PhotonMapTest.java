@@ -0,0 +1,59 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for renderer.PhotonMap class
+ */
+class PhotonMapTest {
+
+    /**
+     * Test method for {@link renderer.PhotonMap#estimate(primitives.Point, primitives.Vector, int, double)}.
+     */
+    @Test
+    void testEstimate() {
+        // a grid of photons over the square [-50, 50] of the plane z = 0, one per unit of area
+        Vector down = new Vector(0, 0, -1);
+        List<PhotonMap.Photon> photons = new ArrayList<>();
+        for (int i = 0; i < 100; ++i)
+            for (int j = 0; j < 100; ++j)
+                photons.add(new PhotonMap.Photon(new Point(i - 49.5, j - 49.5, 0), down, new Color(2, 2, 2)));
+        // shuffled so the tree does not get them in order
+        Collections.shuffle(photons, new Random(1));
+        PhotonMap map = new PhotonMap(photons);
+        assertEquals(10000, map.size(), "Wrong number of photons");
+        Vector up = new Vector(0, 0, 1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the density of the photons times their power
+        Color estimate = map.estimate(new Point(0, 0, 0), up, 200, 100);
+        assertEquals(2, estimate.max(), 0.2, "Wrong irradiance estimate");
+
+        // TC02: photons arriving at the other side of the surface bring no light
+        assertEquals(0, map.estimate(new Point(0, 0, 0), down, 200, 100).max(), "Light from behind");
+
+        // TC03: the nearest photons are found - at the edge only a quarter of the disk has photons
+        estimate = map.estimate(new Point(-50, -50, 0), up, 50, 100);
+        assertTrue(estimate.max() < 1, "Edge estimate should be lower");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: no photons within the radius
+        assertEquals(0, map.estimate(new Point(0, 0, 100), up, 10, 5).max(), "No photon should be near");
+
+        // TC12: fewer photons than asked within the radius spread over the whole radius
+        estimate = map.estimate(new Point(0, 0, 0), up, 1000, 3);
+        assertEquals(2 * 32 / (Math.PI * 9), estimate.max(), 1e-9, "Wrong estimate within the radius");
+
+        // TC13: an empty map
+        assertEquals(0, new PhotonMap(List.of()).estimate(new Point(0, 0, 0), up, 10, 5).max(),
+                "Empty map should bring no light");
+    }
+}
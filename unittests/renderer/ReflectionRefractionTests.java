@@ -4,6 +4,8 @@
 package renderer;
 
 import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static renderer.TestImages.*;
 
 import geometries.Plane;
 import geometries.Polygon;
@@ -60,6 +62,46 @@ public class ReflectionRefractionTests {
                 .writeToImage();
     }
 
+    /**
+     * Creates a scene of two spheres, one inside the other, on two mirrors
+     *
+     * @param glossiness glossiness of the first mirror, doubled for the second
+     * @param blurriness blurriness of the outer sphere
+     * @return the scene
+     */
+    private Scene twoSpheresOnMirrorsScene(double glossiness, double blurriness) {
+        Scene scene = new Scene("Two spheres on mirrors");
+        scene.geometries.add(
+                new Sphere(new Point(-950, -900, -1000), 400d).setEmission(new Color(0, 50, 100))
+                        .setMaterial(new Material().setkD(0.25).setkS(0.25).setnShininess(20)
+                                .setkT(new Double3(0.5, 0, 0)).setBlurriness(blurriness)),
+                new Sphere(new Point(-950, -900, -1000), 200d).setEmission(new Color(100, 50, 20))
+                        .setMaterial(new Material().setkD(0.25).setkS(0.25).setnShininess(20)),
+                new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+                        new Point(670, 670, 3000))
+                        .setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setkR(1).setGlossiness(glossiness)),
+                new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+                        new Point(-1500, -1500, -2000))
+                        .setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setkR(new Double3(0.5, 0, 0.4)).setGlossiness(2 * glossiness)));
+        scene.setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        scene.lights.add(new SpotLight(new Color(1020, 400, 400), new Point(-750, -750, -150), new Vector(-1, -1, -4))
+                .setkL(0.00001).setkQ(0.000005));
+        return scene;
+    }
+
+    /**
+     * Renders the scene of {@link #twoSpheresOnMirrorsScene(double, double)} in a small image
+     *
+     * @param tracer   the ray tracer
+     * @param tileSize size of the tiles of pixels traced together, 0 for tracing pixel by pixel
+     * @return the camera after the rendering
+     */
+    private static Camera renderTwoSpheresOnMirrors(RayTracerBase tracer, int tileSize) {
+        return TestImages.renderSmall(tracer, 10000, 2500, tileSize);
+    }
+
     /**
      * Produce a picture of a sphere lighted by a spot light
      */
@@ -91,6 +133,94 @@ public class ReflectionRefractionTests {
                 .writeToImage();
     }
 
+    /**
+     * Produce the picture of two spheres on mirrors with the breadth-first wavefront tracer,
+     * and check it is identical to the recursive one pixel by pixel
+     */
+    @Test
+    public void twoSpheresOnMirrorsWavefront() {
+        Scene scene = twoSpheresOnMirrorsScene(0, 0);
+
+        assertSameImage(renderTwoSpheresOnMirrors(new SimpleRayTracer(scene), 0).getImageWriter(),
+                renderTwoSpheresOnMirrors(new WavefrontRayTracer(scene), 16).getImageWriter(),
+                "Wavefront pixel differs from recursive");
+
+        cameraBuilder.setRayTracer(new WavefrontRayTracer(scene))
+                .setLocation(new Point(0, 0, 10000)).setVpDistance(10000)
+                .setVpSize(2500, 2500)
+                .setImageWriter(new ImageWriter("reflectionTwoSpheresMirroredWavefront", 500, 500))
+                .setTileSize(16)
+                .build()
+                .renderImage()
+                .writeToImage();
+    }
+
+    /**
+     * Produce the picture of two spheres on mirrors with Russian roulette ending the weak
+     * reflection chains, and check it keeps the mean brightness of the image while shortening the
+     * paths, the same in the recursive and the wavefront tracers
+     */
+    @Test
+    public void twoSpheresOnMirrorsRussianRoulette() {
+        Scene scene = twoSpheresOnMirrorsScene(0, 0);
+
+        Camera rendered = renderTwoSpheresOnMirrors(new SimpleRayTracer(scene), 0);
+        double brightness = meanBrightness(rendered.getImageWriter());
+        double depth = Metrics.ratio(rendered.getMetrics(), "path.bounces", "path.count");
+        rendered = renderTwoSpheresOnMirrors(new SimpleRayTracer(scene).useRussianRoulette().setRouletteDepth(1), 0);
+        assertEquals(brightness, meanBrightness(rendered.getImageWriter()), 0.5,
+                "Russian roulette should keep the mean brightness");
+        double recursive = Metrics.ratio(rendered.getMetrics(), "path.bounces", "path.count");
+        assertTrue(recursive < depth, "Russian roulette should shorten the paths");
+        rendered = renderTwoSpheresOnMirrors(new WavefrontRayTracer(scene).useRussianRoulette().setRouletteDepth(1), 16);
+        assertEquals(brightness, meanBrightness(rendered.getImageWriter()), 0.5,
+                "Russian roulette of the wavefront tracer should keep the mean brightness");
+        assertEquals(recursive, Metrics.ratio(rendered.getMetrics(), "path.bounces", "path.count"), 0.015,
+                "Both tracers should end the paths alike");
+
+        cameraBuilder.setRayTracer(new SimpleRayTracer(scene).useRussianRoulette())
+                .setLocation(new Point(0, 0, 10000)).setVpDistance(10000)
+                .setVpSize(2500, 2500)
+                .setImageWriter(new ImageWriter("reflectionTwoSpheresMirroredRussianRoulette", 500, 500))
+                .setantiAliasing(4)
+                .build()
+                .renderImage()
+                .writeToImage();
+    }
+
+    /**
+     * Produce a picture of a blurry sphere on glossy mirrors, with the beams of the reflection and
+     * refraction rays shrinking along the paths, and check the shrinking beams keep the mean brightness
+     */
+    @Test
+    public void twoSpheresOnGlossyMirrors() {
+        Scene scene = twoSpheresOnMirrorsScene(0.05, 0.1);
+        SimpleRayTracer tracer = new SimpleRayTracer(scene).setNumOfGlossyRays(32);
+        final int top = SimpleRayTracer.MAX_CALC_COLOR_LEVEL;
+        assertEquals(32, tracer.glossyRayCount(top, new Double3(1)), "Full beam at the first bounce");
+        assertEquals(16, tracer.glossyRayCount(top - 1, new Double3(1)), "Beam should halve every bounce");
+        assertEquals(8, tracer.glossyRayCount(top, new Double3(0.25)), "Beam should shrink with the attenuation");
+        assertEquals(1, tracer.glossyRayCount(top - 9, new Double3(1)), "Deep beams should be single rays");
+
+        double sharp = meanBrightness(renderTwoSpheresOnMirrors(
+                new SimpleRayTracer(twoSpheresOnMirrorsScene(0, 0)), 0).getImageWriter());
+        double few = meanBrightness(renderTwoSpheresOnMirrors(
+                new SimpleRayTracer(scene).setNumOfGlossyRays(16), 0).getImageWriter());
+        double many = meanBrightness(renderTwoSpheresOnMirrors(
+                new SimpleRayTracer(scene).setNumOfGlossyRays(64), 0).getImageWriter());
+        assertEquals(many, few, 0.2, "Smaller beams should keep the mean brightness");
+        assertEquals(sharp, many, 1, "Glossy mirrors should keep about the brightness of sharp ones");
+
+        cameraBuilder.setRayTracer(tracer)
+                .setLocation(new Point(0, 0, 10000)).setVpDistance(10000)
+                .setVpSize(2500, 2500)
+                .setImageWriter(new ImageWriter("reflectionTwoSpheresGlossyMirrors", 500, 500))
+                .setThreads()
+                .build()
+                .renderImage()
+                .writeToImage();
+    }
+
     /**
      * Produce a picture of a two triangles lighted by a spot light with a
      * partially
@@ -166,4 +296,54 @@ public class ReflectionRefractionTests {
                 .writeToImage();
     }
 
+    /**
+     * Produce a picture of a glass sphere and a mirror sphere above a floor, with the light through
+     * and off them brought to the floor by a photon map
+     */
+    @Test
+    public void spheresCaustics() {
+        scene.geometries.add(
+                new Plane(new Point(0, 0, -1000), new Vector(0, 0, 1))
+                        .setMaterial(new Material().setkD(0.6)),
+                new Sphere(new Point(0, 0, -500), 200d)
+                        .setMaterial(new Material().setkT(0.8).setkS(0.2).setnShininess(50)),
+                new Sphere(new Point(700, -500, -800), 150d)
+                        .setMaterial(new Material().setkR(0.9)));
+        scene.lights.add(new PointLight(new Color(2000, 2000, 2000), new Point(600, 600, 500)).setkQ(0.000002));
+
+        cameraBuilder.setRayTracer(new SimpleRayTracer(scene).useCaustics().setNumOfPhotons(200000)
+                        .setCausticRadius(15))
+                .setLocation(new Point(0, 0, 10000)).setVpDistance(10000)
+                .setVpSize(2500, 2500)
+                .setImageWriter(new ImageWriter("refractionSpheresCaustics", 500, 500))
+                .setThreads()
+                .build()
+                .renderImage()
+                .writeToImage();
+    }
+
+    /**
+     * Produce a picture of a glass ball focusing the light of a spot light on a floor, with reflections
+     * from the surface of the ball weighted by Fresnel
+     */
+    @Test
+    public void glassBallCaustics() {
+        scene.geometries.add(
+                new Plane(new Point(0, 0, -1000), new Vector(0, 0, 1))
+                        .setMaterial(new Material().setkD(0.6)),
+                new Sphere(new Point(0, 0, -500), 200d)
+                        .setMaterial(new Material().setkT(0.9).setIor(1.5).setkS(0.2).setnShininess(50)));
+        scene.lights.add(new PointLight(new Color(2000, 2000, 2000), new Point(600, 600, 500)).setkQ(0.000002));
+
+        cameraBuilder.setRayTracer(new SimpleRayTracer(scene).useCaustics().setNumOfPhotons(200000)
+                        .setCausticRadius(15))
+                .setLocation(new Point(0, 0, 10000)).setVpDistance(10000)
+                .setVpSize(2500, 2500)
+                .setImageWriter(new ImageWriter("refractionGlassBallCaustics", 500, 500))
+                .setThreads()
+                .build()
+                .renderImage()
+                .writeToImage();
+    }
+
 }
@@ -2,10 +2,16 @@ package renderer;
 
 import static java.awt.Color.*;
 
+import static org.junit.jupiter.api.Assertions.*;
+import static renderer.TestImages.*;
+
 import org.junit.jupiter.api.Test;
 
 import geometries.*;
 import lighting.AmbientLight;
+import lighting.LightSource;
+import lighting.PointLight;
+import lighting.RectangleLight;
 import lighting.SpotLight;
 import primitives.*;
 import renderer.*;
@@ -69,6 +75,18 @@ public class ShadowTests {
                 new Point(-100, -100, 200));
     }
 
+    /**
+     * Sphere-Triangle soft shading, firing the full beam of shadow rays only in the penumbra
+     */
+    @Test
+    public void sphereTriangleAdaptiveSoftShadow() {
+        camera.setRayTracer(new SimpleRayTracer(scene).useAdaptiveSoftShadow().setNumOfSSRays(40)
+                .setRadiusBeamSS(10));
+        sphereTriangleHelper("shadowSphereTriangleAdaptiveSoftShadow", //
+                new Triangle(new Point(-70, -40, 0), new Point(-40, -70, 0), new Point(-68, -68, -4)), //
+                new Point(-100, -100, 200));
+    }
+
     /**
      * Sphere-Triangle shading - move triangle up-right
      */
@@ -109,6 +127,49 @@ public class ShadowTests {
                 new Point(-80, -80, 100));
     }
 
+    /**
+     * Fills the scene with two triangles lighted by a light with a sphere producing a shading
+     *
+     * @param material material of the triangles
+     * @param light    the light
+     * @return the sphere
+     */
+    private Geometry trianglesSphereScene(Material material, LightSource light) {
+        Geometry occluder = new Sphere(new Point(0, 0, -11), 30d) //
+                .setEmission(new Color(BLUE)) //
+                .setMaterial(new Material().setkD(0.5).setkS(0.5).setnShininess(30));
+        scene.geometries.add(
+                new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135),
+                        new Point(75, 75, -150)) //
+                        .setMaterial(material), //
+                new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150)) //
+                        .setMaterial(material), //
+                occluder);
+        scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+        scene.lights.add(light);
+        return occluder;
+    }
+
+    /**
+     * Creates the spot light of the triangles and sphere scene
+     *
+     * @return the light
+     */
+    private static LightSource trianglesSphereSpot() {
+        return new SpotLight(new Color(700, 400, 400), new Point(40, 40, 115), new Vector(-1, -1, -4)) //
+                .setkL(4E-4).setkQ(2E-5);
+    }
+
+    /**
+     * Renders the scene in a small image
+     *
+     * @param tracer the ray tracer
+     * @return the camera after the rendering
+     */
+    private static Camera renderSmall(RayTracerBase tracer) {
+        return TestImages.renderSmall(tracer, 1000, 200, 0);
+    }
+
     /**
      * Produce a picture of a two triangles lighted by a spotlight with a Sphere
      * producing a shading
@@ -136,4 +197,98 @@ public class ShadowTests {
                 .writeToImage();
     }
 
+    /**
+     * Produce the picture of two triangles shadowed by a sphere, testing the last occluder
+     * of the light first, and check it is identical to tracing every shadow ray, also after the sphere
+     * is removed
+     */
+    @Test
+    public void trianglesSphereOccluderCache() {
+        Geometry occluder = trianglesSphereScene(new Material().setkS(0.8).setnShininess(60), trianglesSphereSpot());
+
+        SimpleRayTracer cached = new SimpleRayTracer(scene).useOccluderCache();
+        ImageWriter expected = renderSmall(new SimpleRayTracer(scene)).getImageWriter();
+        Camera rendered = renderSmall(cached);
+        assertSameImage(expected, rendered.getImageWriter(), "Occluder cache should not change the image");
+        assertTrue(Metrics.ratio(rendered.getMetrics(), "occluders.hits", "occluders.lookups") > 0,
+                "Occluder cache should be hit");
+        // the same threads render again, with the cached sphere gone from the scene
+        scene.geometries.remove(occluder);
+        assertSameImage(renderSmall(new SimpleRayTracer(scene)).getImageWriter(),
+                renderSmall(cached).getImageWriter(), "Removed occluder should not cast a shadow");
+        scene.geometries.add(occluder);
+
+        camera.setRayTracer(new SimpleRayTracer(scene).useOccluderCache())
+                .setImageWriter(new ImageWriter("shadowTrianglesSphereOccluderCache", 600, 600))
+                .build()
+                .renderImage()
+                .writeToImage();
+    }
+
+    /**
+     * Produce a picture of two triangles lighted by a spot light with a sphere producing a soft shadow,
+     * with the shadows interpolated from an irradiance cache
+     */
+    @Test
+    public void trianglesSphereIrradianceCache() {
+        trianglesSphereScene(new Material().setkS(0.8).setnShininess(60), trianglesSphereSpot());
+
+        SimpleRayTracer cached = new SimpleRayTracer(scene).useSoftShadow().setNumOfSSRays(40).setRadiusBeamSS(10)
+                .useIrradianceCache().setIrradianceCacheRadius(5);
+        ImageWriter expected = renderSmall(new SimpleRayTracer(scene).useSoftShadow().setNumOfSSRays(40)
+                .setRadiusBeamSS(10)).getImageWriter();
+        Camera rendered = renderSmall(cached);
+        assertEquals(meanBrightness(expected), meanBrightness(rendered.getImageWriter()), 0.5,
+                "Irradiance cache should keep the brightness");
+        assertTrue(Metrics.ratio(rendered.getMetrics(), "irradiance.hits", "irradiance.lookups") > 0,
+                "Irradiance cache should be hit");
+
+        camera.setRayTracer(new SimpleRayTracer(scene).useSoftShadow().setNumOfSSRays(40).setRadiusBeamSS(10)
+                        .useIrradianceCache().setIrradianceCacheRadius(2))
+                .setImageWriter(new ImageWriter("shadowTrianglesSphereIrradianceCache", 600, 600))
+                .build()
+                .renderImage()
+                .writeToImage();
+    }
+
+    /**
+     * Test that the edge of a hard shadow interpolated from an irradiance cache stays sharp
+     */
+    @Test
+    public void trianglesSphereIrradianceCacheEdge() {
+        trianglesSphereScene(new Material().setkD(0.5).setkS(0.3).setnShininess(60), trianglesSphereSpot());
+
+        SimpleRayTracer cached = new SimpleRayTracer(scene).useIrradianceCache().setIrradianceCacheRadius(5);
+        ImageWriter expected = renderSmall(new SimpleRayTracer(scene)).getImageWriter();
+        Camera rendered = renderSmall(cached);
+        assertTrue(countDifferentPixels(expected, rendered.getImageWriter(), 30) <= 20,
+                "Shadow edge should not be smeared by the irradiance cache");
+        assertTrue(Metrics.ratio(rendered.getMetrics(), "irradiance.hits", "irradiance.lookups") > 0.5,
+                "Irradiance cache should be hit");
+    }
+
+    /**
+     * Produce a picture of two triangles lighted by a rectangle area light with a sphere
+     * producing a soft shadow
+     */
+    @Test
+    public void trianglesSphereAreaLight() {
+        LightSource rectangle = new RectangleLight(new Color(700, 400, 400), new Point(40, 40, 115),
+                new Vector(30, -30, 0), new Vector(15, 15, 0)).setkL(4E-4).setkQ(2E-5);
+        trianglesSphereScene(new Material().setkD(0.5).setkS(0.3).setnShininess(60), rectangle);
+
+        double area = meanBrightness(renderSmall(new SimpleRayTracer(scene).useSoftShadow().setNumOfSSRays(16))
+                .getImageWriter());
+        scene.lights.set(0, new PointLight(new Color(700, 400, 400), new Point(40, 40, 115)).setkL(4E-4).setkQ(2E-5));
+        double point = meanBrightness(renderSmall(new SimpleRayTracer(scene)).getImageWriter());
+        assertEquals(point, area, 1.5, "Area light should light as much as a point light at its center");
+        scene.lights.set(0, rectangle);
+
+        camera.setRayTracer(new SimpleRayTracer(scene).useSoftShadow().setNumOfSSRays(16))
+                .setImageWriter(new ImageWriter("shadowTrianglesSphereAreaLight", 600, 600))
+                .build()
+                .renderImage()
+                .writeToImage();
+    }
+
 }
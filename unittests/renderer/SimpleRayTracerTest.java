@@ -0,0 +1,124 @@
+package renderer;
+
+import geometries.*;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the refraction of renderer.SimpleRayTracer class
+ */
+class SimpleRayTracerTest {
+    /**
+     * the tracer of the tests
+     */
+    private final SimpleRayTracer tracer = new SimpleRayTracer(new Scene("Test scene"));
+    /**
+     * the point of the tests
+     */
+    private final Point p = new Point(0, 0, 0);
+    /**
+     * normal of the surface at the point
+     */
+    private final Vector n = new Vector(0, 0, 1);
+
+    /**
+     * Test method for {@link renderer.SimpleRayTracer#constructRefractedRay(Vector, Vector, Point, double)}.
+     */
+    @Test
+    void testConstructRefractedRay() {
+        double sin45 = Math.sqrt(0.5);
+        Vector v = new Vector(sin45, 0, -sin45);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: entering the material the ray bends towards the normal by Snell's law
+        Vector t = tracer.constructRefractedRay(n, v, p, 1.5).getDirection();
+        assertEquals(sin45 / 1.5, t.getX(), 1e-10, "Wrong refraction angle entering");
+        assertTrue(t.getZ() < 0, "Refracted ray should go into the material");
+
+        // TC02: leaving the material the ray bends away from the normal
+        Vector inside = new Vector(0.5, 0, 1).normalize();
+        t = tracer.constructRefractedRay(n, inside, p, 1.5).getDirection();
+        assertEquals(1.5 * inside.getX(), t.getX(), 1e-10, "Wrong refraction angle leaving");
+        assertTrue(t.getZ() > 0, "Refracted ray should leave the material");
+
+        // TC03: leaving at a grazing angle the light is totally reflected
+        assertNull(tracer.constructRefractedRay(n, new Vector(1, 0, 0.5).normalize(), p, 1.5), "Should be total reflection");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: index of 1 goes straight through
+        assertEquals(v.normalize(), tracer.constructRefractedRay(n, v, p, 1).getDirection(),
+                "Index of 1 should not bend the ray");
+
+        // TC12: a ray along the normal is not bent
+        assertEquals(new Vector(0, 0, -1), tracer.constructRefractedRay(n, new Vector(0, 0, -1), p, 1.5)
+                .getDirection(), "Ray along the normal should not bend");
+    }
+
+    /**
+     * Test method for {@link renderer.SimpleRayTracer#reflectance(Vector, Vector, double)}.
+     */
+    @Test
+    void testReflectance() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the reflectance grows towards grazing angles
+        double head = SimpleRayTracer.reflectance(n, new Vector(0, 0, -1), 1.5);
+        double oblique = SimpleRayTracer.reflectance(n, new Vector(1, 0, -1).normalize(), 1.5);
+        double grazing = SimpleRayTracer.reflectance(n, new Vector(1, 0, -0.05).normalize(), 1.5);
+        assertEquals(0.04, head, 1e-10, "Wrong reflectance along the normal");
+        assertTrue(head < oblique && oblique < grazing && grazing < 1, "Reflectance should grow with the angle");
+
+        // TC02: total internal reflection
+        assertEquals(1, SimpleRayTracer.reflectance(n, new Vector(1, 0, 0.5).normalize(), 1.5),
+                "Should be total reflection");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: index of 1 reflects nothing
+        assertEquals(0, SimpleRayTracer.reflectance(n, new Vector(1, 0, -1).normalize(), 1),
+                "Index of 1 should not reflect");
+    }
+
+    /**
+     * Test method for the caustics of {@link renderer.SimpleRayTracer#traceRay(Ray)}.
+     */
+    @Test
+    void testCaustics() {
+        // a light 50 under a horizontal mirror at height 100 brings the floor the light of its image at
+        // height 150 - the caustic at the point under it is the intensity over the squared distance
+        double expected = 90000d / (150 * 150);
+        Point a = new Point(-50, -50, 100), b = new Point(50, -50, 100);
+        Point c = new Point(50, 50, 100), d = new Point(-50, 50, 100);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a single mirror
+        assertEquals(expected, caustic(new Polygon(a, b, c, d)), expected * 0.15, "Wrong caustic of a mirror");
+
+        // TC02: a mirror of two triangles whose bounds overlap brings the light once
+        assertEquals(expected, caustic(new Triangle(a, b, c), new Triangle(a, c, d)), expected * 0.15,
+                "Overlapping mirrors should not count the light twice");
+    }
+
+    /**
+     * Calculates the light the caustics bring to the point of the tests on a floor under a light and
+     * mirrors
+     *
+     * @param mirrors the mirrors
+     * @return the light of the caustics at the point
+     */
+    private static double caustic(Geometry... mirrors) {
+        Scene scene = new Scene("Caustic scene");
+        scene.geometries.add(new Plane(new Point(0, 0, 0), new Vector(0, 0, 1))
+                .setMaterial(new Material().setkD(1)));
+        for (Geometry mirror : mirrors)
+            scene.geometries.add(mirror.setMaterial(new Material().setkR(1)));
+        scene.lights.add(new PointLight(new Color(90000, 90000, 90000), new Point(0, 0, 50)).setkQ(1));
+
+        Ray ray = new Ray(new Point(0, 0, 10), new Vector(0, 0, -1));
+        SimpleRayTracer tracer = new SimpleRayTracer(scene).useCaustics().setNumOfPhotons(100000)
+                .setNumOfGatheredPhotons(1000).setCausticRadius(20);
+        return tracer.traceRay(ray).max() - new SimpleRayTracer(scene).traceRay(ray).max();
+    }
+}
@@ -0,0 +1,97 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import primitives.Point;
+import primitives.Vector;
+
+/**
+ * Helpers of the rendering tests - rendering small images of a scene and comparing them
+ *
+ * @author Naama and Yeela
+ */
+final class TestImages {
+    /**
+     * Width and height of the small images
+     */
+    static final int SMALL = 100;
+
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private TestImages() {
+    }
+
+    /**
+     * Renders a small image looking down the negative z-axis, collecting the metrics of the rendering
+     *
+     * @param tracer   the ray tracer of the scene
+     * @param location location of the camera on the z-axis
+     * @param vpSize   width and height of the view plane, at the distance of the location from the origin
+     * @param tileSize size of the tiles of pixels traced together, 0 for tracing pixel by pixel
+     * @return the camera after the rendering, with its image and metrics
+     */
+    static Camera renderSmall(RayTracerBase tracer, double location, double vpSize, int tileSize) {
+        return Camera.getBuilder()
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setLocation(new Point(0, 0, location)).setVpDistance(location)
+                .setVpSize(vpSize, vpSize)
+                .setImageWriter(new ImageWriter("small", SMALL, SMALL))
+                .setRayTracer(tracer)
+                .setTileSize(tileSize)
+                .setMetrics()
+                .build()
+                .renderImage();
+    }
+
+    /**
+     * Calculates the mean brightness of an image
+     *
+     * @param image the image
+     * @return mean of the red, green and blue levels of all the pixels
+     */
+    static double meanBrightness(ImageWriter image) {
+        double sum = 0;
+        for (int i = 0; i < image.getNy(); ++i)
+            for (int j = 0; j < image.getNx(); ++j) {
+                int rgb = image.getPixel(j, i);
+                sum += (rgb >> 16 & 0xFF) + (rgb >> 8 & 0xFF) + (rgb & 0xFF);
+            }
+        return sum / (3.0 * image.getNx() * image.getNy());
+    }
+
+    /**
+     * Counts the pixels which differ between two images
+     *
+     * @param expected  the expected image
+     * @param actual    the actual image
+     * @param tolerance largest difference of a color level in pixels which are considered equal
+     * @return amount of pixels with a level which differs by more than the tolerance
+     */
+    static int countDifferentPixels(ImageWriter expected, ImageWriter actual, int tolerance) {
+        int count = 0;
+        for (int i = 0; i < expected.getNy(); ++i)
+            for (int j = 0; j < expected.getNx(); ++j) {
+                int e = expected.getPixel(j, i), a = actual.getPixel(j, i);
+                for (int shift = 0; shift < 24; shift += 8)
+                    if (Math.abs((e >> shift & 0xFF) - (a >> shift & 0xFF)) > tolerance) {
+                        ++count;
+                        break;
+                    }
+            }
+        return count;
+    }
+
+    /**
+     * Asserts two images are identical
+     *
+     * @param expected the expected image
+     * @param actual   the image to check
+     * @param message  the message of a wrong pixel
+     */
+    static void assertSameImage(ImageWriter expected, ImageWriter actual, String message) {
+        for (int i = 0; i < expected.getNy(); ++i)
+            for (int j = 0; j < expected.getNx(); ++j)
+                assertEquals(expected.getPixel(j, i), actual.getPixel(j, i), message);
+    }
+}
@@ -0,0 +1,70 @@
+package scene;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+import primitives.Material;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for scene.MaterialRegistry class
+ */
+class MaterialRegistryTest {
+    /**
+     * Test method for {@link scene.MaterialRegistry#intern(primitives.Material)} and
+     * {@link scene.MaterialRegistry#intern(primitives.Color)}.
+     */
+    @Test
+    void testIntern() {
+        MaterialRegistry registry = new MaterialRegistry();
+        Material material = new Material().setkD(0.5).setkS(0.5).setnShininess(30);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a material of equal values is replaced by the first one
+        assertSame(material, registry.intern(material), "First material should be registered");
+        assertSame(material, registry.intern(new Material().setkD(0.5).setkS(0.5).setnShininess(30)),
+                "Equal material should be shared");
+        // TC02: a material of other values is kept
+        Material other = new Material().setkD(0.5).setkS(0.5).setnShininess(31);
+        assertSame(other, registry.intern(other), "Different material should not be shared");
+        assertEquals(2, registry.size(), "Wrong number of distinct materials");
+        // TC03: a color of equal components is replaced by the first one
+        Color color = new Color(10, 20, 30);
+        assertSame(color, registry.intern(color), "First color should be registered");
+        assertSame(color, registry.intern(new Color(10, 20, 30)), "Equal color should be shared");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: materials differing only by index of refraction
+        Material refractive = new Material().setkD(0.5).setkS(0.5).setnShininess(30).setIor(1.5);
+        assertSame(refractive, registry.intern(refractive), "Index of refraction should be compared");
+        // TC12: a shared material can not be changed, a copy of it can
+        assertThrows(IllegalStateException.class, () -> material.setkD(0.2), "Shared material should be frozen");
+        Material copy = new Material(material).setkD(0.2);
+        assertEquals(0.5, material.kD.getD1(), "Changing a copy should not change the shared material");
+        assertEquals(0.2, copy.kD.getD1(), "Wrong value of the changed copy");
+    }
+
+    /**
+     * Test method for {@link scene.MaterialRegistry#define(java.lang.String, primitives.Material)} and
+     * {@link scene.MaterialRegistry#get(java.lang.String)}.
+     */
+    @Test
+    void testDefine() {
+        MaterialRegistry registry = new MaterialRegistry();
+        Material glass = new Material().setkT(0.9).setIor(1.5);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a defined material is found by its name
+        registry.define("glass", glass);
+        assertSame(glass, registry.get("glass"), "Wrong named material");
+        // TC02: a defined material is interned with the others
+        assertSame(glass, registry.intern(new Material().setkT(0.9).setIor(1.5)), "Named material should be interned");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: an undefined name
+        assertThrows(IllegalArgumentException.class, () -> registry.get("metal"), "Undefined material should be rejected");
+        // TC12: a name defined twice
+        assertThrows(IllegalArgumentException.class, () -> registry.define("glass", new Material()),
+                "Material defined twice should be rejected");
+    }
+}
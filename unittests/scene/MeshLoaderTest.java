@@ -0,0 +1,169 @@
+package scene;
+
+import geometries.Mesh;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for scene.MeshLoader class
+ */
+class MeshLoaderTest {
+    /**
+     * writes a mesh file
+     *
+     * @param suffix  extension of the file
+     * @param content content of the file
+     * @return path of the file
+     * @throws IOException if the file can not be written
+     */
+    private Path write(String suffix, byte[] content) throws IOException {
+        Path file = Files.createTempFile("mesh", suffix);
+        file.toFile().deleteOnExit();
+        Files.write(file, content);
+        return file;
+    }
+
+    /**
+     * Test method for {@link scene.MeshLoader#loadObj(java.nio.file.Path)}.
+     */
+    @Test
+    void testLoadObj() throws IOException {
+        byte[] content = """
+                # a unit square and a triangle above it
+                o square
+                v 0 0 0
+                v 1.0 0 0
+                vt 0.5 0.5
+                v 1 1 0
+                v 0 1.0e0 0
+                vn 0 0 1
+                f 1/1/1 2/1/1 3/1/1 4/1/1
+                v 0 0 -2.5
+                v 1 0 -2.5\r
+                v 0.000000000000000000001 1 -25E-1
+                usemtl none
+                f -3 -2 -1
+                """.getBytes(StandardCharsets.US_ASCII);
+        Path file = write(".obj", content);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: vertices and faces, a quad split into a fan
+        Mesh mesh = MeshLoader.load(file);
+        assertEquals(7, mesh.getVertexCount(), "Wrong number of vertices");
+        assertEquals(3, mesh.getFaceCount(), "Wrong number of faces");
+        assertEquals(List.of(new Point(0, 0, 0), new Point(1, 1, 0), new Point(0, 1, 0)),
+                mesh.getFace(1).getVertices(), "Quad should be split into a fan");
+        assertEquals(List.of(new Point(0, 0, -2.5), new Point(1, 0, -2.5), new Point(1e-21, 1, -2.5)),
+                mesh.getFace(2).getVertices(), "Relative indexes should count back from the face");
+
+        // TC02: the same mesh when parsed in chunks, relative indexes reaching into earlier chunks
+        for (int chunks = 2; chunks <= 12; ++chunks) {
+            Mesh chunked = MeshLoader.loadObj(file, chunks);
+            assertEquals(7, chunked.getVertexCount(), "Wrong number of vertices in " + chunks + " chunks");
+            assertEquals(3, chunked.getFaceCount(), "Wrong number of faces in " + chunks + " chunks");
+            for (int f = 0; f < 3; ++f)
+                assertEquals(mesh.getFace(f).getVertices(), chunked.getFace(f).getVertices(),
+                        "Wrong face in " + chunks + " chunks");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: malformed number
+        assertThrows(IllegalArgumentException.class,
+                () -> MeshLoader.load(write(".obj", "v 0 0 x\n".getBytes(StandardCharsets.US_ASCII))),
+                "Malformed number should be rejected");
+        // TC12: face of a missing vertex
+        assertThrows(IllegalArgumentException.class,
+                () -> MeshLoader.load(write(".obj", "v 0 0 0\nf 1 2 3\n".getBytes(StandardCharsets.US_ASCII))),
+                "Missing vertex should be rejected");
+    }
+
+    /**
+     * Test method for {@link scene.MeshLoader#loadPly(java.nio.file.Path)}.
+     */
+    @Test
+    void testLoadPly() throws IOException {
+        byte[] header = """
+                ply
+                format binary_little_endian 1.0
+                comment a unit square with colored vertices
+                element vertex 4
+                property float x
+                property float y
+                property double z
+                property uchar red
+                element face 1
+                property uchar flags
+                property list uchar int vertex_indices
+                element edge 1
+                property list uchar ushort vertex_pair
+                end_header
+                """.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer body = ByteBuffer.allocate(4 * 17 + 1 + 1 + 16 + 1 + 4).order(ByteOrder.LITTLE_ENDIAN);
+        double[][] vertices = {{0, 0, 0}, {1, 0, 0}, {1, 1, 0}, {0, 1, 0}};
+        for (double[] v : vertices)
+            body.putFloat((float) v[0]).putFloat((float) v[1]).putDouble(v[2]).put((byte) 200);
+        body.put((byte) 7).put((byte) 4).putInt(0).putInt(1).putInt(2).putInt(3);
+        body.put((byte) 2).putShort((short) 0).putShort((short) 1);
+        byte[] content = new byte[header.length + body.position()];
+        System.arraycopy(header, 0, content, 0, header.length);
+        System.arraycopy(body.array(), 0, content, header.length, body.position());
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: vertices and faces, skipping the other properties and elements
+        Mesh mesh = MeshLoader.load(write(".ply", content));
+        assertEquals(4, mesh.getVertexCount(), "Wrong number of vertices");
+        assertEquals(2, mesh.getFaceCount(), "Wrong number of faces");
+        assertEquals(List.of(new Point(0, 0, 0), new Point(1, 1, 0), new Point(0, 1, 0)),
+                mesh.getFace(1).getVertices(), "Quad should be split into a fan");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: truncated file
+        byte[] truncated = java.util.Arrays.copyOf(content, content.length - 6);
+        assertThrows(IllegalArgumentException.class, () -> MeshLoader.load(write(".ply", truncated)),
+                "Truncated file should be rejected");
+        // TC12: ASCII file
+        assertThrows(IllegalArgumentException.class, () -> MeshLoader.load(write(".ply", """
+                ply
+                format ascii 1.0
+                end_header
+                """.getBytes(StandardCharsets.US_ASCII))), "ASCII file should be rejected");
+        // TC13: negative amount of vertices
+        assertThrows(IllegalArgumentException.class, () -> MeshLoader.load(write(".ply", """
+                ply
+                format binary_little_endian 1.0
+                element vertex -4
+                property float x
+                end_header
+                """.getBytes(StandardCharsets.US_ASCII))), "Negative amount should be rejected");
+        // TC14: more vertices than the file holds
+        assertThrows(IllegalArgumentException.class, () -> MeshLoader.load(write(".ply", """
+                ply
+                format binary_little_endian 1.0
+                element vertex 700000000
+                property float x
+                end_header
+                """.getBytes(StandardCharsets.US_ASCII))), "Amount beyond the file should be rejected");
+        // TC15: negative length of a face list
+        byte[] listHeader = """
+                ply
+                format binary_little_endian 1.0
+                element face 1
+                property list int int vertex_indices
+                end_header
+                """.getBytes(StandardCharsets.US_ASCII);
+        byte[] list = java.util.Arrays.copyOf(listHeader, listHeader.length + 4);
+        ByteBuffer.wrap(list, listHeader.length, 4).order(ByteOrder.LITTLE_ENDIAN).putInt(-1);
+        assertThrows(IllegalArgumentException.class, () -> MeshLoader.load(write(".ply", list)),
+                "Negative list length should be rejected");
+    }
+}
@@ -0,0 +1,158 @@
+package scene;
+
+import geometries.*;
+import lighting.*;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import renderer.Camera;
+import renderer.ImageWriter;
+import renderer.SimpleRayTracer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for scene.SceneFile class
+ */
+class SceneFileTest {
+    /**
+     * creates a temporary file for a test
+     *
+     * @return path of the file
+     * @throws IOException if the file can not be created
+     */
+    private Path tempFile() throws IOException {
+        Path file = Files.createTempFile("scene", ".bin");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Test method for {@link scene.SceneFile#save(java.nio.file.Path, scene.Scene, renderer.Camera)} and
+     * {@link scene.SceneFile#load(java.nio.file.Path)}.
+     */
+    @Test
+    void testSaveLoad() throws IOException {
+        Material shiny = new Material().setkD(0.5).setkS(0.25).setnShininess(20).setkT(0.3).setIor(1.5);
+        Scene scene = new Scene("test").setBackground(new Color(75, 127, 190))
+                .setAmbientLight(new AmbientLight(new Color(255, 191, 191), 0.5));
+        scene.geometries.add(
+                new Sphere(new Point(0, 0, -100), 50).setEmission(new Color(10, 20, 30)).setMaterial(shiny),
+                new Geometries(
+                        new Triangle(new Point(-100, 0, -100), new Point(0, 100, -100), new Point(-100, 100, -100))
+                                .setMaterial(new Material().setkD(0.5).setkS(0.25).setnShininess(20).setkT(0.3)
+                                        .setIor(1.5)),
+                        new Polygon(new Point(0, 0, 0), new Point(1, 0, 0), new Point(1, 1, 0), new Point(0, 1, 0))
+                                .setMaterial(new Material().setkR(0.7).setGlossiness(0.2))),
+                new Plane(new Point(0, 0, -200), new Vector(0, 0, 1)),
+                new Tube(2, new Ray(new Point(1, 2, 3), new Vector(0, 1, 0))),
+                new Cylinder(3, new Ray(new Point(4, 5, 6), new Vector(1, 0, 0)), 7));
+        scene.lights.addAll(List.of(
+                new DirectionalLight(new Color(100, 100, 100), new Vector(1, -1, -1)),
+                new PointLight(new Color(500, 300, 300), new Point(0, 0, 500)).setkL(0.0001).setkQ(0.000001),
+                new SpotLight(new Color(700, 400, 400), new Point(40, 40, 115), new Vector(-1, -1, -4))
+                        .setkQ(0.00002).setNarrowBeam(10),
+                new RectangleLight(new Color(50, 50, 50), new Point(0, 100, 0), new Vector(10, 0, 0),
+                        new Vector(0, 0, 4)),
+                new DiskLight(new Color(60, 60, 60), new Point(0, 90, 0), new Vector(0, -1, 0), 5),
+                new SphereLight(new Color(70, 70, 70), new Point(0, 80, 0), 6)));
+        Camera camera = Camera.getBuilder().setLocation(new Point(0, 0, 1000))
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0)).setVpSize(200, 150).setVpDistance(800)
+                .setImageWriter(new ImageWriter("scene file", 1, 1)).setRayTracer(new SimpleRayTracer(scene))
+                .build();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: every kind of geometry and light is restored, in order
+        Path file = tempFile();
+        SceneFile.save(file, scene, camera);
+        SceneFile loaded = SceneFile.load(file);
+        Scene result = loaded.getScene();
+        assertEquals("test", result.name, "Wrong name");
+        assertEquals(scene.background.toString(), result.background.toString(), "Wrong background");
+        assertEquals(scene.ambientLight.getIntensity().toString(), result.ambientLight.getIntensity().toString(),
+                "Wrong ambient light");
+
+        List<Geometry> expected = scene.geometries.flatten();
+        List<Geometry> geometries = result.geometries.flatten();
+        assertEquals(expected.size(), geometries.size(), "Wrong number of geometries");
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i).getClass(), geometries.get(i).getClass(), "Geometries should keep their order");
+            assertEquals(expected.get(i).getEmission().toString(), geometries.get(i).getEmission().toString(),
+                    "Wrong emission");
+            assertEquals(expected.get(i).getBoundingBox() == null, geometries.get(i).getBoundingBox() == null,
+                    "Wrong geometry");
+        }
+        Sphere sphere = (Sphere) geometries.getFirst();
+        assertEquals(new Point(0, 0, -100), sphere.getCenter(), "Wrong sphere center");
+        assertEquals(50, sphere.getRadius(), "Wrong sphere radius");
+        assertEquals(((Polygon) expected.get(2)).getVertices(), ((Polygon) geometries.get(2)).getVertices(),
+                "Wrong polygon vertices");
+        assertEquals(7, ((Cylinder) geometries.get(5)).getHeight(), "Wrong cylinder height");
+
+        Material material = sphere.getMaterial();
+        assertEquals(new Double3(0.5), material.kD, "Wrong kD");
+        assertEquals(new Double3(0.3), material.kT, "Wrong kT");
+        assertEquals(20, material.nShininess, "Wrong shininess");
+        assertEquals(1.5, material.ior, "Wrong index of refraction");
+        assertEquals(0.2, geometries.get(2).getMaterial().glossiness, "Wrong glossiness");
+        // TC02: equal materials are saved once and shared
+        assertSame(material, geometries.get(1).getMaterial(), "Equal materials should be shared");
+
+        assertEquals(scene.lights.size(), result.lights.size(), "Wrong number of lights");
+        for (int i = 0; i < scene.lights.size(); ++i)
+            assertEquals(scene.lights.get(i).getClass(), result.lights.get(i).getClass(), "Lights should keep their order");
+        Point p = new Point(5, 5, 5);
+        for (int i = 0; i < scene.lights.size(); ++i)
+            assertEquals(scene.lights.get(i).getIntensity(p).toString(), result.lights.get(i).getIntensity(p).toString(),
+                    "Wrong light");
+        assertEquals(new Vector(0, -1, 0), ((DiskLight) result.lights.get(4)).getNormal(), "Wrong disk normal");
+
+        // TC03: the camera's view is restored
+        Camera restored = loaded.getCamera().setImageWriter(new ImageWriter("scene file", 1, 1))
+                .setRayTracer(new SimpleRayTracer(result)).build();
+        assertEquals(camera.getLocation(), restored.getLocation(), "Wrong camera location");
+        assertEquals(camera.getVTo(), restored.getVTo(), "Wrong camera direction");
+        assertEquals(camera.getVUp(), restored.getVUp(), "Wrong camera up direction");
+        assertEquals(200, restored.getVpWidth(), "Wrong view plane width");
+        assertEquals(800, restored.getVpDistance(), "Wrong view plane distance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a scene saved without a camera
+        SceneFile.save(file, new Scene("empty"));
+        loaded = SceneFile.load(file);
+        assertNull(loaded.getCamera(), "No camera was saved");
+        assertTrue(loaded.getScene().geometries.flatten().isEmpty(), "No geometries were saved");
+        assertTrue(loaded.getScene().lights.isEmpty(), "No lights were saved");
+
+        // TC12: a truncated file is rejected
+        SceneFile.save(file, scene);
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 10));
+        assertThrows(IllegalArgumentException.class, () -> SceneFile.load(file), "Truncated file should be rejected");
+
+        // TC13: a file of another kind is rejected
+        Files.writeString(file, "<scene/>");
+        assertThrows(IllegalArgumentException.class, () -> SceneFile.load(file), "Foreign file should be rejected");
+
+        // TC14: a negative length of the name is rejected
+        SceneFile.save(file, new Scene("empty"));
+        content = Files.readAllBytes(file);
+        Files.write(file, ByteBuffer.wrap(content.clone()).putInt(8, -1).array());
+        assertThrows(IllegalArgumentException.class, () -> SceneFile.load(file), "Negative length should be rejected");
+
+        // TC15: amounts of materials, geometries and lights larger than the file are rejected before allocating
+        // header, name, background, ambient light and camera flag come before the amount of materials
+        int materials = 4 + 4 + 4 + 5 + 24 + 24 + 1;
+        for (int offset = materials; offset <= materials + 8; offset += 4) {
+            Files.write(file, ByteBuffer.wrap(content.clone()).putInt(offset, Integer.MAX_VALUE).array());
+            assertThrows(IllegalArgumentException.class, () -> SceneFile.load(file),
+                    "Amount larger than the file should be rejected");
+        }
+    }
+}
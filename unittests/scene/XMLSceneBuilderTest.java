@@ -0,0 +1,200 @@
+package scene;
+
+import geometries.Geometry;
+import geometries.Plane;
+import geometries.Polygon;
+import geometries.Sphere;
+import geometries.Triangle;
+import lighting.DirectionalLight;
+import lighting.PointLight;
+import lighting.SpotLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for scene.XMLSceneBuilder class
+ */
+class XMLSceneBuilderTest {
+    /**
+     * writes a scene file
+     *
+     * @param content the XML content
+     * @return the file
+     * @throws IOException if the file can not be written
+     */
+    private File write(String content) throws IOException {
+        Path file = Files.createTempFile("scene", ".xml");
+        file.toFile().deleteOnExit();
+        Files.writeString(file, content);
+        return file.toFile();
+    }
+
+    /**
+     * Test method for {@link scene.XMLSceneBuilder#loadSceneFromFile(java.io.File)}.
+     */
+    @Test
+    void testLoadSceneFromFile() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: every kind of element, in the order of the file
+        Scene scene = new XMLSceneBuilder("test").loadSceneFromFile(write("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <scene background-color="75 127 190">
+                <ambient-light color="255 191 191" k="0.5"/>
+                <geometries>
+                    <sphere center="0 0 -100" radius="50" emission="10 20 30" kD="0.5" kS="0.25" nShininess="20"/>
+                    <triangle p0="-100 0 -100" p1="0 100 -100" p2="-100 100 -100" kT="0.3"/>
+                    <polygon p0="0 0 0" p1="1 0 0" p2="1 1 0" p3="0 1 0" kR="0.7"/>
+                    <plane p="0 0 -200" normal="0 0 1"/>
+                </geometries>
+                <directional-light color="100 100 100" direction="1 -1 -1"/>
+                <point-light color="500  300 300" position="0 0 500" kL="0.0001" kQ="0.000001"/>
+                <spot-light color="700 400 400" position="40 40 115" direction="-1 -1 -4" kQ="0.00002"/>
+                </scene>
+                """));
+        assertEquals(new Color(75, 127, 190).toString(), scene.background.toString(), "Wrong background");
+        List<Geometry> geometries = scene.geometries.flatten();
+        assertEquals(4, geometries.size(), "Wrong number of geometries");
+        assertInstanceOf(Sphere.class, geometries.get(0), "Geometries should keep the file's order");
+        assertInstanceOf(Triangle.class, geometries.get(1), "Geometries should keep the file's order");
+        assertInstanceOf(Polygon.class, geometries.get(2), "Geometries should keep the file's order");
+        assertInstanceOf(Plane.class, geometries.get(3), "Geometries should keep the file's order");
+
+        Material material = geometries.get(0).getMaterial();
+        assertEquals(new Double3(0.5), material.kD, "Wrong kD");
+        assertEquals(new Double3(0.25), material.kS, "Wrong kS");
+        assertEquals(20, material.nShininess, "Wrong shininess");
+        assertEquals(new Color(10, 20, 30).toString(), geometries.get(0).getEmission().toString(),
+                "Wrong emission");
+        assertEquals(new Double3(0.3), geometries.get(1).getMaterial().kT, "Wrong kT");
+        assertEquals(new Double3(0.7), geometries.get(2).getMaterial().kR, "Wrong kR");
+
+        assertEquals(3, scene.lights.size(), "Wrong number of lights");
+        assertInstanceOf(DirectionalLight.class, scene.lights.get(0), "Lights should keep the file's order");
+        assertInstanceOf(PointLight.class, scene.lights.get(1), "Lights should keep the file's order");
+        assertInstanceOf(SpotLight.class, scene.lights.get(2), "Lights should keep the file's order");
+        assertEquals(new Vector(1, -1, -1).normalize(), scene.lights.get(0).getL(Point.ZERO),
+                "Wrong light direction");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a scene without geometries and lights
+        scene = new XMLSceneBuilder("empty").loadSceneFromFile(write("<scene/>"));
+        assertEquals(0, scene.geometries.flatten().size(), "Empty scene should have no geometries");
+        assertEquals(0, scene.lights.size(), "Empty scene should have no lights");
+
+        // TC12: geometries constructed in several parallel batches keep the file's order
+        StringBuilder content = new StringBuilder("<scene><geometries>");
+        for (int i = 1; i <= 5000; ++i)
+            content.append("<sphere center=\"0 0 0\" radius=\"").append(i).append("\"/>");
+        scene = new XMLSceneBuilder("batches").loadSceneFromFile(write(content.append("</geometries></scene>").toString()));
+        geometries = scene.geometries.flatten();
+        assertEquals(5000, geometries.size(), "Wrong number of geometries");
+        for (int i = 0; i < geometries.size(); ++i)
+            assertEquals(i + 1, ((Sphere) geometries.get(i)).getRadius(), "Geometries should keep the file's order");
+
+        // TC13: an invalid geometry in a batch is reported
+        assertThrows(IllegalArgumentException.class, () -> new XMLSceneBuilder("invalid").loadSceneFromFile(
+                        write("<scene><polygon p0=\"0 0 0\" p1=\"1 0 0\"/></scene>")),
+                "Invalid geometry should be rejected");
+        // TC14: a file which is not well-formed XML
+        assertThrows(IllegalArgumentException.class, () -> new XMLSceneBuilder("malformed").loadSceneFromFile(
+                        write("<scene><geometries><sphere center=\"0 0 0\" radius=\"1\"/></scene>")),
+                "Malformed file should be rejected");
+        // TC15: a missing file
+        assertThrows(UncheckedIOException.class, () -> new XMLSceneBuilder("missing").loadSceneFromFile(
+                        new File("missing.xml")), "Missing file should be reported");
+    }
+
+    /**
+     * Test method for named materials of {@link scene.XMLSceneBuilder#loadSceneFromFile(java.io.File)}.
+     */
+    @Test
+    void testNamedMaterials() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: geometries of equal materials and emissions share them, and attributes override a named material
+        Scene scene = new XMLSceneBuilder("materials").loadSceneFromFile(write("""
+                <scene>
+                <material name="glass" kT="0.9" kR="0.1" ior="1.5"/>
+                <geometries>
+                    <sphere center="0 0 0" radius="1" material="glass" emission="10 20 30"/>
+                    <sphere center="0 0 5" radius="1" material="glass" emission="10 20 30"/>
+                    <sphere center="0 0 9" radius="1" material="glass" glossiness="0.3"/>
+                    <sphere center="0 0 12" radius="1" kT="0.9" kR="0.1" ior="1.5"/>
+                </geometries>
+                </scene>
+                """));
+        List<Geometry> geometries = scene.geometries.flatten();
+        Material glass = geometries.getFirst().getMaterial();
+        assertEquals(new Double3(0.9), glass.kT, "Wrong kT of named material");
+        assertEquals(1.5, glass.ior, "Wrong index of refraction of named material");
+        assertSame(glass, geometries.get(1).getMaterial(), "Geometries of a named material should share it");
+        assertSame(geometries.getFirst().getEmission(), geometries.get(1).getEmission(), "Equal emissions should be shared");
+        Material glossy = geometries.get(2).getMaterial();
+        assertEquals(0.3, glossy.glossiness, "Attribute should override the named material");
+        assertEquals(new Double3(0.9), glossy.kT, "Named material values should be kept");
+        assertSame(glass, geometries.get(3).getMaterial(), "Equal inline material should be shared");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a reference to an undefined material
+        assertThrows(IllegalArgumentException.class, () -> new XMLSceneBuilder("undefined").loadSceneFromFile(
+                        write("<scene><sphere center=\"0 0 0\" radius=\"1\" material=\"metal\"/></scene>")),
+                "Undefined material should be rejected");
+
+        // TC12: a material defined twice
+        assertThrows(IllegalArgumentException.class, () -> new XMLSceneBuilder("twice").loadSceneFromFile(
+                        write("<scene><material name=\"a\"/><material name=\"a\" kD=\"1\"/></scene>")),
+                "Material defined twice should be rejected");
+    }
+
+    /**
+     * Test method for {@link scene.XMLSceneBuilder#setCacheDirectory(java.io.File)}.
+     */
+    @Test
+    void testCorruptedCache() throws IOException {
+        StringBuilder xml = new StringBuilder("<scene><geometries>");
+        for (int i = 0; i < 20; ++i)
+            xml.append("<sphere center=\"").append(3 * i).append(" 0 0\" radius=\"1\"/>");
+        File file = write(xml.append("</geometries></scene>").toString());
+        Path cache = Files.createTempDirectory("cache");
+        try {
+            new XMLSceneBuilder("test").setCacheDirectory(cache.toFile()).loadSceneFromFile(file);
+            Path saved;
+            try (var files = Files.list(cache)) {
+                saved = files.findFirst().orElseThrow();
+            }
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: an unchanged scene restores its hierarchy
+            Scene scene = new XMLSceneBuilder("test").setCacheDirectory(cache.toFile()).loadSceneFromFile(file);
+            assertEquals(0, scene.geometries.getBVH().getRebuilds(), "Cached hierarchy should be restored");
+
+            // =============== Boundary Values Tests ==================
+            // TC11: a corrupted cache file is rebuilt instead of restored
+            byte[] content = Files.readAllBytes(saved);
+            // the root's child index, after the header, the spheres' indexes, the amount of nodes and the cost
+            ByteBuffer.wrap(content).putInt(4 * (4 + 1 + 20 + 1) + 8, -7);
+            Files.write(saved, content);
+            scene = new XMLSceneBuilder("test").setCacheDirectory(cache.toFile()).loadSceneFromFile(file);
+            assertEquals(1, scene.geometries.getBVH().getRebuilds(), "Corrupted hierarchy should be rebuilt");
+            assertEquals(2, scene.geometries.findIntersections(new Ray(new Point(9, 0, 5), new Vector(0, 0, -1))).size(),
+                    "Rebuilt hierarchy should find the spheres");
+            scene = new XMLSceneBuilder("test").setCacheDirectory(cache.toFile()).loadSceneFromFile(file);
+            assertEquals(0, scene.geometries.getBVH().getRebuilds(), "Rebuilt hierarchy should be cached again");
+        } finally {
+            try (var files = Files.list(cache)) {
+                for (Path path : files.toList())
+                    Files.delete(path);
+            }
+            Files.delete(cache);
+        }
+    }
+}